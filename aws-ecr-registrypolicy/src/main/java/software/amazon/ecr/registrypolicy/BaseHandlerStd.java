@@ -1,5 +1,6 @@
 package software.amazon.ecr.registrypolicy;
 
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.services.ecr.EcrClient;
 import software.amazon.awssdk.services.ecr.model.GetRegistryPolicyRequest;
@@ -23,19 +24,37 @@ import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 import java.util.List;
 
 public abstract class BaseHandlerStd extends BaseHandler<CallbackContext> {
+  static {
+    // Handlers are constructed while the container initialises, ahead of its first request.
+    ClientBuilder.primeIfEnabled();
+  }
+
   @Override
   public final ProgressEvent<ResourceModel, CallbackContext> handleRequest(
     final AmazonWebServicesClientProxy proxy,
     final ResourceHandlerRequest<ResourceModel> request,
     final CallbackContext callbackContext,
     final Logger logger) {
-    return handleRequest(
-      proxy,
-      request,
-      callbackContext != null ? callbackContext : new CallbackContext(),
-      proxy.newProxy(ClientBuilder::getClient),
-      logger
-    );
+    final CallbackContext context = callbackContext != null ? callbackContext : new CallbackContext();
+    final ApiCallMetrics metrics = new ApiCallMetrics(ResourceModel.TYPE_NAME, action());
+    final ProgressEvent<ResourceModel, CallbackContext> event;
+    try {
+      event = handleRequest(
+        proxy,
+        request,
+        context,
+        proxy.newProxy(() -> metrics.instrument(ClientBuilder.getClient())),
+        logger
+      );
+    } finally {
+      // Published however the handler ends, so invocations that throw are measured too.
+      metrics.flush(logger);
+      logger.log(ClientBuilder.describeCache());
+    }
+    if (!defersThrottling()) {
+      return event;
+    }
+    return Resilience.shared().deferIfThrottled(event, context, request.getDesiredResourceState());
   }
 
  GetRegistryPolicyResponse getRegistryPolicy(GetRegistryPolicyRequest request,
@@ -83,6 +102,9 @@ public abstract class BaseHandlerStd extends BaseHandler<CallbackContext> {
       ex = new CfnNotFoundException(e);
     } else if (e instanceof InvalidParameterException || e instanceof ValidationException) {
       ex = new CfnInvalidRequestException(e);
+    } else if (e instanceof AwsServiceException
+        && Resilience.classify((AwsServiceException) e) != Resilience.Failure.OTHER) {
+      ex = Resilience.toHandlerException((AwsServiceException) e);
     } else if (e instanceof SdkException) {
       ex = new CfnServiceInternalErrorException(e);
     } else if (e instanceof CfnAlreadyExistsException) {
@@ -100,4 +122,19 @@ public abstract class BaseHandlerStd extends BaseHandler<CallbackContext> {
     final CallbackContext callbackContext,
     final ProxyClient<EcrClient> proxyClient,
     final Logger logger);
+
+  /**
+   * Whether the handler turns a throttled invocation into a callback. Read and List have to answer
+   * within the invocation, so they fail instead.
+   */
+  boolean defersThrottling() {
+    return true;
+  }
+
+  /**
+   * The handler's action as metrics name it, such as Create for the CreateHandler.
+   */
+  String action() {
+    return getClass().getSimpleName().replace("Handler", "");
+  }
 }
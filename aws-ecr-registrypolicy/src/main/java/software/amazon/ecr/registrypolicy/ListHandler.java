@@ -35,4 +35,9 @@ public class ListHandler extends BaseHandlerStd {
                         this.handleError(exception, Collections.singletonList(model), context))
                 .done(Translator::translateToListResponseEvent);
     }
+
+    @Override
+    boolean defersThrottling() {
+        return false;
+    }
 }
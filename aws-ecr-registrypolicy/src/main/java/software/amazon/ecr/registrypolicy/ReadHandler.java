@@ -26,4 +26,9 @@ public class ReadHandler extends BaseHandlerStd {
             .done(awsResponse -> ProgressEvent.defaultSuccessHandler(
                     Translator.translateFromReadResponse(awsResponse)));
         }
+
+    @Override
+    boolean defersThrottling() {
+        return false;
+    }
 }
@@ -0,0 +1,270 @@
+package software.amazon.ecr.registrypolicy;
+
+import software.amazon.awssdk.awscore.AwsResponse;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.ApiCallAttemptTimeoutException;
+import software.amazon.awssdk.core.exception.RetryableException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.LimitExceededException;
+import software.amazon.awssdk.services.ecr.model.ServerException;
+import software.amazon.cloudformation.exceptions.BaseHandlerException;
+import software.amazon.cloudformation.exceptions.CfnGeneralServiceException;
+import software.amazon.cloudformation.exceptions.CfnResourceConflictException;
+import software.amazon.cloudformation.exceptions.CfnServiceInternalErrorException;
+import software.amazon.cloudformation.exceptions.CfnServiceLimitExceededException;
+import software.amazon.cloudformation.exceptions.CfnThrottlingException;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Retries ECR calls that failed for a reason that passes: throttling, a server error, a conflicting
+ * concurrent change, a skewed clock, or a connection that broke or timed out before ECR answered.
+ * Retries back off exponentially with full jitter, and each operation draws them
+ * from its own retry budget, shared by every invocation in the container: successes refill it, so
+ * an operation that keeps failing soon stops being retried and its callers stop adding to the load.
+ *
+ * <p>A throttled call that is not retried any more fails the handler with
+ * {@link HandlerErrorCode#Throttling}. Handlers that can be called back turn that into a callback
+ * after a jittered delay (see {@link #deferIfThrottled}); each of them makes a single put or delete,
+ * so running again from the start is safe.
+ */
+final class Resilience {
+  static final int MAX_ATTEMPTS = 4;
+  static final long BASE_DELAY_MILLIS = 100L;
+  static final long MAX_DELAY_MILLIS = 2_000L;
+  // Each retry costs RETRY_COST tokens and each success returns one, as in the SDK's retry quota.
+  static final int RETRY_BUDGET_TOKENS = 50;
+  static final int RETRY_COST = 5;
+  static final int MAX_THROTTLED_CALLBACKS = 10;
+  static final int MAX_CALLBACK_DELAY_SECONDS = 60;
+
+  private static final Set<String> THROTTLING_CODES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+      "ThrottlingException", "Throttling", "TooManyRequestsException", "RequestLimitExceeded")));
+  private static final Set<String> LIMIT_CODES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+      "LimitExceededException", "ServiceQuotaExceededException")));
+  private static final Set<String> CONFLICT_CODES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+      "ConflictException", "ConcurrentModificationException", "OperationAbortedException")));
+  // The SDK corrects its clock offset from the failed response, so the next attempt is signed right.
+  private static final Set<String> CLOCK_SKEW_CODES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+      "RequestTimeTooSkewed", "RequestExpired", "RequestInTheFuture", "InvalidSignatureException",
+      "SignatureDoesNotMatch", "AuthFailure")));
+
+  private static final Resilience SHARED = new Resilience(Resilience::sleep,
+      bound -> ThreadLocalRandom.current().nextLong(bound + 1));
+
+  private final LongConsumer sleeper;
+  private final LongUnaryOperator jitter;
+  // Retries made by the latest call on each thread, for instrumentation around the wrapped client.
+  private static final ThreadLocal<Integer> LAST_RETRIES = ThreadLocal.withInitial(() -> 0);
+
+  private final Map<String, AtomicInteger> retryTokens = new ConcurrentHashMap<>();
+  private final AtomicLong retries = new AtomicLong();
+
+  /**
+   * @param sleeper waits the given number of milliseconds
+   * @param jitter picks a delay between zero and the given bound, inclusive
+   */
+  Resilience(final LongConsumer sleeper, final LongUnaryOperator jitter) {
+    this.sleeper = sleeper;
+    this.jitter = jitter;
+  }
+
+  static Resilience shared() {
+    return SHARED;
+  }
+
+  enum Failure {
+    THROTTLING(HandlerErrorCode.Throttling, true),
+    LIMIT_EXCEEDED(HandlerErrorCode.ServiceLimitExceeded, false),
+    SERVER_ERROR(HandlerErrorCode.ServiceInternalError, true),
+    CONFLICT(HandlerErrorCode.ResourceConflict, true),
+    CLOCK_SKEW(HandlerErrorCode.GeneralServiceException, true),
+    OTHER(HandlerErrorCode.GeneralServiceException, false);
+
+    private final HandlerErrorCode errorCode;
+    private final boolean retryable;
+
+    Failure(final HandlerErrorCode errorCode, final boolean retryable) {
+      this.errorCode = errorCode;
+      this.retryable = retryable;
+    }
+
+    HandlerErrorCode getErrorCode() {
+      return errorCode;
+    }
+
+    boolean isRetryable() {
+      return retryable;
+    }
+  }
+
+  static Failure classify(final AwsServiceException e) {
+    final String code = e.awsErrorDetails() == null ? null : e.awsErrorDetails().errorCode();
+    if (e.isThrottlingException() || THROTTLING_CODES.contains(code)) {
+      return Failure.THROTTLING;
+    }
+    if (e instanceof LimitExceededException || LIMIT_CODES.contains(code)) {
+      return Failure.LIMIT_EXCEEDED;
+    }
+    if (e instanceof ServerException || e.statusCode() >= 500) {
+      return Failure.SERVER_ERROR;
+    }
+    if (e.statusCode() == 409 || CONFLICT_CODES.contains(code)) {
+      return Failure.CONFLICT;
+    }
+    if (CLOCK_SKEW_CODES.contains(code)) {
+      return Failure.CLOCK_SKEW;
+    }
+    return Failure.OTHER;
+  }
+
+  /**
+   * Whether a call that got no answer from ECR may succeed if made again: the connection broke, or
+   * the attempt timed out, on the way. Other client errors, such as a request that cannot be
+   * marshalled or missing credentials, fail the same way every time.
+   */
+  static boolean isTransient(final SdkClientException e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof IOException || cause instanceof UncheckedIOException
+          || cause instanceof ApiCallAttemptTimeoutException || cause instanceof RetryableException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The exception a handler throws for a failed call, carrying the error code of its class of failure.
+   */
+  static BaseHandlerException toHandlerException(final AwsServiceException e) {
+    switch (classify(e)) {
+      case THROTTLING:
+        return new CfnThrottlingException(e);
+      case LIMIT_EXCEEDED:
+        return new CfnServiceLimitExceededException(e);
+      case SERVER_ERROR:
+        return new CfnServiceInternalErrorException(e);
+      case CONFLICT:
+        return new CfnResourceConflictException(e);
+      default:
+        return new CfnGeneralServiceException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Wraps a client so every operation it is asked for goes through {@link #call}. Paginators are
+   * left as they are: they call the unwrapped client page by page.
+   */
+  EcrClient wrap(final EcrClient client) {
+    return (EcrClient) Proxy.newProxyInstance(EcrClient.class.getClassLoader(), new Class<?>[] {EcrClient.class},
+        (proxy, method, args) -> AwsResponse.class.isAssignableFrom(method.getReturnType())
+            ? call(method.getName(), () -> invoke(client, method, args))
+            : invoke(client, method, args));
+  }
+
+  /**
+   * Makes the call, retrying it while it fails for a passing reason, it has attempts left and the
+   * operation's retry budget allows.
+   */
+  <T> T call(final String operation, final Supplier<T> call) {
+    final AtomicInteger tokens = retryTokens.computeIfAbsent(operation, ignored -> new AtomicInteger(RETRY_BUDGET_TOKENS));
+    for (int attempt = 1; ; attempt++) {
+      LAST_RETRIES.set(attempt - 1);
+      try {
+        final T result = call.get();
+        tokens.getAndUpdate(current -> Math.min(RETRY_BUDGET_TOKENS, current + 1));
+        return result;
+      } catch (final SdkException e) {
+        if (!isRetryable(e) || attempt >= MAX_ATTEMPTS || !withdraw(tokens)) {
+          throw e;
+        }
+        retries.incrementAndGet();
+        sleeper.accept(jitter.applyAsLong(Math.min(MAX_DELAY_MILLIS, BASE_DELAY_MILLIS << attempt)));
+      }
+    }
+  }
+
+  /** Retries the latest call made on the current thread took. */
+  static int lastRetries() {
+    return LAST_RETRIES.get();
+  }
+
+  /** Calls retried since the container started. */
+  long retries() {
+    return retries.get();
+  }
+
+  /**
+   * Turns a handler that failed with {@link HandlerErrorCode#Throttling} into a callback after a
+   * jittered delay, a bounded number of times. Read and List handlers cannot be called back, and
+   * get the failure as it is.
+   */
+  ProgressEvent<ResourceModel, CallbackContext> deferIfThrottled(final ProgressEvent<ResourceModel, CallbackContext> event,
+                                                                 final CallbackContext context,
+                                                                 final ResourceModel model) {
+    if (event.getStatus() != OperationStatus.FAILED || event.getErrorCode() != HandlerErrorCode.Throttling
+        || context.getThrottledCallbacks() >= MAX_THROTTLED_CALLBACKS) {
+      return event;
+    }
+    context.setThrottledCallbacks(context.getThrottledCallbacks() + 1);
+    final long bound = Math.min(MAX_CALLBACK_DELAY_SECONDS, 1L << context.getThrottledCallbacks());
+    final int delaySeconds = (int) Math.max(1L, jitter.applyAsLong(bound));
+    return ProgressEvent.defaultInProgressHandler(context, delaySeconds,
+        event.getResourceModel() != null ? event.getResourceModel() : model);
+  }
+
+  private static boolean isRetryable(final SdkException e) {
+    if (e instanceof AwsServiceException) {
+      return classify((AwsServiceException) e).isRetryable();
+    }
+    return e instanceof SdkClientException && isTransient((SdkClientException) e);
+  }
+
+  private static boolean withdraw(final AtomicInteger tokens) {
+    return tokens.getAndUpdate(current -> current >= RETRY_COST ? current - RETRY_COST : current) >= RETRY_COST;
+  }
+
+  private static Object invoke(final EcrClient client, final Method method, final Object[] args) {
+    try {
+      return method.invoke(client, args);
+    } catch (final InvocationTargetException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } catch (final IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void sleep(final long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
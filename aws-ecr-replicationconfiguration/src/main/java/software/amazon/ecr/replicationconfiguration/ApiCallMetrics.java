@@ -0,0 +1,194 @@
+package software.amazon.ecr.replicationconfiguration;
+
+import software.amazon.awssdk.awscore.AwsResponse;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.cloudformation.proxy.Logger;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Records every ECR call one handler invocation makes and publishes them as a single embedded metric
+ * format line when the invocation ends. For each operation the line carries a latency distribution
+ * and the number of calls, failed calls and retries, under the resource type and handler action;
+ * failed calls are broken down by error code in the {@code ErrorCodes} member.
+ *
+ * <p>Latencies are kept in an HDR-style histogram: buckets double in width with each power of two
+ * and are split into {@link #SUB_BUCKETS} equal parts, so every value is known to within about 3%
+ * however many calls are recorded.
+ */
+final class ApiCallMetrics {
+    static final int SUB_BUCKETS = 32;
+
+    private final String resourceType;
+    private final String action;
+    private final LongSupplier nanoClock;
+    private final Map<String, OperationStats> operations = new ConcurrentSkipListMap<>();
+
+    ApiCallMetrics(final String resourceType, final String action) {
+        this(resourceType, action, System::nanoTime);
+    }
+
+    ApiCallMetrics(final String resourceType, final String action, final LongSupplier nanoClock) {
+        this.resourceType = resourceType;
+        this.action = action;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Wraps a client so every operation it is asked for is recorded. Calls are timed as the handler
+     * sees them, including any retries Resilience makes below.
+     */
+    EcrClient instrument(final EcrClient client) {
+        return (EcrClient) Proxy.newProxyInstance(EcrClient.class.getClassLoader(), new Class<?>[] {EcrClient.class},
+                (proxy, method, args) -> AwsResponse.class.isAssignableFrom(method.getReturnType())
+                        ? record(operationName(method), () -> invoke(client, method, args))
+                        : invoke(client, method, args));
+    }
+
+    <T> T record(final String operation, final Supplier<T> call) {
+        final long start = nanoClock.getAsLong();
+        String errorCode = null;
+        try {
+            return call.get();
+        } catch (final AwsServiceException e) {
+            errorCode = e.awsErrorDetails() != null && e.awsErrorDetails().errorCode() != null
+                    ? e.awsErrorDetails().errorCode()
+                    : e.getClass().getSimpleName();
+            throw e;
+        } catch (final RuntimeException e) {
+            errorCode = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            final long micros = TimeUnit.NANOSECONDS.toMicros(nanoClock.getAsLong() - start);
+            operations.computeIfAbsent(operation, ignored -> new OperationStats())
+                    .record(micros, errorCode, Resilience.lastRetries());
+        }
+    }
+
+    /**
+     * Logs the line, if the invocation made any calls.
+     */
+    void flush(final Logger logger) {
+        if (!operations.isEmpty()) {
+            logger.log(toLine(System.currentTimeMillis()));
+        }
+    }
+
+    String toLine(final long timestampMillis) {
+        final EmbeddedMetrics metrics = new EmbeddedMetrics()
+                .dimension("ResourceType", resourceType)
+                .dimension("Action", action);
+        final Map<String, Map<String, Integer>> errorCodes = new TreeMap<>();
+        operations.forEach((operation, stats) -> stats.addTo(metrics, operation, errorCodes));
+        return metrics.property("ErrorCodes", errorCodes).toLine(timestampMillis);
+    }
+
+    private static String operationName(final Method method) {
+        return Character.toUpperCase(method.getName().charAt(0)) + method.getName().substring(1);
+    }
+
+    private static final class OperationStats {
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final Map<String, Integer> errorCodes = new TreeMap<>();
+        private int calls;
+        private int errors;
+        private int retries;
+
+        synchronized void record(final long micros, final String errorCode, final int callRetries) {
+            latencies.record(micros);
+            calls++;
+            retries += callRetries;
+            if (errorCode != null) {
+                errors++;
+                errorCodes.merge(errorCode, 1, Integer::sum);
+            }
+        }
+
+        synchronized void addTo(final EmbeddedMetrics metrics, final String operation,
+                                final Map<String, Map<String, Integer>> allErrorCodes) {
+            metrics.metric(operation + ".Latency", "Milliseconds", latencies.valuesMillis(EmbeddedMetrics.MAX_VALUES))
+                    .metric(operation + ".Calls", "Count", calls)
+                    .metric(operation + ".Errors", "Count", errors)
+                    .metric(operation + ".Retries", "Count", retries);
+            if (!errorCodes.isEmpty()) {
+                allErrorCodes.put(operation, new TreeMap<>(errorCodes));
+            }
+        }
+    }
+
+    /**
+     * Counts values, in microseconds, by bucket. Values below {@link #SUB_BUCKETS} have a bucket each;
+     * above that, a bucket spans a 1/{@link #SUB_BUCKETS} share of its power of two.
+     */
+    static final class LatencyHistogram {
+        private final TreeMap<Long, Long> counts = new TreeMap<>();
+        private long total;
+
+        void record(final long value) {
+            counts.merge(bucketStart(Math.max(0L, value)), 1L, Long::sum);
+            total++;
+        }
+
+        long count() {
+            return total;
+        }
+
+        static long bucketStart(final long value) {
+            if (value < SUB_BUCKETS) {
+                return value;
+            }
+            final int shift = 63 - Long.numberOfLeadingZeros(value) - Integer.numberOfTrailingZeros(SUB_BUCKETS);
+            return value >> shift << shift;
+        }
+
+        static long bucketWidth(final long start) {
+            return start < SUB_BUCKETS ? 1L : Long.highestOneBit(start) / SUB_BUCKETS;
+        }
+
+        /**
+         * The middle of each recorded value's bucket, in milliseconds. Past {@code max} values, each
+         * bucket's count is scaled down in proportion, so percentiles keep their shape.
+         */
+        List<Double> valuesMillis(final int max) {
+            final List<Double> values = new ArrayList<>();
+            long seen = 0;
+            int emitted = 0;
+            for (final Map.Entry<Long, Long> bucket : counts.entrySet()) {
+                seen += bucket.getValue();
+                // Rounding the running total rather than each bucket's share keeps exactly max values.
+                final int upTo = total <= max ? (int) seen : (int) Math.round((double) seen * max / total);
+                final double middle = (bucket.getKey() + bucketWidth(bucket.getKey()) / 2.0) / 1_000.0;
+                for (; emitted < upTo; emitted++) {
+                    values.add(Math.round(middle * 1_000.0) / 1_000.0);
+                }
+            }
+            return values;
+        }
+    }
+
+    private static Object invoke(final EcrClient client, final Method method, final Object[] args) {
+        try {
+            return method.invoke(client, args);
+        } catch (final InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (final IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
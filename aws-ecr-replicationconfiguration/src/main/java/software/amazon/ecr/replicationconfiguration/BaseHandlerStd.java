@@ -12,6 +12,10 @@ import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
 // Placeholder for the functionality that could be shared across Create/Read/Update/Delete/List Handlers
 public abstract class BaseHandlerStd extends BaseHandler<CallbackContext> {
+    static {
+        // Handlers are constructed while the container initialises, ahead of its first request.
+        ClientBuilder.primeIfEnabled();
+    }
 
     @Override
     public final ProgressEvent<ResourceModel, CallbackContext> handleRequest(
@@ -19,13 +23,26 @@ public abstract class BaseHandlerStd extends BaseHandler<CallbackContext> {
             final ResourceHandlerRequest<ResourceModel> request,
             final CallbackContext callbackContext,
             final Logger logger) {
-        return handleRequest(
-                proxy,
-                request,
-                callbackContext != null ? callbackContext : new CallbackContext(),
-                proxy.newProxy(ClientBuilder::getClient),
-                logger
-        );
+        final CallbackContext context = callbackContext != null ? callbackContext : new CallbackContext();
+        final ApiCallMetrics metrics = new ApiCallMetrics(ResourceModel.TYPE_NAME, action());
+        final ProgressEvent<ResourceModel, CallbackContext> event;
+        try {
+            event = handleRequest(
+                    proxy,
+                    request,
+                    context,
+                    proxy.newProxy(() -> metrics.instrument(ClientBuilder.getClient())),
+                    logger
+            );
+        } finally {
+            // Published however the handler ends, so invocations that throw are measured too.
+            metrics.flush(logger);
+            logger.log(ClientBuilder.describeCache());
+        }
+        if (!defersThrottling()) {
+            return event;
+        }
+        return Resilience.shared().deferIfThrottled(event, context, request.getDesiredResourceState());
     }
 
     protected abstract ProgressEvent<ResourceModel, CallbackContext> handleRequest(
@@ -35,6 +52,21 @@ public abstract class BaseHandlerStd extends BaseHandler<CallbackContext> {
             final ProxyClient<EcrClient> proxyClient,
             final Logger logger);
 
+    /**
+     * Whether the handler turns a throttled invocation into a callback. Read and List have to answer
+     * within the invocation, so they fail instead.
+     */
+    boolean defersThrottling() {
+        return true;
+    }
+
+    /**
+     * The handler's action as metrics name it, such as Create for the CreateHandler.
+     */
+    String action() {
+        return getClass().getSimpleName().replace("Handler", "");
+    }
+
     protected boolean hasExistingResource(DescribeRegistryResponse response) {
         // Check if any rules exist on the ECR Registry
         return response.replicationConfiguration() != null
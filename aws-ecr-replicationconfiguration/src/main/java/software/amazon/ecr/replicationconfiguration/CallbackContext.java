@@ -7,4 +7,6 @@ import software.amazon.cloudformation.proxy.StdCallbackContext;
 @lombok.ToString
 @lombok.EqualsAndHashCode(callSuper = true)
 public class CallbackContext extends StdCallbackContext {
+    // Callbacks taken to wait out throttling, see Resilience.
+    private int throttledCallbacks;
 }
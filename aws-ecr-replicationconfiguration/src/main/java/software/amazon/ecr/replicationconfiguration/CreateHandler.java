@@ -51,7 +51,7 @@ public class CreateHandler extends BaseHandlerStd {
             return ProgressEvent.<ResourceModel, CallbackContext>builder()
                     .resourceModel(model)
                     .status(OperationStatus.FAILED)
-                    .errorCode(HandlerErrorCode.GeneralServiceException)
+                    .errorCode(Resilience.classify(e).getErrorCode())
                     .message(e.getMessage())
                     .build();
         }
@@ -52,7 +52,7 @@ public class DeleteHandler extends BaseHandlerStd {
             return ProgressEvent.<ResourceModel, CallbackContext>builder()
                     .resourceModel(model)
                     .status(OperationStatus.FAILED)
-                    .errorCode(HandlerErrorCode.GeneralServiceException)
+                    .errorCode(Resilience.classify(e).getErrorCode())
                     .message(e.getMessage())
                     .build();
         }
@@ -0,0 +1,71 @@
+package software.amazon.ecr.replicationconfiguration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Builds one log line in CloudWatch embedded metric format (EMF). The line is a JSON object whose
+ * {@code _aws} member tells CloudWatch Logs which of its other members to extract as metrics and
+ * under which dimensions, so writing it through the handler's logger is all it takes to publish.
+ */
+final class EmbeddedMetrics {
+    static final String NAMESPACE = "ECR/ResourceProviders";
+    // CloudWatch takes at most this many values for one metric in one line.
+    static final int MAX_VALUES = 100;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Map<String, String> dimensions = new LinkedHashMap<>();
+    private final Map<String, String> units = new LinkedHashMap<>();
+    private final Map<String, Object> values = new LinkedHashMap<>();
+    private final Map<String, Object> properties = new LinkedHashMap<>();
+
+    EmbeddedMetrics dimension(final String name, final String value) {
+        dimensions.put(name, value);
+        return this;
+    }
+
+    /**
+     * @param unit a CloudWatch unit, such as {@code Count} or {@code Milliseconds}
+     * @param value a number, or a list of up to {@link #MAX_VALUES} numbers for a distribution
+     */
+    EmbeddedMetrics metric(final String name, final String unit, final Object value) {
+        units.put(name, unit);
+        values.put(name, value);
+        return this;
+    }
+
+    /**
+     * Adds a member that is logged with the metrics, for queries, without being a metric itself.
+     */
+    EmbeddedMetrics property(final String name, final Object value) {
+        properties.put(name, value);
+        return this;
+    }
+
+    String toLine(final long timestampMillis) {
+        final ObjectNode line = MAPPER.createObjectNode();
+        final ObjectNode aws = line.putObject("_aws");
+        aws.put("Timestamp", timestampMillis);
+        final ObjectNode directive = aws.putArray("CloudWatchMetrics").addObject();
+        directive.put("Namespace", NAMESPACE);
+        final ArrayNode dimensionSet = directive.putArray("Dimensions").addArray();
+        dimensions.keySet().forEach(dimensionSet::add);
+        final ArrayNode metrics = directive.putArray("Metrics");
+        units.forEach((name, unit) -> metrics.addObject().put("Name", name).put("Unit", unit));
+
+        dimensions.forEach(line::put);
+        values.forEach((name, value) -> line.set(name, MAPPER.valueToTree(value)));
+        properties.forEach((name, value) -> line.set(name, MAPPER.valueToTree(value)));
+        try {
+            return MAPPER.writeValueAsString(line);
+        } catch (final JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
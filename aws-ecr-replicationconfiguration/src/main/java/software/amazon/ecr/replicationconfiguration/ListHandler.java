@@ -4,7 +4,6 @@ import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.services.ecr.EcrClient;
 import software.amazon.awssdk.services.ecr.model.DescribeRegistryResponse;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
-import software.amazon.cloudformation.proxy.HandlerErrorCode;
 import software.amazon.cloudformation.proxy.Logger;
 import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ProgressEvent;
@@ -37,7 +36,7 @@ public class ListHandler extends BaseHandlerStd {
             return ProgressEvent.<ResourceModel, CallbackContext>builder()
                     .status(OperationStatus.FAILED)
                     .resourceModels(emptyList())
-                    .errorCode(HandlerErrorCode.GeneralServiceException)
+                    .errorCode(Resilience.classify(e).getErrorCode())
                     .message(e.getMessage())
                     .build();
         }
@@ -57,4 +56,9 @@ public class ListHandler extends BaseHandlerStd {
                 .nextToken(null)
                 .build();
     }
+
+    @Override
+    boolean defersThrottling() {
+        return false;
+    }
 }
@@ -41,7 +41,7 @@ public class ReadHandler extends BaseHandlerStd {
             return ProgressEvent.<ResourceModel, CallbackContext>builder()
                     .resourceModel(model)
                     .status(OperationStatus.FAILED)
-                    .errorCode(HandlerErrorCode.GeneralServiceException)
+                    .errorCode(Resilience.classify(e).getErrorCode())
                     .message(e.getMessage())
                     .build();
         }
@@ -51,4 +51,9 @@ public class ReadHandler extends BaseHandlerStd {
             .status(OperationStatus.SUCCESS)
             .build();
     }
+
+    @Override
+    boolean defersThrottling() {
+        return false;
+    }
 }
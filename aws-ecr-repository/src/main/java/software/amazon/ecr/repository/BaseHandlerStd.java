@@ -1,28 +1,78 @@
 package software.amazon.ecr.repository;
 
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.RepositoryAlreadyExistsException;
+import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesResponse;
+import software.amazon.awssdk.services.ecr.model.RepositoryNotFoundException;
+import software.amazon.cloudformation.exceptions.BaseHandlerException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
 import software.amazon.cloudformation.proxy.Logger;
+import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 // Placeholder for the functionality that could be shared across Create/Read/Update/Delete/List Handlers
 
 public abstract class BaseHandlerStd extends BaseHandler<CallbackContext> {
+  static {
+    // Handlers are constructed while the container initialises, ahead of its first request.
+    ClientBuilder.primeIfEnabled();
+  }
+
+  // A step is only started with at least this much of the time budget left; otherwise the handler
+  // checkpoints and lets CloudFormation call back into a fresh invocation.
+  static final long STEP_RESERVE_MILLIS = 15_000L;
+  static final int CHECKPOINT_CALLBACK_DELAY_SECONDS = 1;
+
+  private final Supplier<TimeBudget> budgets;
+
+  protected BaseHandlerStd() {
+    this(TimeBudget::start);
+  }
+
+  BaseHandlerStd(final Supplier<TimeBudget> budgets) {
+    this.budgets = budgets;
+  }
+
+  /**
+   * Starts the time budget of one invocation.
+   */
+  protected TimeBudget startBudget() {
+    return budgets.get();
+  }
+
   @Override
   public final ProgressEvent<ResourceModel, CallbackContext> handleRequest(
     final AmazonWebServicesClientProxy proxy,
     final ResourceHandlerRequest<ResourceModel> request,
     final CallbackContext callbackContext,
     final Logger logger) {
-    return handleRequest(
-      proxy,
-      request,
-      callbackContext != null ? callbackContext : new CallbackContext(),
-      proxy.newProxy(ClientBuilder::getClient),
-      logger
-    );
+    final CallbackContext context = callbackContext != null ? callbackContext : new CallbackContext();
+    final ApiCallMetrics metrics = new ApiCallMetrics(ResourceModel.TYPE_NAME, action());
+    final ProgressEvent<ResourceModel, CallbackContext> event;
+    try {
+      event = handleRequest(
+        proxy,
+        request,
+        context,
+        proxy.newProxy(() -> metrics.instrument(ClientBuilder.getClient())),
+        logger
+      );
+    } finally {
+      // Published however the handler ends, so invocations that throw are measured too.
+      metrics.flush(logger);
+      logger.log(ClientBuilder.describeCache());
+      ConcurrencyLimiter.shared().metricLines(ResourceModel.TYPE_NAME, System.currentTimeMillis()).forEach(logger::log);
+    }
+    if (!defersThrottling()) {
+      return event;
+    }
+    return Resilience.shared().deferIfThrottled(event, context, request.getDesiredResourceState());
   }
 
   protected abstract ProgressEvent<ResourceModel, CallbackContext> handleRequest(
@@ -31,4 +81,171 @@ public abstract class BaseHandlerStd extends BaseHandler<CallbackContext> {
     final CallbackContext callbackContext,
     final ProxyClient<EcrClient> proxyClient,
     final Logger logger);
+
+  /**
+   * Whether the handler turns a throttled invocation into a callback. Read and List have to answer
+   * within the invocation, so they fail instead.
+   */
+  boolean defersThrottling() {
+    return true;
+  }
+
+  /**
+   * The handler's action as metrics name it, such as Create for the CreateHandler.
+   */
+  String action() {
+    return getClass().getSimpleName().replace("Handler", "");
+  }
+
+  /**
+   * Runs a journaled step. Steps a previous invocation completed are skipped, and a step is not
+   * started without enough budget left to finish it: the handler returns IN_PROGRESS instead and
+   * resumes from this step when called back.
+   */
+  static ProgressEvent<ResourceModel, CallbackContext> step(
+    final String name,
+    final ProgressEvent<ResourceModel, CallbackContext> progress,
+    final TimeBudget budget,
+    final Logger logger,
+    final Function<ProgressEvent<ResourceModel, CallbackContext>, ProgressEvent<ResourceModel, CallbackContext>> work) {
+    if (!progress.isInProgress() || progress.getCallbackDelaySeconds() > 0) {
+      return progress;
+    }
+    final CallbackContext context = progress.getCallbackContext();
+    if (context.hasCompleted(name)) {
+      return progress;
+    }
+    if (budget.remainingMillis() < STEP_RESERVE_MILLIS) {
+      logger.log(String.format("%s [%s] checkpointing before %s, %d ms of budget left",
+        ResourceModel.TYPE_NAME, progress.getResourceModel().getRepositoryName(), name, budget.remainingMillis()));
+      return ProgressEvent.defaultInProgressHandler(context, CHECKPOINT_CALLBACK_DELAY_SECONDS, progress.getResourceModel());
+    }
+    final ProgressEvent<ResourceModel, CallbackContext> result = work.apply(progress);
+    if (result.isSuccess() || (result.isInProgress() && result.getCallbackDelaySeconds() == 0)) {
+      context.markCompleted(name);
+    }
+    return result;
+  }
+
+  /**
+   * Polls DescribeRepositories once. Until the repository is visible ({@code exists}) or gone, the
+   * handler returns IN_PROGRESS and is called back after a backoff delay instead of waiting out
+   * eventual consistency inside the invocation.
+   */
+  static ProgressEvent<ResourceModel, CallbackContext> awaitRepository(
+    final AmazonWebServicesClientProxy proxy,
+    final ProxyClient<EcrClient> proxyClient,
+    final ProgressEvent<ResourceModel, CallbackContext> progress,
+    final boolean exists,
+    final Logger logger) {
+    final ResourceModel model = progress.getResourceModel();
+    final CallbackContext context = progress.getCallbackContext();
+    boolean found;
+    try {
+      final DescribeRepositoriesResponse response = proxy.injectCredentialsAndInvokeV2(
+        Translator.describeRepositoriesRequest(model), proxyClient.client()::describeRepositories);
+      found = response.hasRepositories() && !response.repositories().isEmpty();
+    } catch (final RepositoryNotFoundException e) {
+      found = false;
+    } catch (final AwsServiceException e) {
+      return handleError(e, model);
+    }
+    if (found == exists) {
+      context.setStabilizationAttempts(0);
+      return progress;
+    }
+
+    final int attempt = context.getStabilizationAttempts() + 1;
+    if (attempt > Stabilization.MAX_ATTEMPTS) {
+      return failed(HandlerErrorCode.NotStabilized,
+        String.format("Repository %s was still %s after %d checks", model.getRepositoryName(),
+          exists ? "not visible" : "visible", Stabilization.MAX_ATTEMPTS),
+        model);
+    }
+    context.setStabilizationAttempts(attempt);
+    final int delaySeconds = Stabilization.delaySeconds(attempt);
+    logger.log(String.format("%s [%s] not yet %s, checking again in %d seconds",
+      ResourceModel.TYPE_NAME, model.getRepositoryName(), exists ? "visible" : "deleted", delaySeconds));
+    return ProgressEvent.defaultInProgressHandler(context, delaySeconds, model);
+  }
+
+  /**
+   * Ends the handler once every step has run. A checkpoint taken along the way is returned as is.
+   */
+  static ProgressEvent<ResourceModel, CallbackContext> success(
+    final ProgressEvent<ResourceModel, CallbackContext> progress,
+    final ResourceModel model) {
+    if (!progress.isInProgress() || progress.getCallbackDelaySeconds() > 0) {
+      return progress;
+    }
+    return ProgressEvent.<ResourceModel, CallbackContext>builder()
+      .resourceModel(model)
+      .status(OperationStatus.SUCCESS)
+      .build();
+  }
+
+  /**
+   * Puts identifiers recorded by an earlier invocation back on the model it was called back with.
+   */
+  static void restoreIdentifiers(final ResourceModel model, final CallbackContext context) {
+    if (context.getRepositoryArn() != null) {
+      model.setArn(context.getRepositoryArn());
+      model.setRepositoryUri(context.getRepositoryUri());
+    }
+  }
+
+  static void recordIdentifiers(final ResourceModel model, final CallbackContext context,
+                                final String arn, final String repositoryUri) {
+    model.setArn(arn);
+    model.setRepositoryUri(repositoryUri);
+    context.setRepositoryArn(arn);
+    context.setRepositoryUri(repositoryUri);
+  }
+
+  /**
+   * @return why ECR would reject the model's lifecycle policy, or null if it has none or would accept it
+   */
+  static String validateLifecyclePolicy(final ResourceModel model) {
+    if (model.getLifecyclePolicy() == null) {
+      return null;
+    }
+    try {
+      LifecyclePolicyCodec.shared().canonicalize(model.getLifecyclePolicy().getLifecyclePolicyText());
+      return null;
+    } catch (final IllegalArgumentException e) {
+      return e.getMessage();
+    }
+  }
+
+  /**
+   * Maps a failed call to the event the handler returns, using the error codes CloudFormation
+   * expects for a missing or already existing repository, and for throttling and the other
+   * failures {@link Resilience} tells apart.
+   */
+  static ProgressEvent<ResourceModel, CallbackContext> handleError(final Exception e, final ResourceModel model) {
+    final HandlerErrorCode errorCode;
+    if (e instanceof RepositoryNotFoundException) {
+      errorCode = HandlerErrorCode.NotFound;
+    } else if (e instanceof RepositoryAlreadyExistsException) {
+      errorCode = HandlerErrorCode.AlreadyExists;
+    } else if (e instanceof BaseHandlerException) {
+      errorCode = ((BaseHandlerException) e).getErrorCode();
+    } else if (e instanceof AwsServiceException) {
+      errorCode = Resilience.classify((AwsServiceException) e).getErrorCode();
+    } else {
+      errorCode = HandlerErrorCode.InternalFailure;
+    }
+    return failed(errorCode, e.getMessage(), model);
+  }
+
+  static ProgressEvent<ResourceModel, CallbackContext> failed(final HandlerErrorCode errorCode,
+                                                               final String message,
+                                                               final ResourceModel model) {
+    return ProgressEvent.<ResourceModel, CallbackContext>builder()
+      .resourceModel(model)
+      .status(OperationStatus.FAILED)
+      .errorCode(errorCode)
+      .message(message)
+      .build();
+  }
 }
@@ -1,12 +1,34 @@
 package software.amazon.ecr.repository;
 
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import software.amazon.cloudformation.proxy.StdCallbackContext;
 
-@Data
-@NoArgsConstructor
-@Builder
-public class CallbackContext {
+/**
+ * Carries a handler's progress between invocations. {@code completedSteps} is the journal of steps
+ * that already succeeded, so an invocation that resumes after a checkpoint starts at the first
+ * unfinished one; the repository identifiers learned along the way travel with it, as does the
+ * position of an image purge that spans several invocations, the number of stabilization
+ * polls made so far and the number of callbacks taken to wait out throttling.
+ */
+@lombok.Getter
+@lombok.Setter
+@lombok.ToString
+@lombok.EqualsAndHashCode(callSuper = true)
+public class CallbackContext extends StdCallbackContext implements Resilience.ThrottledCallbacks {
+    private Set<String> completedSteps = new LinkedHashSet<>();
+    private String repositoryArn;
+    private String repositoryUri;
+    private String purgeNextToken;
+    private long purgedImageCount;
+    private int stabilizationAttempts;
+    private int throttledCallbacks;
 
+    boolean hasCompleted(final String step) {
+        return completedSteps.contains(step);
+    }
+
+    void markCompleted(final String step) {
+        completedSteps.add(step);
+    }
 }
@@ -1,12 +1,119 @@
 package software.amazon.ecr.repository;
 
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.HttpExecuteResponse;
+import software.amazon.awssdk.http.SdkHttpFullRequest;
+import software.amazon.awssdk.http.SdkHttpMethod;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.regions.providers.DefaultAwsRegionProviderChain;
 import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.EcrClientBuilder;
+import software.amazon.awssdk.utils.IoUtils;
 import software.amazon.cloudformation.LambdaWrapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Hands out one {@link EcrClient} per region and endpoint for the lifetime of a warm container.
+ * Clients are safe to share: credentials are injected into every request by the proxy, and all
+ * clients already share {@link LambdaWrapper#HTTP_CLIENT}, so a cached client also finds that
+ * pool's kept-alive connections to its endpoint. Every client is wrapped by {@link Resilience}.
+ */
 public class ClientBuilder {
+    // Set to true to open a connection to the regional endpoint while the container initialises.
+    static final String PRIME_ENVIRONMENT_VARIABLE = "ECR_CLIENT_PRIME";
+
+    private static final Map<String, EcrClient> CLIENTS = new ConcurrentHashMap<>();
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong PRIMED_CONNECTIONS = new AtomicLong();
+
     public static EcrClient getClient() {
-        return EcrClient.builder()
-                .httpClient(LambdaWrapper.HTTP_CLIENT)
-                .build();
+        return getClient(null, null);
+    }
+
+    /**
+     * @param region the client's region, or null for the region of the environment
+     * @param endpointOverride the endpoint to call instead of the region's, or null
+     */
+    static EcrClient getClient(final Region region, final URI endpointOverride) {
+        final String key = (region == null ? "" : region.id()) + "|" + (endpointOverride == null ? "" : endpointOverride);
+        final EcrClient cached = CLIENTS.get(key);
+        if (cached != null) {
+            HITS.incrementAndGet();
+            return cached;
+        }
+        return CLIENTS.computeIfAbsent(key, ignored -> {
+            MISSES.incrementAndGet();
+            // Retries, of broken connections as much as of service errors, are Resilience's to make, so
+            // they are not multiplied by the SDK's own.
+            final EcrClientBuilder builder = EcrClient.builder()
+                    .httpClient(LambdaWrapper.HTTP_CLIENT)
+                    .overrideConfiguration(ClientOverrideConfiguration.builder().retryPolicy(RetryPolicy.none()).build());
+            if (region != null) {
+                builder.region(region);
+            }
+            if (endpointOverride != null) {
+                builder.endpointOverride(endpointOverride);
+            }
+            return Resilience.shared().wrap(builder.build());
+        });
+    }
+
+    /**
+     * Builds the client for the environment's region and opens a connection to its endpoint, if the
+     * environment asks for it, so the first invocation neither builds a client nor waits for a TLS
+     * handshake. The request is unsigned; only the connection it leaves in the pool matters.
+     */
+    public static void primeIfEnabled() {
+        if (!Boolean.parseBoolean(System.getenv(PRIME_ENVIRONMENT_VARIABLE))) {
+            return;
+        }
+        try {
+            getClient();
+            final Region region = new DefaultAwsRegionProviderChain().getRegion();
+            final SdkHttpFullRequest request = SdkHttpFullRequest.builder()
+                    .method(SdkHttpMethod.GET)
+                    .uri(URI.create("https://" + EcrClient.serviceMetadata().endpointFor(region)))
+                    .build();
+            final HttpExecuteResponse response = LambdaWrapper.HTTP_CLIENT
+                    .prepareRequest(HttpExecuteRequest.builder().request(request).build())
+                    .call();
+            if (response.responseBody().isPresent()) {
+                // Reading the body to its end hands the connection back to the pool instead of closing it.
+                try (InputStream body = response.responseBody().get()) {
+                    IoUtils.drainInputStream(body);
+                }
+            }
+            PRIMED_CONNECTIONS.incrementAndGet();
+        } catch (final IOException | RuntimeException e) {
+            // Priming is an optimisation; the first invocation connects as it would have anyway.
+        }
+    }
+
+    /** Clients served from the cache. */
+    static long hits() {
+        return HITS.get();
+    }
+
+    /** Clients built because none was cached for their region and endpoint. */
+    static long misses() {
+        return MISSES.get();
+    }
+
+    /** Connections opened ahead of the first invocation, for requests to reuse. */
+    static long primedConnections() {
+        return PRIMED_CONNECTIONS.get();
+    }
+
+    public static String describeCache() {
+        return String.format("EcrClient cache: %d hits, %d misses, %d clients, %d primed connections",
+                hits(), misses(), CLIENTS.size(), primedConnections());
     }
 }
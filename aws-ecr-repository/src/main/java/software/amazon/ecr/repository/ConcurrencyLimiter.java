@@ -0,0 +1,181 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.cloudformation.exceptions.CfnInternalFailureException;
+import software.amazon.cloudformation.exceptions.CfnThrottlingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounds the ECR calls in flight across a warm container with a limit that adapts to how ECR is
+ * coping, increasing additively and decreasing multiplicatively as TCP congestion control does. A
+ * call that succeeds while the limit is in use raises it by {@code 1 / limit}, about one permit for
+ * each round of calls; a throttled call halves it and an unusually slow one cuts it by a fifth.
+ * Only calls started after the last cut can cut it again, so a burst of throttled calls that were
+ * all in flight together counts once.
+ *
+ * <p>ECR throttles reads and changes separately, so describe, list and get calls share one limit
+ * and every other call another. A caller that finds no permit free waits for one, and fails with
+ * Throttling if none comes free in time, so that the handler is called back instead of queueing.
+ */
+public final class ConcurrencyLimiter {
+    static final int INITIAL_LIMIT = 8;
+    static final int MIN_LIMIT = 1;
+    static final int MAX_LIMIT = 64;
+    static final double THROTTLE_BACKOFF = 0.5;
+    static final double LATENCY_BACKOFF = 0.8;
+    // A call is a latency spike when it takes this many times the family's smoothed latency...
+    static final double LATENCY_SPIKE_FACTOR = 3.0;
+    // ...and at least this long, so the jitter of fast calls is not taken for congestion.
+    static final long MIN_SPIKE_MILLIS = 1_000L;
+    // Weight of the latest call in the smoothed latency.
+    static final double LATENCY_SMOOTHING = 0.1;
+    static final long MAX_WAIT_MILLIS = 10_000L;
+
+    enum Family {
+        DESCRIBE,
+        MUTATE;
+
+        static Family of(final String operation) {
+            return operation.startsWith("describe") || operation.startsWith("list")
+                    || operation.startsWith("get") || operation.startsWith("batchGet")
+                    || operation.startsWith("batchCheck")
+                    ? DESCRIBE
+                    : MUTATE;
+        }
+    }
+
+    private static final ConcurrencyLimiter SHARED = new ConcurrencyLimiter(System::nanoTime, MAX_WAIT_MILLIS);
+
+    private final Map<Family, Limit> limits;
+    private final long maxWaitMillis;
+
+    /**
+     * @param nanoClock the clock latencies are measured with
+     * @param maxWaitMillis how long a call waits for a permit before failing with Throttling
+     */
+    ConcurrencyLimiter(final LongSupplier nanoClock, final long maxWaitMillis) {
+        final Map<Family, Limit> byFamily = new EnumMap<>(Family.class);
+        for (final Family family : Family.values()) {
+            byFamily.put(family, new Limit(nanoClock));
+        }
+        this.limits = Collections.unmodifiableMap(byFamily);
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public static ConcurrencyLimiter shared() {
+        return SHARED;
+    }
+
+    /**
+     * Makes the call once a permit of its operation's family is free, and adjusts that family's
+     * limit by how the call went.
+     */
+    <T> T call(final String operation, final Supplier<T> call) {
+        final Limit limit = limits.get(Family.of(operation));
+        final long startNanos = limit.acquire(operation, maxWaitMillis);
+        boolean succeeded = false;
+        boolean throttled = false;
+        try {
+            final T result = call.get();
+            succeeded = true;
+            return result;
+        } catch (final AwsServiceException e) {
+            throttled = Resilience.classify(e) == Resilience.Failure.THROTTLING;
+            throw e;
+        } finally {
+            limit.release(startNanos, succeeded, throttled);
+        }
+    }
+
+    int limit(final Family family) {
+        return limits.get(family).current();
+    }
+
+    int inFlight(final Family family) {
+        return limits.get(family).inFlight();
+    }
+
+    /**
+     * The current limit of each family, as embedded metric format log lines.
+     */
+    public List<String> metricLines(final String resourceType, final long timestampMillis) {
+        final List<String> lines = new ArrayList<>();
+        for (final Family family : Family.values()) {
+            lines.add(new EmbeddedMetrics()
+                    .dimension("ResourceType", resourceType)
+                    .dimension("OperationFamily", family.name())
+                    .metric("ConcurrencyLimit", "Count", limit(family))
+                    .metric("CallsInFlight", "Count", inFlight(family))
+                    .toLine(timestampMillis));
+        }
+        return lines;
+    }
+
+    private static final class Limit {
+        private final LongSupplier nanoClock;
+        private double limit = INITIAL_LIMIT;
+        private int inFlight;
+        private long lastCutNanos = Long.MIN_VALUE;
+        private double smoothedLatencyMillis;
+
+        Limit(final LongSupplier nanoClock) {
+            this.nanoClock = nanoClock;
+        }
+
+        /**
+         * @return when the call started, by the limiter's clock
+         */
+        synchronized long acquire(final String operation, final long maxWaitMillis) {
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+            while (inFlight >= (int) limit) {
+                final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    throw new CfnThrottlingException(operation);
+                }
+                try {
+                    wait(remainingMillis);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CfnInternalFailureException(e);
+                }
+            }
+            inFlight++;
+            return nanoClock.getAsLong();
+        }
+
+        synchronized void release(final long startNanos, final boolean succeeded, final boolean throttled) {
+            final long now = nanoClock.getAsLong();
+            final long latencyMillis = TimeUnit.NANOSECONDS.toMillis(now - startNanos);
+            final boolean spike = smoothedLatencyMillis > 0 && latencyMillis >= MIN_SPIKE_MILLIS
+                    && latencyMillis > LATENCY_SPIKE_FACTOR * smoothedLatencyMillis;
+            final boolean limitInUse = inFlight >= limit / 2;
+            inFlight--;
+
+            if ((throttled || spike) && startNanos > lastCutNanos) {
+                limit = Math.max(MIN_LIMIT, limit * (throttled ? THROTTLE_BACKOFF : LATENCY_BACKOFF));
+                lastCutNanos = now;
+            } else if (succeeded && !spike && limitInUse) {
+                limit = Math.min(MAX_LIMIT, limit + 1 / limit);
+            }
+            smoothedLatencyMillis = smoothedLatencyMillis == 0
+                    ? latencyMillis
+                    : smoothedLatencyMillis + LATENCY_SMOOTHING * (latencyMillis - smoothedLatencyMillis);
+            notifyAll();
+        }
+
+        synchronized int current() {
+            return (int) limit;
+        }
+
+        synchronized int inFlight() {
+            return inFlight;
+        }
+    }
+}
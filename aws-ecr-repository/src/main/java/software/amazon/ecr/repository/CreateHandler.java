@@ -1,23 +1,43 @@
 package software.amazon.ecr.repository;
 
-import software.amazon.awssdk.awscore.exception.AwsServiceException;
-import software.amazon.awssdk.services.ecr.model.KmsException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
 import software.amazon.cloudformation.proxy.HandlerErrorCode;
 import software.amazon.cloudformation.proxy.Logger;
 import software.amazon.cloudformation.proxy.ProgressEvent;
-import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 import software.amazon.cloudformation.resource.IdentifierUtils;
 import com.amazonaws.util.StringUtils;
+import software.amazon.cloudformation.exceptions.BaseHandlerException;
 import software.amazon.cloudformation.exceptions.ResourceAlreadyExistsException;
-import software.amazon.awssdk.services.ecr.model.CreateRepositoryResponse;
 import software.amazon.awssdk.services.ecr.model.RepositoryAlreadyExistsException;
 import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.awscore.AwsResponse;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.ecr.model.Repository;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 public class CreateHandler extends BaseHandlerStd {
     private static final int MAX_REPO_NAME_LENGTH = 256;
+    // ECR allows at most this many tags on a repository.
+    private static final int MAX_TAGS_PER_REPOSITORY = 50;
+    private static final String PUT_LIFECYCLE_POLICY = "PutLifecyclePolicy";
+    private static final String SET_REPOSITORY_POLICY = "SetRepositoryPolicy";
+
+    public CreateHandler() {
+        super();
+    }
+
+    CreateHandler(final Supplier<TimeBudget> budgets) {
+        super(budgets);
+    }
 
     protected ProgressEvent<ResourceModel, CallbackContext> handleRequest(
         final AmazonWebServicesClientProxy proxy,
@@ -26,8 +46,8 @@ public class CreateHandler extends BaseHandlerStd {
         final ProxyClient<EcrClient> proxyClient,
         final Logger logger) {
 
+        final TimeBudget budget = startBudget();
         final ResourceModel model = request.getDesiredResourceState();
-        final EcrClient client = proxyClient.client();
 
         // Auto-generate RepositoryName if not supplied
         if (StringUtils.isNullOrEmpty(model.getRepositoryName())) {
@@ -40,43 +60,197 @@ public class CreateHandler extends BaseHandlerStd {
                     ).toLowerCase()
             );
         }
+        restoreIdentifiers(model, callbackContext);
+
+        // Checked before the repository exists: once it does, a rejected policy rolls it back again.
+        final String invalidPolicy = validateLifecyclePolicy(model);
+        if (invalidPolicy != null) {
+            return failed(HandlerErrorCode.InvalidRequest, invalidPolicy, model);
+        }
+
+        return ProgressEvent.progress(model, callbackContext)
+                .then(progress -> step("CreateRepository", progress, budget, logger,
+                        current -> createRepository(proxy, proxyClient, request, current, logger)))
+                .then(progress -> step("ConfigureRepository", progress, budget, logger,
+                        current -> configureRepository(proxy, proxyClient, current, budget)))
+                .then(progress -> step("Stabilize", progress, budget, logger,
+                        current -> awaitRepository(proxy, proxyClient, current, true, logger)))
+                .then(progress -> step("RemoveCreateToken", progress, budget, logger,
+                        current -> removeCreateToken(proxy, proxyClient, request, current, logger)))
+                .then(progress -> success(progress, model));
+    }
+
+    private ProgressEvent<ResourceModel, CallbackContext> createRepository(
+            final AmazonWebServicesClientProxy proxy,
+            final ProxyClient<EcrClient> proxyClient,
+            final ResourceHandlerRequest<ResourceModel> request,
+            final ProgressEvent<ResourceModel, CallbackContext> progress,
+            final Logger logger) {
+
+        return proxy.initiate("AWS-ECR-Repository::Create", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
+                .translateToServiceRequest(model -> Translator.createRepositoryRequest(model,
+                        withCreateToken(request.getDesiredResourceTags(), request.getClientRequestToken())))
+                .makeServiceCall((awsRequest, client) -> proxy.injectCredentialsAndInvokeV2(awsRequest, client.client()::createRepository))
+                .handleError((awsRequest, exception, client, model, context) -> {
+                    if (exception instanceof RepositoryAlreadyExistsException) {
+                        return recoverEarlierAttempt(proxy, proxyClient, request.getClientRequestToken(), model, context, logger);
+                    }
+                    // A KMS key that cannot be used surfaces here as a KmsException.
+                    return handleError(exception, model);
+                })
+                .done(response -> {
+                    recordIdentifiers(progress.getResourceModel(), progress.getCallbackContext(),
+                            response.repository().repositoryArn(), response.repository().repositoryUri());
+                    logger.log(String.format("%s [%s] Created Successfully", ResourceModel.TYPE_NAME, progress.getResourceModel().getRepositoryName()));
+                    return ProgressEvent.progress(progress.getResourceModel(), progress.getCallbackContext());
+                });
+    }
+
+    /**
+     * Tags the new repository with the request's token, unless that would take it past the tag limit.
+     */
+    static Map<String, String> withCreateToken(final Map<String, String> tags, final String clientRequestToken) {
+        if (clientRequestToken == null || (tags != null && tags.size() >= MAX_TAGS_PER_REPOSITORY)) {
+            return tags;
+        }
+        final Map<String, String> marked = tags == null ? new HashMap<>() : new HashMap<>(tags);
+        marked.put(Translator.CREATE_TOKEN_TAG_KEY, clientRequestToken);
+        return marked;
+    }
 
+    /**
+     * Takes the token off the repository once it is created and configured, so that it does not keep
+     * one of the repository's tags for good. Up to here it tells a retry of this request that the
+     * repository is its own. This is cleanup: a token that cannot be removed is logged and left on a
+     * repository that was created all the same.
+     */
+    private ProgressEvent<ResourceModel, CallbackContext> removeCreateToken(
+            final AmazonWebServicesClientProxy proxy,
+            final ProxyClient<EcrClient> proxyClient,
+            final ResourceHandlerRequest<ResourceModel> request,
+            final ProgressEvent<ResourceModel, CallbackContext> progress,
+            final Logger logger) {
+
+        final Map<String, String> tags = withCreateToken(request.getDesiredResourceTags(), request.getClientRequestToken());
+        if (tags == null || !tags.containsKey(Translator.CREATE_TOKEN_TAG_KEY)) {
+            return progress;
+        }
         try {
-            final CreateRepositoryResponse response = proxy.injectCredentialsAndInvokeV2(
-                    Translator.createRepositoryRequest(
-                            model,
-                            request.getDesiredResourceTags()),
-                    client::createRepository);
-            model.setArn(response.repository().repositoryArn());
-            model.setRepositoryUri(response.repository().repositoryUri());
-
-            logger.log(String.format("%s [%s] Created Successfully", ResourceModel.TYPE_NAME, model.getRepositoryName()));
-        } catch (RepositoryAlreadyExistsException e) {
-            throw new ResourceAlreadyExistsException(ResourceModel.TYPE_NAME, model.getRepositoryName());
-        } catch (KmsException e) {
-            return ProgressEvent.<ResourceModel, CallbackContext>builder()
-                    .resourceModel(model)
-                    .status(OperationStatus.FAILED)
-                    .errorCode(HandlerErrorCode.GeneralServiceException)
-                    .message(e.getMessage())
-                    .build();
+            proxy.injectCredentialsAndInvokeV2(
+                    Translator.untagResourceRequest(Collections.singleton(Translator.CREATE_TOKEN_TAG_KEY),
+                            progress.getResourceModel().getArn()),
+                    proxyClient.client()::untagResource);
+        } catch (final AwsServiceException | BaseHandlerException e) {
+            logger.log(String.format("%s [%s] kept its %s tag: %s", ResourceModel.TYPE_NAME,
+                    progress.getResourceModel().getRepositoryName(), Translator.CREATE_TOKEN_TAG_KEY, e.getMessage()));
         }
+        return progress;
+    }
+
+    /**
+     * A retried Create finds the repository an earlier attempt of the same request created before it
+     * timed out. That repository carries the request's token and creation carries on with it; any other
+     * existing repository is someone else's and fails the request with AlreadyExists.
+     */
+    private ProgressEvent<ResourceModel, CallbackContext> recoverEarlierAttempt(
+            final AmazonWebServicesClientProxy proxy,
+            final ProxyClient<EcrClient> proxyClient,
+            final String clientRequestToken,
+            final ResourceModel model,
+            final CallbackContext context,
+            final Logger logger) {
 
+        final ProgressEvent<ResourceModel, CallbackContext> alreadyExists = failed(HandlerErrorCode.AlreadyExists,
+                new ResourceAlreadyExistsException(ResourceModel.TYPE_NAME, model.getRepositoryName()).getMessage(),
+                model);
+        if (clientRequestToken == null) {
+            return alreadyExists;
+        }
+
+        final Repository existing;
+        final boolean createdByThisRequest;
         try {
-            if (model.getLifecyclePolicy() != null) proxy.injectCredentialsAndInvokeV2(Translator.putLifecyclePolicyRequest(model), client::putLifecyclePolicy);
-            if (model.getRepositoryPolicyText() != null) proxy.injectCredentialsAndInvokeV2(Translator.setRepositoryPolicyRequest(model), client::setRepositoryPolicy);
-        } catch (AwsServiceException e) {
-            return ProgressEvent.<ResourceModel, CallbackContext>builder()
-                .resourceModel(model)
-                .status(OperationStatus.FAILED)
-                .errorCode(HandlerErrorCode.GeneralServiceException)
-                .message(e.getMessage())
-                .build();
+            existing = proxy.injectCredentialsAndInvokeV2(Translator.describeRepositoriesRequest(model),
+                    proxyClient.client()::describeRepositories).repositories().get(0);
+            createdByThisRequest = proxy.injectCredentialsAndInvokeV2(Translator.listTagsForResourceRequest(existing.repositoryArn()),
+                    proxyClient.client()::listTagsForResource)
+                    .tags()
+                    .stream()
+                    .anyMatch(tag -> Translator.CREATE_TOKEN_TAG_KEY.equals(tag.key()) && clientRequestToken.equals(tag.value()));
+        } catch (final AwsServiceException e) {
+            logger.log(String.format("%s [%s] could not check the existing repository: %s",
+                    ResourceModel.TYPE_NAME, model.getRepositoryName(), e.getMessage()));
+            return alreadyExists;
+        }
+        if (!createdByThisRequest) {
+            return alreadyExists;
+        }
+
+        recordIdentifiers(model, context, existing.repositoryArn(), existing.repositoryUri());
+        logger.log(String.format("%s [%s] was created by an earlier attempt of this request, continuing",
+                ResourceModel.TYPE_NAME, model.getRepositoryName()));
+        return ProgressEvent.progress(model, context);
+    }
+
+    /**
+     * Applies the lifecycle policy and the repository policy. The two calls only depend on the
+     * repository existing, so they are issued together and both outcomes are reported in one event.
+     */
+    private ProgressEvent<ResourceModel, CallbackContext> configureRepository(
+            final AmazonWebServicesClientProxy proxy,
+            final ProxyClient<EcrClient> proxyClient,
+            final ProgressEvent<ResourceModel, CallbackContext> progress,
+            final TimeBudget budget) {
+
+        final ResourceModel model = progress.getResourceModel();
+        final CallbackContext context = progress.getCallbackContext();
+        final Map<String, Supplier<AwsResponse>> calls = new LinkedHashMap<>();
+        if (model.getLifecyclePolicy() != null && !context.hasCompleted(PUT_LIFECYCLE_POLICY)) {
+            calls.put(PUT_LIFECYCLE_POLICY, () -> proxy.injectCredentialsAndInvokeV2(
+                    Translator.putLifecyclePolicyRequest(model), proxyClient.client()::putLifecyclePolicy));
+        }
+        if (model.getRepositoryPolicyText() != null && !context.hasCompleted(SET_REPOSITORY_POLICY)) {
+            calls.put(SET_REPOSITORY_POLICY, () -> proxy.injectCredentialsAndInvokeV2(
+                    Translator.setRepositoryPolicyRequest(model), proxyClient.client()::setRepositoryPolicy));
         }
 
-        return ProgressEvent.<ResourceModel, CallbackContext>builder()
-                .resourceModel(model)
-                .status(OperationStatus.SUCCESS)
-                .build();
+        final Map<String, CompletableFuture<AwsResponse>> pending = new LinkedHashMap<>();
+        calls.forEach((name, call) -> pending.put(name, calls.size() > 1
+                ? ParallelCalls.submit(call)
+                : inline(call)));
+
+        final List<String> outcomes = new ArrayList<>();
+        boolean failed = false;
+        boolean throttled = true;
+        for (final Map.Entry<String, CompletableFuture<AwsResponse>> entry : pending.entrySet()) {
+            try {
+                ParallelCalls.join(entry.getValue(), budget);
+                // Journal each call on its own so a retried invocation does not repeat it.
+                context.markCompleted(entry.getKey());
+                outcomes.add(entry.getKey() + " succeeded");
+            } catch (final RuntimeException e) {
+                failed = true;
+                throttled &= e instanceof AwsServiceException
+                        && Resilience.classify((AwsServiceException) e) == Resilience.Failure.THROTTLING;
+                outcomes.add(String.format("%s failed: %s", entry.getKey(),
+                        e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+            }
+        }
+        if (failed) {
+            // Calls that succeeded are journaled, so a throttled one is retried alone when called back.
+            return failed(throttled ? HandlerErrorCode.Throttling : HandlerErrorCode.GeneralServiceException,
+                    String.join("; ", outcomes), model);
+        }
+        return progress;
+    }
+
+    private static CompletableFuture<AwsResponse> inline(final Supplier<AwsResponse> call) {
+        final CompletableFuture<AwsResponse> future = new CompletableFuture<>();
+        try {
+            future.complete(call.get());
+        } catch (final RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
     }
 }
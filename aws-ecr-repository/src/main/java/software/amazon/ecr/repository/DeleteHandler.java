@@ -1,16 +1,32 @@
 package software.amazon.ecr.repository;
 
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.cloudformation.exceptions.BaseHandlerException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
 import software.amazon.cloudformation.proxy.Logger;
-import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 import software.amazon.cloudformation.exceptions.ResourceNotFoundException;
 import software.amazon.awssdk.services.ecr.model.RepositoryNotFoundException;
+import java.util.function.Supplier;
 
 public class DeleteHandler extends BaseHandlerStd {
+    private final boolean progressivePurge;
+    private final int purgeConcurrency;
+
+    public DeleteHandler() {
+        this(TimeBudget::start, HandlerSettings.progressivePurge(), HandlerSettings.purgeConcurrency());
+    }
+
+    DeleteHandler(final Supplier<TimeBudget> budgets, final boolean progressivePurge, final int purgeConcurrency) {
+        super(budgets);
+        this.progressivePurge = progressivePurge;
+        this.purgeConcurrency = purgeConcurrency;
+    }
 
     protected ProgressEvent<ResourceModel, CallbackContext> handleRequest(
         final AmazonWebServicesClientProxy proxy,
@@ -19,18 +35,69 @@ public class DeleteHandler extends BaseHandlerStd {
         final ProxyClient<EcrClient> proxyClient,
         final Logger logger) {
 
+        final TimeBudget budget = startBudget();
         final ResourceModel model = request.getDesiredResourceState();
         final String repositoryName = model.getRepositoryName();
 
-        try {
-            proxy.injectCredentialsAndInvokeV2(Translator.deleteRepositoryRequest(model), proxyClient.client()::deleteRepository);
-            logger.log(String.format("%s [%s] Deleted Successfully", ResourceModel.TYPE_NAME, repositoryName));
-        } catch (RepositoryNotFoundException e) {
-            throw new ResourceNotFoundException(ResourceModel.TYPE_NAME, repositoryName);
+        return ProgressEvent.progress(model, callbackContext)
+                .then(progress -> step("PurgeImages", progress, budget, logger, current ->
+                        purgeImages(proxy, proxyClient, current, budget, logger)))
+                .then(progress -> step("DeleteRepository", progress, budget, logger, current ->
+                        proxy.initiate("AWS-ECR-Repository::Delete", proxyClient, current.getResourceModel(), current.getCallbackContext())
+                                .translateToServiceRequest(Translator::deleteRepositoryRequest)
+                                .makeServiceCall((awsRequest, client) -> proxy.injectCredentialsAndInvokeV2(awsRequest, client.client()::deleteRepository))
+                                .handleError((awsRequest, exception, client, resourceModel, context) -> handleDeleteError(exception, resourceModel))
+                                .done(response -> {
+                                    logger.log(String.format("%s [%s] Deleted Successfully", ResourceModel.TYPE_NAME, repositoryName));
+                                    return ProgressEvent.progress(current.getResourceModel(), current.getCallbackContext());
+                                })))
+                .then(progress -> step("Stabilize", progress, budget, logger, current ->
+                        awaitRepository(proxy, proxyClient, current, false, logger)))
+                .then(progress -> success(progress, null));
+    }
+
+    /**
+     * With EmptyOnDelete and progressive purging enabled, deletes the repository's images ahead of
+     * DeleteRepository, returning IN_PROGRESS whenever the invocation runs out of budget first.
+     */
+    private ProgressEvent<ResourceModel, CallbackContext> purgeImages(
+            final AmazonWebServicesClientProxy proxy,
+            final ProxyClient<EcrClient> proxyClient,
+            final ProgressEvent<ResourceModel, CallbackContext> progress,
+            final TimeBudget budget,
+            final Logger logger) {
+
+        final ResourceModel model = progress.getResourceModel();
+        final CallbackContext context = progress.getCallbackContext();
+        if (!progressivePurge || !Boolean.TRUE.equals(model.getEmptyOnDelete())) {
+            return progress;
         }
 
+        final boolean purged;
+        try {
+            purged = new ImagePurger(proxy, proxyClient, logger, purgeConcurrency)
+                    .purge(model.getRepositoryName(), context, budget, STEP_RESERVE_MILLIS);
+        } catch (final AwsServiceException | BaseHandlerException e) {
+            return handleDeleteError(e, model);
+        }
+        if (purged) {
+            return progress;
+        }
         return ProgressEvent.<ResourceModel, CallbackContext>builder()
-                .status(OperationStatus.SUCCESS)
+                .resourceModel(model)
+                .callbackContext(context)
+                .callbackDelaySeconds(CHECKPOINT_CALLBACK_DELAY_SECONDS)
+                .status(OperationStatus.IN_PROGRESS)
+                .message(String.format("Deleted %d images so far", context.getPurgedImageCount()))
                 .build();
     }
+
+    private static ProgressEvent<ResourceModel, CallbackContext> handleDeleteError(final Exception exception, final ResourceModel model) {
+        if (exception instanceof RepositoryNotFoundException) {
+            return failed(HandlerErrorCode.NotFound,
+                    new ResourceNotFoundException(ResourceModel.TYPE_NAME, model.getRepositoryName()).getMessage(),
+                    null);
+        }
+        return handleError(exception, model);
+    }
 }
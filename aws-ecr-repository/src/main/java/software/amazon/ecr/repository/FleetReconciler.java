@@ -0,0 +1,380 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.awssdk.awscore.AwsRequest;
+import software.amazon.awssdk.awscore.AwsResponse;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesRequest;
+import software.amazon.awssdk.services.ecr.model.Repository;
+import software.amazon.awssdk.services.ecr.model.RepositoryNotFoundException;
+import software.amazon.cloudformation.exceptions.CfnGeneralServiceException;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Credentials;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.Getter;
+
+/**
+ * Brings many repositories to their desired state in one process, outside CloudFormation. Current
+ * state is described a hundred names at a time, each repository's change set is an
+ * {@link UpdatePlan}, and the changes are applied by running the Create and Update handlers in
+ * process, so the fleet gets exactly the calls a stack would make for the same change. Every call
+ * goes through one proxy that counts it and spaces calls out once the service starts throttling.
+ */
+public final class FleetReconciler {
+    // ECR accepts at most this many names in one DescribeRepositories call.
+    static final int MAX_NAMES_PER_DESCRIBE = 100;
+    static final int DEFAULT_CONCURRENCY = 8;
+
+    // A repository is a handful of calls; the allowance only stops a stuck one from holding a permit forever.
+    private static final long REPOSITORY_BUDGET_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final String PRINCIPAL = "fleet-reconciler";
+
+    private final PacedProxy proxy;
+    private final ProxyClient<EcrClient> proxyClient;
+    private final LoggerProxy logger;
+    private final int concurrency;
+    private final long repositoryBudgetMillis;
+    private final PermissionMemo permissionMemo = new PermissionMemo(PermissionMemo.DEFAULT_TTL_MILLIS, System::currentTimeMillis);
+    private final CreateHandler createHandler = new CreateHandler();
+    private final UpdateHandler updateHandler = new UpdateHandler();
+
+    public FleetReconciler(final EcrClient client, final Credentials credentials, final LoggerProxy logger, final int concurrency) {
+        this(client, credentials, logger, concurrency, REPOSITORY_BUDGET_MILLIS);
+    }
+
+    /**
+     * @param repositoryBudgetMillis how long a repository may wait for a permit, and then take
+     */
+    FleetReconciler(final EcrClient client, final Credentials credentials, final LoggerProxy logger, final int concurrency,
+                    final long repositoryBudgetMillis) {
+        this.proxy = new PacedProxy(logger, credentials);
+        this.proxyClient = proxy.newProxy(() -> client);
+        this.logger = logger;
+        this.concurrency = concurrency;
+        this.repositoryBudgetMillis = repositoryBudgetMillis;
+    }
+
+    /**
+     * Reconciles every model in the stream. Repositories that do not exist are created; existing ones
+     * are updated only where they differ, and ones that match are left alone without a write call.
+     * Properties a model leaves unset are left as they are, except the policies and tags, which the
+     * model states in full as it does in a template.
+     */
+    public Report reconcile(final Stream<ResourceModel> desiredModels) {
+        final Semaphore permits = new Semaphore(concurrency);
+        final List<CompletableFuture<Outcome>> outcomes = new ArrayList<>();
+
+        final Iterator<ResourceModel> models = desiredModels.iterator();
+        while (models.hasNext()) {
+            final List<ResourceModel> batch = new ArrayList<>();
+            while (models.hasNext() && batch.size() < MAX_NAMES_PER_DESCRIBE) {
+                final ResourceModel model = models.next();
+                if (model.getRepositoryName() == null || model.getRepositoryName().isEmpty()) {
+                    outcomes.add(CompletableFuture.completedFuture(
+                            new Outcome(null, Status.FAILED, null, "RepositoryName is required")));
+                } else {
+                    batch.add(model);
+                }
+            }
+            final Map<String, Repository> existing = describe(batch.stream()
+                    .map(ResourceModel::getRepositoryName)
+                    .distinct()
+                    .collect(Collectors.toList()));
+            for (final ResourceModel model : batch) {
+                outcomes.add(submit(model, existing.get(model.getRepositoryName()), permits)
+                        .exceptionally(e -> new Outcome(model.getRepositoryName(), Status.FAILED, null, rootMessage(e))));
+            }
+        }
+
+        final List<Outcome> results = outcomes.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        return new Report(results, proxy.calls(), proxy.throttledCalls());
+    }
+
+    /**
+     * Starts reconciling one repository once a permit is free. A repository that gets no permit
+     * within its budget fails like any other, rather than ending the whole run.
+     */
+    private CompletableFuture<Outcome> submit(final ResourceModel model, final Repository repository, final Semaphore permits) {
+        try {
+            return ParallelCalls.submit(() -> reconcileOne(model, repository), permits, TimeBudget.ofMillis(repositoryBudgetMillis));
+        } catch (final CfnGeneralServiceException e) {
+            final CompletableFuture<Outcome> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * Describes the named repositories. ECR fails the whole call when any name does not exist, so a
+     * failed batch is split in halves until the missing names are isolated.
+     */
+    private Map<String, Repository> describe(final List<String> names) {
+        if (names.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            return proxy.injectCredentialsAndInvokeV2(DescribeRepositoriesRequest.builder().repositoryNames(names).build(),
+                    proxyClient.client()::describeRepositories)
+                    .repositories().stream()
+                    .collect(Collectors.toMap(Repository::repositoryName, Function.identity(), (first, second) -> first));
+        } catch (final RepositoryNotFoundException e) {
+            if (names.size() == 1) {
+                return Collections.emptyMap();
+            }
+            final Map<String, Repository> found = new HashMap<>(describe(names.subList(0, names.size() / 2)));
+            found.putAll(describe(names.subList(names.size() / 2, names.size())));
+            return found;
+        }
+    }
+
+    private Outcome reconcileOne(final ResourceModel desired, final Repository repository) {
+        final String name = desired.getRepositoryName();
+        final Map<String, String> desiredTags = tagMap(desired);
+
+        if (repository == null) {
+            final ProgressEvent<ResourceModel, CallbackContext> event = run(createHandler,
+                    ResourceHandlerRequest.<ResourceModel>builder()
+                            .desiredResourceState(desired)
+                            .desiredResourceTags(desiredTags)
+                            .build());
+            return event.isSuccess()
+                    ? new Outcome(name, Status.CREATED, "create", null)
+                    : new Outcome(name, Status.FAILED, "create", event.getMessage());
+        }
+
+        final String[] arn = repository.repositoryArn().split(":", 6);
+        final ResourceModel current = ReadHandler.buildModel(proxy, proxyClient, repository, logger,
+                permissionMemo.scope(arn[4], PRINCIPAL), TimeBudget.ofMillis(repositoryBudgetMillis));
+        final ResourceModel target = withUnsetPropertiesFrom(desired, current);
+        final Map<String, String> currentTags = tagMap(current);
+        final UpdatePlan plan = UpdatePlan.of(current, target, currentTags, desiredTags);
+        if (plan.isEmpty()) {
+            return new Outcome(name, Status.UNCHANGED, plan.toString(), null);
+        }
+
+        final ProgressEvent<ResourceModel, CallbackContext> event = run(updateHandler,
+                ResourceHandlerRequest.<ResourceModel>builder()
+                        .awsPartition(arn[1])
+                        .region(arn[3])
+                        .awsAccountId(arn[4])
+                        .previousResourceState(current)
+                        .desiredResourceState(target)
+                        .previousResourceTags(currentTags)
+                        .desiredResourceTags(desiredTags)
+                        .build());
+        return event.isSuccess()
+                ? new Outcome(name, Status.UPDATED, plan.toString(), null)
+                : new Outcome(name, Status.FAILED, plan.toString(), event.getMessage());
+    }
+
+    /**
+     * Runs a handler to completion, waiting out the callback delays CloudFormation would otherwise wait.
+     */
+    private ProgressEvent<ResourceModel, CallbackContext> run(final BaseHandlerStd handler,
+                                                             final ResourceHandlerRequest<ResourceModel> request) {
+        CallbackContext context = new CallbackContext();
+        while (true) {
+            final ProgressEvent<ResourceModel, CallbackContext> event = handler.handleRequest(proxy, request, context, proxyClient, logger);
+            if (!event.isInProgress()) {
+                return event;
+            }
+            sleep(TimeUnit.SECONDS.toMillis(event.getCallbackDelaySeconds()));
+            context = event.getCallbackContext();
+        }
+    }
+
+    /**
+     * A model read back from ECR always has a mutability, scanning and encryption setting and a
+     * registry id on its lifecycle policy; where the desired model is silent on these, the current
+     * value is kept so it neither counts as a change nor trips the encryption check.
+     */
+    private static ResourceModel withUnsetPropertiesFrom(final ResourceModel desired, final ResourceModel current) {
+        final ResourceModel target = ResourceModel.builder()
+                .repositoryName(desired.getRepositoryName())
+                .repositoryPolicyText(desired.getRepositoryPolicyText())
+                .lifecyclePolicy(desired.getLifecyclePolicy())
+                .tags(desired.getTags())
+                .imageTagMutability(desired.getImageTagMutability() != null ? desired.getImageTagMutability() : current.getImageTagMutability())
+                .imageScanningConfiguration(desired.getImageScanningConfiguration() != null
+                        ? desired.getImageScanningConfiguration() : current.getImageScanningConfiguration())
+                .encryptionConfiguration(desired.getEncryptionConfiguration() != null
+                        ? desired.getEncryptionConfiguration() : current.getEncryptionConfiguration())
+                .emptyOnDelete(desired.getEmptyOnDelete())
+                .build();
+        if (target.getLifecyclePolicy() != null && target.getLifecyclePolicy().getRegistryId() == null
+                && current.getLifecyclePolicy() != null) {
+            target.setLifecyclePolicy(LifecyclePolicy.builder()
+                    .lifecyclePolicyText(target.getLifecyclePolicy().getLifecyclePolicyText())
+                    .registryId(current.getLifecyclePolicy().getRegistryId())
+                    .build());
+        }
+        return target;
+    }
+
+    private static Map<String, String> tagMap(final ResourceModel model) {
+        final Map<String, String> tags = new HashMap<>();
+        if (model.getTags() != null) {
+            model.getTags().forEach(tag -> tags.put(tag.getKey(), tag.getValue()));
+        }
+        return tags;
+    }
+
+    private static String rootMessage(final Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getMessage();
+    }
+
+    private static void sleep(final long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reconciling", e);
+        }
+    }
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        UNCHANGED,
+        FAILED
+    }
+
+    @Getter
+    public static final class Outcome {
+        private final String repositoryName;
+        private final Status status;
+        /** The change set that was, or would have been, applied. */
+        private final String changes;
+        private final String message;
+
+        Outcome(final String repositoryName, final Status status, final String changes, final String message) {
+            this.repositoryName = repositoryName;
+            this.status = status;
+            this.changes = changes;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s %s%s", repositoryName, status, changes == null ? "" : changes,
+                    message == null ? "" : ": " + message);
+        }
+    }
+
+    @Getter
+    public static final class Report {
+        private final List<Outcome> outcomes;
+        /** Every request sent to ECR, throttled attempts included. */
+        private final long apiCalls;
+        private final long throttledCalls;
+
+        Report(final List<Outcome> outcomes, final long apiCalls, final long throttledCalls) {
+            this.outcomes = Collections.unmodifiableList(outcomes);
+            this.apiCalls = apiCalls;
+            this.throttledCalls = throttledCalls;
+        }
+
+        public long count(final Status status) {
+            return outcomes.stream().filter(outcome -> outcome.getStatus() == status).count();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d repositories: %d created, %d updated, %d unchanged, %d failed; %d API calls, %d throttled",
+                    outcomes.size(), count(Status.CREATED), count(Status.UPDATED), count(Status.UNCHANGED),
+                    count(Status.FAILED), apiCalls, throttledCalls);
+        }
+    }
+
+    /**
+     * Counts every call and paces them across all threads. Calls start unpaced; each throttled call
+     * doubles the gap kept between call starts and is retried after it, and each successful call
+     * narrows the gap again, so the fleet settles near the rate the account is allowed.
+     */
+    static final class PacedProxy extends AmazonWebServicesClientProxy {
+        static final int MAX_THROTTLED_ATTEMPTS = 6;
+        static final long MIN_GAP_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+        static final long MAX_GAP_NANOS = TimeUnit.SECONDS.toNanos(2);
+        private static final double RECOVERY = 0.9;
+
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong throttles = new AtomicLong();
+        private long gapNanos;
+        private long nextStartNanos = System.nanoTime();
+
+        PacedProxy(final LoggerProxy logger, final Credentials credentials) {
+            super(logger, credentials, () -> REPOSITORY_BUDGET_MILLIS);
+        }
+
+        @Override
+        public <RequestT extends AwsRequest, ResultT extends AwsResponse> ResultT injectCredentialsAndInvokeV2(
+                final RequestT request, final Function<RequestT, ResultT> requestFunction) {
+            for (int attempt = 1; ; attempt++) {
+                awaitTurn();
+                calls.incrementAndGet();
+                try {
+                    final ResultT result = super.injectCredentialsAndInvokeV2(request, requestFunction);
+                    onSuccess();
+                    return result;
+                } catch (final AwsServiceException e) {
+                    if (!e.isThrottlingException() || attempt >= MAX_THROTTLED_ATTEMPTS) {
+                        throw e;
+                    }
+                    throttles.incrementAndGet();
+                    onThrottled();
+                }
+            }
+        }
+
+        long calls() {
+            return calls.get();
+        }
+
+        long throttledCalls() {
+            return throttles.get();
+        }
+
+        private void awaitTurn() {
+            final long waitNanos;
+            synchronized (this) {
+                final long now = System.nanoTime();
+                final long start = Math.max(now, nextStartNanos);
+                nextStartNanos = start + gapNanos;
+                waitNanos = start - now;
+            }
+            sleep(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        }
+
+        private synchronized void onSuccess() {
+            gapNanos = gapNanos < MIN_GAP_NANOS ? 0L : (long) (gapNanos * RECOVERY);
+        }
+
+        private synchronized void onThrottled() {
+            gapNanos = Math.min(MAX_GAP_NANOS, Math.max(MIN_GAP_NANOS, gapNanos * 2));
+            nextStartNanos = Math.max(nextStartNanos, System.nanoTime() + gapNanos);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.cloudformation.proxy.Credentials;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+/**
+ * Command line entry point for {@link FleetReconciler}:
+ *
+ * <pre>
+ * java -cp aws-ecr-repository-handler-1.0-SNAPSHOT.jar software.amazon.ecr.repository.FleetReconcilerCli \
+ *     [--concurrency N] [models.ndjson]
+ * </pre>
+ *
+ * Reads one repository model per line, in the resource's JSON schema shape, from the file or from
+ * standard input, and prints one line per repository followed by a summary. Credentials and region
+ * come from the default AWS provider chains. Exits with 1 if any repository failed.
+ */
+public final class FleetReconcilerCli {
+
+    private FleetReconcilerCli() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        int concurrency = FleetReconciler.DEFAULT_CONCURRENCY;
+        String path = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("--concurrency".equals(args[i]) && i + 1 < args.length) {
+                concurrency = Integer.parseInt(args[++i]);
+            } else {
+                path = args[i];
+            }
+        }
+
+        final FleetReconciler.Report report;
+        try (EcrClient client = EcrClient.create();
+             BufferedReader reader = path == null || "-".equals(path)
+                     ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                     : Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            report = new FleetReconciler(client, credentials(), new LoggerProxy(), concurrency)
+                    .reconcile(models(reader));
+        }
+
+        report.getOutcomes().forEach(System.out::println);
+        System.out.println(report);
+        System.exit(report.count(FleetReconciler.Status.FAILED) > 0 ? 1 : 0);
+    }
+
+    static Stream<ResourceModel> models(final BufferedReader reader) {
+        return reader.lines()
+                .filter(line -> !line.trim().isEmpty())
+                .map(line -> {
+                    try {
+                        return Translator.MAPPER.readValue(line, ResourceModel.class);
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    static Credentials credentials() {
+        final AwsCredentials resolved = DefaultCredentialsProvider.create().resolveCredentials();
+        return new Credentials(resolved.accessKeyId(), resolved.secretAccessKey(),
+                resolved instanceof AwsSessionCredentials ? ((AwsSessionCredentials) resolved).sessionToken() : null);
+    }
+}
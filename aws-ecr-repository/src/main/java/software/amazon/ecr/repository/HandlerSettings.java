@@ -0,0 +1,82 @@
+package software.amazon.ecr.repository;
+
+/**
+ * Opt-in handler behaviour, read from the function's environment. Every setting defaults to the
+ * behaviour the handlers had before the setting existed.
+ */
+final class HandlerSettings {
+    static final String LIST_HYDRATE_MODELS = "ECR_LIST_HYDRATE_MODELS";
+    static final String LIST_DETAIL_CONCURRENCY = "ECR_LIST_DETAIL_CONCURRENCY";
+    static final String LIST_PREFETCH = "ECR_LIST_PREFETCH";
+    static final String PROGRESSIVE_PURGE = "ECR_PROGRESSIVE_PURGE";
+    static final String PURGE_CONCURRENCY = "ECR_PURGE_CONCURRENCY";
+    static final String HEDGE_READS = "ECR_HEDGE_READS";
+
+    private static final int DEFAULT_LIST_DETAIL_CONCURRENCY = 8;
+    private static final int DEFAULT_PURGE_CONCURRENCY = 4;
+
+    private HandlerSettings() {
+    }
+
+    /**
+     * When set, List returns complete models (policies, lifecycle policy and tags) instead of names only.
+     */
+    static boolean hydrateListModels() {
+        return booleanSetting(LIST_HYDRATE_MODELS, false);
+    }
+
+    /**
+     * Upper bound on sub-resource reads kept in flight while hydrating a page of List results.
+     */
+    static int listDetailConcurrency() {
+        return intSetting(LIST_DETAIL_CONCURRENCY, DEFAULT_LIST_DETAIL_CONCURRENCY);
+    }
+
+    /**
+     * When hydrating, describe the next page while the current one is still being hydrated.
+     */
+    static boolean prefetchListPages() {
+        return booleanSetting(LIST_PREFETCH, true);
+    }
+
+    /**
+     * When set, Delete with EmptyOnDelete removes the images in batches across as many invocations as
+     * it takes before deleting the repository, instead of leaving it all to one forced DeleteRepository.
+     */
+    static boolean progressivePurge() {
+        return booleanSetting(PROGRESSIVE_PURGE, false);
+    }
+
+    /**
+     * Upper bound on BatchDeleteImage calls kept in flight during a progressive purge.
+     */
+    static int purgeConcurrency() {
+        return intSetting(PURGE_CONCURRENCY, DEFAULT_PURGE_CONCURRENCY);
+    }
+
+    /**
+     * When set, Read issues a second DescribeRepositories if the first is slower than is usual for the
+     * container, and uses whichever answers first.
+     */
+    static boolean hedgeReads() {
+        return booleanSetting(HEDGE_READS, false);
+    }
+
+    static boolean booleanSetting(final String name, final boolean defaultValue) {
+        final String value = System.getenv(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    static int intSetting(final String name, final int defaultValue) {
+        final String value = System.getenv(name);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            final int parsed = Integer.parseInt(value.trim());
+            return parsed > 0 ? parsed : defaultValue;
+        } catch (final NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.cloudformation.exceptions.CfnInternalFailureException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hedges a read: when the call has not returned after the recent 90th percentile latency, an
+ * identical second call is issued, whichever answers first is used and the other is abandoned. A
+ * token bucket filled by a fraction of every call caps how many calls get hedged, so a slow
+ * service does not receive twice the traffic exactly when it is struggling.
+ */
+final class Hedger {
+    static final int WINDOW = 128;
+    static final int MIN_SAMPLES = 20;
+    static final double PERCENTILE = 0.9;
+    static final long MIN_DELAY_MILLIS = 20L;
+    // One call in twenty may be hedged, with a burst of at most ten.
+    static final double DEFAULT_HEDGE_RATIO = 0.05;
+    static final double DEFAULT_MAX_TOKENS = 10.0;
+
+    private static final Hedger SHARED = new Hedger(DEFAULT_HEDGE_RATIO, DEFAULT_MAX_TOKENS);
+
+    private final double hedgeRatio;
+    private final double maxTokens;
+    private final long[] samples = new long[WINDOW];
+    private int sampleCount;
+    private int nextSample;
+    private double tokens;
+    private final AtomicLong hedgedCalls = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    Hedger(final double hedgeRatio, final double maxTokens) {
+        this.hedgeRatio = hedgeRatio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    static Hedger shared() {
+        return SHARED;
+    }
+
+    /**
+     * Runs the call, hedging it once if it is slow and the hedge budget allows. Exceptions are
+     * rethrown as {@link ParallelCalls#join} does, so callers handle them as if the call ran inline.
+     */
+    <T> T call(final Supplier<T> call, final TimeBudget budget) {
+        earnToken();
+        final long delayMillis = delayMillis();
+        final Attempt<T> primary = Attempt.start(this, call);
+        if (delayMillis < 0) {
+            return primary.join(budget);
+        }
+
+        try {
+            return primary.completesWithin(delayMillis) ? primary.join(budget) : hedge(call, primary, budget);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            primary.cancel();
+            throw new CfnInternalFailureException(e);
+        }
+    }
+
+    private <T> T hedge(final Supplier<T> call, final Attempt<T> primary, final TimeBudget budget) {
+        if (!tryTakeToken()) {
+            return primary.join(budget);
+        }
+        hedgedCalls.incrementAndGet();
+        final Attempt<T> secondary = Attempt.start(this, call);
+        ParallelCalls.join(CompletableFuture.anyOf(primary.future, secondary.future).handle((result, error) -> null), budget);
+        final Attempt<T> first = primary.future.isDone() ? primary : secondary;
+        final Attempt<T> other = first == primary ? secondary : primary;
+        // A call that failed first settles nothing while the other may still answer, so that one is
+        // waited for and its outcome, failure included, is the result.
+        final Attempt<T> winner = first.future.isCompletedExceptionally() ? other : first;
+        if (winner == first) {
+            other.cancel();
+        }
+        final T result = winner.join(budget);
+        if (winner == secondary) {
+            hedgeWins.incrementAndGet();
+        }
+        return result;
+    }
+
+    long hedgedCalls() {
+        return hedgedCalls.get();
+    }
+
+    /** Hedged calls where the second call answered first. */
+    long hedgeWins() {
+        return hedgeWins.get();
+    }
+
+    synchronized void record(final long latencyMillis) {
+        samples[nextSample] = latencyMillis;
+        nextSample = (nextSample + 1) % WINDOW;
+        sampleCount = Math.min(sampleCount + 1, WINDOW);
+    }
+
+    /**
+     * @return how long to wait before hedging, or -1 while there are too few samples to tell slow from usual
+     */
+    synchronized long delayMillis() {
+        if (sampleCount < MIN_SAMPLES) {
+            return -1L;
+        }
+        final long[] sorted = Arrays.copyOf(samples, sampleCount);
+        Arrays.sort(sorted);
+        final int index = Math.min(sampleCount - 1, (int) Math.ceil(PERCENTILE * sampleCount) - 1);
+        return Math.max(MIN_DELAY_MILLIS, sorted[index]);
+    }
+
+    private synchronized void earnToken() {
+        tokens = Math.min(maxTokens, tokens + hedgeRatio);
+    }
+
+    private synchronized boolean tryTakeToken() {
+        if (tokens < 1.0) {
+            return false;
+        }
+        tokens -= 1.0;
+        return true;
+    }
+
+    /**
+     * One issue of the call. Abandoning it stops a call that has not started, and interrupts the pool
+     * thread running one that has. The interrupt only ends waits, for a permit or between retries:
+     * the synchronous SDK client does not abort a request whose socket I/O is under way, so such a
+     * call runs to its end, holding its {@link ConcurrencyLimiter} permit until then, and its answer
+     * is dropped. The interrupt is cleared before the thread goes back to the pool.
+     */
+    private static final class Attempt<T> {
+        private CompletableFuture<T> future;
+        private Thread runner;
+        private boolean cancelled;
+
+        static <T> Attempt<T> start(final Hedger hedger, final Supplier<T> call) {
+            final Attempt<T> attempt = new Attempt<>();
+            attempt.future = ParallelCalls.submit(() -> attempt.run(hedger, call));
+            return attempt;
+        }
+
+        private T run(final Hedger hedger, final Supplier<T> call) {
+            synchronized (this) {
+                if (cancelled) {
+                    return null;
+                }
+                runner = Thread.currentThread();
+            }
+            final long started = System.nanoTime();
+            try {
+                final T result = call.get();
+                hedger.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                return result;
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        private boolean completesWithin(final long millis) throws InterruptedException {
+            try {
+                future.get(millis, TimeUnit.MILLISECONDS);
+            } catch (final TimeoutException e) {
+                return false;
+            } catch (final ExecutionException e) {
+                // Failed quickly; join reports it.
+            }
+            return true;
+        }
+
+        private T join(final TimeBudget budget) {
+            return ParallelCalls.join(future, budget);
+        }
+
+        private synchronized void cancel() {
+            cancelled = true;
+            future.cancel(false);
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.awssdk.services.ecr.model.ImageDetail;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import lombok.Getter;
+
+/**
+ * The images of one repository, indexed for lifecycle rule evaluation. Images are numbered newest
+ * first, so a set of images is a {@link BitSet} and walking it walks the images in the order count
+ * rules keep them. Tags are held in a sorted map from tag to image numbers, so a prefix selects a
+ * contiguous range of tags rather than a scan of every image.
+ */
+public final class ImageIndex {
+    private final Image[] images;
+    private final long[] pushedAtMillis;
+    private final NavigableMap<String, int[]> imagesByTag;
+    private final BitSet untagged;
+
+    private ImageIndex(final List<Image> newestFirst) {
+        this.images = newestFirst.toArray(new Image[0]);
+        this.pushedAtMillis = new long[images.length];
+        this.untagged = new BitSet(images.length);
+
+        final Map<String, List<Integer>> byTag = new HashMap<>();
+        for (int i = 0; i < images.length; i++) {
+            pushedAtMillis[i] = images[i].getPushedAt().toEpochMilli();
+            if (images[i].getTags().isEmpty()) {
+                untagged.set(i);
+            }
+            for (final String tag : images[i].getTags()) {
+                byTag.computeIfAbsent(tag, key -> new ArrayList<>(1)).add(i);
+            }
+        }
+        this.imagesByTag = new TreeMap<>();
+        byTag.forEach((tag, numbers) -> imagesByTag.put(tag, numbers.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    public static ImageIndex of(final Stream<Image> images) {
+        final List<Image> sorted = new ArrayList<>();
+        images.forEach(sorted::add);
+        sorted.sort(Comparator.comparing(Image::getPushedAt).reversed());
+        return new ImageIndex(sorted);
+    }
+
+    /**
+     * Reads one image per line in the shape DescribeImages returns image details:
+     * {@code {"imageDigest":..,"imageTags":[..],"imagePushedAt":..}}, the push time either ISO-8601 or
+     * epoch seconds.
+     */
+    public static ImageIndex readJsonLines(final BufferedReader reader) throws IOException {
+        final List<Image> images = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            final JsonNode node = Translator.MAPPER.readTree(line);
+            final List<String> tags = new ArrayList<>();
+            node.path("imageTags").forEach(tag -> tags.add(tag.asText()));
+            final JsonNode pushedAt = node.path("imagePushedAt");
+            images.add(new Image(node.path("imageDigest").asText(), tags, pushedAt.isNumber()
+                    ? Instant.ofEpochMilli((long) (pushedAt.asDouble() * 1000))
+                    : Instant.parse(pushedAt.asText())));
+        }
+        return of(images.stream());
+    }
+
+    public int size() {
+        return images.length;
+    }
+
+    Image image(final int number) {
+        return images[number];
+    }
+
+    BitSet all() {
+        final BitSet all = new BitSet(images.length);
+        all.set(0, images.length);
+        return all;
+    }
+
+    BitSet untagged() {
+        return (BitSet) untagged.clone();
+    }
+
+    /**
+     * @return the images with at least one tag that starts with the prefix and matches the filter
+     */
+    BitSet taggedWith(final String prefix, final Predicate<String> filter) {
+        final BitSet selected = new BitSet(images.length);
+        final NavigableMap<String, int[]> range = prefix.isEmpty()
+                ? imagesByTag
+                : imagesByTag.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        range.forEach((tag, numbers) -> {
+            if (filter.test(tag)) {
+                for (final int number : numbers) {
+                    selected.set(number);
+                }
+            }
+        });
+        return selected;
+    }
+
+    /**
+     * @return the number of the newest image pushed before the instant, or {@link #size()} if none was
+     */
+    int firstPushedBefore(final Instant instant) {
+        final long millis = instant.toEpochMilli();
+        int low = 0;
+        int high = images.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (pushedAtMillis[middle] < millis) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    @Getter
+    public static final class Image {
+        private final String digest;
+        private final List<String> tags;
+        private final Instant pushedAt;
+
+        public Image(final String digest, final List<String> tags, final Instant pushedAt) {
+            this.digest = digest;
+            this.tags = tags == null ? Collections.emptyList() : Collections.unmodifiableList(tags);
+            this.pushedAt = pushedAt;
+        }
+
+        public static Image of(final ImageDetail detail) {
+            return new Image(detail.imageDigest(),
+                    detail.hasImageTags() ? detail.imageTags() : Collections.emptyList(),
+                    detail.imagePushedAt());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s %s", digest, tags, pushedAt);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.BatchDeleteImageResponse;
+import software.amazon.awssdk.services.ecr.model.ImageFailureCode;
+import software.amazon.awssdk.services.ecr.model.ImageIdentifier;
+import software.amazon.awssdk.services.ecr.model.InvalidParameterException;
+import software.amazon.awssdk.services.ecr.model.ListImagesResponse;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Logger;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Empties a repository ahead of its deletion one ListImages page at a time. A page is removed in
+ * BatchDeleteImage calls of the largest size ECR accepts, a bounded number of them in flight, and
+ * the page cursor and running count are written to the callback context after every page so a
+ * purge that outlives one invocation picks up where it stopped.
+ */
+final class ImagePurger {
+    // ECR accepts at most this many image ids in one BatchDeleteImage call.
+    static final int MAX_IMAGES_PER_BATCH = 100;
+    static final int MAX_IMAGES_PER_PAGE = 1000;
+
+    private final AmazonWebServicesClientProxy proxy;
+    private final ProxyClient<EcrClient> proxyClient;
+    private final Logger logger;
+    private final int concurrency;
+
+    ImagePurger(final AmazonWebServicesClientProxy proxy,
+                final ProxyClient<EcrClient> proxyClient,
+                final Logger logger,
+                final int concurrency) {
+        this.proxy = proxy;
+        this.proxyClient = proxyClient;
+        this.logger = logger;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Deletes pages of images for as long as the budget keeps at least {@code reserveMillis} spare.
+     *
+     * @return true once the listing is exhausted, false if the purge stopped early and has to be resumed
+     */
+    boolean purge(final String repositoryName, final CallbackContext context, final TimeBudget budget, final long reserveMillis) {
+        do {
+            if (budget.remainingMillis() < reserveMillis) {
+                return false;
+            }
+            final ListImagesResponse page = listPage(repositoryName, context.getPurgeNextToken());
+            final int deleted = deleteImages(repositoryName, page.imageIds(), budget);
+            context.setPurgedImageCount(context.getPurgedImageCount() + deleted);
+            context.setPurgeNextToken(page.nextToken());
+            logger.log(String.format("%s [%s] purged %d images, %d in total",
+                    ResourceModel.TYPE_NAME, repositoryName, deleted, context.getPurgedImageCount()));
+        } while (context.getPurgeNextToken() != null);
+        return true;
+    }
+
+    private ListImagesResponse listPage(final String repositoryName, final String nextToken) {
+        try {
+            return proxy.injectCredentialsAndInvokeV2(
+                    Translator.listImagesRequest(repositoryName, nextToken, MAX_IMAGES_PER_PAGE),
+                    proxyClient.client()::listImages);
+        } catch (final InvalidParameterException e) {
+            if (nextToken == null) {
+                throw e;
+            }
+            // The cursor outlived its token between invocations. Whatever was already deleted no
+            // longer shows up, so listing from the start only revisits images that remain.
+            logger.log(String.format("%s [%s] purge cursor expired, listing from the start", ResourceModel.TYPE_NAME, repositoryName));
+            return listPage(repositoryName, null);
+        }
+    }
+
+    private int deleteImages(final String repositoryName, final List<ImageIdentifier> imageIds, final TimeBudget budget) {
+        final Semaphore permits = new Semaphore(concurrency);
+        final List<CompletableFuture<BatchDeleteImageResponse>> batches = new ArrayList<>();
+        for (int from = 0; from < imageIds.size(); from += MAX_IMAGES_PER_BATCH) {
+            final List<ImageIdentifier> batch = imageIds.subList(from, Math.min(from + MAX_IMAGES_PER_BATCH, imageIds.size()));
+            batches.add(ParallelCalls.submit(() -> proxy.injectCredentialsAndInvokeV2(
+                    Translator.batchDeleteImageRequest(repositoryName, batch),
+                    proxyClient.client()::batchDeleteImage), permits, budget));
+        }
+
+        int deleted = 0;
+        for (final CompletableFuture<BatchDeleteImageResponse> batch : batches) {
+            final BatchDeleteImageResponse response = ParallelCalls.join(batch, budget);
+            deleted += response.imageIds().size();
+            // An image that is already gone is fine; anything else is left to the forced DeleteRepository.
+            response.failures().stream()
+                    .filter(failure -> failure.failureCode() != ImageFailureCode.IMAGE_NOT_FOUND)
+                    .forEach(failure -> logger.log(String.format("%s [%s] could not delete image %s: %s",
+                            ResourceModel.TYPE_NAME, repositoryName, failure.imageId(), failure.failureReason())));
+        }
+        return deleted;
+    }
+}
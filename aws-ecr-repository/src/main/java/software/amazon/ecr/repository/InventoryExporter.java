@@ -0,0 +1,212 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesResponse;
+import software.amazon.awssdk.services.ecr.model.Repository;
+import software.amazon.cloudformation.proxy.Credentials;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Writes out every repository in the registry with all of its settings, one page at a time. A page
+ * is described, hydrated with the same reads the Read handler makes, written and dropped before the
+ * next one is described, so memory use does not grow with the size of the registry. Each page ends
+ * with a cursor from which an interrupted export picks up again.
+ */
+public final class InventoryExporter {
+    static final int PAGE_SIZE = ListHandler.MAX_HYDRATED_MODELS_PER_RESPONSE;
+    // CloudFormation accepts at most this many resources in one template.
+    static final int MAX_RESOURCES_PER_TEMPLATE = 500;
+
+    private static final long PAGE_BUDGET_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final String PRINCIPAL = "inventory-exporter";
+    private static final ObjectMapper MAPPER = Translator.MAPPER.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private final FleetReconciler.PacedProxy proxy;
+    private final ProxyClient<EcrClient> proxyClient;
+    private final LoggerProxy logger;
+    private final PermissionMemo permissionMemo = new PermissionMemo(PermissionMemo.DEFAULT_TTL_MILLIS, System::currentTimeMillis);
+
+    public InventoryExporter(final EcrClient client, final Credentials credentials, final LoggerProxy logger) {
+        this.proxy = new FleetReconciler.PacedProxy(logger, credentials);
+        this.proxyClient = proxy.newProxy(() -> client);
+        this.logger = logger;
+    }
+
+    /**
+     * Writes one model per line, in the resource's JSON schema shape.
+     *
+     * @param cursor where an earlier export stopped, or null to start at the first repository
+     * @param limit the most repositories to write, or 0 for all of them
+     * @param checkpoint told the cursor after every page is written and flushed
+     * @return the cursor to continue from, or null once the whole registry has been written
+     */
+    public String exportModels(final String cursor, final int limit, final Writer out, final Consumer<String> checkpoint)
+            throws IOException {
+        return export(cursor, limit, checkpoint, models -> {
+            for (final ResourceModel model : models) {
+                out.write(MAPPER.writeValueAsString(model));
+                out.write('\n');
+            }
+            out.flush();
+        });
+    }
+
+    /**
+     * Writes a template that declares the repositories with a Retain deletion policy, and the
+     * resources-to-import file that adopts them into a stack with an IMPORT change set. A template
+     * holds at most {@value #MAX_RESOURCES_PER_TEMPLATE} resources; the returned cursor starts the
+     * next one.
+     *
+     * @return the cursor to continue from, or null once the whole registry has been written
+     */
+    public String exportImportTemplate(final String cursor, final int limit, final Writer template, final Writer resourcesToImport)
+            throws IOException {
+        final int templateLimit = limit <= 0 ? MAX_RESOURCES_PER_TEMPLATE : Math.min(limit, MAX_RESOURCES_PER_TEMPLATE);
+        final Set<String> logicalIds = new HashSet<>();
+        // The writers belong to the caller, so the generators are flushed but not closed.
+        final JsonGenerator resources = MAPPER.getFactory().createGenerator(template).useDefaultPrettyPrinter();
+        final JsonGenerator identifiers = MAPPER.getFactory().createGenerator(resourcesToImport).useDefaultPrettyPrinter();
+        resources.writeStartObject();
+        resources.writeStringField("AWSTemplateFormatVersion", "2010-09-09");
+        resources.writeObjectFieldStart("Resources");
+        identifiers.writeStartArray();
+
+        final String next = export(cursor, templateLimit, nextCursor -> { }, models -> {
+            for (final ResourceModel model : models) {
+                final String logicalId = logicalId(model.getRepositoryName(), logicalIds);
+                resources.writeObjectFieldStart(logicalId);
+                resources.writeStringField("Type", ResourceModel.TYPE_NAME);
+                resources.writeStringField("DeletionPolicy", "Retain");
+                resources.writeObjectField("Properties", templateProperties(model));
+                resources.writeEndObject();
+
+                identifiers.writeStartObject();
+                identifiers.writeStringField("ResourceType", ResourceModel.TYPE_NAME);
+                identifiers.writeStringField("LogicalResourceId", logicalId);
+                identifiers.writeObjectFieldStart("ResourceIdentifier");
+                identifiers.writeStringField("RepositoryName", model.getRepositoryName());
+                identifiers.writeEndObject();
+                identifiers.writeEndObject();
+            }
+        });
+
+        resources.writeEndObject();
+        resources.writeEndObject();
+        identifiers.writeEndArray();
+        resources.flush();
+        identifiers.flush();
+        return next;
+    }
+
+    private String export(final String cursor, final int limit, final Consumer<String> checkpoint, final PageWriter writer)
+            throws IOException {
+        final ListCursor start = ListCursor.decode(cursor);
+        String pageToken = start == null ? null : start.getServiceToken();
+        String lastRepositoryName = start == null ? null : start.getLastRepositoryName();
+        DescribeRepositoriesResponse page = after(
+                ListHandler.describeFirstPage(proxy, proxyClient, start, pageSize(limit, 0), logger), lastRepositoryName);
+        int written = 0;
+
+        while (true) {
+            List<Repository> repositories = page.repositories();
+            final boolean truncated = limit > 0 && written + repositories.size() > limit;
+            if (truncated) {
+                repositories = repositories.subList(0, limit - written);
+            }
+            writer.write(ListHandler.hydrate(proxy, proxyClient, repositories, logger,
+                    permissionMemo.scope(null, PRINCIPAL), TimeBudget.ofMillis(PAGE_BUDGET_MILLIS)));
+            written += repositories.size();
+            if (!repositories.isEmpty()) {
+                lastRepositoryName = repositories.get(repositories.size() - 1).repositoryName();
+            }
+
+            // A page cut short resumes from its own start, skipping past the last repository written.
+            final String next;
+            if (truncated) {
+                next = new ListCursor(pageToken, lastRepositoryName).encode();
+            } else if (page.nextToken() != null) {
+                next = new ListCursor(page.nextToken(), lastRepositoryName).encode();
+            } else {
+                next = null;
+            }
+            checkpoint.accept(next);
+            logger.log(String.format("Exported %d repositories, last [%s]", written, lastRepositoryName));
+
+            if (next == null || truncated || (limit > 0 && written >= limit)) {
+                return next;
+            }
+            pageToken = page.nextToken();
+            page = ListHandler.describePage(proxy, proxyClient, pageToken, pageSize(limit, written));
+        }
+    }
+
+    /**
+     * Drops the repositories up to and including the last one already exported, if the page holds it.
+     */
+    private static DescribeRepositoriesResponse after(final DescribeRepositoriesResponse page, final String lastRepositoryName) {
+        if (lastRepositoryName == null) {
+            return page;
+        }
+        final List<Repository> repositories = page.repositories();
+        for (int i = 0; i < repositories.size(); i++) {
+            if (lastRepositoryName.equals(repositories.get(i).repositoryName())) {
+                return page.toBuilder().repositories(repositories.subList(i + 1, repositories.size())).build();
+            }
+        }
+        return page;
+    }
+
+    private static int pageSize(final int limit, final int written) {
+        return limit <= 0 ? PAGE_SIZE : Math.min(PAGE_SIZE, limit - written);
+    }
+
+    /**
+     * The model minus the read-only properties, which a template may not set.
+     */
+    static ObjectNode templateProperties(final ResourceModel model) {
+        final ObjectNode properties = MAPPER.valueToTree(model);
+        properties.remove("Arn");
+        properties.remove("RepositoryUri");
+        return properties;
+    }
+
+    /**
+     * Logical ids are alphanumeric, so the name's other characters are dropped and the words around
+     * them capitalised; a name that collides with an earlier one in the template gets a hash suffix.
+     */
+    static String logicalId(final String repositoryName, final Set<String> used) {
+        final StringBuilder id = new StringBuilder("Repository");
+        boolean capitalise = true;
+        for (final char c : repositoryName.toCharArray()) {
+            if (Character.isLetterOrDigit(c) && c < 128) {
+                id.append(capitalise ? Character.toUpperCase(c) : c);
+                capitalise = false;
+            } else {
+                capitalise = true;
+            }
+        }
+        String candidate = id.toString();
+        if (!used.add(candidate)) {
+            candidate = candidate + String.format("%08X", repositoryName.hashCode());
+            used.add(candidate);
+        }
+        return candidate;
+    }
+
+    @FunctionalInterface
+    private interface PageWriter {
+        void write(List<ResourceModel> models) throws IOException;
+    }
+}
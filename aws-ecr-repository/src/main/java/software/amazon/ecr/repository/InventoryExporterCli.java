@@ -0,0 +1,70 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Command line entry point for {@link InventoryExporter}:
+ *
+ * <pre>
+ * java -cp aws-ecr-repository-handler-1.0-SNAPSHOT.jar software.amazon.ecr.repository.InventoryExporterCli \
+ *     [--cursor CURSOR] [--limit N] [--import-template template.json resources-to-import.json]
+ * </pre>
+ *
+ * Without {@code --import-template} the models are written to standard output, one per line. The
+ * cursor reached after each page is printed to standard error as {@code cursor CURSOR}; passing the
+ * last one printed with {@code --cursor} continues an export that was interrupted or limited.
+ * Credentials and region come from the default AWS provider chains.
+ */
+public final class InventoryExporterCli {
+
+    private InventoryExporterCli() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        String cursor = null;
+        int limit = 0;
+        String templatePath = null;
+        String resourcesToImportPath = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("--cursor".equals(args[i]) && i + 1 < args.length) {
+                cursor = args[++i];
+            } else if ("--limit".equals(args[i]) && i + 1 < args.length) {
+                limit = Integer.parseInt(args[++i]);
+            } else if ("--import-template".equals(args[i]) && i + 2 < args.length) {
+                templatePath = args[++i];
+                resourcesToImportPath = args[++i];
+            } else {
+                System.err.println("Unknown argument: " + args[i]);
+                System.exit(2);
+            }
+        }
+
+        final String next;
+        try (EcrClient client = EcrClient.create()) {
+            final InventoryExporter exporter = new InventoryExporter(client, FleetReconcilerCli.credentials(), new LoggerProxy());
+            if (templatePath == null) {
+                final Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+                next = exporter.exportModels(cursor, limit, out, InventoryExporterCli::printCursor);
+            } else {
+                try (Writer template = Files.newBufferedWriter(Paths.get(templatePath), StandardCharsets.UTF_8);
+                     Writer resourcesToImport = Files.newBufferedWriter(Paths.get(resourcesToImportPath), StandardCharsets.UTF_8)) {
+                    next = exporter.exportImportTemplate(cursor, limit, template, resourcesToImport);
+                }
+                printCursor(next);
+            }
+        }
+        System.exit(next == null ? 0 : 3);
+    }
+
+    private static void printCursor(final String cursor) {
+        System.err.println(cursor == null ? "complete" : "cursor " + cursor);
+    }
+}
@@ -0,0 +1,246 @@
+package software.amazon.ecr.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import lombok.Getter;
+
+/**
+ * Previews a lifecycle policy locally: which images of a repository its rules would expire, without
+ * calling the lifecycle policy preview API. Rules are applied the way ECR applies them: in priority
+ * order, each image is claimed by the first rule whose selection it matches, and only that rule can
+ * expire it, so a lower priority rule never expires an image a higher priority rule kept.
+ */
+public final class LifecycleEvaluator {
+    private final List<Rule> rules;
+
+    private LifecycleEvaluator(final List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the text is not a lifecycle policy ECR would evaluate
+     */
+    public static LifecycleEvaluator parse(final String lifecyclePolicyText) {
+        final JsonNode policy;
+        try {
+            policy = Translator.MAPPER.readTree(lifecyclePolicyText);
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Lifecycle policy is not valid JSON: " + e.getMessage(), e);
+        }
+        return of(policy);
+    }
+
+    static LifecycleEvaluator of(final JsonNode policy) {
+        if (policy == null || !policy.path("rules").isArray() || policy.path("rules").size() == 0) {
+            throw new IllegalArgumentException("Lifecycle policy has no rules");
+        }
+
+        final List<Rule> rules = new ArrayList<>();
+        final Set<Integer> priorities = new HashSet<>();
+        for (final JsonNode node : policy.path("rules")) {
+            final Rule rule = Rule.parse(node);
+            if (!priorities.add(rule.getRulePriority())) {
+                throw new IllegalArgumentException("Duplicate rulePriority " + rule.getRulePriority());
+            }
+            rules.add(rule);
+        }
+        rules.sort(Comparator.comparingInt(Rule::getRulePriority));
+        for (int i = 0; i < rules.size() - 1; i++) {
+            if (rules.get(i).getTagStatus() == TagStatus.ANY) {
+                throw new IllegalArgumentException("A rule with tagStatus any must have the highest rulePriority");
+            }
+        }
+        return new LifecycleEvaluator(rules);
+    }
+
+    public List<Rule> getRules() {
+        return Collections.unmodifiableList(rules);
+    }
+
+    /**
+     * @param now the time sinceImagePushed rules count back from
+     * @return the images each rule would expire, by rule in priority order, newest image first
+     */
+    public Map<Rule, List<ImageIndex.Image>> evaluate(final ImageIndex images, final Instant now) {
+        final Map<Rule, List<ImageIndex.Image>> expired = new LinkedHashMap<>();
+        final BitSet claimed = new BitSet(images.size());
+        for (final Rule rule : rules) {
+            final BitSet selected = rule.select(images);
+            selected.andNot(claimed);
+            claimed.or(selected);
+
+            final List<ImageIndex.Image> expiring = new ArrayList<>();
+            int number;
+            if (rule.getCountType() == CountType.IMAGE_COUNT_MORE_THAN) {
+                // Newest first, so everything after the first countNumber images goes.
+                number = selected.nextSetBit(0);
+                for (int kept = 0; number >= 0 && kept < rule.getCountNumber(); kept++) {
+                    number = selected.nextSetBit(number + 1);
+                }
+            } else {
+                number = selected.nextSetBit(images.firstPushedBefore(now.minus(Duration.ofDays(rule.getCountNumber()))));
+            }
+            for (; number >= 0; number = selected.nextSetBit(number + 1)) {
+                expiring.add(images.image(number));
+            }
+            expired.put(rule, expiring);
+        }
+        return expired;
+    }
+
+    public enum TagStatus {
+        TAGGED,
+        UNTAGGED,
+        ANY
+    }
+
+    public enum CountType {
+        IMAGE_COUNT_MORE_THAN("imageCountMoreThan"),
+        SINCE_IMAGE_PUSHED("sinceImagePushed");
+
+        private final String value;
+
+        CountType(final String value) {
+            this.value = value;
+        }
+
+        static CountType of(final String value) {
+            for (final CountType countType : values()) {
+                if (countType.value.equals(value)) {
+                    return countType;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported countType " + value);
+        }
+    }
+
+    @Getter
+    public static final class Rule {
+        private final int rulePriority;
+        private final String description;
+        private final TagStatus tagStatus;
+        private final List<String> tagPrefixList;
+        private final List<String> tagPatternList;
+        private final CountType countType;
+        private final int countNumber;
+
+        Rule(final int rulePriority, final String description, final TagStatus tagStatus, final List<String> tagPrefixList,
+             final List<String> tagPatternList, final CountType countType, final int countNumber) {
+            this.rulePriority = rulePriority;
+            this.description = description;
+            this.tagStatus = tagStatus;
+            this.tagPrefixList = Collections.unmodifiableList(tagPrefixList);
+            this.tagPatternList = Collections.unmodifiableList(tagPatternList);
+            this.countType = countType;
+            this.countNumber = countNumber;
+        }
+
+        static Rule parse(final JsonNode node) {
+            final JsonNode selection = node.path("selection");
+            if (!node.path("rulePriority").canConvertToInt() || node.path("rulePriority").asInt() < 1) {
+                throw new IllegalArgumentException("Every rule needs a positive integer rulePriority");
+            }
+            final int rulePriority = node.path("rulePriority").asInt();
+
+            final TagStatus tagStatus;
+            try {
+                tagStatus = TagStatus.valueOf(selection.path("tagStatus").asText().toUpperCase());
+            } catch (final IllegalArgumentException e) {
+                throw new IllegalArgumentException(String.format("Rule %d has unsupported tagStatus [%s]",
+                        rulePriority, selection.path("tagStatus").asText()), e);
+            }
+            final List<String> tagPrefixList = strings(selection.path("tagPrefixList"));
+            final List<String> tagPatternList = strings(selection.path("tagPatternList"));
+            if (tagStatus == TagStatus.TAGGED && tagPrefixList.isEmpty() == tagPatternList.isEmpty()) {
+                throw new IllegalArgumentException(String.format(
+                        "Rule %d selects tagged images, so it needs exactly one of tagPrefixList and tagPatternList", rulePriority));
+            }
+            if (tagStatus != TagStatus.TAGGED && !(tagPrefixList.isEmpty() && tagPatternList.isEmpty())) {
+                throw new IllegalArgumentException(String.format(
+                        "Rule %d can only list tag prefixes or patterns when tagStatus is tagged", rulePriority));
+            }
+
+            final CountType countType = CountType.of(selection.path("countType").asText());
+            if (countType == CountType.SINCE_IMAGE_PUSHED && !"days".equals(selection.path("countUnit").asText())) {
+                throw new IllegalArgumentException(String.format("Rule %d counts since image pushed, so its countUnit must be days", rulePriority));
+            }
+            final int countNumber = selection.path("countNumber").asInt(0);
+            if (countNumber < 1) {
+                throw new IllegalArgumentException(String.format("Rule %d needs a positive countNumber", rulePriority));
+            }
+            if (!"expire".equals(node.path("action").path("type").asText())) {
+                throw new IllegalArgumentException(String.format("Rule %d has an unsupported action", rulePriority));
+            }
+            return new Rule(rulePriority, node.path("description").asText(null), tagStatus, tagPrefixList, tagPatternList,
+                    countType, countNumber);
+        }
+
+        /**
+         * Images carrying a tag for every listed prefix or pattern; each entry may be met by a different tag.
+         */
+        BitSet select(final ImageIndex images) {
+            if (tagStatus == TagStatus.ANY) {
+                return images.all();
+            }
+            if (tagStatus == TagStatus.UNTAGGED) {
+                return images.untagged();
+            }
+            BitSet selected = null;
+            for (final String prefix : tagPrefixList) {
+                selected = intersect(selected, images.taggedWith(prefix, tag -> true));
+            }
+            for (final String tagPattern : tagPatternList) {
+                final int wildcard = tagPattern.indexOf('*');
+                final Pattern regex = wildcard < 0 ? null : toRegex(tagPattern);
+                selected = intersect(selected, wildcard < 0
+                        ? images.taggedWith(tagPattern, tagPattern::equals)
+                        : images.taggedWith(tagPattern.substring(0, wildcard), tag -> regex.matcher(tag).matches()));
+            }
+            return selected;
+        }
+
+        private static BitSet intersect(final BitSet selected, final BitSet more) {
+            if (selected == null) {
+                return more;
+            }
+            selected.and(more);
+            return selected;
+        }
+
+        private static Pattern toRegex(final String tagPattern) {
+            final StringBuilder regex = new StringBuilder();
+            for (final String literal : tagPattern.split("\\*", -1)) {
+                if (regex.length() > 0) {
+                    regex.append(".*");
+                }
+                regex.append(Pattern.quote(literal));
+            }
+            return Pattern.compile(regex.toString());
+        }
+
+        private static List<String> strings(final JsonNode array) {
+            final List<String> values = new ArrayList<>();
+            array.forEach(value -> values.add(value.asText()));
+            return values;
+        }
+
+        @Override
+        public String toString() {
+            return description == null
+                    ? String.format("rule %d", rulePriority)
+                    : String.format("rule %d (%s)", rulePriority, description);
+        }
+    }
+}
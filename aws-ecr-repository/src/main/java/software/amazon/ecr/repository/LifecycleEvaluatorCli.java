@@ -0,0 +1,93 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.DescribeImagesRequest;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line entry point for {@link LifecycleEvaluator}:
+ *
+ * <pre>
+ * java -cp aws-ecr-repository-handler-1.0-SNAPSHOT.jar software.amazon.ecr.repository.LifecycleEvaluatorCli \
+ *     [--now 2024-01-01T00:00:00Z] policy.json (images.ndjson | --repository NAME)
+ * </pre>
+ *
+ * Images come from a file with one DescribeImages image detail per line, or straight from
+ * DescribeImages for the named repository. Every image the policy would expire is printed as one
+ * JSON line naming its rule; a count per rule goes to standard error.
+ */
+public final class LifecycleEvaluatorCli {
+
+    private LifecycleEvaluatorCli() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        Instant now = Instant.now();
+        String repositoryName = null;
+        String policyPath = null;
+        String imagesPath = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("--now".equals(args[i]) && i + 1 < args.length) {
+                now = Instant.parse(args[++i]);
+            } else if ("--repository".equals(args[i]) && i + 1 < args.length) {
+                repositoryName = args[++i];
+            } else if (policyPath == null) {
+                policyPath = args[i];
+            } else {
+                imagesPath = args[i];
+            }
+        }
+        if (policyPath == null || (imagesPath == null) == (repositoryName == null)) {
+            System.err.println("Usage: LifecycleEvaluatorCli [--now INSTANT] policy.json (images.ndjson | --repository NAME)");
+            System.exit(2);
+        }
+
+        final LifecycleEvaluator evaluator = LifecycleEvaluator.parse(
+                new String(Files.readAllBytes(Paths.get(policyPath)), StandardCharsets.UTF_8));
+        final ImageIndex images;
+        if (imagesPath != null) {
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(imagesPath), StandardCharsets.UTF_8)) {
+                images = ImageIndex.readJsonLines(reader);
+            }
+        } else {
+            try (EcrClient client = EcrClient.create()) {
+                images = ImageIndex.of(client.describeImagesPaginator(DescribeImagesRequest.builder().repositoryName(repositoryName).build())
+                        .imageDetails().stream()
+                        .map(ImageIndex.Image::of));
+            }
+        }
+
+        final long started = System.nanoTime();
+        final Map<LifecycleEvaluator.Rule, List<ImageIndex.Image>> expired = evaluator.evaluate(images, now);
+        final long elapsedMillis = (System.nanoTime() - started) / 1_000_000L;
+
+        final Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        for (final Map.Entry<LifecycleEvaluator.Rule, List<ImageIndex.Image>> rule : expired.entrySet()) {
+            for (final ImageIndex.Image image : rule.getValue()) {
+                final ObjectNode line = JsonNodeFactory.instance.objectNode();
+                line.put("rulePriority", rule.getKey().getRulePriority());
+                line.put("imageDigest", image.getDigest());
+                image.getTags().forEach(line.putArray("imageTags")::add);
+                line.put("imagePushedAt", image.getPushedAt().toString());
+                out.write(Translator.MAPPER.writeValueAsString(line));
+                out.write('\n');
+            }
+        }
+        out.flush();
+
+        expired.forEach((rule, expiring) -> System.err.printf("%s expires %d images%n", rule, expiring.size()));
+        System.err.printf("%d images evaluated in %d ms%n", images.size(), elapsedMillis);
+    }
+}
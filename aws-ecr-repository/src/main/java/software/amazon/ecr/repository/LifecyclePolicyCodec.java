@@ -0,0 +1,135 @@
+package software.amazon.ecr.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks lifecycle policy documents before any call is made with them, so a policy ECR would reject
+ * fails the request up front instead of after CreateRepository, when the failure rolls the new
+ * repository back. Only the document's structure is checked: its length, that it is JSON with a
+ * list of rules, that every rule has a unique positive priority and a selection with a tag status,
+ * count type and count number. Which values those may take is left to ECR, so that actions, count
+ * types and units it adds are not refused here. A document that passes is reduced to a canonical
+ * form: keys sorted, whitespace dropped, rules in priority order.
+ *
+ * <p>Documents that passed are remembered for the lifetime of a warm container, keyed by a digest of
+ * their text. Stacks tend to repeat the same few policies across many repositories, and a repeated
+ * document is then neither parsed nor validated again.
+ */
+final class LifecyclePolicyCodec {
+    // The length bounds PutLifecyclePolicy puts on lifecyclePolicyText.
+    static final int MIN_TEXT_LENGTH = 100;
+    static final int MAX_TEXT_LENGTH = 30720;
+    static final int MAX_ENTRIES = 1024;
+
+    private static final LifecyclePolicyCodec SHARED = new LifecyclePolicyCodec();
+
+    private final Map<String, String> canonicalByDigest = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    static LifecyclePolicyCodec shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return the canonical form of the document
+     * @throws IllegalArgumentException naming what ECR would reject the document for
+     */
+    String canonicalize(final String lifecyclePolicyText) {
+        if (lifecyclePolicyText == null) {
+            throw new IllegalArgumentException("LifecyclePolicyText is required in a LifecyclePolicy");
+        }
+        final String digest = RegistrySnapshot.sha256(lifecyclePolicyText);
+        final String cached = canonicalByDigest.get(digest);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+
+        final String canonical = validate(lifecyclePolicyText);
+        if (canonicalByDigest.size() >= MAX_ENTRIES) {
+            canonicalByDigest.clear();
+        }
+        canonicalByDigest.put(digest, canonical);
+        return canonical;
+    }
+
+    long hits() {
+        return hits.get();
+    }
+
+    long misses() {
+        return misses.get();
+    }
+
+    int size() {
+        return canonicalByDigest.size();
+    }
+
+    private static String validate(final String lifecyclePolicyText) {
+        if (lifecyclePolicyText.length() < MIN_TEXT_LENGTH || lifecyclePolicyText.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException(String.format(
+                    "LifecyclePolicyText must be between %d and %d characters long, but is %d",
+                    MIN_TEXT_LENGTH, MAX_TEXT_LENGTH, lifecyclePolicyText.length()));
+        }
+        final JsonNode policy;
+        try {
+            policy = Translator.MAPPER.readTree(lifecyclePolicyText);
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("LifecyclePolicyText is not valid JSON: " + e.getMessage(), e);
+        }
+        final List<JsonNode> rules = rules(policy);
+        rules.sort(Comparator.comparingInt(rule -> rule.path("rulePriority").asInt()));
+        final ArrayNode ordered = JsonNodeFactory.instance.arrayNode();
+        rules.forEach(ordered::add);
+        final ObjectNode reordered = policy.deepCopy();
+        reordered.set("rules", ordered);
+        try {
+            return Translator.MAPPER.writeValueAsString(RegistrySnapshot.canonical(reordered));
+        } catch (final JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<JsonNode> rules(final JsonNode policy) {
+        if (!policy.path("rules").isArray() || policy.path("rules").size() == 0) {
+            throw new IllegalArgumentException("LifecyclePolicyText must have a non-empty list of rules");
+        }
+        final List<JsonNode> rules = new ArrayList<>();
+        final Set<Integer> priorities = new HashSet<>();
+        for (final JsonNode rule : policy.path("rules")) {
+            final JsonNode priority = rule.path("rulePriority");
+            if (!priority.canConvertToInt() || !priority.isIntegralNumber() || priority.intValue() < 1) {
+                throw new IllegalArgumentException("Every rule needs a positive integer rulePriority");
+            }
+            if (!priorities.add(priority.intValue())) {
+                throw new IllegalArgumentException("Duplicate rulePriority " + priority.intValue());
+            }
+            final JsonNode selection = rule.path("selection");
+            if (!selection.path("tagStatus").isTextual() || !selection.path("countType").isTextual()) {
+                throw new IllegalArgumentException(String.format(
+                        "Rule %d needs a selection with a tagStatus and a countType", priority.intValue()));
+            }
+            if (!selection.path("countNumber").isIntegralNumber() || selection.path("countNumber").asLong() < 1) {
+                throw new IllegalArgumentException(String.format("Rule %d needs a positive countNumber", priority.intValue()));
+            }
+            rules.add(rule);
+        }
+        return rules;
+    }
+}
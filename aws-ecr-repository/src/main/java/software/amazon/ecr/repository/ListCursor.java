@@ -0,0 +1,54 @@
+package software.amazon.ecr.repository;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import lombok.Getter;
+
+/**
+ * The List nextToken handed back to CloudFormation. Besides the DescribeRepositories token it carries
+ * the name of the last repository returned, so a listing can resume if the service token expires
+ * partway through a long enumeration. Tokens without the prefix are plain service tokens.
+ */
+@Getter
+final class ListCursor {
+    private static final String PREFIX = "c1.";
+
+    private final String serviceToken;
+    private final String lastRepositoryName;
+
+    @JsonCreator
+    ListCursor(@JsonProperty("serviceToken") final String serviceToken,
+               @JsonProperty("lastRepositoryName") final String lastRepositoryName) {
+        this.serviceToken = serviceToken;
+        this.lastRepositoryName = lastRepositoryName;
+    }
+
+    static ListCursor decode(final String nextToken) {
+        if (nextToken == null) {
+            return null;
+        }
+        if (!nextToken.startsWith(PREFIX)) {
+            return new ListCursor(nextToken, null);
+        }
+        try {
+            final byte[] json = Base64.getUrlDecoder().decode(nextToken.substring(PREFIX.length()));
+            return Translator.MAPPER.readValue(json, ListCursor.class);
+        } catch (final IOException | IllegalArgumentException e) {
+            // Not one of ours after all; let the service judge it.
+            return new ListCursor(nextToken, null);
+        }
+    }
+
+    String encode() {
+        try {
+            final byte[] json = Translator.MAPPER.writeValueAsString(this).getBytes(StandardCharsets.UTF_8);
+            return PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (final JsonProcessingException e) {
+            return serviceToken;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package software.amazon.ecr.repository;
 
 import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.InvalidParameterException;
+import software.amazon.awssdk.services.ecr.model.Repository;
+import software.amazon.awssdk.services.ecr.model.RepositoryNotFoundException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
 import software.amazon.cloudformation.proxy.Logger;
 import software.amazon.cloudformation.proxy.ProgressEvent;
@@ -8,12 +11,40 @@ import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesResponse;
 
 public class ListHandler extends BaseHandlerStd {
 
+    // Keeps a single handler response well inside the Lambda payload limit.
+    static final int MAX_MODELS_PER_RESPONSE = 1000;
+    static final int MAX_HYDRATED_MODELS_PER_RESPONSE = 100;
+
+    private final boolean hydrateModels;
+    private final boolean prefetchPages;
+    private final int maxModelsPerResponse;
+
+    public ListHandler() {
+        this(HandlerSettings.hydrateListModels());
+    }
+
+    ListHandler(final boolean hydrateModels) {
+        this(hydrateModels, HandlerSettings.prefetchListPages(),
+                hydrateModels ? MAX_HYDRATED_MODELS_PER_RESPONSE : MAX_MODELS_PER_RESPONSE);
+    }
+
+    ListHandler(final boolean hydrateModels, final boolean prefetchPages, final int maxModelsPerResponse) {
+        this.hydrateModels = hydrateModels;
+        this.prefetchPages = prefetchPages;
+        this.maxModelsPerResponse = maxModelsPerResponse;
+    }
+
     protected ProgressEvent<ResourceModel, CallbackContext> handleRequest(
         final AmazonWebServicesClientProxy proxy,
         final ResourceHandlerRequest<ResourceModel> request,
@@ -21,19 +52,171 @@ public class ListHandler extends BaseHandlerStd {
         final ProxyClient<EcrClient> proxyClient,
         final Logger logger) {
 
-        final DescribeRepositoriesResponse response;
-        response = proxy.injectCredentialsAndInvokeV2(Translator.describeRepositoriesRequest(request.getNextToken()), proxyClient.client()::describeRepositories);
+        final TimeBudget budget = startBudget();
+        final PermissionMemo.Scope permissions = PermissionMemo.shared().scope(request.getAwsAccountId(), request.getStackId());
+        final ListCursor cursor = ListCursor.decode(request.getNextToken());
+        final List<ResourceModel> models = new ArrayList<>();
+
+        // Every invocation makes progress, however pessimistic the latency estimates have become.
+        final int firstPageSize = Math.max(
+                ListPageSizer.nextPageSize(budget.remainingMillis(), maxModelsPerResponse, hydrateModels),
+                Math.min(ListPageSizer.MIN_PAGE_SIZE, maxModelsPerResponse));
+        DescribeRepositoriesResponse page = describeFirstPage(proxy, proxyClient, cursor, firstPageSize, logger);
+        String serviceToken;
+        String lastRepositoryName = cursor == null ? null : cursor.getLastRepositoryName();
+
+        while (true) {
+            final List<Repository> repositories = page.repositories();
+            serviceToken = page.nextToken();
+
+            int nextPageSize = 0;
+            if (serviceToken != null) {
+                final long translateMillis = hydrateModels ? ListPageSizer.estimatedHydrateMillis(repositories.size()) : 0L;
+                nextPageSize = ListPageSizer.nextPageSize(budget.remainingMillis() - translateMillis,
+                        maxModelsPerResponse - models.size() - repositories.size(), hydrateModels);
+            }
 
-        final List<ResourceModel> models = response
-                .repositories()
-                .stream()
-                .map(repo -> ResourceModel.builder().repositoryName(repo.repositoryName()).build())
-                .collect(Collectors.toList());
+            // Hydrating a page takes long enough to hide the next describe call behind it.
+            CompletableFuture<DescribeRepositoriesResponse> prefetched = null;
+            if (nextPageSize > 0 && hydrateModels && prefetchPages) {
+                final String token = serviceToken;
+                final int size = nextPageSize;
+                prefetched = ParallelCalls.submit(() -> describePage(proxy, proxyClient, token, size));
+            }
+
+            models.addAll(hydrateModels
+                    ? hydrate(proxy, proxyClient, repositories, logger, permissions, budget)
+                    : repositories
+                        .stream()
+                        .map(repo -> ResourceModel.builder().repositoryName(repo.repositoryName()).build())
+                        .collect(Collectors.toList()));
+            if (!repositories.isEmpty()) {
+                lastRepositoryName = repositories.get(repositories.size() - 1).repositoryName();
+            }
+
+            if (nextPageSize == 0) {
+                break;
+            }
+            page = prefetched != null
+                    ? ParallelCalls.join(prefetched, budget)
+                    : describePage(proxy, proxyClient, serviceToken, nextPageSize);
+        }
 
         return ProgressEvent.<ResourceModel, CallbackContext>builder()
                 .resourceModels(models)
-                .nextToken(response.nextToken())
+                .nextToken(serviceToken == null ? null : new ListCursor(serviceToken, lastRepositoryName).encode())
                 .status(OperationStatus.SUCCESS)
                 .build();
     }
+
+    static DescribeRepositoriesResponse describeFirstPage(final AmazonWebServicesClientProxy proxy,
+                                                          final ProxyClient<EcrClient> proxyClient,
+                                                          final ListCursor cursor,
+                                                          final int pageSize,
+                                                          final Logger logger) {
+        final String serviceToken = cursor == null ? null : cursor.getServiceToken();
+        try {
+            return describePage(proxy, proxyClient, serviceToken, pageSize);
+        } catch (final InvalidParameterException e) {
+            if (serviceToken == null || cursor.getLastRepositoryName() == null) {
+                throw e;
+            }
+            logger.log(String.format("Pagination token rejected (%s), resuming %s listing after [%s]",
+                    e.getMessage(), ResourceModel.TYPE_NAME, cursor.getLastRepositoryName()));
+            return resumeAfter(proxy, proxyClient, cursor.getLastRepositoryName(), logger);
+        }
+    }
+
+    /**
+     * Walks the listing from the start to the repository a previous invocation stopped at and returns
+     * the rest of that page. DescribeRepositories lists in a stable order, so nothing is repeated; if
+     * the repository has since been deleted the listing starts over rather than risk skipping any.
+     */
+    private static DescribeRepositoriesResponse resumeAfter(final AmazonWebServicesClientProxy proxy,
+                                                            final ProxyClient<EcrClient> proxyClient,
+                                                            final String lastRepositoryName,
+                                                            final Logger logger) {
+        DescribeRepositoriesResponse first = null;
+        String token = null;
+        do {
+            final DescribeRepositoriesResponse page = describePage(proxy, proxyClient, token, ListPageSizer.MAX_PAGE_SIZE);
+            if (first == null) {
+                first = page;
+            }
+            final List<Repository> repositories = page.repositories();
+            for (int i = 0; i < repositories.size(); i++) {
+                if (lastRepositoryName.equals(repositories.get(i).repositoryName())) {
+                    return page.toBuilder().repositories(repositories.subList(i + 1, repositories.size())).build();
+                }
+            }
+            token = page.nextToken();
+        } while (token != null);
+
+        logger.log(String.format("%s [%s] no longer listed, restarting listing", ResourceModel.TYPE_NAME, lastRepositoryName));
+        return first;
+    }
+
+    static DescribeRepositoriesResponse describePage(final AmazonWebServicesClientProxy proxy,
+                                                     final ProxyClient<EcrClient> proxyClient,
+                                                     final String nextToken,
+                                                     final int pageSize) {
+        final long started = System.nanoTime();
+        final DescribeRepositoriesResponse response = proxy.injectCredentialsAndInvokeV2(
+                Translator.describeRepositoriesRequest(nextToken, pageSize), proxyClient.client()::describeRepositories);
+        ListPageSizer.recordDescribe(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return response;
+    }
+
+    /**
+     * Builds complete models for a page. Everything DescribeRepositories already returned is reused;
+     * only policies, lifecycle policies and tags are fetched, with a bounded number of reads in flight.
+     */
+    static List<ResourceModel> hydrate(final AmazonWebServicesClientProxy proxy,
+                                       final ProxyClient<EcrClient> proxyClient,
+                                       final List<Repository> repositories,
+                                       final Logger logger,
+                                       final PermissionMemo.Scope permissions,
+                                       final TimeBudget budget) {
+        final long started = System.nanoTime();
+        final Semaphore permits = new Semaphore(HandlerSettings.listDetailConcurrency());
+        final List<CompletableFuture<ResourceModel>> pending = new ArrayList<>(repositories.size());
+        for (final Repository repo : repositories) {
+            pending.add(ReadHandler.buildModelAsync(proxy, proxyClient, repo, logger, permissions, permits, budget)
+                    .handle((model, error) -> {
+                        if (error == null) {
+                            return model;
+                        }
+                        if (isRepositoryNotFound(error)) {
+                            // Deleted after the page was described; it is simply no longer part of the listing.
+                            logger.log(String.format("%s [%s] deleted while listing, skipping", ResourceModel.TYPE_NAME, repo.repositoryName()));
+                            return null;
+                        }
+                        throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+                    }));
+        }
+
+        final List<ResourceModel> models = new ArrayList<>(pending.size());
+        for (final CompletableFuture<ResourceModel> model : pending) {
+            final ResourceModel hydrated = ParallelCalls.join(model, budget);
+            if (hydrated != null) {
+                models.add(hydrated);
+            }
+        }
+        ListPageSizer.recordHydrate(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), repositories.size());
+        return models;
+    }
+
+    private static boolean isRepositoryNotFound(final Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RepositoryNotFoundException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    boolean defersThrottling() {
+        return false;
+    }
 }
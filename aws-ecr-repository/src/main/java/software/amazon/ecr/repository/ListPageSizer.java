@@ -0,0 +1,74 @@
+package software.amazon.ecr.repository;
+
+/**
+ * Chooses DescribeRepositories page sizes for the List handler from the time left in the invocation
+ * and the latencies observed so far in this container. A plain listing costs about one round trip per
+ * page whatever its size, so it always asks for the service maximum; a hydrated listing costs per
+ * repository, so the page is sized to what can still be hydrated before the budget runs out.
+ */
+final class ListPageSizer {
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MIN_PAGE_SIZE = 10;
+
+    // Time kept back for assembling and returning the response.
+    static final long RESERVE_MILLIS = 2_000L;
+
+    private static final double SMOOTHING = 0.3;
+    private static final double INITIAL_DESCRIBE_MILLIS = 300.0;
+    private static final double INITIAL_HYDRATE_MILLIS_PER_REPOSITORY = 50.0;
+
+    // Written under the class lock so concurrent invocations do not lose each other's samples.
+    private static volatile double describeMillis = INITIAL_DESCRIBE_MILLIS;
+    private static volatile double hydrateMillisPerRepository = INITIAL_HYDRATE_MILLIS_PER_REPOSITORY;
+
+    private ListPageSizer() {
+    }
+
+    /**
+     * @param remainingMillis time left in the invocation
+     * @param room how many more models the response may still carry
+     * @param hydrate whether each repository is hydrated after the page is described
+     * @return the page size to request, or 0 if another page no longer fits in the budget
+     */
+    static int nextPageSize(final long remainingMillis, final int room, final boolean hydrate) {
+        final long available = remainingMillis - RESERVE_MILLIS - Math.round(describeMillis);
+        if (room <= 0 || available <= 0) {
+            return 0;
+        }
+        final int limit = Math.min(room, MAX_PAGE_SIZE);
+        if (!hydrate) {
+            return limit;
+        }
+        final long affordable = (long) (available / Math.max(1.0, hydrateMillisPerRepository));
+        if (affordable < Math.min(MIN_PAGE_SIZE, limit)) {
+            return 0;
+        }
+        return (int) Math.min(limit, affordable);
+    }
+
+    /**
+     * Estimated time to hydrate a page holding the given number of repositories.
+     */
+    static long estimatedHydrateMillis(final int repositories) {
+        return Math.round(repositories * hydrateMillisPerRepository);
+    }
+
+    static synchronized void recordDescribe(final long elapsedMillis) {
+        describeMillis = smooth(describeMillis, elapsedMillis);
+    }
+
+    static synchronized void recordHydrate(final long elapsedMillis, final int repositories) {
+        if (repositories > 0) {
+            hydrateMillisPerRepository = smooth(hydrateMillisPerRepository, (double) elapsedMillis / repositories);
+        }
+    }
+
+    static synchronized void reset() {
+        describeMillis = INITIAL_DESCRIBE_MILLIS;
+        hydrateMillisPerRepository = INITIAL_HYDRATE_MILLIS_PER_REPOSITORY;
+    }
+
+    private static double smooth(final double current, final double observed) {
+        return current + SMOOTHING * (observed - current);
+    }
+}
@@ -0,0 +1,90 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.cloudformation.exceptions.CfnGeneralServiceException;
+import software.amazon.cloudformation.exceptions.CfnInternalFailureException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs independent ECR calls concurrently. The executor lives for the lifetime of the container so
+ * warm invocations reuse its threads; callers bound the number of calls they put in flight.
+ */
+final class ParallelCalls {
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "ecr-call-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ParallelCalls() {
+    }
+
+    static <T> CompletableFuture<T> submit(final Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, EXECUTOR);
+    }
+
+    /**
+     * Submits the call once one of the given permits is free, blocking the calling thread (never a
+     * pool thread) until then, and hands the permit back when the call finishes.
+     */
+    static <T> CompletableFuture<T> submit(final Supplier<T> call, final Semaphore permits, final TimeBudget budget) {
+        if (permits == null) {
+            return submit(call);
+        }
+        try {
+            if (!permits.tryAcquire(budget.remainingMillis(), TimeUnit.MILLISECONDS)) {
+                throw new CfnGeneralServiceException("ECR call could not be started within the handler time budget");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CfnInternalFailureException(e);
+        }
+        final CompletableFuture<T> future;
+        try {
+            future = submit(call);
+        } catch (final RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        future.whenComplete((result, error) -> permits.release());
+        return future;
+    }
+
+    /**
+     * Waits for the call within the remaining time budget and rethrows whatever the call threw,
+     * so callers keep the same exception handling they had when the call ran inline.
+     */
+    static <T> T join(final CompletableFuture<T> future, final TimeBudget budget) {
+        try {
+            return future.get(budget.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException e) {
+            future.cancel(true);
+            throw new CfnGeneralServiceException("ECR call did not complete within the handler time budget", e);
+        } catch (final ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CfnInternalFailureException(cause);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CfnInternalFailureException(e);
+        }
+    }
+}
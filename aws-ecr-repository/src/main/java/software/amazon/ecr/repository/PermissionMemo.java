@@ -0,0 +1,109 @@
+package software.amazon.ecr.repository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers, for the lifetime of a warm container, which optional sub-resource reads a caller was
+ * denied, so later reads skip the round trip instead of failing the same way again. Entries expire
+ * after a TTL, which bounds how long a permission granted in the meantime goes unnoticed.
+ *
+ * <p>Handlers do not see the role they act as, so entries are keyed by account and by the stack the
+ * request came from: stack operations run with the stack's role, which makes the stack the closest
+ * stand-in for the caller that a request carries.
+ */
+final class PermissionMemo {
+    static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    // Entries are tiny, but a container serving many stacks should not grow without bound.
+    static final int MAX_ENTRIES = 4096;
+
+    private static final PermissionMemo SHARED = new PermissionMemo(DEFAULT_TTL_MILLIS, System::currentTimeMillis);
+
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<String, Long> deniedUntil = new ConcurrentHashMap<>();
+    private final AtomicLong skippedCalls = new AtomicLong();
+    private final AtomicLong recordedDenials = new AtomicLong();
+
+    PermissionMemo(final long ttlMillis, final LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    static PermissionMemo shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param accountId the account the calls are made in
+     * @param principal the stack the request came from, or null outside a stack operation
+     */
+    Scope scope(final String accountId, final String principal) {
+        return new Scope(accountId + "|" + (principal == null ? "" : principal));
+    }
+
+    /** Calls not made because they were known to be denied. */
+    long skippedCalls() {
+        return skippedCalls.get();
+    }
+
+    /** AccessDenied results recorded, including ones recorded again after their entry expired. */
+    long recordedDenials() {
+        return recordedDenials.get();
+    }
+
+    int size() {
+        return deniedUntil.size();
+    }
+
+    private boolean isDenied(final String key) {
+        final Long until = deniedUntil.get(key);
+        if (until == null) {
+            return false;
+        }
+        if (until <= clock.getAsLong()) {
+            deniedUntil.remove(key, until);
+            return false;
+        }
+        skippedCalls.incrementAndGet();
+        return true;
+    }
+
+    private void recordDenied(final String key) {
+        final long now = clock.getAsLong();
+        if (deniedUntil.size() >= MAX_ENTRIES) {
+            deniedUntil.values().removeIf(until -> until <= now);
+            if (deniedUntil.size() >= MAX_ENTRIES) {
+                deniedUntil.clear();
+            }
+        }
+        deniedUntil.put(key, now + ttlMillis);
+        recordedDenials.incrementAndGet();
+    }
+
+    /**
+     * The memo as seen by one caller.
+     */
+    final class Scope {
+        private final String prefix;
+
+        private Scope(final String prefix) {
+            this.prefix = prefix;
+        }
+
+        /**
+         * @param operation the IAM action of the call, such as {@code ecr:GetRepositoryPolicy}
+         * @return true if the caller was recently denied this call and it should be skipped
+         */
+        boolean isDenied(final String operation) {
+            return PermissionMemo.this.isDenied(prefix + "|" + operation);
+        }
+
+        void recordDenied(final String operation) {
+            PermissionMemo.this.recordDenied(prefix + "|" + operation);
+        }
+    }
+}
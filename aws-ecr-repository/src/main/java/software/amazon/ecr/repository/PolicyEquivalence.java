@@ -0,0 +1,222 @@
+package software.amazon.ecr.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import lombok.Getter;
+
+/**
+ * Tells whether two repository policy documents say the same thing, however they are written. Both
+ * are reduced to a canonical form first:
+ * <ul>
+ *   <li>object keys are sorted;</li>
+ *   <li>a single statement, principal, action, resource or condition value written as a scalar is
+ *   the same as a one-element list of it;</li>
+ *   <li>those lists are sets, so they are sorted and duplicates dropped;</li>
+ *   <li>statements are a set too, and are ordered by their own canonical form.</li>
+ * </ul>
+ * Documents are then equal when the digests of their canonical forms are.
+ *
+ * <p>Normalised documents are memoised for the lifetime of a warm container, keyed by a digest of
+ * the text, since the same handful of policies is compared and read back again and again.
+ */
+final class PolicyEquivalence {
+    static final int MAX_ENTRIES = 1024;
+
+    // Statement elements IAM accepts either as one value or as a list of values.
+    private static final Set<String> SET_VALUED_ELEMENTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "Action", "NotAction", "Resource", "NotResource")));
+    private static final Set<String> PRINCIPAL_ELEMENTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "Principal", "NotPrincipal")));
+
+    private static final PolicyEquivalence SHARED = new PolicyEquivalence();
+
+    private final Map<String, Normalized> byDigest = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    static PolicyEquivalence shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param previous a policy document, either JSON text or already parsed
+     * @param desired a policy document, either JSON text or already parsed
+     * @throws IllegalArgumentException if either is text that is not a JSON object
+     */
+    boolean equivalent(final Object previous, final Object desired) {
+        if (previous == null || desired == null) {
+            return previous == desired;
+        }
+        return normalize(previous).getDigest().equals(normalize(desired).getDigest());
+    }
+
+    /**
+     * Parses policy text as read from ECR, sharing the result with every earlier read of the same text.
+     *
+     * @throws IllegalArgumentException if the text is not a JSON object
+     */
+    Map<String, Object> parse(final String policyText) {
+        return normalize(policyText).getDocument();
+    }
+
+    Normalized normalize(final Object document) {
+        final String text;
+        try {
+            text = document instanceof String ? (String) document : Translator.MAPPER.writeValueAsString(document);
+        } catch (final JsonProcessingException e) {
+            throw new IllegalArgumentException("Policy document cannot be written as JSON: " + e.getMessage(), e);
+        }
+        final String key = RegistrySnapshot.sha256(text);
+        final Normalized cached = byDigest.get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+
+        final Normalized normalized = Normalized.of(text);
+        if (byDigest.size() >= MAX_ENTRIES) {
+            byDigest.clear();
+        }
+        byDigest.put(key, normalized);
+        return normalized;
+    }
+
+    long hits() {
+        return hits.get();
+    }
+
+    long misses() {
+        return misses.get();
+    }
+
+    @Getter
+    static final class Normalized {
+        private final String canonicalText;
+        private final String digest;
+        /** The document as written, for models; shared between reads, so never modified. */
+        private final Map<String, Object> document;
+
+        private Normalized(final String canonicalText, final Map<String, Object> document) {
+            this.canonicalText = canonicalText;
+            this.digest = RegistrySnapshot.sha256(canonicalText);
+            this.document = document;
+        }
+
+        static Normalized of(final String text) {
+            final JsonNode tree;
+            try {
+                tree = Translator.MAPPER.readTree(text);
+            } catch (final IOException e) {
+                throw new IllegalArgumentException("Policy document is not valid JSON: " + e.getMessage(), e);
+            }
+            if (tree == null || !tree.isObject()) {
+                throw new IllegalArgumentException("Policy document is not a JSON object");
+            }
+            final Map<String, Object> document = Translator.MAPPER.convertValue(tree, new TypeReference<HashMap<String, Object>>() {});
+            try {
+                return new Normalized(Translator.MAPPER.writeValueAsString(canonicalPolicy(tree)), Collections.unmodifiableMap(document));
+            } catch (final JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static JsonNode canonicalPolicy(final JsonNode policy) {
+        return sortedObject(policy, (name, value) -> "Statement".equals(name)
+                ? canonicalSet(value, PolicyEquivalence::canonicalStatement)
+                : sorted(value));
+    }
+
+    private static JsonNode canonicalStatement(final JsonNode statement) {
+        if (!statement.isObject()) {
+            return sorted(statement);
+        }
+        return sortedObject(statement, (name, value) -> {
+            if (SET_VALUED_ELEMENTS.contains(name)) {
+                return canonicalSet(value, PolicyEquivalence::sorted);
+            }
+            if (PRINCIPAL_ELEMENTS.contains(name) || "Condition".equals(name)) {
+                return canonicalMapOfSets(value, "Condition".equals(name));
+            }
+            return sorted(value);
+        });
+    }
+
+    /**
+     * Principal maps a principal type to one or more principals, and Condition maps an operator to
+     * keys that each take one or more values. {@code "Principal": "*"} stays as written.
+     */
+    private static JsonNode canonicalMapOfSets(final JsonNode value, final boolean nested) {
+        if (!value.isObject()) {
+            return sorted(value);
+        }
+        return sortedObject(value, (name, entry) -> nested
+                ? canonicalMapOfSets(entry, false)
+                : canonicalSet(entry, PolicyEquivalence::sorted));
+    }
+
+    /**
+     * A scalar and a one-element list of it are the same set; a list is sorted and loses duplicates.
+     */
+    private static JsonNode canonicalSet(final JsonNode value, final Function<JsonNode, JsonNode> element) {
+        final Map<String, JsonNode> members = new TreeMap<>();
+        final List<JsonNode> items = new ArrayList<>();
+        if (value.isArray()) {
+            value.forEach(items::add);
+        } else {
+            items.add(value);
+        }
+        for (final JsonNode item : items) {
+            final JsonNode canonical = element.apply(item);
+            members.put(canonical.toString(), canonical);
+        }
+        final ArrayNode set = JsonNodeFactory.instance.arrayNode();
+        members.values().forEach(set::add);
+        return set;
+    }
+
+    private static JsonNode sorted(final JsonNode value) {
+        if (value.isObject()) {
+            return sortedObject(value, (name, field) -> sorted(field));
+        }
+        if (value.isArray()) {
+            final ArrayNode array = JsonNodeFactory.instance.arrayNode();
+            value.forEach(item -> array.add(sorted(item)));
+            return array;
+        }
+        return value;
+    }
+
+    private static ObjectNode sortedObject(final JsonNode object, final BiFunction<String, JsonNode, JsonNode> field) {
+        final Set<String> names = new TreeSet<>();
+        object.fieldNames().forEachRemaining(names::add);
+        final ObjectNode sorted = JsonNodeFactory.instance.objectNode();
+        for (final String name : names) {
+            if (!object.get(name).isNull()) {
+                sorted.set(name, field.apply(name, object.get(name)));
+            }
+        }
+        return sorted;
+    }
+}
@@ -1,7 +1,6 @@
 package software.amazon.ecr.repository;
 
 import software.amazon.awssdk.services.ecr.model.EcrException;
-import software.amazon.cloudformation.exceptions.CfnGeneralServiceException;
 import software.amazon.cloudformation.exceptions.CfnInternalFailureException;
 import software.amazon.cloudformation.exceptions.ResourceNotFoundException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
@@ -11,11 +10,11 @@ import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
-import com.fasterxml.jackson.core.type.TypeReference;
-import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
 import software.amazon.awssdk.services.ecr.EcrClient;
 import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesResponse;
 import software.amazon.awssdk.services.ecr.model.GetLifecyclePolicyResponse;
@@ -29,6 +28,28 @@ import software.amazon.awssdk.services.ecr.model.RepositoryPolicyNotFoundExcepti
 public class ReadHandler extends BaseHandlerStd {
 
     private static final String ACCESS_DENIED_ERROR_CODE = "AccessDeniedException";
+    private static final String GET_REPOSITORY_POLICY = "ecr:GetRepositoryPolicy";
+    private static final String GET_LIFECYCLE_POLICY = "ecr:GetLifecyclePolicy";
+    private static final String LIST_TAGS_FOR_RESOURCE = "ecr:ListTagsForResource";
+
+    private final PermissionMemo permissionMemo;
+    private final Hedger hedger;
+
+    public ReadHandler() {
+        this(PermissionMemo.shared(), HandlerSettings.hedgeReads() ? Hedger.shared() : null);
+    }
+
+    ReadHandler(final PermissionMemo permissionMemo) {
+        this(permissionMemo, null);
+    }
+
+    /**
+     * @param hedger hedges the DescribeRepositories call, or null to make it once
+     */
+    ReadHandler(final PermissionMemo permissionMemo, final Hedger hedger) {
+        this.permissionMemo = permissionMemo;
+        this.hedger = hedger;
+    }
 
     protected ProgressEvent<ResourceModel, CallbackContext> handleRequest(
         final AmazonWebServicesClientProxy proxy,
@@ -38,10 +59,12 @@ public class ReadHandler extends BaseHandlerStd {
         final Logger logger) {
 
         final ResourceModel model = request.getDesiredResourceState();
+        final TimeBudget budget = startBudget();
+        final PermissionMemo.Scope permissions = permissionMemo.scope(request.getAwsAccountId(), request.getStackId());
         final DescribeRepositoriesResponse response;
 
         try {
-            response = proxy.injectCredentialsAndInvokeV2(Translator.describeRepositoriesRequest(model), proxyClient.client()::describeRepositories);
+            response = describeRepository(proxy, proxyClient, model, budget);
             logger.log(String.format("%s [%s] Read Successful", ResourceModel.TYPE_NAME, model.getRepositoryName()));
         } catch (RepositoryNotFoundException e) {
             return ProgressEvent.<ResourceModel, CallbackContext>builder()
@@ -50,48 +73,92 @@ public class ReadHandler extends BaseHandlerStd {
                     .build();
         }
 
+        final ResourceModel resourceModel = buildModel(proxy, proxyClient, response.repositories().get(0), logger, permissions, budget);
+        if (permissionMemo.skippedCalls() > 0) {
+            logger.log(String.format("AccessDenied memo: %d calls skipped, %d denials recorded, %d entries",
+                    permissionMemo.skippedCalls(), permissionMemo.recordedDenials(), permissionMemo.size()));
+        }
         return ProgressEvent.<ResourceModel, CallbackContext>builder()
-                .resourceModel(buildModel(proxy, proxyClient, response.repositories().get(0), logger))
+                .resourceModel(resourceModel)
                 .status(OperationStatus.SUCCESS)
                 .build();
     }
 
+    private DescribeRepositoriesResponse describeRepository(final AmazonWebServicesClientProxy proxy,
+                                                            final ProxyClient<EcrClient> proxyClient,
+                                                            final ResourceModel model,
+                                                            final TimeBudget budget) {
+        final Supplier<DescribeRepositoriesResponse> describe = () ->
+                proxy.injectCredentialsAndInvokeV2(Translator.describeRepositoriesRequest(model), proxyClient.client()::describeRepositories);
+        return hedger == null ? describe.get() : hedger.call(describe, budget);
+    }
+
     private static Map<String, Object> deserializePolicyText(final String policyText) {
         if (policyText == null) return null;
         try {
-            return Translator.MAPPER.readValue(policyText, new TypeReference<HashMap<String,Object>>() {});
-        } catch (final IOException e) {
+            return PolicyEquivalence.shared().parse(policyText);
+        } catch (final IllegalArgumentException e) {
             throw new CfnInternalFailureException(e);
         }
     }
 
     public static ResourceModel buildModel(final AmazonWebServicesClientProxy proxy, final ProxyClient<EcrClient> proxyClient, final Repository repo, final Logger logger) {
-        final String arn = repo.repositoryArn();
-        final String repositoryUri = repo.repositoryUri();
-        final String repositoryName = repo.repositoryName();
-        final String registryId = repo.registryId();
-        final EcrClient client = proxyClient.client();
+        return buildModel(proxy, proxyClient, repo, logger, PermissionMemo.shared().scope(repo.registryId(), null), TimeBudget.start());
+    }
 
-        Map<String, Object> repositoryPolicyText = null;
-        LifecyclePolicy lifecyclePolicy = null;
-        Set<Tag> tags = null;
+    static ResourceModel buildModel(final AmazonWebServicesClientProxy proxy, final ProxyClient<EcrClient> proxyClient, final Repository repo, final Logger logger, final PermissionMemo.Scope permissions, final TimeBudget budget) {
+        return ParallelCalls.join(buildModelAsync(proxy, proxyClient, repo, logger, permissions, null, budget), budget);
+    }
 
+    /**
+     * Issues the three independent sub-resource reads together; the model completes with the slowest
+     * of them. When permits are given, each read holds one while it is in flight. Reads the caller was
+     * recently denied are not issued at all.
+     */
+    static CompletableFuture<ResourceModel> buildModelAsync(final AmazonWebServicesClientProxy proxy,
+                                                            final ProxyClient<EcrClient> proxyClient,
+                                                            final Repository repo,
+                                                            final Logger logger,
+                                                            final PermissionMemo.Scope permissions,
+                                                            final Semaphore permits,
+                                                            final TimeBudget budget) {
+        final CompletableFuture<Map<String, Object>> repositoryPolicyText = ParallelCalls.submit(() -> getRepositoryPolicyText(proxy, proxyClient, repo, logger, permissions), permits, budget);
+        final CompletableFuture<LifecyclePolicy> lifecyclePolicy = ParallelCalls.submit(() -> getLifecyclePolicy(proxy, proxyClient, repo, logger, permissions), permits, budget);
+        final CompletableFuture<Set<Tag>> tags = ParallelCalls.submit(() -> getTags(proxy, proxyClient, repo, logger, permissions), permits, budget);
+
+        // Join in the same order the reads used to run, so the first failure reported is unchanged.
+        return repositoryPolicyText.thenCompose(policy ->
+                lifecyclePolicy.thenCompose(lifecycle ->
+                        tags.thenApply(tagSet -> toResourceModel(repo, policy, lifecycle, tagSet))));
+    }
+
+    static Map<String, Object> getRepositoryPolicyText(final AmazonWebServicesClientProxy proxy, final ProxyClient<EcrClient> proxyClient, final Repository repo, final Logger logger, final PermissionMemo.Scope permissions) {
+        if (permissions.isDenied(GET_REPOSITORY_POLICY)) {
+            return null;
+        }
         try {
-            final GetRepositoryPolicyResponse getRepositoryPolicyResponse = proxy.injectCredentialsAndInvokeV2(Translator.getRepositoryPolicyRequest(repositoryName, registryId), client::getRepositoryPolicy);
-            repositoryPolicyText = deserializePolicyText(getRepositoryPolicyResponse.policyText());
+            final GetRepositoryPolicyResponse getRepositoryPolicyResponse = proxy.injectCredentialsAndInvokeV2(Translator.getRepositoryPolicyRequest(repo.repositoryName(), repo.registryId()), proxyClient.client()::getRepositoryPolicy);
+            return deserializePolicyText(getRepositoryPolicyResponse.policyText());
         } catch (RepositoryPolicyNotFoundException e) {
             // RepositoryPolicyText is not required so it might not exist
         } catch (EcrException e) {
             // This is a short term fix for GetAtt backwards compatibility
             if (!e.awsErrorDetails().errorCode().equals(ACCESS_DENIED_ERROR_CODE)) {
-                throw new CfnGeneralServiceException(e.getMessage(), e);
+                throw Resilience.toHandlerException(e);
             }
+            permissions.recordDenied(GET_REPOSITORY_POLICY);
             logger.log(String.format("AccessDenied error: %s for Repository: %s", e.getMessage(), repo.toString()));
         }
+        return null;
+    }
 
+    static LifecyclePolicy getLifecyclePolicy(final AmazonWebServicesClientProxy proxy, final ProxyClient<EcrClient> proxyClient, final Repository repo, final Logger logger, final PermissionMemo.Scope permissions) {
+        if (permissions.isDenied(GET_LIFECYCLE_POLICY)) {
+            return null;
+        }
         try {
-            final GetLifecyclePolicyResponse getLifecyclePolicyResponse = proxy.injectCredentialsAndInvokeV2(Translator.getLifecyclePolicyRequest(repositoryName, registryId), client::getLifecyclePolicy);
-            lifecyclePolicy = LifecyclePolicy.builder()
+            final GetLifecyclePolicyResponse getLifecyclePolicyResponse = proxy.injectCredentialsAndInvokeV2(Translator.getLifecyclePolicyRequest(repo.repositoryName(), repo.registryId()), proxyClient.client()::getLifecyclePolicy);
+            return LifecyclePolicy.builder()
                     .registryId(getLifecyclePolicyResponse.registryId())
                     .lifecyclePolicyText(getLifecyclePolicyResponse.lifecyclePolicyText())
                     .build();
@@ -99,21 +166,35 @@ public class ReadHandler extends BaseHandlerStd {
             // LifecyclePolicy is not required so it might not exist
         } catch (EcrException e) {
             if (!e.awsErrorDetails().errorCode().equals(ACCESS_DENIED_ERROR_CODE)) {
-                throw new CfnGeneralServiceException(e.getMessage(), e);
+                throw Resilience.toHandlerException(e);
             }
+            permissions.recordDenied(GET_LIFECYCLE_POLICY);
             logger.log(String.format("AccessDenied error: %s for Repository: %s", e.getMessage(), repo.toString()));
         }
+        return null;
+    }
 
+    static Set<Tag> getTags(final AmazonWebServicesClientProxy proxy, final ProxyClient<EcrClient> proxyClient, final Repository repo, final Logger logger, final PermissionMemo.Scope permissions) {
+        if (permissions.isDenied(LIST_TAGS_FOR_RESOURCE)) {
+            return null;
+        }
         try {
-            final ListTagsForResourceResponse listTagsResponse = proxy.injectCredentialsAndInvokeV2(Translator.listTagsForResourceRequest(arn), client::listTagsForResource);
-            tags = Translator.translateTagsFromSdk(listTagsResponse.tags());
+            final ListTagsForResourceResponse listTagsResponse = proxy.injectCredentialsAndInvokeV2(Translator.listTagsForResourceRequest(repo.repositoryArn()), proxyClient.client()::listTagsForResource);
+            return Translator.translateTagsFromSdk(listTagsResponse.tags());
         } catch (EcrException e) {
             if (!e.awsErrorDetails().errorCode().equals(ACCESS_DENIED_ERROR_CODE)) {
-                throw new CfnGeneralServiceException(e.getMessage(), e);
+                throw Resilience.toHandlerException(e);
             }
+            permissions.recordDenied(LIST_TAGS_FOR_RESOURCE);
             logger.log(String.format("AccessDenied error: %s for Repository: %s", e.getMessage(), repo.toString()));
         }
+        return null;
+    }
 
+    static ResourceModel toResourceModel(final Repository repo,
+                                         final Map<String, Object> repositoryPolicyText,
+                                         final LifecyclePolicy lifecyclePolicy,
+                                         final Set<Tag> tags) {
         EncryptionConfiguration encryptionConfiguration = null;
         if (repo.encryptionConfiguration() != null) {
             encryptionConfiguration = EncryptionConfiguration.builder()
@@ -125,15 +206,20 @@ public class ReadHandler extends BaseHandlerStd {
         }
 
         return ResourceModel.builder()
-                .repositoryName(repositoryName)
+                .repositoryName(repo.repositoryName())
                 .lifecyclePolicy(lifecyclePolicy)
                 .repositoryPolicyText(repositoryPolicyText)
                 .tags(tags)
-                .arn(arn)
-                .repositoryUri(repositoryUri)
+                .arn(repo.repositoryArn())
+                .repositoryUri(repo.repositoryUri())
                 .imageScanningConfiguration(ImageScanningConfiguration.builder().scanOnPush(repo.imageScanningConfiguration().scanOnPush()).build())
                 .imageTagMutability(repo.imageTagMutability().toString())
                 .encryptionConfiguration(encryptionConfiguration)
                 .build();
     }
+
+    @Override
+    boolean defersThrottling() {
+        return false;
+    }
 }
@@ -0,0 +1,208 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.awssdk.services.ecr.model.Repository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * A registry reduced to hashes: per repository, a fingerprint of what DescribeRepositories returns
+ * and a hash of each property's canonical JSON. Two snapshots, or a snapshot and the live registry,
+ * are compared hash by hash instead of model by model.
+ *
+ * <p>Stored as one JSON object per line, sorted by repository name:
+ * {@code {"RepositoryName":..,"Fingerprint":..,"ContentHash":..,"Properties":{"Tags":..,..}}}. The
+ * content hash is written for readers of the file and recomputed when it is read back.
+ */
+public final class RegistrySnapshot {
+    // Known from DescribeRepositories alone; everything else takes a read of its own.
+    static final Set<String> DESCRIBED_PROPERTIES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "ImageTagMutability", "ImageScanningConfiguration", "EncryptionConfiguration")));
+    // Identify the repository or are never read back, so they are not part of its content.
+    private static final Set<String> UNHASHED_PROPERTIES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "RepositoryName", "Arn", "RepositoryUri", "EmptyOnDelete")));
+
+    private final SortedMap<String, Entry> entries;
+
+    RegistrySnapshot(final SortedMap<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    public static RegistrySnapshot empty() {
+        return new RegistrySnapshot(new TreeMap<>());
+    }
+
+    public SortedMap<String, Entry> getEntries() {
+        return Collections.unmodifiableSortedMap(entries);
+    }
+
+    Entry get(final String repositoryName) {
+        return entries.get(repositoryName);
+    }
+
+    public static RegistrySnapshot read(final BufferedReader reader) throws IOException {
+        final SortedMap<String, Entry> entries = new TreeMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            final JsonNode node = Translator.MAPPER.readTree(line);
+            final SortedMap<String, String> properties = new TreeMap<>();
+            final Iterator<Map.Entry<String, JsonNode>> fields = node.path("Properties").fields();
+            while (fields.hasNext()) {
+                final Map.Entry<String, JsonNode> field = fields.next();
+                properties.put(field.getKey(), field.getValue().asText());
+            }
+            final Entry entry = new Entry(node.path("RepositoryName").asText(), node.path("Fingerprint").asText(), properties);
+            entries.put(entry.getRepositoryName(), entry);
+        }
+        return new RegistrySnapshot(entries);
+    }
+
+    public void write(final Writer out) throws IOException {
+        for (final Entry entry : entries.values()) {
+            final ObjectNode node = JsonNodeFactory.instance.objectNode();
+            node.put("RepositoryName", entry.getRepositoryName());
+            node.put("Fingerprint", entry.getFingerprint());
+            node.put("ContentHash", entry.contentHash());
+            final ObjectNode properties = node.putObject("Properties");
+            entry.getPropertyHashes().forEach(properties::put);
+            out.write(Translator.MAPPER.writeValueAsString(node));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    static Entry entry(final Repository repository, final ResourceModel model) {
+        return new Entry(repository.repositoryName(), fingerprint(repository), propertyHashes(model));
+    }
+
+    /**
+     * Hashes every field of the repository that can change without it being recreated, plus its
+     * creation time, so a repository deleted and created again under the same name never matches.
+     */
+    static String fingerprint(final Repository repository) {
+        return sha256(String.join("\n",
+                String.valueOf(repository.repositoryArn()),
+                String.valueOf(repository.createdAt()),
+                String.valueOf(repository.imageTagMutabilityAsString()),
+                repository.imageScanningConfiguration() == null ? "null" : String.valueOf(repository.imageScanningConfiguration().scanOnPush()),
+                repository.encryptionConfiguration() == null ? "null" : repository.encryptionConfiguration().encryptionTypeAsString(),
+                repository.encryptionConfiguration() == null ? "null" : String.valueOf(repository.encryptionConfiguration().kmsKey())));
+    }
+
+    static SortedMap<String, String> propertyHashes(final ResourceModel model) {
+        final SortedMap<String, String> hashes = new TreeMap<>();
+        final JsonNode tree = Translator.MAPPER.valueToTree(model);
+        final Iterator<Map.Entry<String, JsonNode>> fields = tree.fields();
+        while (fields.hasNext()) {
+            final Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getValue().isNull() || UNHASHED_PROPERTIES.contains(field.getKey())) {
+                continue;
+            }
+            try {
+                hashes.put(field.getKey(), sha256(Translator.MAPPER.writeValueAsString(canonical(field.getValue()))));
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Rewrites a JSON value so equal content always serialises the same way: object keys sorted,
+     * nulls dropped, policy documents held as strings parsed, and arrays of tags ordered by key
+     * (they are sets, whatever order they were listed in).
+     */
+    static JsonNode canonical(final JsonNode node) {
+        if (node.isObject()) {
+            final ObjectNode sorted = JsonNodeFactory.instance.objectNode();
+            final List<String> names = new ArrayList<>();
+            node.fieldNames().forEachRemaining(names::add);
+            Collections.sort(names);
+            for (final String name : names) {
+                if (!node.get(name).isNull()) {
+                    sorted.set(name, canonical(node.get(name)));
+                }
+            }
+            return sorted;
+        }
+        if (node.isArray()) {
+            final List<JsonNode> items = new ArrayList<>();
+            node.forEach(item -> items.add(canonical(item)));
+            if (items.stream().allMatch(item -> item.isObject() && item.has("Key"))) {
+                items.sort(Comparator.comparing(item -> item.get("Key").asText()));
+            }
+            final ArrayNode array = JsonNodeFactory.instance.arrayNode();
+            items.forEach(array::add);
+            return array;
+        }
+        if (node.isTextual() && node.asText().trim().startsWith("{")) {
+            try {
+                return canonical(Translator.MAPPER.readTree(node.asText()));
+            } catch (final IOException e) {
+                // Not a JSON document after all; compared as written.
+            }
+        }
+        return node;
+    }
+
+    static String sha256(final String text) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final StringBuilder hex = new StringBuilder();
+        for (final byte b : digest.digest(text.getBytes(StandardCharsets.UTF_8))) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    public static final class Entry {
+        private final String repositoryName;
+        private final String fingerprint;
+        private final SortedMap<String, String> propertyHashes;
+
+        Entry(final String repositoryName, final String fingerprint, final SortedMap<String, String> propertyHashes) {
+            this.repositoryName = repositoryName;
+            this.fingerprint = fingerprint;
+            this.propertyHashes = Collections.unmodifiableSortedMap(propertyHashes);
+        }
+
+        /**
+         * One hash over every property hash; equal for two repositories with the same content.
+         */
+        public String contentHash() {
+            final StringBuilder all = new StringBuilder();
+            propertyHashes.forEach((name, hash) -> all.append(name).append('=').append(hash).append('\n'));
+            return sha256(all.toString());
+        }
+    }
+}
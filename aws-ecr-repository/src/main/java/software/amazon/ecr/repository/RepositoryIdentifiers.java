@@ -0,0 +1,61 @@
+package software.amazon.ecr.repository;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Getter;
+
+/**
+ * The Arn and RepositoryUri of a repository, derived from where it lives instead of read back from
+ * DescribeRepositories. Both follow fixed formats; only the registry DNS suffix varies by partition.
+ */
+@Getter
+public final class RepositoryIdentifiers {
+    private static final Map<String, String> REGISTRY_DNS_SUFFIXES;
+
+    static {
+        final Map<String, String> suffixes = new HashMap<>();
+        suffixes.put("aws", "amazonaws.com");
+        suffixes.put("aws-us-gov", "amazonaws.com");
+        suffixes.put("aws-cn", "amazonaws.com.cn");
+        suffixes.put("aws-iso", "c2s.ic.gov");
+        suffixes.put("aws-iso-b", "sc2s.sgov.gov");
+        suffixes.put("aws-iso-e", "cloud.adc-e.uk");
+        suffixes.put("aws-iso-f", "csp.hci.ic.gov");
+        REGISTRY_DNS_SUFFIXES = Collections.unmodifiableMap(suffixes);
+    }
+
+    private final String arn;
+    private final String repositoryUri;
+
+    private RepositoryIdentifiers(final String arn, final String repositoryUri) {
+        this.arn = arn;
+        this.repositoryUri = repositoryUri;
+    }
+
+    /**
+     * @param registryId the registry the repository belongs to, or null for the caller's own
+     * @return the identifiers, or null when they cannot be derived reliably (an unknown partition,
+     *         missing request context, or a registry other than the caller's) and have to be read
+     *         from the service instead
+     */
+    public static RepositoryIdentifiers derive(final String partition,
+                                        final String region,
+                                        final String accountId,
+                                        final String registryId,
+                                        final String repositoryName) {
+        if (partition == null || region == null || accountId == null || repositoryName == null) {
+            return null;
+        }
+        if (registryId != null && !registryId.equals(accountId)) {
+            return null;
+        }
+        final String dnsSuffix = REGISTRY_DNS_SUFFIXES.get(partition);
+        if (dnsSuffix == null) {
+            return null;
+        }
+        return new RepositoryIdentifiers(
+                String.format("arn:%s:ecr:%s:%s:repository/%s", partition, region, accountId, repositoryName),
+                String.format("%s.dkr.ecr.%s.%s/%s", accountId, region, dnsSuffix, repositoryName));
+    }
+}
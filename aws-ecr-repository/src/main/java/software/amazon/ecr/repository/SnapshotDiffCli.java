@@ -0,0 +1,73 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line entry point for {@link SnapshotDiffer}:
+ *
+ * <pre>
+ * java -cp aws-ecr-repository-handler-1.0-SNAPSHOT.jar software.amazon.ecr.repository.SnapshotDiffCli \
+ *     before.ndjson after.ndjson
+ * java -cp aws-ecr-repository-handler-1.0-SNAPSHOT.jar software.amazon.ecr.repository.SnapshotDiffCli \
+ *     [--full] [--write now.ndjson] [before.ndjson]
+ * </pre>
+ *
+ * With two snapshots, compares them. With one or none, compares the live registry with the snapshot
+ * (or with an empty registry) and can write the live snapshot for the next run. Prints one line per
+ * changed repository and exits with 1 if anything changed, like diff.
+ */
+public final class SnapshotDiffCli {
+
+    private SnapshotDiffCli() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        SnapshotDiffer.Depth depth = SnapshotDiffer.Depth.DESCRIBED;
+        String writePath = null;
+        final List<String> snapshots = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--full".equals(args[i])) {
+                depth = SnapshotDiffer.Depth.FULL;
+            } else if ("--write".equals(args[i]) && i + 1 < args.length) {
+                writePath = args[++i];
+            } else {
+                snapshots.add(args[i]);
+            }
+        }
+
+        final RegistrySnapshot before = snapshots.isEmpty() ? RegistrySnapshot.empty() : read(snapshots.get(0));
+        final List<SnapshotDiffer.Change> changes;
+        if (snapshots.size() > 1) {
+            changes = SnapshotDiffer.diff(before, read(snapshots.get(1)));
+        } else {
+            final SnapshotDiffer.Result result;
+            try (EcrClient client = EcrClient.create()) {
+                result = new SnapshotDiffer(client, FleetReconcilerCli.credentials(), new LoggerProxy()).diffLive(before, depth);
+            }
+            if (writePath != null) {
+                try (Writer out = Files.newBufferedWriter(Paths.get(writePath), StandardCharsets.UTF_8)) {
+                    result.getSnapshot().write(out);
+                }
+            }
+            changes = result.getChanges();
+        }
+
+        changes.forEach(System.out::println);
+        System.exit(changes.isEmpty() ? 0 : 1);
+    }
+
+    private static RegistrySnapshot read(final String path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            return RegistrySnapshot.read(reader);
+        }
+    }
+}
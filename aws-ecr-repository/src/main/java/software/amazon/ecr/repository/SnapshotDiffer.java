@@ -0,0 +1,164 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesResponse;
+import software.amazon.awssdk.services.ecr.model.Repository;
+import software.amazon.cloudformation.proxy.Credentials;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.Getter;
+
+/**
+ * Finds what changed between two {@link RegistrySnapshot}s, or between a snapshot and the live
+ * registry. Against the live registry only DescribeRepositories is called for every repository;
+ * the per-repository reads of policies and tags are made only for the repositories that need them,
+ * which depends on the {@link Depth} asked for.
+ */
+public final class SnapshotDiffer {
+    private static final long PAGE_BUDGET_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final String PRINCIPAL = "snapshot-differ";
+
+    private final FleetReconciler.PacedProxy proxy;
+    private final ProxyClient<EcrClient> proxyClient;
+    private final LoggerProxy logger;
+    private final PermissionMemo permissionMemo = new PermissionMemo(PermissionMemo.DEFAULT_TTL_MILLIS, System::currentTimeMillis);
+
+    public SnapshotDiffer(final EcrClient client, final Credentials credentials, final LoggerProxy logger) {
+        this.proxy = new FleetReconciler.PacedProxy(logger, credentials);
+        this.proxyClient = proxy.newProxy(() -> client);
+        this.logger = logger;
+    }
+
+    public enum Depth {
+        /**
+         * Re-reads only repositories whose DescribeRepositories fingerprint changed, and new ones.
+         * Policies and tags of the other repositories are carried over from the earlier snapshot, so
+         * a change made to only those goes unseen: the service gives no cheap sign of it.
+         */
+        DESCRIBED,
+        /** Re-reads every repository; catches every change, at the cost of a full hydration. */
+        FULL
+    }
+
+    public enum Kind {
+        ADDED,
+        REMOVED,
+        MODIFIED
+    }
+
+    @Getter
+    public static final class Change {
+        private final String repositoryName;
+        private final Kind kind;
+        /** The properties whose content differs; empty for added and removed repositories. */
+        private final Set<String> properties;
+
+        Change(final String repositoryName, final Kind kind, final Set<String> properties) {
+            this.repositoryName = repositoryName;
+            this.kind = kind;
+            this.properties = Collections.unmodifiableSet(properties);
+        }
+
+        @Override
+        public String toString() {
+            return kind == Kind.MODIFIED
+                    ? String.format("%s %s %s", repositoryName, kind, properties)
+                    : String.format("%s %s", repositoryName, kind);
+        }
+    }
+
+    @Getter
+    public static final class Result {
+        /** The registry as it is now, ready to be the earlier snapshot of the next comparison. */
+        private final RegistrySnapshot snapshot;
+        private final List<Change> changes;
+        private final int hydratedRepositories;
+
+        Result(final RegistrySnapshot snapshot, final List<Change> changes, final int hydratedRepositories) {
+            this.snapshot = snapshot;
+            this.changes = Collections.unmodifiableList(changes);
+            this.hydratedRepositories = hydratedRepositories;
+        }
+    }
+
+    /**
+     * Compares two snapshots without calling ECR.
+     */
+    public static List<Change> diff(final RegistrySnapshot before, final RegistrySnapshot after) {
+        final List<Change> changes = new ArrayList<>();
+        final Set<String> names = new TreeSet<>(before.getEntries().keySet());
+        names.addAll(after.getEntries().keySet());
+        for (final String name : names) {
+            final Change change = compare(name, before.get(name), after.get(name));
+            if (change != null) {
+                changes.add(change);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Snapshots the live registry and compares it with the earlier snapshot.
+     */
+    public Result diffLive(final RegistrySnapshot before, final Depth depth) {
+        final SortedMap<String, RegistrySnapshot.Entry> entries = new TreeMap<>();
+        int hydrated = 0;
+        String nextToken = null;
+        do {
+            final DescribeRepositoriesResponse page = ListHandler.describePage(proxy, proxyClient, nextToken, InventoryExporter.PAGE_SIZE);
+            final List<Repository> stale = new ArrayList<>();
+            for (final Repository repository : page.repositories()) {
+                final RegistrySnapshot.Entry earlier = before.get(repository.repositoryName());
+                if (depth == Depth.DESCRIBED && earlier != null
+                        && earlier.getFingerprint().equals(RegistrySnapshot.fingerprint(repository))) {
+                    entries.put(earlier.getRepositoryName(), earlier);
+                } else {
+                    stale.add(repository);
+                }
+            }
+
+            if (!stale.isEmpty()) {
+                final Map<String, Repository> byName = stale.stream()
+                        .collect(Collectors.toMap(Repository::repositoryName, Function.identity()));
+                for (final ResourceModel model : ListHandler.hydrate(proxy, proxyClient, stale, logger,
+                        permissionMemo.scope(null, PRINCIPAL), TimeBudget.ofMillis(PAGE_BUDGET_MILLIS))) {
+                    entries.put(model.getRepositoryName(), RegistrySnapshot.entry(byName.get(model.getRepositoryName()), model));
+                }
+                hydrated += stale.size();
+            }
+            nextToken = page.nextToken();
+        } while (nextToken != null);
+
+        final RegistrySnapshot after = new RegistrySnapshot(entries);
+        logger.log(String.format("Snapshot of %d repositories taken, %d re-read", entries.size(), hydrated));
+        return new Result(after, diff(before, after), hydrated);
+    }
+
+    private static Change compare(final String name, final RegistrySnapshot.Entry before, final RegistrySnapshot.Entry after) {
+        if (before == null) {
+            return new Change(name, Kind.ADDED, Collections.emptySet());
+        }
+        if (after == null) {
+            return new Change(name, Kind.REMOVED, Collections.emptySet());
+        }
+        if (before.contentHash().equals(after.contentHash())) {
+            return null;
+        }
+        final Set<String> properties = new TreeSet<>(before.getPropertyHashes().keySet());
+        properties.addAll(after.getPropertyHashes().keySet());
+        properties.removeIf(property -> before.getPropertyHashes().getOrDefault(property, "")
+                .equals(after.getPropertyHashes().getOrDefault(property, "")));
+        return new Change(name, Kind.MODIFIED, properties);
+    }
+}
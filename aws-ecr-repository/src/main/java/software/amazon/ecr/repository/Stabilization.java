@@ -0,0 +1,28 @@
+package software.amazon.ecr.repository;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Callback delays for handlers waiting on DescribeRepositories to catch up with a create or delete.
+ * The delay doubles with every attempt up to a ceiling, and half of it is randomised so stacks
+ * creating many repositories at once do not poll in lockstep.
+ */
+final class Stabilization {
+    static final int MAX_ATTEMPTS = 12;
+    static final int BASE_DELAY_SECONDS = 2;
+    static final int MAX_DELAY_SECONDS = 30;
+
+    private Stabilization() {
+    }
+
+    /**
+     * @param attempt the 1-based number of the poll that is about to be scheduled
+     * @return a delay between half of the capped exponential delay and the full delay, never below one second
+     */
+    static int delaySeconds(final int attempt) {
+        final int exponent = Math.min(Math.max(attempt - 1, 0), 16);
+        final int capped = (int) Math.min((long) BASE_DELAY_SECONDS << exponent, MAX_DELAY_SECONDS);
+        final int half = capped / 2;
+        return Math.max(1, half + ThreadLocalRandom.current().nextInt(capped - half + 1));
+    }
+}
@@ -0,0 +1,87 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.Tag;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Logger;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Brings a repository's tags from the previously applied set to the desired one. The diff is taken
+ * locally from the handler request; live tags are only read when the request carries no previous
+ * set to diff against. A changed value is a single overwrite rather than an untag followed by a tag.
+ */
+final class TagReconciler {
+    // ECR accepts at most this many tags, or tag keys, in one TagResource or UntagResource call.
+    static final int MAX_TAGS_PER_CALL = 50;
+
+    // Keys with this prefix belong to AWS (CloudFormation's stack tags among them) and cannot be
+    // written or removed by the caller.
+    private static final String RESERVED_PREFIX = "aws:";
+
+    private final AmazonWebServicesClientProxy proxy;
+    private final ProxyClient<EcrClient> proxyClient;
+    private final Logger logger;
+
+    TagReconciler(final AmazonWebServicesClientProxy proxy,
+                  final ProxyClient<EcrClient> proxyClient,
+                  final Logger logger) {
+        this.proxy = proxy;
+        this.proxyClient = proxyClient;
+        this.logger = logger;
+    }
+
+    /**
+     * @param previousTags the tags applied by the last successful operation, or null if unknown
+     * @param desiredTags the tags the repository should end up with
+     */
+    void reconcile(final String arn, final Map<String, String> previousTags, final Map<String, String> desiredTags) {
+        final Map<String, String> current = previousTags != null ? previousTags : liveTags(arn);
+        final Map<String, String> desired = desiredTags == null ? Collections.emptyMap() : desiredTags;
+
+        final List<String> keysToRemove = current.keySet().stream()
+                .filter(key -> !desired.containsKey(key))
+                .filter(key -> !isReserved(key))
+                .collect(Collectors.toList());
+        final List<Tag> tagsToApply = desired.entrySet().stream()
+                .filter(entry -> !entry.getValue().equals(current.get(entry.getKey())))
+                .filter(entry -> !isReserved(entry.getKey()))
+                .map(entry -> Tag.builder().key(entry.getKey()).value(entry.getValue()).build())
+                .collect(Collectors.toList());
+
+        for (final List<String> keys : chunks(keysToRemove)) {
+            proxy.injectCredentialsAndInvokeV2(Translator.untagResourceRequest(keys, arn), proxyClient.client()::untagResource);
+        }
+        for (final List<Tag> tags : chunks(tagsToApply)) {
+            proxy.injectCredentialsAndInvokeV2(Translator.tagResourceRequest(tags, arn), proxyClient.client()::tagResource);
+        }
+        logger.log(String.format("%s [%s] tags reconciled: %d removed, %d applied",
+                ResourceModel.TYPE_NAME, arn, keysToRemove.size(), tagsToApply.size()));
+    }
+
+    private Map<String, String> liveTags(final String arn) {
+        final Map<String, String> tags = new HashMap<>();
+        proxy.injectCredentialsAndInvokeV2(Translator.listTagsForResourceRequest(arn), proxyClient.client()::listTagsForResource)
+                .tags()
+                .forEach(tag -> tags.put(tag.key(), tag.value()));
+        return tags;
+    }
+
+    private static boolean isReserved(final String key) {
+        return key.startsWith(RESERVED_PREFIX);
+    }
+
+    static <T> List<List<T>> chunks(final List<T> items) {
+        final List<List<T>> chunks = new ArrayList<>();
+        for (int start = 0; start < items.size(); start += MAX_TAGS_PER_CALL) {
+            chunks.add(items.subList(start, Math.min(items.size(), start + MAX_TAGS_PER_CALL)));
+        }
+        return chunks;
+    }
+}
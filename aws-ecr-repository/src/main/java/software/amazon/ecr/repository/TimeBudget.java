@@ -0,0 +1,34 @@
+package software.amazon.ecr.repository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks how much of the current handler invocation is left. Handlers are not given the Lambda
+ * context, so the budget is measured from the start of the request against a fixed allowance.
+ */
+public final class TimeBudget {
+    // Handler invocations are cut off after 60 seconds (see template.yml); keep headroom to return a response.
+    static final long DEFAULT_BUDGET_MILLIS = TimeUnit.SECONDS.toMillis(50);
+
+    private final long deadlineNanos;
+
+    private TimeBudget(final long budgetMillis) {
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    }
+
+    public static TimeBudget start() {
+        return new TimeBudget(DEFAULT_BUDGET_MILLIS);
+    }
+
+    public static TimeBudget ofMillis(final long budgetMillis) {
+        return new TimeBudget(budgetMillis);
+    }
+
+    public long remainingMillis() {
+        return Math.max(0L, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    public boolean isExhausted() {
+        return remainingMillis() == 0L;
+    }
+}
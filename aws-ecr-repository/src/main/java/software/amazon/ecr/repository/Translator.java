@@ -1,5 +1,6 @@
 package software.amazon.ecr.repository;
 
+import software.amazon.awssdk.services.ecr.model.BatchDeleteImageRequest;
 import software.amazon.awssdk.services.ecr.model.CreateRepositoryRequest;
 import software.amazon.awssdk.services.ecr.model.DeleteLifecyclePolicyRequest;
 import software.amazon.awssdk.services.ecr.model.DeleteRepositoryPolicyRequest;
@@ -8,7 +9,9 @@ import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesRequest;
 import software.amazon.awssdk.services.ecr.model.EncryptionConfiguration;
 import software.amazon.awssdk.services.ecr.model.GetLifecyclePolicyRequest;
 import software.amazon.awssdk.services.ecr.model.GetRepositoryPolicyRequest;
+import software.amazon.awssdk.services.ecr.model.ImageIdentifier;
 import software.amazon.awssdk.services.ecr.model.ImageScanningConfiguration;
+import software.amazon.awssdk.services.ecr.model.ListImagesRequest;
 import software.amazon.awssdk.services.ecr.model.ListTagsForResourceRequest;
 import software.amazon.awssdk.services.ecr.model.PutImageScanningConfigurationRequest;
 import software.amazon.awssdk.services.ecr.model.PutImageTagMutabilityRequest;
@@ -31,7 +34,11 @@ import java.util.stream.Collectors;
 public class Translator {
     public static final ObjectMapper MAPPER = new ObjectMapper();
 
-    static CreateRepositoryRequest createRepositoryRequest(final ResourceModel model,
+    // Set by CreateHandler to recognise a repository created by an earlier attempt of the same
+    // request, and removed once the create succeeds; it is not part of the resource's Tags.
+    static final String CREATE_TOKEN_TAG_KEY = "cloudformation:ecr-repository:create-token";
+
+    public static CreateRepositoryRequest createRepositoryRequest(final ResourceModel model,
             final Map<String, String> tags) {
 
         CreateRepositoryRequest.Builder createRepositoryRequest = CreateRepositoryRequest.builder()
@@ -59,7 +66,7 @@ public class Translator {
         return createRepositoryRequest.build();
     }
 
-    static PutLifecyclePolicyRequest putLifecyclePolicyRequest(final ResourceModel model) {
+    public static PutLifecyclePolicyRequest putLifecyclePolicyRequest(final ResourceModel model) {
         return PutLifecyclePolicyRequest.builder()
                 .repositoryName(model.getRepositoryName())
                 .lifecyclePolicyText(model.getLifecyclePolicy().getLifecyclePolicyText())
@@ -67,7 +74,7 @@ public class Translator {
                 .build();
     }
 
-    static DeleteLifecyclePolicyRequest deleteLifecyclePolicyRequest(final ResourceModel model) {
+    public static DeleteLifecyclePolicyRequest deleteLifecyclePolicyRequest(final ResourceModel model) {
         return DeleteLifecyclePolicyRequest.builder()
                 .repositoryName(model.getRepositoryName())
                 .build();
@@ -80,7 +87,7 @@ public class Translator {
         return (String)policy;
     }
 
-    static SetRepositoryPolicyRequest setRepositoryPolicyRequest(final ResourceModel model) {
+    public static SetRepositoryPolicyRequest setRepositoryPolicyRequest(final ResourceModel model) {
         try {
             return SetRepositoryPolicyRequest.builder()
                     .repositoryName(model.getRepositoryName())
@@ -91,13 +98,13 @@ public class Translator {
         }
     }
 
-    static DeleteRepositoryPolicyRequest deleteRepositoryPolicyRequest(final ResourceModel model) {
+    public static DeleteRepositoryPolicyRequest deleteRepositoryPolicyRequest(final ResourceModel model) {
         return DeleteRepositoryPolicyRequest.builder()
                 .repositoryName(model.getRepositoryName())
                 .build();
     }
 
-    static DeleteRepositoryRequest deleteRepositoryRequest(final ResourceModel model) {
+    public static DeleteRepositoryRequest deleteRepositoryRequest(final ResourceModel model) {
         DeleteRepositoryRequest.Builder requestBuilder = DeleteRepositoryRequest.builder()
                 .repositoryName(model.getRepositoryName());
 
@@ -108,32 +115,47 @@ public class Translator {
         return requestBuilder.build();
     }
 
-    static TagResourceRequest tagResourceRequest(final List<Tag> tags, final String arn) {
+    static ListImagesRequest listImagesRequest(final String repositoryName, final String nextToken, final int maxResults) {
+        return ListImagesRequest.builder()
+                .repositoryName(repositoryName)
+                .nextToken(nextToken)
+                .maxResults(maxResults)
+                .build();
+    }
+
+    static BatchDeleteImageRequest batchDeleteImageRequest(final String repositoryName, final List<ImageIdentifier> imageIds) {
+        return BatchDeleteImageRequest.builder()
+                .repositoryName(repositoryName)
+                .imageIds(imageIds)
+                .build();
+    }
+
+    public static TagResourceRequest tagResourceRequest(final List<Tag> tags, final String arn) {
         return TagResourceRequest.builder().tags(tags).resourceArn(arn).build();
     }
 
-    static UntagResourceRequest untagResourceRequest(final Collection<String> tagKeys, final String arn) {
+    public static UntagResourceRequest untagResourceRequest(final Collection<String> tagKeys, final String arn) {
         return UntagResourceRequest.builder().tagKeys(tagKeys).resourceArn(arn).build();
     }
 
-    static ListTagsForResourceRequest listTagsForResourceRequest(final String arn) {
+    public static ListTagsForResourceRequest listTagsForResourceRequest(final String arn) {
         return ListTagsForResourceRequest.builder().resourceArn(arn).build();
     }
 
-    static DescribeRepositoriesRequest describeRepositoriesRequest(final ResourceModel model) {
+    public static DescribeRepositoriesRequest describeRepositoriesRequest(final ResourceModel model) {
         return DescribeRepositoriesRequest.builder()
                 .repositoryNames(Arrays.asList(model.getRepositoryName()))
                 .build();
     }
 
-    static DescribeRepositoriesRequest describeRepositoriesRequest(final String nextToken) {
+    public static DescribeRepositoriesRequest describeRepositoriesRequest(final String nextToken, final int maxResults) {
         return DescribeRepositoriesRequest.builder()
-                .maxResults(50)
+                .maxResults(maxResults)
                 .nextToken(nextToken)
                 .build();
     }
 
-    static List<Tag> translateTagsToSdk(final Map<String, String> tags) {
+    public static List<Tag> translateTagsToSdk(final Map<String, String> tags) {
         if (tags == null) return null;
         return tags.keySet().stream().map(key -> Tag.builder()
                 .key(key)
@@ -144,28 +166,30 @@ public class Translator {
 
     static Set<software.amazon.ecr.repository.Tag> translateTagsFromSdk(final List<Tag> tags) {
         if (tags == null) return null;
-        return tags.stream().map(tag -> software.amazon.ecr.repository.Tag.builder()
-                .key(tag.key())
-                .value(tag.value())
-                .build()
-        ).collect(Collectors.toSet());
+        return tags.stream()
+                .filter(tag -> !CREATE_TOKEN_TAG_KEY.equals(tag.key()))
+                .map(tag -> software.amazon.ecr.repository.Tag.builder()
+                        .key(tag.key())
+                        .value(tag.value())
+                        .build())
+                .collect(Collectors.toSet());
     }
 
-    static GetRepositoryPolicyRequest getRepositoryPolicyRequest(final String repositoryName, final String registryId) {
+    public static GetRepositoryPolicyRequest getRepositoryPolicyRequest(final String repositoryName, final String registryId) {
         return GetRepositoryPolicyRequest.builder()
                 .repositoryName(repositoryName)
                 .registryId(registryId)
                 .build();
     }
 
-    static GetLifecyclePolicyRequest getLifecyclePolicyRequest(final String repositoryName, final String registryId) {
+    public static GetLifecyclePolicyRequest getLifecyclePolicyRequest(final String repositoryName, final String registryId) {
         return GetLifecyclePolicyRequest.builder()
                 .repositoryName(repositoryName)
                 .registryId(registryId)
                 .build();
     }
 
-    static PutImageTagMutabilityRequest putImageTagMutabilityRequest(final ResourceModel model,
+    public static PutImageTagMutabilityRequest putImageTagMutabilityRequest(final ResourceModel model,
             final String registryId) {
         return PutImageTagMutabilityRequest.builder()
                 .registryId(registryId)
@@ -174,7 +198,7 @@ public class Translator {
                 .build();
     }
 
-    static PutImageScanningConfigurationRequest putImageScanningConfigurationRequest(final ResourceModel model,
+    public static PutImageScanningConfigurationRequest putImageScanningConfigurationRequest(final ResourceModel model,
             final String registryId) {
         ImageScanningConfiguration sdkImageScanningConfiguration = ImageScanningConfiguration.builder()
                 .scanOnPush(model.getImageScanningConfiguration().getScanOnPush()).build();
@@ -1,6 +1,6 @@
 package software.amazon.ecr.repository;
 
-import software.amazon.awssdk.services.ecr.model.Repository;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
 import software.amazon.cloudformation.proxy.HandlerErrorCode;
 import software.amazon.cloudformation.proxy.Logger;
@@ -8,24 +8,21 @@ import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
 import software.amazon.awssdk.services.ecr.EcrClient;
-import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesResponse;
 import software.amazon.awssdk.services.ecr.model.LifecyclePolicyNotFoundException;
-import software.amazon.awssdk.services.ecr.model.RepositoryNotFoundException;
 import software.amazon.awssdk.services.ecr.model.RepositoryPolicyNotFoundException;
-import software.amazon.awssdk.services.ecr.model.Tag;
-import software.amazon.awssdk.utils.CollectionUtils;
+import java.util.Objects;
+import java.util.function.Supplier;
 
 public class UpdateHandler extends BaseHandlerStd {
 
-    private AmazonWebServicesClientProxy proxy;
-    private EcrClient client;
+    public UpdateHandler() {
+        super();
+    }
+
+    UpdateHandler(final Supplier<TimeBudget> budgets) {
+        super(budgets);
+    }
 
     protected ProgressEvent<ResourceModel, CallbackContext> handleRequest(
         final AmazonWebServicesClientProxy proxy,
@@ -34,97 +31,203 @@ public class UpdateHandler extends BaseHandlerStd {
         final ProxyClient<EcrClient> proxyClient,
         final Logger logger) {
 
+        final TimeBudget budget = startBudget();
         final ResourceModel model = request.getDesiredResourceState();
         final String accountId = request.getAwsAccountId();
         final String repositoryName = model.getRepositoryName();
-        this.client = proxyClient.client();
-        this.proxy = proxy;
-
-        try {
-            final ResourceModel previousModel = request.getPreviousResourceState();
-            if (model.getEncryptionConfiguration() != null) {
-                if (!model.getEncryptionConfiguration().equals(previousModel.getEncryptionConfiguration())) {
-                    return ProgressEvent.<ResourceModel, CallbackContext>builder()
-                            .errorCode(HandlerErrorCode.NotUpdatable)
-                            .status(OperationStatus.FAILED)
-                            .message("The encryption settings cannot be changed after the repository is created.")
-                            .build();
-                }
-            } else if (previousModel.getEncryptionConfiguration() != null) {
-                return ProgressEvent.<ResourceModel, CallbackContext>builder()
-                        .errorCode(HandlerErrorCode.NotUpdatable)
-                        .status(OperationStatus.FAILED)
-                        .message("The encryption settings cannot be changed after the repository is created.")
-                        .build();
-            }
 
-            if (model.getRepositoryPolicyText() != null) {
-                proxy.injectCredentialsAndInvokeV2(Translator.setRepositoryPolicyRequest(model), client::setRepositoryPolicy);
-            } else {
-                try {
-                    // Read call is necessary to avoid exception during update if role does not have DeleteRepositoryPolicy permission.
-                    proxy.injectCredentialsAndInvokeV2(Translator.getRepositoryPolicyRequest(repositoryName, accountId), client::getRepositoryPolicy);
-                    proxy.injectCredentialsAndInvokeV2(Translator.deleteRepositoryPolicyRequest(model), client::deleteRepositoryPolicy);
-                } catch (RepositoryPolicyNotFoundException e) {
-                    // there's no policy to delete
-                }
-            }
+        final ResourceModel previousModel = request.getPreviousResourceState();
+        // Without a previous state there is nothing to compare; the plan then applies every property set.
+        if (previousModel != null
+                && !Objects.equals(model.getEncryptionConfiguration(), previousModel.getEncryptionConfiguration())) {
+            return ProgressEvent.<ResourceModel, CallbackContext>builder()
+                    .errorCode(HandlerErrorCode.NotUpdatable)
+                    .status(OperationStatus.FAILED)
+                    .message("The encryption settings cannot be changed after the repository is created.")
+                    .build();
+        }
 
-            if (model.getLifecyclePolicy() != null) {
-                proxy.injectCredentialsAndInvokeV2(Translator.putLifecyclePolicyRequest(model), client::putLifecyclePolicy);
-            } else {
-                try {
-                    // Read call is necessary to avoid exception during update if role does not have DeleteLifecyclePolicy permission.
-                    proxy.injectCredentialsAndInvokeV2(Translator.getLifecyclePolicyRequest(repositoryName, accountId), client::getLifecyclePolicy);
-                    proxy.injectCredentialsAndInvokeV2(Translator.deleteLifecyclePolicyRequest(model), client::deleteLifecyclePolicy);
-                } catch (LifecyclePolicyNotFoundException e) {
-                    // there's no policy to delete
-                }
+        final UpdatePlan plan = UpdatePlan.of(previousModel, model,
+                request.getPreviousResourceTags(), request.getDesiredResourceTags());
+        logger.log(String.format("%s [%s] Update plan: %s", ResourceModel.TYPE_NAME, repositoryName, plan));
+        if (plan.includes(UpdatePlan.Step.PUT_LIFECYCLE_POLICY)) {
+            final String invalidPolicy = validateLifecyclePolicy(model);
+            if (invalidPolicy != null) {
+                return failed(HandlerErrorCode.InvalidRequest, invalidPolicy, model);
             }
+        }
+        restoreIdentifiers(model, callbackContext);
+
+        return ProgressEvent.progress(model, callbackContext)
+                .then(progress -> step("RepositoryPolicy", progress, budget, logger, current -> {
+                    if (plan.includes(UpdatePlan.Step.SET_REPOSITORY_POLICY)) {
+                        return setRepositoryPolicy(proxy, proxyClient, current);
+                    } else if (plan.includes(UpdatePlan.Step.DELETE_REPOSITORY_POLICY)) {
+                        return deleteRepositoryPolicy(proxy, proxyClient, current, accountId);
+                    }
+                    return current;
+                }))
+                .then(progress -> step("LifecyclePolicy", progress, budget, logger, current -> {
+                    if (plan.includes(UpdatePlan.Step.PUT_LIFECYCLE_POLICY)) {
+                        return putLifecyclePolicy(proxy, proxyClient, current);
+                    } else if (plan.includes(UpdatePlan.Step.DELETE_LIFECYCLE_POLICY)) {
+                        return deleteLifecyclePolicy(proxy, proxyClient, current, accountId);
+                    }
+                    return current;
+                }))
+                .then(progress -> step("ImageTagMutability", progress, budget, logger, current ->
+                        plan.includes(UpdatePlan.Step.PUT_IMAGE_TAG_MUTABILITY)
+                                ? putImageTagMutability(proxy, proxyClient, current, accountId)
+                                : current))
+                .then(progress -> step("ImageScanningConfiguration", progress, budget, logger, current ->
+                        plan.includes(UpdatePlan.Step.PUT_IMAGE_SCANNING_CONFIGURATION)
+                                ? putImageScanningConfiguration(proxy, proxyClient, current, accountId)
+                                : current))
+                .then(progress -> step("Identifiers", progress, budget, logger, current ->
+                        resolveIdentifiers(proxy, proxyClient, request, plan, current)))
+                .then(progress -> step("Tags", progress, budget, logger, current -> {
+                    if (plan.includes(UpdatePlan.Step.UPDATE_TAGS)) {
+                        try {
+                            new TagReconciler(proxy, proxyClient, logger).reconcile(current.getResourceModel().getArn(),
+                                    request.getPreviousResourceTags(), request.getDesiredResourceTags());
+                        } catch (final AwsServiceException e) {
+                            return handleError(e, current.getResourceModel());
+                        }
+                    }
+                    return current;
+                }))
+                .then(progress -> {
+                    if (progress.isInProgress() && progress.getCallbackDelaySeconds() == 0) {
+                        logger.log(String.format("%s [%s] Update Successful", ResourceModel.TYPE_NAME, repositoryName));
+                    }
+                    return success(progress, model);
+                });
+    }
 
-            if (model.getImageTagMutability() != null) {
-                proxy.injectCredentialsAndInvokeV2(Translator.putImageTagMutabilityRequest(model, accountId), client::putImageTagMutability);
-            }
+    private ProgressEvent<ResourceModel, CallbackContext> setRepositoryPolicy(
+            final AmazonWebServicesClientProxy proxy,
+            final ProxyClient<EcrClient> proxyClient,
+            final ProgressEvent<ResourceModel, CallbackContext> progress) {
 
-            if (model.getImageScanningConfiguration() != null) {
-                proxy.injectCredentialsAndInvokeV2(Translator.putImageScanningConfigurationRequest(model, accountId), client::putImageScanningConfiguration);
-            }
+        return proxy.initiate("AWS-ECR-Repository::Update::SetRepositoryPolicy", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
+                .translateToServiceRequest(Translator::setRepositoryPolicyRequest)
+                .makeServiceCall((awsRequest, client) -> proxy.injectCredentialsAndInvokeV2(awsRequest, client.client()::setRepositoryPolicy))
+                .handleError((awsRequest, exception, client, model, context) -> handleError(exception, model))
+                .done(response -> ProgressEvent.progress(progress.getResourceModel(), progress.getCallbackContext()));
+    }
 
-            final DescribeRepositoriesResponse describeResponse = proxy.injectCredentialsAndInvokeV2(Translator.describeRepositoriesRequest(model), client::describeRepositories);
-            final String arn = describeResponse.repositories().get(0).repositoryArn();
-            final String uri = describeResponse.repositories().get(0).repositoryUri();
-            model.setArn(arn);
-            model.setRepositoryUri(uri);
-            handleTagging(request.getDesiredResourceTags(), arn);
-            logger.log(String.format("%s [%s] Update Successful", ResourceModel.TYPE_NAME, model.getRepositoryName()));
-        } catch (RepositoryNotFoundException e) {
-            return ProgressEvent.<ResourceModel, CallbackContext>builder()
-                    .errorCode(HandlerErrorCode.NotFound)
-                    .status(OperationStatus.FAILED)
-                    .message(e.getMessage())
-                    .build();
-        }
+    private ProgressEvent<ResourceModel, CallbackContext> deleteRepositoryPolicy(
+            final AmazonWebServicesClientProxy proxy,
+            final ProxyClient<EcrClient> proxyClient,
+            final ProgressEvent<ResourceModel, CallbackContext> progress,
+            final String accountId) {
+
+        // Read call is necessary to avoid exception during update if role does not have DeleteRepositoryPolicy permission.
+        return proxy.initiate("AWS-ECR-Repository::Update::GetRepositoryPolicy", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
+                .translateToServiceRequest(model -> Translator.getRepositoryPolicyRequest(model.getRepositoryName(), accountId))
+                .makeServiceCall((awsRequest, client) -> proxy.injectCredentialsAndInvokeV2(awsRequest, client.client()::getRepositoryPolicy))
+                .handleError((awsRequest, exception, client, model, context) -> ignorePolicyNotFound(exception, model, context))
+                .done(getResponse -> proxy.initiate("AWS-ECR-Repository::Update::DeleteRepositoryPolicy", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
+                        .translateToServiceRequest(Translator::deleteRepositoryPolicyRequest)
+                        .makeServiceCall((awsRequest, client) -> proxy.injectCredentialsAndInvokeV2(awsRequest, client.client()::deleteRepositoryPolicy))
+                        .handleError((awsRequest, exception, client, model, context) -> ignorePolicyNotFound(exception, model, context))
+                        .done(response -> ProgressEvent.progress(progress.getResourceModel(), progress.getCallbackContext())));
+    }
+
+    private ProgressEvent<ResourceModel, CallbackContext> putLifecyclePolicy(
+            final AmazonWebServicesClientProxy proxy,
+            final ProxyClient<EcrClient> proxyClient,
+            final ProgressEvent<ResourceModel, CallbackContext> progress) {
 
-        return ProgressEvent.<ResourceModel, CallbackContext>builder()
-                .resourceModel(model)
-                .status(OperationStatus.SUCCESS)
-                .build();
+        return proxy.initiate("AWS-ECR-Repository::Update::PutLifecyclePolicy", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
+                .translateToServiceRequest(Translator::putLifecyclePolicyRequest)
+                .makeServiceCall((awsRequest, client) -> proxy.injectCredentialsAndInvokeV2(awsRequest, client.client()::putLifecyclePolicy))
+                .handleError((awsRequest, exception, client, model, context) -> handleError(exception, model))
+                .done(response -> ProgressEvent.progress(progress.getResourceModel(), progress.getCallbackContext()));
     }
 
-    private void handleTagging(final Map<String, String> tags, final String arn) {
-        final Set<Tag> newTags = tags == null ? Collections.emptySet() : new HashSet<>(Translator.translateTagsToSdk(tags));
-        final Set<Tag> existingTags = new HashSet<>(proxy.injectCredentialsAndInvokeV2(Translator.listTagsForResourceRequest(arn), client::listTagsForResource).tags());
+    private ProgressEvent<ResourceModel, CallbackContext> deleteLifecyclePolicy(
+            final AmazonWebServicesClientProxy proxy,
+            final ProxyClient<EcrClient> proxyClient,
+            final ProgressEvent<ResourceModel, CallbackContext> progress,
+            final String accountId) {
+
+        // Read call is necessary to avoid exception during update if role does not have DeleteLifecyclePolicy permission.
+        return proxy.initiate("AWS-ECR-Repository::Update::GetLifecyclePolicy", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
+                .translateToServiceRequest(model -> Translator.getLifecyclePolicyRequest(model.getRepositoryName(), accountId))
+                .makeServiceCall((awsRequest, client) -> proxy.injectCredentialsAndInvokeV2(awsRequest, client.client()::getLifecyclePolicy))
+                .handleError((awsRequest, exception, client, model, context) -> ignorePolicyNotFound(exception, model, context))
+                .done(getResponse -> proxy.initiate("AWS-ECR-Repository::Update::DeleteLifecyclePolicy", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
+                        .translateToServiceRequest(Translator::deleteLifecyclePolicyRequest)
+                        .makeServiceCall((awsRequest, client) -> proxy.injectCredentialsAndInvokeV2(awsRequest, client.client()::deleteLifecyclePolicy))
+                        .handleError((awsRequest, exception, client, model, context) -> ignorePolicyNotFound(exception, model, context))
+                        .done(response -> ProgressEvent.progress(progress.getResourceModel(), progress.getCallbackContext())));
+    }
 
-        final List<String> tagsToRemove = existingTags.stream()
-                .filter(tag -> !newTags.contains(tag))
-                .map(tag -> tag.key())
-                .collect(Collectors.toList());
-        final List<Tag> tagsToAdd = newTags.stream()
-                .filter(tag -> !existingTags.contains(tag))
-                .collect(Collectors.toList());
+    private ProgressEvent<ResourceModel, CallbackContext> putImageTagMutability(
+            final AmazonWebServicesClientProxy proxy,
+            final ProxyClient<EcrClient> proxyClient,
+            final ProgressEvent<ResourceModel, CallbackContext> progress,
+            final String accountId) {
+
+        return proxy.initiate("AWS-ECR-Repository::Update::PutImageTagMutability", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
+                .translateToServiceRequest(model -> Translator.putImageTagMutabilityRequest(model, accountId))
+                .makeServiceCall((awsRequest, client) -> proxy.injectCredentialsAndInvokeV2(awsRequest, client.client()::putImageTagMutability))
+                .handleError((awsRequest, exception, client, model, context) -> handleError(exception, model))
+                .done(response -> ProgressEvent.progress(progress.getResourceModel(), progress.getCallbackContext()));
+    }
+
+    private ProgressEvent<ResourceModel, CallbackContext> putImageScanningConfiguration(
+            final AmazonWebServicesClientProxy proxy,
+            final ProxyClient<EcrClient> proxyClient,
+            final ProgressEvent<ResourceModel, CallbackContext> progress,
+            final String accountId) {
+
+        return proxy.initiate("AWS-ECR-Repository::Update::PutImageScanningConfiguration", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
+                .translateToServiceRequest(model -> Translator.putImageScanningConfigurationRequest(model, accountId))
+                .makeServiceCall((awsRequest, client) -> proxy.injectCredentialsAndInvokeV2(awsRequest, client.client()::putImageScanningConfiguration))
+                .handleError((awsRequest, exception, client, model, context) -> handleError(exception, model))
+                .done(response -> ProgressEvent.progress(progress.getResourceModel(), progress.getCallbackContext()));
+    }
 
-        if (!CollectionUtils.isNullOrEmpty(tagsToRemove)) proxy.injectCredentialsAndInvokeV2(Translator.untagResourceRequest(tagsToRemove, arn), client::untagResource);
-        if (!CollectionUtils.isNullOrEmpty(tagsToAdd)) proxy.injectCredentialsAndInvokeV2(Translator.tagResourceRequest(tagsToAdd, arn), client::tagResource);
+    private ProgressEvent<ResourceModel, CallbackContext> resolveIdentifiers(
+            final AmazonWebServicesClientProxy proxy,
+            final ProxyClient<EcrClient> proxyClient,
+            final ResourceHandlerRequest<ResourceModel> request,
+            final UpdatePlan plan,
+            final ProgressEvent<ResourceModel, CallbackContext> progress) {
+
+        final ResourceModel model = progress.getResourceModel();
+        final RepositoryIdentifiers identifiers = RepositoryIdentifiers.derive(
+                request.getAwsPartition(),
+                request.getRegion(),
+                request.getAwsAccountId(),
+                model.getLifecyclePolicy() == null ? null : model.getLifecyclePolicy().getRegistryId(),
+                model.getRepositoryName());
+        if (identifiers != null && plan.touchesRepository()) {
+            // The calls above already failed with RepositoryNotFoundException if it were gone.
+            recordIdentifiers(model, progress.getCallbackContext(), identifiers.getArn(), identifiers.getRepositoryUri());
+            return progress;
+        }
+        return proxy.initiate("AWS-ECR-Repository::Update::DescribeRepositories", proxyClient, model, progress.getCallbackContext())
+                .translateToServiceRequest(Translator::describeRepositoriesRequest)
+                .makeServiceCall((awsRequest, client) -> proxy.injectCredentialsAndInvokeV2(awsRequest, client.client()::describeRepositories))
+                .handleError((awsRequest, exception, client, resourceModel, context) -> handleError(exception, resourceModel))
+                .done(response -> {
+                    recordIdentifiers(model, progress.getCallbackContext(),
+                            response.repositories().get(0).repositoryArn(), response.repositories().get(0).repositoryUri());
+                    return ProgressEvent.progress(model, progress.getCallbackContext());
+                });
     }
 
+    private static ProgressEvent<ResourceModel, CallbackContext> ignorePolicyNotFound(
+            final Exception exception,
+            final ResourceModel model,
+            final CallbackContext context) {
+        if (exception instanceof RepositoryPolicyNotFoundException || exception instanceof LifecyclePolicyNotFoundException) {
+            // there's no policy to delete
+            return ProgressEvent.progress(model, context);
+        }
+        return handleError(exception, model);
+    }
 }
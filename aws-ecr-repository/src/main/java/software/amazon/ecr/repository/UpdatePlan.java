@@ -0,0 +1,159 @@
+package software.amazon.ecr.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The service calls an update needs, worked out from the previous and desired resource state before
+ * any call is made. Properties that did not change produce no step, so an update that only touches
+ * tags leaves policies, mutability and scanning configuration alone.
+ */
+final class UpdatePlan {
+
+    enum Step {
+        SET_REPOSITORY_POLICY,
+        DELETE_REPOSITORY_POLICY,
+        PUT_LIFECYCLE_POLICY,
+        DELETE_LIFECYCLE_POLICY,
+        PUT_IMAGE_TAG_MUTABILITY,
+        PUT_IMAGE_SCANNING_CONFIGURATION,
+        UPDATE_TAGS
+    }
+
+    private final Set<Step> steps;
+
+    private UpdatePlan(final Set<Step> steps) {
+        this.steps = Collections.unmodifiableSet(steps);
+    }
+
+    /**
+     * Without a previous state nothing can be ruled out, so every property the desired state sets is
+     * applied and every one it omits is removed, as the handler did before plans existed.
+     */
+    static UpdatePlan of(final ResourceModel previous, final ResourceModel desired,
+                         final Map<String, String> previousTags, final Map<String, String> desiredTags) {
+        final Set<Step> steps = EnumSet.noneOf(Step.class);
+        final boolean known = previous != null;
+
+        if (desired.getRepositoryPolicyText() != null) {
+            if (!known || !samePolicy(previous.getRepositoryPolicyText(), desired.getRepositoryPolicyText())) {
+                steps.add(Step.SET_REPOSITORY_POLICY);
+            }
+        } else if (!known || previous.getRepositoryPolicyText() != null) {
+            steps.add(Step.DELETE_REPOSITORY_POLICY);
+        }
+
+        if (desired.getLifecyclePolicy() != null) {
+            if (!known || !sameLifecyclePolicy(previous.getLifecyclePolicy(), desired.getLifecyclePolicy())) {
+                steps.add(Step.PUT_LIFECYCLE_POLICY);
+            }
+        } else if (!known || previous.getLifecyclePolicy() != null) {
+            steps.add(Step.DELETE_LIFECYCLE_POLICY);
+        }
+
+        if (desired.getImageTagMutability() != null
+                && (!known || !desired.getImageTagMutability().equals(previous.getImageTagMutability()))) {
+            steps.add(Step.PUT_IMAGE_TAG_MUTABILITY);
+        }
+
+        if (desired.getImageScanningConfiguration() != null
+                && (!known || !desired.getImageScanningConfiguration().equals(previous.getImageScanningConfiguration()))) {
+            steps.add(Step.PUT_IMAGE_SCANNING_CONFIGURATION);
+        }
+
+        if (!known || !Objects.equals(emptyIfNull(previousTags), emptyIfNull(desiredTags))) {
+            steps.add(Step.UPDATE_TAGS);
+        }
+
+        return new UpdatePlan(steps);
+    }
+
+    boolean includes(final Step step) {
+        return steps.contains(step);
+    }
+
+    boolean isEmpty() {
+        return steps.isEmpty();
+    }
+
+    /**
+     * Whether any step calls a repository-scoped API, which fails if the repository no longer exists.
+     * Tag calls address the repository by ARN and are not counted.
+     */
+    boolean touchesRepository() {
+        return steps.stream().anyMatch(step -> step != Step.UPDATE_TAGS);
+    }
+
+    @Override
+    public String toString() {
+        return steps.isEmpty() ? "no changes" : steps.toString();
+    }
+
+    private static boolean sameLifecyclePolicy(final LifecyclePolicy previous, final LifecyclePolicy desired) {
+        return previous != null
+                && Objects.equals(previous.getRegistryId(), desired.getRegistryId())
+                && sameLifecyclePolicyText(previous.getLifecyclePolicyText(), desired.getLifecyclePolicyText());
+    }
+
+    /**
+     * Compares canonical forms, so rules listed in another order are no change either. A document that
+     * does not validate, such as one stored before validation existed, is compared as plain JSON.
+     */
+    private static boolean sameLifecyclePolicyText(final String previous, final String desired) {
+        try {
+            return LifecyclePolicyCodec.shared().canonicalize(previous)
+                    .equals(LifecyclePolicyCodec.shared().canonicalize(desired));
+        } catch (final IllegalArgumentException e) {
+            return sameDocument(previous, desired);
+        }
+    }
+
+    /**
+     * Compares repository policies by what they grant, so a reordered statement or an action written
+     * as a one-element list is no change. Text that is not a JSON object is compared as written.
+     */
+    private static boolean samePolicy(final Object previous, final Object desired) {
+        try {
+            return PolicyEquivalence.shared().equivalent(previous, desired);
+        } catch (final IllegalArgumentException e) {
+            return sameDocument(previous, desired);
+        }
+    }
+
+    /**
+     * Compares two policy documents as JSON, so key order and whitespace do not count as a change.
+     * A document is either already parsed (a map from the template) or JSON text.
+     */
+    static boolean sameDocument(final Object previous, final Object desired) {
+        if (previous == null || desired == null) {
+            return previous == desired;
+        }
+        final JsonNode previousTree = toTree(previous);
+        final JsonNode desiredTree = toTree(desired);
+        if (previousTree == null || desiredTree == null) {
+            // Not valid JSON; let the service have the final word on what it accepts.
+            return previous.equals(desired);
+        }
+        return previousTree.equals(desiredTree);
+    }
+
+    private static JsonNode toTree(final Object document) {
+        if (!(document instanceof String)) {
+            return Translator.MAPPER.valueToTree(document);
+        }
+        try {
+            return Translator.MAPPER.readTree((String) document);
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+
+    private static Map<String, String> emptyIfNull(final Map<String, String> tags) {
+        return tags == null ? Collections.emptyMap() : tags;
+    }
+}
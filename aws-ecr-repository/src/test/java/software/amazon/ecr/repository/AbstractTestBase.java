@@ -16,6 +16,7 @@ import software.amazon.cloudformation.proxy.ProxyClient;
 public class AbstractTestBase {
   protected static final Credentials MOCK_CREDENTIALS;
   protected static final LoggerProxy logger;
+  protected static final String LIFECYCLE_POLICY_TEXT = "{\"rules\":[{\"rulePriority\":1,\"selection\":{\"tagStatus\":\"any\",\"countType\":\"imageCountMoreThan\",\"countNumber\":10},\"action\":{\"type\":\"expire\"}}]}";
 
   static {
     MOCK_CREDENTIALS = new Credentials("accessKey", "secretKey", "token");
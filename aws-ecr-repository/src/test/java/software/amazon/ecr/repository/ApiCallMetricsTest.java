@@ -0,0 +1,103 @@
+package software.amazon.ecr.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.CreateRepositoryRequest;
+import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesRequest;
+import software.amazon.awssdk.services.ecr.model.GetLifecyclePolicyRequest;
+import software.amazon.awssdk.services.ecr.model.LifecyclePolicyNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.assertj.core.data.Percentage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ApiCallMetricsTest {
+    private final AtomicLong nanos = new AtomicLong();
+    private FakeEcrClient ecr;
+    private EcrClient client;
+    private ApiCallMetrics metrics;
+
+    @BeforeEach
+    void setup() {
+        ecr = new FakeEcrClient();
+        metrics = new ApiCallMetrics(ResourceModel.TYPE_NAME, "Read", nanos::get);
+        final Resilience resilience = new Resilience(millis -> nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis)), bound -> bound);
+        client = metrics.instrument(resilience.wrap(ecr));
+    }
+
+    @Test
+    void toLine_PublishesEachOperationInOneLine() throws Exception {
+        client.createRepository(CreateRepositoryRequest.builder().repositoryName("repo").build());
+        ecr.throttleDescribes(1);
+        client.describeRepositories(DescribeRepositoriesRequest.builder().build());
+        assertThatThrownBy(() -> client.getLifecyclePolicy(GetLifecyclePolicyRequest.builder().repositoryName("repo").build()))
+                .isInstanceOf(LifecyclePolicyNotFoundException.class);
+
+        final JsonNode line = Translator.MAPPER.readTree(metrics.toLine(1_000L));
+
+        assertThat(line.get("ResourceType").asText()).isEqualTo(ResourceModel.TYPE_NAME);
+        assertThat(line.get("Action").asText()).isEqualTo("Read");
+        assertThat(line.get("DescribeRepositories.Calls").asInt()).isEqualTo(1);
+        assertThat(line.get("DescribeRepositories.Retries").asInt()).isEqualTo(1);
+        // The backoff slept 200 ms by the test clock.
+        assertThat(line.get("DescribeRepositories.Latency").get(0).asDouble()).isCloseTo(200.0, Percentage.withPercentage(3));
+        assertThat(line.get("GetLifecyclePolicy.Errors").asInt()).isEqualTo(1);
+        assertThat(line.get("ErrorCodes").get("GetLifecyclePolicy").get("LifecyclePolicyNotFoundException").asInt()).isEqualTo(1);
+        assertThat(line.get("CreateRepository.Errors").asInt()).isZero();
+
+        final JsonNode directive = line.get("_aws").get("CloudWatchMetrics").get(0);
+        assertThat(directive.get("Dimensions").get(0).toString()).isEqualTo("[\"ResourceType\",\"Action\"]");
+        final List<String> names = new ArrayList<>();
+        directive.get("Metrics").forEach(metric -> names.add(metric.get("Name").asText()));
+        assertThat(names).contains("CreateRepository.Latency", "DescribeRepositories.Latency", "GetLifecyclePolicy.Retries");
+    }
+
+    @Test
+    void flush_LogsNothingWithoutCalls() {
+        final List<String> lines = new ArrayList<>();
+        metrics.flush(lines::add);
+        assertThat(lines).isEmpty();
+
+        client.serviceName();
+        metrics.flush(lines::add);
+        assertThat(lines).isEmpty();
+    }
+
+    @Test
+    void histogram_KeepsValuesWithinTheirBucket() {
+        final ApiCallMetrics.LatencyHistogram histogram = new ApiCallMetrics.LatencyHistogram();
+        histogram.record(7L);
+        histogram.record(1_000L);
+        histogram.record(123_456L);
+
+        final List<Double> values = histogram.valuesMillis(EmbeddedMetrics.MAX_VALUES);
+
+        assertThat(values).hasSize(3);
+        assertThat(values.get(0)).isEqualTo(0.008);
+        assertThat(values.get(1)).isCloseTo(1.0, Percentage.withPercentage(3));
+        assertThat(values.get(2)).isCloseTo(123.456, Percentage.withPercentage(3));
+    }
+
+    @Test
+    void histogram_ScalesDownToTheValueLimit() {
+        final ApiCallMetrics.LatencyHistogram histogram = new ApiCallMetrics.LatencyHistogram();
+        for (int i = 0; i < 900; i++) {
+            histogram.record(10_000L);
+        }
+        for (int i = 0; i < 100; i++) {
+            histogram.record(500_000L);
+        }
+
+        final List<Double> values = histogram.valuesMillis(EmbeddedMetrics.MAX_VALUES);
+
+        assertThat(histogram.count()).isEqualTo(1_000L);
+        assertThat(values).hasSize(EmbeddedMetrics.MAX_VALUES);
+        assertThat(values.stream().filter(value -> value > 100.0).count()).isEqualTo(10L);
+    }
+}
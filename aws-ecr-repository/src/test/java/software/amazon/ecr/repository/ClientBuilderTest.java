@@ -0,0 +1,27 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.ecr.EcrClient;
+import java.net.URI;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientBuilderTest {
+    @Test
+    void getClient_ReusesOneClientPerRegionAndEndpoint() {
+        final long hits = ClientBuilder.hits();
+        final long misses = ClientBuilder.misses();
+
+        final EcrClient first = ClientBuilder.getClient(Region.EU_WEST_3, null);
+        final EcrClient again = ClientBuilder.getClient(Region.EU_WEST_3, null);
+        final EcrClient otherRegion = ClientBuilder.getClient(Region.AP_SOUTH_1, null);
+        final EcrClient otherEndpoint = ClientBuilder.getClient(Region.EU_WEST_3, URI.create("https://ecr.example.com"));
+
+        assertThat(again).isSameAs(first);
+        assertThat(otherRegion).isNotSameAs(first);
+        assertThat(otherEndpoint).isNotSameAs(first).isNotSameAs(otherRegion);
+        assertThat(ClientBuilder.hits() - hits).isEqualTo(1);
+        assertThat(ClientBuilder.misses() - misses).isEqualTo(3);
+    }
+}
@@ -0,0 +1,169 @@
+package software.amazon.ecr.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.ecr.model.EcrException;
+import software.amazon.cloudformation.exceptions.CfnThrottlingException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConcurrencyLimiterTest {
+    private final AtomicLong nanos = new AtomicLong();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private ConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setup() {
+        limiter = new ConcurrencyLimiter(nanos::get, 50L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void family_SeparatesReadsFromChanges() {
+        assertThat(ConcurrencyLimiter.Family.of("describeRepositories")).isEqualTo(ConcurrencyLimiter.Family.DESCRIBE);
+        assertThat(ConcurrencyLimiter.Family.of("listTagsForResource")).isEqualTo(ConcurrencyLimiter.Family.DESCRIBE);
+        assertThat(ConcurrencyLimiter.Family.of("getLifecyclePolicy")).isEqualTo(ConcurrencyLimiter.Family.DESCRIBE);
+        assertThat(ConcurrencyLimiter.Family.of("batchDeleteImage")).isEqualTo(ConcurrencyLimiter.Family.MUTATE);
+        assertThat(ConcurrencyLimiter.Family.of("putLifecyclePolicy")).isEqualTo(ConcurrencyLimiter.Family.MUTATE);
+    }
+
+    @Test
+    void call_ThrottlingHalvesOnlyThatFamilysLimit() {
+        throttle("describeRepositories");
+
+        assertThat(limiter.limit(ConcurrencyLimiter.Family.DESCRIBE)).isEqualTo(ConcurrencyLimiter.INITIAL_LIMIT / 2);
+        assertThat(limiter.limit(ConcurrencyLimiter.Family.MUTATE)).isEqualTo(ConcurrencyLimiter.INITIAL_LIMIT);
+    }
+
+    @Test
+    void call_CutsOnceForCallsThatWereInFlightTogether() throws Exception {
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Supplier<String> throttled = () -> {
+            started.countDown();
+            await(release);
+            throw throttlingError();
+        };
+        final CompletableFuture<Void> first = CompletableFuture.runAsync(() -> swallow(() -> limiter.call("putImage", throttled)), executor);
+        final CompletableFuture<Void> second = CompletableFuture.runAsync(() -> swallow(() -> limiter.call("putImage", throttled)), executor);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+        release.countDown();
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+
+        assertThat(limiter.limit(ConcurrencyLimiter.Family.MUTATE)).isEqualTo(ConcurrencyLimiter.INITIAL_LIMIT / 2);
+    }
+
+    @Test
+    void call_LatencySpikeCutsTheLimit() {
+        limiter.call("describeRepositories", () -> elapse(500));
+        limiter.call("describeRepositories", () -> elapse(3_000));
+
+        assertThat(limiter.limit(ConcurrencyLimiter.Family.DESCRIBE))
+                .isEqualTo((int) (ConcurrencyLimiter.INITIAL_LIMIT * ConcurrencyLimiter.LATENCY_BACKOFF));
+    }
+
+    @Test
+    void call_SuccessesRaiseTheLimitAdditively() {
+        throttle("describeRepositories");
+        throttle("describeRepositories");
+        throttle("describeRepositories");
+        assertThat(limiter.limit(ConcurrencyLimiter.Family.DESCRIBE)).isEqualTo(1);
+
+        for (int i = 0; i < 3; i++) {
+            limiter.call("describeRepositories", () -> elapse(10));
+        }
+
+        assertThat(limiter.limit(ConcurrencyLimiter.Family.DESCRIBE)).isEqualTo(2);
+    }
+
+    @Test
+    void call_FailsWithThrottlingWhenNoPermitComesFree() throws Exception {
+        throttle("putImage");
+        throttle("putImage");
+        throttle("putImage");
+        final CountDownLatch holding = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<String> holder = CompletableFuture.supplyAsync(() -> limiter.call("putImage", () -> {
+            holding.countDown();
+            await(release);
+            return "done";
+        }), executor);
+        assertThat(holding.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> limiter.call("deleteRepository", () -> "never"))
+                .isInstanceOf(CfnThrottlingException.class);
+        assertThat(limiter.call("describeRepositories", () -> "ok")).isEqualTo("ok");
+
+        release.countDown();
+        assertThat(holder.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+        assertThat(limiter.inFlight(ConcurrencyLimiter.Family.MUTATE)).isZero();
+    }
+
+    @Test
+    void metricLines_PublishEachFamilysLimit() throws Exception {
+        throttle("createRepository");
+
+        final List<String> lines = limiter.metricLines(ResourceModel.TYPE_NAME, 1_000L);
+
+        assertThat(lines).hasSize(2);
+        final JsonNode mutate = Translator.MAPPER.readTree(lines.get(1));
+        assertThat(mutate.get("OperationFamily").asText()).isEqualTo("MUTATE");
+        assertThat(mutate.get("ConcurrencyLimit").asInt()).isEqualTo(ConcurrencyLimiter.INITIAL_LIMIT / 2);
+        final JsonNode directive = mutate.get("_aws").get("CloudWatchMetrics").get(0);
+        assertThat(directive.get("Namespace").asText()).isEqualTo(EmbeddedMetrics.NAMESPACE);
+        assertThat(directive.get("Dimensions").get(0).toString()).isEqualTo("[\"ResourceType\",\"OperationFamily\"]");
+        assertThat(directive.get("Metrics").get(0).get("Name").asText()).isEqualTo("ConcurrencyLimit");
+    }
+
+    private void throttle(final String operation) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+        assertThatThrownBy(() -> limiter.call(operation, () -> {
+            throw throttlingError();
+        })).isInstanceOf(EcrException.class);
+    }
+
+    private String elapse(final long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+        return "ok";
+    }
+
+    private static EcrException throttlingError() {
+        return (EcrException) EcrException.builder()
+                .statusCode(400)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("ThrottlingException").errorMessage("Rate exceeded").build())
+                .build();
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void swallow(final Runnable call) {
+        try {
+            call.run();
+        } catch (final EcrException e) {
+            // expected
+        }
+    }
+}
@@ -1,16 +1,26 @@
 package software.amazon.ecr.repository;
 
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
 import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.EcrException;
 import software.amazon.awssdk.services.ecr.model.ImageScanningConfiguration;
 import software.amazon.awssdk.services.ecr.model.InvalidParameterException;
 import software.amazon.awssdk.services.ecr.model.KmsException;
+import software.amazon.awssdk.services.ecr.model.ListTagsForResourceRequest;
+import software.amazon.awssdk.services.ecr.model.ListTagsForResourceResponse;
 import software.amazon.awssdk.services.ecr.model.PutLifecyclePolicyRequest;
+import software.amazon.awssdk.services.ecr.model.PutLifecyclePolicyResponse;
+import software.amazon.awssdk.services.ecr.model.SetRepositoryPolicyRequest;
+import software.amazon.awssdk.services.ecr.model.SetRepositoryPolicyResponse;
+import software.amazon.awssdk.services.ecr.model.UntagResourceRequest;
+import software.amazon.awssdk.services.ecr.model.UntagResourceResponse;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
 import software.amazon.cloudformation.proxy.HandlerErrorCode;
 import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -25,20 +35,26 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import software.amazon.cloudformation.exceptions.ResourceAlreadyExistsException;
 import software.amazon.awssdk.services.ecr.model.CreateRepositoryRequest;
 import software.amazon.awssdk.services.ecr.model.CreateRepositoryResponse;
+import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesRequest;
+import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesResponse;
 import software.amazon.awssdk.services.ecr.model.Repository;
 import software.amazon.awssdk.services.ecr.model.RepositoryAlreadyExistsException;
+import software.amazon.awssdk.services.ecr.model.RepositoryNotFoundException;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 public class CreateHandlerTest extends AbstractTestBase {
 
-    @Mock
     private AmazonWebServicesClientProxy proxy;
 
     @Mock
@@ -65,18 +81,22 @@ public class CreateHandlerTest extends AbstractTestBase {
             .repository(repo)
             .build();
 
+    private DescribeRepositoriesResponse describeRepositoriesResponse = DescribeRepositoriesResponse.builder()
+            .repositories(repo)
+            .build();
+
     @BeforeEach
     public void setup() {
         handler = new CreateHandler();
         ecr = mock(EcrClient.class);
-        proxy = mock(AmazonWebServicesClientProxy.class);
+        proxy = spy(new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis()));
         proxyEcrClient = MOCK_PROXY(proxy, ecr);
     }
 
     @Test
     public void handleRequest_SimpleSuccess() {
         final LifecyclePolicy lifecyclePolicy = LifecyclePolicy.builder()
-                .lifecyclePolicyText("policy")
+                .lifecyclePolicyText(LIFECYCLE_POLICY_TEXT)
                 .registryId("id")
                 .build();
 
@@ -110,6 +130,9 @@ public class CreateHandlerTest extends AbstractTestBase {
         doReturn(createRepositoryResponse)
                 .when(proxy)
                 .injectCredentialsAndInvokeV2(any(CreateRepositoryRequest.class), any());
+        doReturn(describeRepositoriesResponse)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
 
         final ProgressEvent<ResourceModel, CallbackContext> response
             = handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
@@ -146,6 +169,12 @@ public class CreateHandlerTest extends AbstractTestBase {
         doReturn(createRepositoryResponse)
                 .when(proxy)
                 .injectCredentialsAndInvokeV2(any(CreateRepositoryRequest.class), any());
+        doReturn(describeRepositoriesResponse)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+        doReturn(UntagResourceResponse.builder().build())
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(UntagResourceRequest.class), any());
 
         final ProgressEvent<ResourceModel, CallbackContext> response
                 = handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
@@ -158,10 +187,41 @@ public class CreateHandlerTest extends AbstractTestBase {
         assertThat(response.getResourceModels()).isNull();
         assertThat(response.getMessage()).isNull();
         assertThat(response.getErrorCode()).isNull();
+        // The token only marks the repository while the create is in progress.
+        verify(proxy).injectCredentialsAndInvokeV2(
+                eq(Translator.untagResourceRequest(Collections.singleton(Translator.CREATE_TOKEN_TAG_KEY), "arn")), any());
         String repositoryName = String.join("-", stackName, resourceId).toLowerCase();
         assertThat(response.getResourceModel().getRepositoryName()).startsWith(repositoryName);
     }
 
+    @Test
+    public void handleRequest_SucceedsWhenCreateTokenCannotBeRemoved() {
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .clientRequestToken("token")
+                .desiredResourceState(ResourceModel.builder().repositoryName("repo").build())
+                .build();
+
+        doReturn(createRepositoryResponse)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(CreateRepositoryRequest.class), any());
+        doReturn(describeRepositoriesResponse)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+        doThrow(EcrException.builder()
+                .statusCode(400)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("AccessDeniedException").build())
+                .build())
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(UntagResourceRequest.class), any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getErrorCode()).isNull();
+        assertThat(response.getResourceModel().getArn()).isEqualTo("arn");
+    }
+
     @Test
     public void handleRequest_RepoNameExists() {
         doThrow(RepositoryAlreadyExistsException.class)
@@ -176,15 +236,173 @@ public class CreateHandlerTest extends AbstractTestBase {
                 .desiredResourceState(model)
                 .build();
 
-        assertThrows(ResourceAlreadyExistsException.class,
-                () -> handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger));
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(response.getErrorCode()).isEqualTo(HandlerErrorCode.AlreadyExists);
+        assertThat(response.getMessage()).isEqualTo(new ResourceAlreadyExistsException(ResourceModel.TYPE_NAME, "repo").getMessage());
+    }
+
+    @Test
+    public void handleRequest_ContinuesWithRepositoryFromEarlierAttempt() {
+        final ResourceModel model = ResourceModel.builder()
+                .repositoryName("repo")
+                .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .clientRequestToken("token")
+                .desiredResourceState(model)
+                .build();
+
+        doThrow(RepositoryAlreadyExistsException.class)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(CreateRepositoryRequest.class), any());
+        doReturn(describeRepositoriesResponse)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+        doReturn(listTagsResponse("token"))
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(ListTagsForResourceRequest.class), any());
+        doReturn(UntagResourceResponse.builder().build())
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(UntagResourceRequest.class), any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel().getArn()).isEqualTo("arn");
+        assertThat(response.getResourceModel().getRepositoryUri()).isEqualTo("uri");
+    }
+
+    @Test
+    public void handleRequest_RepositoryOfAnotherRequestExists() {
+        final ResourceModel model = ResourceModel.builder()
+                .repositoryName("repo")
+                .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .clientRequestToken("token")
+                .desiredResourceState(model)
+                .build();
+
+        doThrow(RepositoryAlreadyExistsException.class)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(CreateRepositoryRequest.class), any());
+        doReturn(describeRepositoriesResponse)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+        doReturn(listTagsResponse("another-token"))
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(ListTagsForResourceRequest.class), any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(response.getErrorCode()).isEqualTo(HandlerErrorCode.AlreadyExists);
+    }
+
+    @Test
+    public void withCreateToken_LeavesFullTagSetAlone() {
+        final Map<String, String> tags = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            tags.put("key" + i, "value");
+        }
+
+        assertThat(CreateHandler.withCreateToken(tags, "token")).isSameAs(tags);
+        assertThat(CreateHandler.withCreateToken(null, "token"))
+                .containsExactly(entry(Translator.CREATE_TOKEN_TAG_KEY, "token"));
+    }
+
+    @Test
+    public void handleRequest_CheckpointsWhenBudgetIsSpent() {
+        handler = new CreateHandler(() -> TimeBudget.ofMillis(0));
+
+        final ResourceModel model = ResourceModel.builder()
+                .repositoryName("repo")
+                .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(response.getCallbackDelaySeconds()).isEqualTo(BaseHandlerStd.CHECKPOINT_CALLBACK_DELAY_SECONDS);
+        assertThat(response.getCallbackContext().getCompletedSteps()).isEmpty();
+        verify(proxy, never()).injectCredentialsAndInvokeV2(any(), any());
+    }
+
+    @Test
+    public void handleRequest_ResumesAfterCompletedSteps() {
+        final ResourceModel model = ResourceModel.builder()
+                .repositoryName("repo")
+                .lifecyclePolicy(LifecyclePolicy.builder().lifecyclePolicyText(LIFECYCLE_POLICY_TEXT).build())
+                .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        final CallbackContext context = new CallbackContext();
+        context.markCompleted("CreateRepository");
+        context.setRepositoryArn("arn");
+        context.setRepositoryUri("uri");
+
+        doReturn(PutLifecyclePolicyResponse.builder().build())
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(PutLifecyclePolicyRequest.class), any());
+        doReturn(describeRepositoriesResponse)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, context, proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel().getArn()).isEqualTo("arn");
+        assertThat(response.getResourceModel().getRepositoryUri()).isEqualTo("uri");
+        assertThat(context.getCompletedSteps()).containsExactly("CreateRepository", "PutLifecyclePolicy", "ConfigureRepository", "Stabilize");
+        verify(proxy, never()).injectCredentialsAndInvokeV2(any(CreateRepositoryRequest.class), any());
+    }
+
+    @Test
+    public void handleRequest_WaitsUntilRepositoryIsVisible() {
+        final ResourceModel model = ResourceModel.builder()
+                .repositoryName("repo")
+                .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        doReturn(createRepositoryResponse)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(CreateRepositoryRequest.class), any());
+        doThrow(RepositoryNotFoundException.class)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+
+        final CallbackContext context = new CallbackContext();
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, context, proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(response.getCallbackDelaySeconds()).isBetween(1, Stabilization.BASE_DELAY_SECONDS);
+        assertThat(response.getResourceModel().getArn()).isEqualTo("arn");
+        assertThat(context.getStabilizationAttempts()).isEqualTo(1);
+        assertThat(context.getCompletedSteps()).doesNotContain("Stabilize");
     }
 
     @Test
     public void handleRequest_InvalidPolicy() {
         final ResourceModel model = ResourceModel.builder()
             .repositoryName("repo")
-            .lifecyclePolicy(LifecyclePolicy.builder().lifecyclePolicyText("policy").build())
+            .lifecyclePolicy(LifecyclePolicy.builder().lifecyclePolicyText(LIFECYCLE_POLICY_TEXT).build())
             .build();
 
         final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
@@ -215,10 +433,65 @@ public class CreateHandlerTest extends AbstractTestBase {
         assertThat(response.getCallbackDelaySeconds()).isEqualTo(0);
         assertThat(response.getResourceModel()).isEqualTo(request.getDesiredResourceState());
         assertThat(response.getResourceModels()).isNull();
-        assertThat(response.getMessage()).isNull();
+        assertThat(response.getMessage()).isEqualTo("PutLifecyclePolicy failed: InvalidParameterException");
         assertThat(response.getResourceModel().getRepositoryName()).isNotNull();
     }
 
+    @Test
+    public void handleRequest_RejectsInvalidLifecyclePolicyBeforeCreating() {
+        final String duplicatePriorities = "{\"rules\":["
+            + "{\"rulePriority\":1,\"selection\":{\"tagStatus\":\"untagged\",\"countType\":\"imageCountMoreThan\",\"countNumber\":1},\"action\":{\"type\":\"expire\"}},"
+            + "{\"rulePriority\":1,\"selection\":{\"tagStatus\":\"any\",\"countType\":\"imageCountMoreThan\",\"countNumber\":5},\"action\":{\"type\":\"expire\"}}]}";
+        final ResourceModel model = ResourceModel.builder()
+            .repositoryName("repo")
+            .lifecyclePolicy(LifecyclePolicy.builder().lifecyclePolicyText(duplicatePriorities).build())
+            .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+            .desiredResourceState(model)
+            .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+            = handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(response.getErrorCode()).isEqualTo(HandlerErrorCode.InvalidRequest);
+        assertThat(response.getMessage()).contains("Duplicate rulePriority 1");
+        verify(proxy, never()).injectCredentialsAndInvokeV2(any(), any());
+    }
+
+    @Test
+    public void handleRequest_ReportsEveryPostCreateOutcome() {
+        final ResourceModel model = ResourceModel.builder()
+            .repositoryName("repo")
+            .lifecyclePolicy(LifecyclePolicy.builder().lifecyclePolicyText(LIFECYCLE_POLICY_TEXT).build())
+            .repositoryPolicyText(Collections.singletonMap("foo", "bar"))
+            .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+            .desiredResourceState(model)
+            .build();
+
+        doReturn(createRepositoryResponse)
+            .when(proxy)
+            .injectCredentialsAndInvokeV2(any(CreateRepositoryRequest.class), any());
+        doThrow(InvalidParameterException.builder().message("bad lifecycle policy").build())
+            .when(proxy)
+            .injectCredentialsAndInvokeV2(any(PutLifecyclePolicyRequest.class), any());
+        doReturn(SetRepositoryPolicyResponse.builder().build())
+            .when(proxy)
+            .injectCredentialsAndInvokeV2(any(SetRepositoryPolicyRequest.class), any());
+
+        final CallbackContext context = new CallbackContext();
+        final ProgressEvent<ResourceModel, CallbackContext> response
+            = handler.handleRequest(proxy, request, context, proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(response.getErrorCode()).isEqualTo(HandlerErrorCode.GeneralServiceException);
+        assertThat(response.getMessage()).isEqualTo("PutLifecyclePolicy failed: bad lifecycle policy; SetRepositoryPolicy succeeded");
+        assertThat(context.getCompletedSteps()).containsExactly("CreateRepository", "SetRepositoryPolicy");
+    }
+
     @Test
     public void handleRequest_InvalidEncryptionConfiguration() {
         final ResourceModel model = ResourceModel.builder()
@@ -251,4 +524,13 @@ public class CreateHandlerTest extends AbstractTestBase {
         assertThat(response.getMessage()).isNull();
         assertThat(response.getResourceModel().getRepositoryName()).isNotNull();
     }
+
+    private static ListTagsForResourceResponse listTagsResponse(final String clientRequestToken) {
+        return ListTagsForResourceResponse.builder()
+                .tags(software.amazon.awssdk.services.ecr.model.Tag.builder()
+                        .key(Translator.CREATE_TOKEN_TAG_KEY)
+                        .value(clientRequestToken)
+                        .build())
+                .build();
+    }
 }
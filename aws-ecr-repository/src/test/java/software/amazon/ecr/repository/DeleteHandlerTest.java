@@ -2,10 +2,12 @@ package software.amazon.ecr.repository;
 
 import software.amazon.awssdk.services.ecr.EcrClient;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
 import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import java.time.Duration;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,16 +15,33 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import software.amazon.cloudformation.exceptions.ResourceNotFoundException;
+import software.amazon.awssdk.services.ecr.model.BatchDeleteImageRequest;
+import software.amazon.awssdk.services.ecr.model.BatchDeleteImageResponse;
+import software.amazon.awssdk.services.ecr.model.DeleteRepositoryRequest;
+import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesRequest;
+import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesResponse;
+import software.amazon.awssdk.services.ecr.model.ImageIdentifier;
+import software.amazon.awssdk.services.ecr.model.ListImagesRequest;
+import software.amazon.awssdk.services.ecr.model.ListImagesResponse;
+import software.amazon.awssdk.services.ecr.model.Repository;
 import software.amazon.awssdk.services.ecr.model.RepositoryNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class DeleteHandlerTest extends AbstractTestBase {
 
-    @Mock
     private AmazonWebServicesClientProxy proxy;
 
     @Mock
@@ -37,6 +56,7 @@ class DeleteHandlerTest extends AbstractTestBase {
 
     @BeforeEach
     public void setup() {
+        proxy = spy(new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis()));
         proxyEcrClient = MOCK_PROXY(proxy, ecr);
         model = ResourceModel.builder().repositoryName("repo").build();
         request = ResourceHandlerRequest.<ResourceModel>builder()
@@ -48,6 +68,7 @@ class DeleteHandlerTest extends AbstractTestBase {
 
     @Test
     void handleRequest_SimpleSuccess() {
+        repositoryIsGone();
         final ProgressEvent<ResourceModel, CallbackContext> response
                 = handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
 
@@ -65,10 +86,12 @@ class DeleteHandlerTest extends AbstractTestBase {
         doThrow(RepositoryNotFoundException.class).when(proxy)
                 .injectCredentialsAndInvokeV2(ArgumentMatchers.any(), ArgumentMatchers.any());
 
-        final CallbackContext context = new CallbackContext();
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
 
-        assertThatThrownBy(() -> handler.handleRequest(proxy, request, context, proxyEcrClient, logger))
-                .isInstanceOf(ResourceNotFoundException.class);
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(response.getErrorCode()).isEqualTo(HandlerErrorCode.NotFound);
+        assertThat(response.getMessage()).isEqualTo(new ResourceNotFoundException(ResourceModel.TYPE_NAME, "repo").getMessage());
     }
 
     @Test
@@ -82,6 +105,7 @@ class DeleteHandlerTest extends AbstractTestBase {
                 .desiredResourceState(model)
                 .build();
 
+        repositoryIsGone();
         final ProgressEvent<ResourceModel, CallbackContext> response
                 = handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
 
@@ -93,4 +117,129 @@ class DeleteHandlerTest extends AbstractTestBase {
         assertThat(response.getMessage()).isNull();
         assertThat(response.getErrorCode()).isNull();
     }
+
+    @Test
+    void handleRequest_ProgressivePurgeDeletesImagesInBatches() {
+        handler = new DeleteHandler(TimeBudget::start, true, 2);
+        request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder().repositoryName("repo").emptyOnDelete(true).build())
+                .build();
+
+        doReturn(ListImagesResponse.builder().imageIds(images(250)).build())
+                .when(proxy).injectCredentialsAndInvokeV2(any(ListImagesRequest.class), any());
+        doAnswer(invocation -> BatchDeleteImageResponse.builder()
+                .imageIds(invocation.<BatchDeleteImageRequest>getArgument(0).imageIds())
+                .build())
+                .when(proxy).injectCredentialsAndInvokeV2(any(BatchDeleteImageRequest.class), any());
+
+        repositoryIsGone();
+        final CallbackContext context = new CallbackContext();
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, context, proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(context.getPurgedImageCount()).isEqualTo(250);
+        assertThat(context.getCompletedSteps()).containsExactly("PurgeImages", "DeleteRepository", "Stabilize");
+        verify(proxy, times(3)).injectCredentialsAndInvokeV2(any(BatchDeleteImageRequest.class), any());
+        verify(proxy).injectCredentialsAndInvokeV2(any(DeleteRepositoryRequest.class), any());
+    }
+
+    @Test
+    void handleRequest_ProgressivePurgeCheckpointsBetweenPages() {
+        handler = new DeleteHandler(() -> TimeBudget.ofMillis(BaseHandlerStd.STEP_RESERVE_MILLIS + 200), true, 2);
+        request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder().repositoryName("repo").emptyOnDelete(true).build())
+                .build();
+
+        doAnswer(invocation -> {
+            Thread.sleep(300);
+            return ListImagesResponse.builder().imageIds(images(2)).nextToken("next").build();
+        }).when(proxy).injectCredentialsAndInvokeV2(any(ListImagesRequest.class), any());
+        doReturn(BatchDeleteImageResponse.builder().imageIds(images(2)).build())
+                .when(proxy).injectCredentialsAndInvokeV2(any(BatchDeleteImageRequest.class), any());
+
+        final CallbackContext context = new CallbackContext();
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, context, proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(response.getCallbackDelaySeconds()).isEqualTo(BaseHandlerStd.CHECKPOINT_CALLBACK_DELAY_SECONDS);
+        assertThat(response.getMessage()).isEqualTo("Deleted 2 images so far");
+        assertThat(context.getPurgeNextToken()).isEqualTo("next");
+        assertThat(context.getCompletedSteps()).isEmpty();
+        verify(proxy, never()).injectCredentialsAndInvokeV2(any(DeleteRepositoryRequest.class), any());
+    }
+
+    @Test
+    void handleRequest_ProgressivePurgeResumesFromCursor() {
+        handler = new DeleteHandler(TimeBudget::start, true, 2);
+        request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder().repositoryName("repo").emptyOnDelete(true).build())
+                .build();
+
+        doReturn(ListImagesResponse.builder().imageIds(images(1)).build())
+                .when(proxy).injectCredentialsAndInvokeV2(eq(Translator.listImagesRequest("repo", "next", ImagePurger.MAX_IMAGES_PER_PAGE)), any());
+        doReturn(BatchDeleteImageResponse.builder().imageIds(images(1)).build())
+                .when(proxy).injectCredentialsAndInvokeV2(any(BatchDeleteImageRequest.class), any());
+
+        repositoryIsGone();
+        final CallbackContext context = new CallbackContext();
+        context.setPurgeNextToken("next");
+        context.setPurgedImageCount(1000);
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, context, proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(context.getPurgedImageCount()).isEqualTo(1001);
+        assertThat(context.getPurgeNextToken()).isNull();
+    }
+
+    private static List<ImageIdentifier> images(final int count) {
+        final List<ImageIdentifier> images = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            images.add(ImageIdentifier.builder().imageDigest("sha256:" + i).build());
+        }
+        return images;
+    }
+
+    @Test
+    void handleRequest_WaitsUntilRepositoryIsGone() {
+        doReturn(DescribeRepositoriesResponse.builder()
+                .repositories(Repository.builder().repositoryName("repo").build())
+                .build())
+                .when(proxy).injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+
+        final CallbackContext context = new CallbackContext();
+        context.markCompleted("DeleteRepository");
+        context.setStabilizationAttempts(2);
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, context, proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(response.getCallbackDelaySeconds()).isBetween(4, 8);
+        assertThat(context.getStabilizationAttempts()).isEqualTo(3);
+        verify(proxy, never()).injectCredentialsAndInvokeV2(any(DeleteRepositoryRequest.class), any());
+    }
+
+    @Test
+    void handleRequest_FailsWhenRepositoryNeverGoes() {
+        doReturn(DescribeRepositoriesResponse.builder()
+                .repositories(Repository.builder().repositoryName("repo").build())
+                .build())
+                .when(proxy).injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+
+        final CallbackContext context = new CallbackContext();
+        context.markCompleted("DeleteRepository");
+        context.setStabilizationAttempts(Stabilization.MAX_ATTEMPTS);
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, context, proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(response.getErrorCode()).isEqualTo(HandlerErrorCode.NotStabilized);
+    }
+
+    private void repositoryIsGone() {
+        doThrow(RepositoryNotFoundException.class)
+                .when(proxy).injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+    }
 }
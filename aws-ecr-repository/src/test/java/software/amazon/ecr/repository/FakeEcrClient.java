@@ -0,0 +1,293 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.CreateRepositoryRequest;
+import software.amazon.awssdk.services.ecr.model.CreateRepositoryResponse;
+import software.amazon.awssdk.services.ecr.model.DeleteLifecyclePolicyRequest;
+import software.amazon.awssdk.services.ecr.model.DeleteLifecyclePolicyResponse;
+import software.amazon.awssdk.services.ecr.model.DeleteRepositoryPolicyRequest;
+import software.amazon.awssdk.services.ecr.model.DeleteRepositoryPolicyResponse;
+import software.amazon.awssdk.services.ecr.model.DeleteRepositoryRequest;
+import software.amazon.awssdk.services.ecr.model.DeleteRepositoryResponse;
+import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesRequest;
+import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesResponse;
+import software.amazon.awssdk.services.ecr.model.EcrException;
+import software.amazon.awssdk.services.ecr.model.GetLifecyclePolicyRequest;
+import software.amazon.awssdk.services.ecr.model.GetLifecyclePolicyResponse;
+import software.amazon.awssdk.services.ecr.model.GetRepositoryPolicyRequest;
+import software.amazon.awssdk.services.ecr.model.GetRepositoryPolicyResponse;
+import software.amazon.awssdk.services.ecr.model.ImageScanningConfiguration;
+import software.amazon.awssdk.services.ecr.model.ImageTagMutability;
+import software.amazon.awssdk.services.ecr.model.LifecyclePolicyNotFoundException;
+import software.amazon.awssdk.services.ecr.model.ListTagsForResourceRequest;
+import software.amazon.awssdk.services.ecr.model.ListTagsForResourceResponse;
+import software.amazon.awssdk.services.ecr.model.PutImageScanningConfigurationRequest;
+import software.amazon.awssdk.services.ecr.model.PutImageScanningConfigurationResponse;
+import software.amazon.awssdk.services.ecr.model.PutImageTagMutabilityRequest;
+import software.amazon.awssdk.services.ecr.model.PutImageTagMutabilityResponse;
+import software.amazon.awssdk.services.ecr.model.PutLifecyclePolicyRequest;
+import software.amazon.awssdk.services.ecr.model.PutLifecyclePolicyResponse;
+import software.amazon.awssdk.services.ecr.model.Repository;
+import software.amazon.awssdk.services.ecr.model.RepositoryAlreadyExistsException;
+import software.amazon.awssdk.services.ecr.model.RepositoryNotFoundException;
+import software.amazon.awssdk.services.ecr.model.RepositoryPolicyNotFoundException;
+import software.amazon.awssdk.services.ecr.model.SetRepositoryPolicyRequest;
+import software.amazon.awssdk.services.ecr.model.SetRepositoryPolicyResponse;
+import software.amazon.awssdk.services.ecr.model.Tag;
+import software.amazon.awssdk.services.ecr.model.TagResourceRequest;
+import software.amazon.awssdk.services.ecr.model.TagResourceResponse;
+import software.amazon.awssdk.services.ecr.model.UntagResourceRequest;
+import software.amazon.awssdk.services.ecr.model.UntagResourceResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * An in-memory ECR registry for tests that need many handler invocations against consistent
+ * service state. Only the repository-level operations the handlers use are implemented. It is
+ * published in this module's test jar for the repository group resource's tests.
+ */
+public class FakeEcrClient implements EcrClient {
+    public static final String ACCOUNT_ID = "123456789012";
+    public static final String REGION = "us-east-1";
+
+    private final Map<String, Repository> repositories = new ConcurrentSkipListMap<>();
+    private final Map<String, String> repositoryPolicies = new ConcurrentHashMap<>();
+    private final Map<String, String> lifecyclePolicies = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, String>> tags = new ConcurrentHashMap<>();
+    private final AtomicInteger describesToThrottle = new AtomicInteger();
+
+    public int repositoryCount() {
+        return repositories.size();
+    }
+
+    public Repository repository(final String name) {
+        return repositories.get(name);
+    }
+
+    public String repositoryPolicy(final String name) {
+        return repositoryPolicies.get(name);
+    }
+
+    public String lifecyclePolicy(final String name) {
+        return lifecyclePolicies.get(name);
+    }
+
+    public Map<String, String> tags(final String name) {
+        return tags.get(name);
+    }
+
+    /**
+     * Fails the next DescribeRepositories calls with a throttling error.
+     */
+    public void throttleDescribes(final int calls) {
+        describesToThrottle.set(calls);
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public CreateRepositoryResponse createRepository(final CreateRepositoryRequest request) {
+        final String name = request.repositoryName();
+        final Repository repository = Repository.builder()
+                .repositoryName(name)
+                .registryId(ACCOUNT_ID)
+                .repositoryArn(String.format("arn:aws:ecr:%s:%s:repository/%s", REGION, ACCOUNT_ID, name))
+                .repositoryUri(String.format("%s.dkr.ecr.%s.amazonaws.com/%s", ACCOUNT_ID, REGION, name))
+                .imageTagMutability(request.imageTagMutability() == null ? ImageTagMutability.MUTABLE : request.imageTagMutability())
+                .imageScanningConfiguration(request.imageScanningConfiguration() == null
+                        ? ImageScanningConfiguration.builder().scanOnPush(false).build()
+                        : request.imageScanningConfiguration())
+                .encryptionConfiguration(request.encryptionConfiguration())
+                .build();
+        if (repositories.putIfAbsent(name, repository) != null) {
+            throw error(RepositoryAlreadyExistsException.builder(), "RepositoryAlreadyExistsException", name);
+        }
+        final Map<String, String> repositoryTags = new ConcurrentHashMap<>();
+        if (request.tags() != null) {
+            request.tags().forEach(tag -> repositoryTags.put(tag.key(), tag.value()));
+        }
+        tags.put(name, repositoryTags);
+        return CreateRepositoryResponse.builder().repository(repository).build();
+    }
+
+    @Override
+    public DescribeRepositoriesResponse describeRepositories(final DescribeRepositoriesRequest request) {
+        if (describesToThrottle.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+            throw EcrException.builder()
+                    .statusCode(400)
+                    .message("Rate exceeded")
+                    .awsErrorDetails(AwsErrorDetails.builder().errorCode("ThrottlingException").errorMessage("Rate exceeded").build())
+                    .build();
+        }
+        if (request.hasRepositoryNames() && !request.repositoryNames().isEmpty()) {
+            final List<Repository> found = new ArrayList<>();
+            for (final String name : request.repositoryNames()) {
+                found.add(existing(name));
+            }
+            return DescribeRepositoriesResponse.builder().repositories(found).build();
+        }
+
+        final List<Repository> all = new ArrayList<>(repositories.values());
+        final int start = request.nextToken() == null ? 0 : Integer.parseInt(request.nextToken());
+        final int pageSize = request.maxResults() == null ? 100 : request.maxResults();
+        final int end = Math.min(all.size(), start + pageSize);
+        return DescribeRepositoriesResponse.builder()
+                .repositories(all.subList(Math.min(start, end), end))
+                .nextToken(end < all.size() ? String.valueOf(end) : null)
+                .build();
+    }
+
+    @Override
+    public DeleteRepositoryResponse deleteRepository(final DeleteRepositoryRequest request) {
+        final Repository removed = repositories.remove(request.repositoryName());
+        if (removed == null) {
+            throw notFound(request.repositoryName());
+        }
+        repositoryPolicies.remove(request.repositoryName());
+        lifecyclePolicies.remove(request.repositoryName());
+        tags.remove(request.repositoryName());
+        return DeleteRepositoryResponse.builder().repository(removed).build();
+    }
+
+    @Override
+    public SetRepositoryPolicyResponse setRepositoryPolicy(final SetRepositoryPolicyRequest request) {
+        existing(request.repositoryName());
+        repositoryPolicies.put(request.repositoryName(), request.policyText());
+        return SetRepositoryPolicyResponse.builder().repositoryName(request.repositoryName()).policyText(request.policyText()).build();
+    }
+
+    @Override
+    public GetRepositoryPolicyResponse getRepositoryPolicy(final GetRepositoryPolicyRequest request) {
+        existing(request.repositoryName());
+        final String policyText = repositoryPolicies.get(request.repositoryName());
+        if (policyText == null) {
+            throw error(RepositoryPolicyNotFoundException.builder(), "RepositoryPolicyNotFoundException", request.repositoryName());
+        }
+        return GetRepositoryPolicyResponse.builder().repositoryName(request.repositoryName()).registryId(ACCOUNT_ID).policyText(policyText).build();
+    }
+
+    @Override
+    public DeleteRepositoryPolicyResponse deleteRepositoryPolicy(final DeleteRepositoryPolicyRequest request) {
+        existing(request.repositoryName());
+        if (repositoryPolicies.remove(request.repositoryName()) == null) {
+            throw error(RepositoryPolicyNotFoundException.builder(), "RepositoryPolicyNotFoundException", request.repositoryName());
+        }
+        return DeleteRepositoryPolicyResponse.builder().repositoryName(request.repositoryName()).build();
+    }
+
+    @Override
+    public PutLifecyclePolicyResponse putLifecyclePolicy(final PutLifecyclePolicyRequest request) {
+        existing(request.repositoryName());
+        lifecyclePolicies.put(request.repositoryName(), request.lifecyclePolicyText());
+        return PutLifecyclePolicyResponse.builder().repositoryName(request.repositoryName()).lifecyclePolicyText(request.lifecyclePolicyText()).build();
+    }
+
+    @Override
+    public GetLifecyclePolicyResponse getLifecyclePolicy(final GetLifecyclePolicyRequest request) {
+        existing(request.repositoryName());
+        final String policyText = lifecyclePolicies.get(request.repositoryName());
+        if (policyText == null) {
+            throw error(LifecyclePolicyNotFoundException.builder(), "LifecyclePolicyNotFoundException", request.repositoryName());
+        }
+        return GetLifecyclePolicyResponse.builder().repositoryName(request.repositoryName()).registryId(ACCOUNT_ID).lifecyclePolicyText(policyText).build();
+    }
+
+    @Override
+    public DeleteLifecyclePolicyResponse deleteLifecyclePolicy(final DeleteLifecyclePolicyRequest request) {
+        existing(request.repositoryName());
+        if (lifecyclePolicies.remove(request.repositoryName()) == null) {
+            throw error(LifecyclePolicyNotFoundException.builder(), "LifecyclePolicyNotFoundException", request.repositoryName());
+        }
+        return DeleteLifecyclePolicyResponse.builder().repositoryName(request.repositoryName()).build();
+    }
+
+    @Override
+    public PutImageTagMutabilityResponse putImageTagMutability(final PutImageTagMutabilityRequest request) {
+        final Repository updated = update(request.repositoryName(),
+                repository -> repository.toBuilder().imageTagMutability(request.imageTagMutability()).build());
+        return PutImageTagMutabilityResponse.builder().repositoryName(updated.repositoryName()).imageTagMutability(updated.imageTagMutability()).build();
+    }
+
+    @Override
+    public PutImageScanningConfigurationResponse putImageScanningConfiguration(final PutImageScanningConfigurationRequest request) {
+        final Repository updated = update(request.repositoryName(),
+                repository -> repository.toBuilder().imageScanningConfiguration(request.imageScanningConfiguration()).build());
+        return PutImageScanningConfigurationResponse.builder().repositoryName(updated.repositoryName()).imageScanningConfiguration(updated.imageScanningConfiguration()).build();
+    }
+
+    @Override
+    public ListTagsForResourceResponse listTagsForResource(final ListTagsForResourceRequest request) {
+        final Map<String, String> current = new TreeMap<>(tagsOf(request.resourceArn()));
+        return ListTagsForResourceResponse.builder()
+                .tags(current.entrySet().stream()
+                        .map(entry -> Tag.builder().key(entry.getKey()).value(entry.getValue()).build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    @Override
+    public TagResourceResponse tagResource(final TagResourceRequest request) {
+        final Map<String, String> current = tagsOf(request.resourceArn());
+        request.tags().forEach(tag -> current.put(tag.key(), tag.value()));
+        return TagResourceResponse.builder().build();
+    }
+
+    @Override
+    public UntagResourceResponse untagResource(final UntagResourceRequest request) {
+        final Map<String, String> current = tagsOf(request.resourceArn());
+        request.tagKeys().forEach(current::remove);
+        return UntagResourceResponse.builder().build();
+    }
+
+    private Repository existing(final String name) {
+        final Repository repository = repositories.get(name);
+        if (repository == null) {
+            throw notFound(name);
+        }
+        return repository;
+    }
+
+    private Repository update(final String name, final UnaryOperator<Repository> change) {
+        final Repository updated = repositories.computeIfPresent(name, (key, repository) -> change.apply(repository));
+        if (updated == null) {
+            throw notFound(name);
+        }
+        return updated;
+    }
+
+    private Map<String, String> tagsOf(final String arn) {
+        final String name = arn.substring(arn.indexOf(":repository/") + ":repository/".length());
+        final Map<String, String> current = tags.get(name);
+        if (current == null) {
+            throw notFound(name);
+        }
+        return current;
+    }
+
+    private static AwsServiceException notFound(final String name) {
+        return error(RepositoryNotFoundException.builder(), "RepositoryNotFoundException", name);
+    }
+
+    private static AwsServiceException error(final AwsServiceException.Builder builder, final String errorCode, final String name) {
+        return builder
+                .message(String.format("%s: %s", errorCode, name))
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode(errorCode).errorMessage(name).build())
+                .build();
+    }
+}
@@ -0,0 +1,131 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.awssdk.services.ecr.model.CreateRepositoryRequest;
+import software.amazon.awssdk.services.ecr.model.CreateRepositoryResponse;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FleetReconcilerTest extends AbstractTestBase {
+    private FakeEcrClient ecr;
+    private FleetReconciler reconciler;
+
+    @BeforeEach
+    public void setup() {
+        ecr = new FakeEcrClient();
+        reconciler = new FleetReconciler(ecr, MOCK_CREDENTIALS, logger, 4);
+    }
+
+    @Test
+    void reconcile_CreatesUpdatesAndLeavesAlone() {
+        reconciler.reconcile(Stream.of(model("same", "MUTABLE"), model("drifted", "MUTABLE")));
+
+        final FleetReconciler.Report report = reconciler.reconcile(
+                Stream.of(model("same", null), model("drifted", "IMMUTABLE"), model("new", "MUTABLE")));
+
+        final Map<String, FleetReconciler.Outcome> outcomes = byName(report);
+        assertThat(outcomes.get("same").getStatus()).isEqualTo(FleetReconciler.Status.UNCHANGED);
+        assertThat(outcomes.get("drifted").getStatus()).isEqualTo(FleetReconciler.Status.UPDATED);
+        assertThat(outcomes.get("drifted").getChanges()).isEqualTo("[PUT_IMAGE_TAG_MUTABILITY]");
+        assertThat(outcomes.get("new").getStatus()).isEqualTo(FleetReconciler.Status.CREATED);
+        assertThat(ecr.repository("drifted").imageTagMutabilityAsString()).isEqualTo("IMMUTABLE");
+        assertThat(ecr.repository("same").imageTagMutabilityAsString()).isEqualTo("MUTABLE");
+        assertThat(report.getApiCalls()).isPositive();
+    }
+
+    @Test
+    void reconcile_DescribesAroundMissingRepositories() {
+        reconciler.reconcile(IntStream.range(0, 150).filter(i -> i % 3 == 0).mapToObj(i -> model("repo-" + i, "MUTABLE")));
+
+        final FleetReconciler.Report report = reconciler.reconcile(
+                IntStream.range(0, 150).mapToObj(i -> model("repo-" + i, "MUTABLE")));
+
+        assertThat(report.getOutcomes()).hasSize(150);
+        assertThat(report.count(FleetReconciler.Status.UNCHANGED)).isEqualTo(50);
+        assertThat(report.count(FleetReconciler.Status.CREATED)).isEqualTo(100);
+        assertThat(ecr.repositoryCount()).isEqualTo(150);
+    }
+
+    @Test
+    void reconcile_RetriesThrottledCalls() {
+        reconciler.reconcile(Stream.of(model("repo", "MUTABLE")));
+        ecr.throttleDescribes(2);
+
+        final FleetReconciler.Report report = reconciler.reconcile(Stream.of(model("repo", "IMMUTABLE")));
+
+        assertThat(report.getThrottledCalls()).isEqualTo(2);
+        assertThat(report.getOutcomes().get(0).getStatus()).isEqualTo(FleetReconciler.Status.UPDATED);
+    }
+
+    @Test
+    void reconcile_FailsOnlyTheRepositoryThatGetsNoPermit() {
+        final FakeEcrClient slowEcr = new FakeEcrClient() {
+            @Override
+            public CreateRepositoryResponse createRepository(final CreateRepositoryRequest request) {
+                if ("slow".equals(request.repositoryName())) {
+                    sleep(1_000L);
+                }
+                return super.createRepository(request);
+            }
+        };
+        final FleetReconciler oneAtATime = new FleetReconciler(slowEcr, MOCK_CREDENTIALS, logger, 1, 200L);
+
+        final FleetReconciler.Report report = oneAtATime.reconcile(Stream.of(model("slow", "MUTABLE"), model("waiting", "MUTABLE")));
+
+        final Map<String, FleetReconciler.Outcome> outcomes = byName(report);
+        assertThat(outcomes.get("slow").getStatus()).isEqualTo(FleetReconciler.Status.CREATED);
+        assertThat(outcomes.get("waiting").getStatus()).isEqualTo(FleetReconciler.Status.FAILED);
+        assertThat(outcomes.get("waiting").getMessage()).contains("could not be started");
+        assertThat(slowEcr.repository("waiting")).isNull();
+    }
+
+    @Test
+    void reconcile_RejectsModelWithoutName() {
+        final FleetReconciler.Report report = reconciler.reconcile(Stream.of(ResourceModel.builder().build()));
+
+        assertThat(report.getOutcomes().get(0).getStatus()).isEqualTo(FleetReconciler.Status.FAILED);
+        assertThat(report.getApiCalls()).isZero();
+    }
+
+    @Test
+    void models_ReadsOneModelPerLine() {
+        final List<ResourceModel> models = FleetReconcilerCli.models(new BufferedReader(new StringReader(
+                "{\"RepositoryName\":\"a\",\"ImageTagMutability\":\"IMMUTABLE\"}\n\n{\"RepositoryName\":\"b\"}\n")))
+                .collect(Collectors.toList());
+
+        assertThat(models).extracting(ResourceModel::getRepositoryName).containsExactly("a", "b");
+        assertThat(models.get(0).getImageTagMutability()).isEqualTo("IMMUTABLE");
+    }
+
+    private static ResourceModel model(final String name, final String imageTagMutability) {
+        return ResourceModel.builder()
+                .repositoryName(name)
+                .imageTagMutability(imageTagMutability)
+                .lifecyclePolicy(LifecyclePolicy.builder().lifecyclePolicyText(LIFECYCLE_POLICY_TEXT).build())
+                .tags(Collections.singleton(Tag.builder().key("team").value("platform").build()))
+                .build();
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Map<String, FleetReconciler.Outcome> byName(final FleetReconciler.Report report) {
+        return report.getOutcomes().stream()
+                .collect(Collectors.toMap(FleetReconciler.Outcome::getRepositoryName, Function.identity()));
+    }
+}
@@ -0,0 +1,140 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives many interleaved invocations through one instance of each handler, the way a bulk
+ * reconciler or an in-process runner would, and checks every invocation only ever sees its own
+ * repository.
+ */
+class HandlerConcurrencyTest extends AbstractTestBase {
+    private static final int REPOSITORIES = 200;
+    private static final int THREADS = 16;
+
+    private final CreateHandler createHandler = new CreateHandler();
+    private final UpdateHandler updateHandler = new UpdateHandler();
+    private final ReadHandler readHandler = new ReadHandler();
+    private final DeleteHandler deleteHandler = new DeleteHandler();
+
+    private FakeEcrClient ecr;
+    private AmazonWebServicesClientProxy proxy;
+    private ProxyClient<EcrClient> proxyClient;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setup() {
+        ecr = new FakeEcrClient();
+        proxy = new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> TimeUnit.MINUTES.toMillis(10));
+        proxyClient = proxy.newProxy(() -> ecr);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void interleavedInvocationsDoNotShareState() throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Void>> lifecycles = new ArrayList<>();
+        for (int i = 0; i < REPOSITORIES; i++) {
+            final int index = i;
+            lifecycles.add(executor.submit(() -> {
+                start.await();
+                runLifecycle(index);
+                return null;
+            }));
+        }
+        start.countDown();
+
+        for (final Future<Void> lifecycle : lifecycles) {
+            lifecycle.get(2, TimeUnit.MINUTES);
+        }
+        assertThat(ecr.repositoryCount()).isZero();
+    }
+
+    private void runLifecycle(final int index) {
+        final String name = "repo-" + index;
+
+        final ResourceModel created = ResourceModel.builder()
+                .repositoryName(name)
+                .lifecyclePolicy(LifecyclePolicy.builder().lifecyclePolicyText(lifecyclePolicyText(index, 1)).build())
+                .imageTagMutability("MUTABLE")
+                .build();
+        final Map<String, String> createTags = Collections.singletonMap("owner", name);
+        final ProgressEvent<ResourceModel, CallbackContext> create = createHandler.handleRequest(proxy,
+                ResourceHandlerRequest.<ResourceModel>builder()
+                        .desiredResourceState(created)
+                        .desiredResourceTags(createTags)
+                        .build(),
+                new CallbackContext(), proxyClient, logger);
+        assertThat(create.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(create.getResourceModel().getArn()).endsWith("/" + name);
+
+        final Map<String, String> updateTags = new HashMap<>(createTags);
+        updateTags.put("revision", String.valueOf(index));
+        final ResourceModel updated = ResourceModel.builder()
+                .repositoryName(name)
+                .lifecyclePolicy(LifecyclePolicy.builder().lifecyclePolicyText(lifecyclePolicyText(index, 2)).build())
+                .imageTagMutability(index % 2 == 0 ? "IMMUTABLE" : "MUTABLE")
+                .build();
+        final ProgressEvent<ResourceModel, CallbackContext> update = updateHandler.handleRequest(proxy,
+                ResourceHandlerRequest.<ResourceModel>builder()
+                        .previousResourceState(created)
+                        .desiredResourceState(updated)
+                        .previousResourceTags(createTags)
+                        .desiredResourceTags(updateTags)
+                        .build(),
+                new CallbackContext(), proxyClient, logger);
+        assertThat(update.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(update.getResourceModel().getRepositoryName()).isEqualTo(name);
+        assertThat(update.getResourceModel().getArn()).endsWith("/" + name);
+
+        final ProgressEvent<ResourceModel, CallbackContext> read = readHandler.handleRequest(proxy,
+                ResourceHandlerRequest.<ResourceModel>builder()
+                        .desiredResourceState(ResourceModel.builder().repositoryName(name).build())
+                        .build(),
+                new CallbackContext(), proxyClient, logger);
+        assertThat(read.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        final ResourceModel model = read.getResourceModel();
+        assertThat(model.getRepositoryName()).isEqualTo(name);
+        assertThat(model.getImageTagMutability()).isEqualTo(index % 2 == 0 ? "IMMUTABLE" : "MUTABLE");
+        assertThat(model.getLifecyclePolicy().getLifecyclePolicyText()).isEqualTo(lifecyclePolicyText(index, 2));
+        final Set<Tag> expectedTags = Translator.translateTagsFromSdk(Translator.translateTagsToSdk(updateTags));
+        assertThat(model.getTags()).isEqualTo(expectedTags);
+
+        final ProgressEvent<ResourceModel, CallbackContext> delete = deleteHandler.handleRequest(proxy,
+                ResourceHandlerRequest.<ResourceModel>builder()
+                        .desiredResourceState(ResourceModel.builder().repositoryName(name).build())
+                        .build(),
+                new CallbackContext(), proxyClient, logger);
+        assertThat(delete.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+    }
+
+    private static String lifecyclePolicyText(final int index, final int revision) {
+        return String.format("{\"rules\":[{\"rulePriority\":%d,\"selection\":{\"tagStatus\":\"any\",\"countType\":\"imageCountMoreThan\",\"countNumber\":%d},\"action\":{\"type\":\"expire\"}}]}",
+                revision, index + 1);
+    }
+}
@@ -0,0 +1,125 @@
+package software.amazon.ecr.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HedgerTest {
+
+    @Test
+    void call_DoesNotHedgeWithoutEnoughSamples() {
+        final Hedger hedger = new Hedger(Hedger.DEFAULT_HEDGE_RATIO, Hedger.DEFAULT_MAX_TOKENS);
+        final AtomicInteger calls = new AtomicInteger();
+
+        assertThat(hedger.call(() -> calls.incrementAndGet(), TimeBudget.start())).isEqualTo(1);
+        assertThat(hedger.delayMillis()).isEqualTo(-1L);
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(hedger.hedgedCalls()).isZero();
+    }
+
+    @Test
+    void call_SecondCallWinsWhenFirstIsSlow() throws Exception {
+        final Hedger hedger = new Hedger(Hedger.DEFAULT_HEDGE_RATIO, Hedger.DEFAULT_MAX_TOKENS);
+        recordFastSamples(hedger);
+        final CountDownLatch neverReleased = new CountDownLatch(1);
+        final AtomicBoolean primaryInterrupted = new AtomicBoolean();
+        final CountDownLatch primaryDone = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+
+        final Supplier<String> call = () -> {
+            if (calls.incrementAndGet() == 1) {
+                try {
+                    neverReleased.await();
+                } catch (final InterruptedException e) {
+                    primaryInterrupted.set(true);
+                } finally {
+                    primaryDone.countDown();
+                }
+                return "slow";
+            }
+            return "fast";
+        };
+
+        assertThat(hedger.call(call, TimeBudget.start())).isEqualTo("fast");
+        assertThat(primaryDone.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(primaryInterrupted.get()).isTrue();
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(hedger.hedgedCalls()).isEqualTo(1);
+        assertThat(hedger.hedgeWins()).isEqualTo(1);
+    }
+
+    @Test
+    void call_WaitsForSecondCallWhenFirstFailsAfterHedging() {
+        final Hedger hedger = new Hedger(Hedger.DEFAULT_HEDGE_RATIO, Hedger.DEFAULT_MAX_TOKENS);
+        recordFastSamples(hedger);
+        final CountDownLatch primaryFailed = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+
+        final Supplier<String> call = () -> {
+            if (calls.incrementAndGet() == 1) {
+                sleep(Hedger.MIN_DELAY_MILLIS * 5);
+                primaryFailed.countDown();
+                throw new IllegalStateException("connection reset");
+            }
+            try {
+                primaryFailed.await(5, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                return "interrupted";
+            }
+            return "second";
+        };
+
+        assertThat(hedger.call(call, TimeBudget.start())).isEqualTo("second");
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(hedger.hedgedCalls()).isEqualTo(1);
+        assertThat(hedger.hedgeWins()).isEqualTo(1);
+    }
+
+    @Test
+    void call_WaitsForFirstCallWhenOutOfTokens() {
+        final Hedger hedger = new Hedger(0.0, 0.0);
+        recordFastSamples(hedger);
+        final AtomicInteger calls = new AtomicInteger();
+
+        final String result = hedger.call(() -> {
+            calls.incrementAndGet();
+            sleep(Hedger.MIN_DELAY_MILLIS * 5);
+            return "slow";
+        }, TimeBudget.start());
+
+        assertThat(result).isEqualTo("slow");
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(hedger.hedgedCalls()).isZero();
+    }
+
+    @Test
+    void call_RethrowsWhatTheCallThrew() {
+        final Hedger hedger = new Hedger(Hedger.DEFAULT_HEDGE_RATIO, Hedger.DEFAULT_MAX_TOKENS);
+
+        assertThatThrownBy(() -> hedger.call(() -> {
+            throw new IllegalStateException("boom");
+        }, TimeBudget.start())).isInstanceOf(IllegalStateException.class).hasMessage("boom");
+    }
+
+    private static void recordFastSamples(final Hedger hedger) {
+        for (int i = 0; i < Hedger.MIN_SAMPLES; i++) {
+            hedger.record(1L);
+        }
+        assertThat(hedger.delayMillis()).isEqualTo(Hedger.MIN_DELAY_MILLIS);
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.awssdk.services.ecr.model.CreateRepositoryRequest;
+import software.amazon.awssdk.services.ecr.model.PutLifecyclePolicyRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InventoryExporterTest extends AbstractTestBase {
+    private FakeEcrClient ecr;
+    private InventoryExporter exporter;
+
+    @BeforeEach
+    public void setup() {
+        ecr = new FakeEcrClient();
+        exporter = new InventoryExporter(ecr, MOCK_CREDENTIALS, logger);
+    }
+
+    @Test
+    void exportModels_WritesOneHydratedModelPerLine() throws IOException {
+        createRepositories(250);
+        ecr.putLifecyclePolicy(PutLifecyclePolicyRequest.builder().repositoryName("repo-007").lifecyclePolicyText(LIFECYCLE_POLICY_TEXT).build());
+        final StringWriter out = new StringWriter();
+        final List<String> checkpoints = new ArrayList<>();
+
+        final String cursor = exporter.exportModels(null, 0, out, checkpoints::add);
+
+        assertThat(cursor).isNull();
+        assertThat(checkpoints).hasSize(3);
+        assertThat(checkpoints.get(2)).isNull();
+        final List<ResourceModel> models = FleetReconcilerCli.models(new BufferedReader(new StringReader(out.toString())))
+                .collect(Collectors.toList());
+        assertThat(models).hasSize(250);
+        final ResourceModel seventh = models.get(7);
+        assertThat(seventh.getRepositoryName()).isEqualTo("repo-007");
+        assertThat(seventh.getLifecyclePolicy().getLifecyclePolicyText()).isEqualTo(LIFECYCLE_POLICY_TEXT);
+        assertThat(seventh.getArn()).isNotNull();
+        assertThat(out.toString()).doesNotContain("null");
+    }
+
+    @Test
+    void exportModels_LimitedRunsResumeFromTheirCursor() throws IOException {
+        createRepositories(250);
+        final Set<String> exported = new HashSet<>();
+        String cursor = null;
+        int runs = 0;
+        do {
+            final StringWriter out = new StringWriter();
+            cursor = exporter.exportModels(cursor, 130, out, next -> { });
+            FleetReconcilerCli.models(new BufferedReader(new StringReader(out.toString())))
+                    .forEach(model -> assertThat(exported.add(model.getRepositoryName())).isTrue());
+            runs++;
+        } while (cursor != null);
+
+        assertThat(runs).isEqualTo(2);
+        assertThat(exported).hasSize(250);
+    }
+
+    @Test
+    void exportModels_CursorWithinAPageSkipsWhatWasWritten() throws IOException {
+        createRepositories(10);
+        final StringWriter out = new StringWriter();
+
+        exporter.exportModels(new ListCursor(null, "repo-004").encode(), 0, out, next -> { });
+
+        assertThat(FleetReconcilerCli.models(new BufferedReader(new StringReader(out.toString())))
+                .map(ResourceModel::getRepositoryName)
+                .collect(Collectors.toList()))
+                .containsExactly("repo-005", "repo-006", "repo-007", "repo-008", "repo-009");
+    }
+
+    @Test
+    void exportImportTemplate_DeclaresRetainedResourcesToImport() throws IOException {
+        createRepositories(3);
+        ecr.createRepository(CreateRepositoryRequest.builder().repositoryName("team/repo-000").build());
+        final StringWriter template = new StringWriter();
+        final StringWriter resourcesToImport = new StringWriter();
+
+        final String cursor = exporter.exportImportTemplate(null, 0, template, resourcesToImport);
+
+        assertThat(cursor).isNull();
+        final JsonNode resources = Translator.MAPPER.readTree(template.toString()).get("Resources");
+        assertThat(resources.size()).isEqualTo(4);
+        final JsonNode repository = resources.get("RepositoryRepo000");
+        assertThat(repository.get("Type").asText()).isEqualTo(ResourceModel.TYPE_NAME);
+        assertThat(repository.get("DeletionPolicy").asText()).isEqualTo("Retain");
+        assertThat(repository.get("Properties").get("RepositoryName").asText()).isEqualTo("repo-000");
+        assertThat(repository.get("Properties").has("Arn")).isFalse();
+        assertThat(repository.get("Properties").has("RepositoryUri")).isFalse();
+        assertThat(resources.has("RepositoryTeamRepo000")).isTrue();
+
+        final JsonNode identifiers = Translator.MAPPER.readTree(resourcesToImport.toString());
+        assertThat(identifiers.size()).isEqualTo(4);
+        assertThat(identifiers.get(0).get("ResourceIdentifier").get("RepositoryName").asText()).isEqualTo("repo-000");
+        assertThat(identifiers.get(0).get("LogicalResourceId").asText()).isEqualTo("RepositoryRepo000");
+    }
+
+    @Test
+    void logicalId_CollidingNamesGetDistinctIds() {
+        final Set<String> used = new HashSet<>();
+
+        final String first = InventoryExporter.logicalId("app/web", used);
+        final String second = InventoryExporter.logicalId("app-web", used);
+
+        assertThat(first).isEqualTo("RepositoryAppWeb");
+        assertThat(second).startsWith("RepositoryAppWeb").isNotEqualTo(first).matches("[A-Za-z0-9]+");
+    }
+
+    private void createRepositories(final int count) {
+        for (int i = 0; i < count; i++) {
+            ecr.createRepository(CreateRepositoryRequest.builder().repositoryName(String.format("repo-%03d", i)).build());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package software.amazon.ecr.repository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LifecycleEvaluatorTest {
+    private static final Instant NOW = Instant.parse("2024-06-01T00:00:00Z");
+
+    @Test
+    void evaluate_HigherPriorityRuleKeepsItsImagesFromLowerOnes() {
+        final LifecycleEvaluator evaluator = LifecycleEvaluator.parse("{\"rules\":["
+                + rule(1, "\"tagStatus\":\"tagged\",\"tagPrefixList\":[\"prod\"],\"countType\":\"imageCountMoreThan\",\"countNumber\":2")
+                + "," + rule(2, "\"tagStatus\":\"any\",\"countType\":\"imageCountMoreThan\",\"countNumber\":1")
+                + "]}");
+        // Pushed one day apart, newest last.
+        final ImageIndex images = index(
+                image("prod-1", 5), image("prod-2", 4), image("dev-1", 3), image("prod-3", 2), image(null, 1), image("dev-2", 0));
+
+        final Map<LifecycleEvaluator.Rule, List<ImageIndex.Image>> expired = evaluator.evaluate(images, NOW);
+
+        final List<List<String>> digests = expired.values().stream().map(LifecycleEvaluatorTest::digests).collect(Collectors.toList());
+        assertThat(digests.get(0)).containsExactly("sha256:prod-1");
+        // dev-2 is the newest image rule 2 selects, the prod images are rule 1's.
+        assertThat(digests.get(1)).containsExactly("sha256:untagged-1", "sha256:dev-1");
+    }
+
+    @Test
+    void evaluate_SinceImagePushedExpiresOlderImages() {
+        final LifecycleEvaluator evaluator = LifecycleEvaluator.parse("{\"rules\":["
+                + rule(1, "\"tagStatus\":\"untagged\",\"countType\":\"sinceImagePushed\",\"countUnit\":\"days\",\"countNumber\":2")
+                + "]}");
+        final ImageIndex images = index(image(null, 5), image(null, 3), image(null, 1), image("v1", 4));
+
+        final List<ImageIndex.Image> expired = evaluator.evaluate(images, NOW).values().iterator().next();
+
+        assertThat(digests(expired)).containsExactly("sha256:untagged-3", "sha256:untagged-5");
+    }
+
+    @Test
+    void evaluate_PatternsMustAllBeMetByTheImageTags() {
+        final LifecycleEvaluator evaluator = LifecycleEvaluator.parse("{\"rules\":["
+                + rule(1, "\"tagStatus\":\"tagged\",\"tagPatternList\":[\"release-*-rc*\",\"signed\"],\"countType\":\"imageCountMoreThan\",\"countNumber\":1")
+                + "]}");
+        final ImageIndex images = index(
+                new ImageIndex.Image("sha256:a", Arrays.asList("release-1-rc1", "signed"), NOW.minus(Duration.ofDays(3))),
+                new ImageIndex.Image("sha256:b", Arrays.asList("release-2-rc1", "signed"), NOW.minus(Duration.ofDays(2))),
+                new ImageIndex.Image("sha256:c", Arrays.asList("release-1-rc2"), NOW.minus(Duration.ofDays(4))),
+                new ImageIndex.Image("sha256:d", Arrays.asList("release-3", "signed"), NOW.minus(Duration.ofDays(5))));
+
+        assertThat(digests(evaluator.evaluate(images, NOW).values().iterator().next())).containsExactly("sha256:a");
+    }
+
+    @Test
+    void evaluate_MillionImagesInSeconds() {
+        final LifecycleEvaluator evaluator = LifecycleEvaluator.parse("{\"rules\":["
+                + rule(1, "\"tagStatus\":\"tagged\",\"tagPrefixList\":[\"release-\"],\"countType\":\"imageCountMoreThan\",\"countNumber\":100")
+                + "," + rule(2, "\"tagStatus\":\"untagged\",\"countType\":\"sinceImagePushed\",\"countUnit\":\"days\",\"countNumber\":30")
+                + "," + rule(3, "\"tagStatus\":\"any\",\"countType\":\"imageCountMoreThan\",\"countNumber\":1000")
+                + "]}");
+        final ImageIndex images = ImageIndex.of(IntStream.range(0, 1_000_000).mapToObj(i -> new ImageIndex.Image(
+                "sha256:" + i,
+                i % 3 == 0 ? Collections.emptyList() : Collections.singletonList((i % 3 == 1 ? "release-" : "build-") + i % 5000),
+                NOW.minusSeconds(i * 60L))));
+
+        final long started = System.nanoTime();
+        final Map<LifecycleEvaluator.Rule, List<ImageIndex.Image>> expired = evaluator.evaluate(images, NOW);
+        final long elapsedMillis = (System.nanoTime() - started) / 1_000_000L;
+
+        final List<Integer> counts = expired.values().stream().map(List::size).collect(Collectors.toList());
+        assertThat(counts).containsExactly(333_333 - 100, 333_334 - (43_200 / 3 + 1), 333_333 - 1000);
+        assertThat(elapsedMillis).isLessThan(5_000L);
+    }
+
+    @Test
+    void parse_RejectsPoliciesEcrWouldReject() {
+        assertThatThrownBy(() -> LifecycleEvaluator.parse("{\"rules\":[]}"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LifecycleEvaluator.parse("{\"rules\":["
+                + rule(1, "\"tagStatus\":\"untagged\",\"countType\":\"imageCountMoreThan\",\"countNumber\":1") + ","
+                + rule(1, "\"tagStatus\":\"untagged\",\"countType\":\"imageCountMoreThan\",\"countNumber\":2") + "]}"))
+                .hasMessageContaining("Duplicate rulePriority");
+        assertThatThrownBy(() -> LifecycleEvaluator.parse("{\"rules\":["
+                + rule(1, "\"tagStatus\":\"any\",\"countType\":\"imageCountMoreThan\",\"countNumber\":1") + ","
+                + rule(2, "\"tagStatus\":\"untagged\",\"countType\":\"imageCountMoreThan\",\"countNumber\":2") + "]}"))
+                .hasMessageContaining("highest rulePriority");
+        assertThatThrownBy(() -> LifecycleEvaluator.parse("{\"rules\":["
+                + rule(1, "\"tagStatus\":\"tagged\",\"countType\":\"imageCountMoreThan\",\"countNumber\":1") + "]}"))
+                .hasMessageContaining("tagPrefixList");
+    }
+
+    @Test
+    void readJsonLines_ReadsDescribeImagesDetails() throws IOException {
+        final ImageIndex images = ImageIndex.readJsonLines(new BufferedReader(new StringReader(
+                "{\"imageDigest\":\"sha256:a\",\"imageTags\":[\"v1\"],\"imagePushedAt\":1717200000.5}\n"
+                        + "\n"
+                        + "{\"imageDigest\":\"sha256:b\",\"imagePushedAt\":\"2024-06-02T00:00:00Z\"}\n")));
+
+        assertThat(images.size()).isEqualTo(2);
+        assertThat(images.image(0).getDigest()).isEqualTo("sha256:b");
+        assertThat(images.image(0).getTags()).isEmpty();
+        assertThat(images.image(1).getPushedAt()).isEqualTo(Instant.parse("2024-06-01T00:00:00.500Z"));
+    }
+
+    private static String rule(final int priority, final String selection) {
+        return String.format("{\"rulePriority\":%d,\"selection\":{%s},\"action\":{\"type\":\"expire\"}}", priority, selection);
+    }
+
+    private static ImageIndex.Image image(final String tag, final int daysAgo) {
+        return new ImageIndex.Image(tag == null ? "sha256:untagged-" + daysAgo : "sha256:" + tag,
+                tag == null ? Collections.emptyList() : Collections.singletonList(tag),
+                NOW.minus(Duration.ofDays(daysAgo)));
+    }
+
+    private static ImageIndex index(final ImageIndex.Image... images) {
+        return ImageIndex.of(Arrays.stream(images));
+    }
+
+    private static List<String> digests(final List<ImageIndex.Image> images) {
+        final List<String> digests = new ArrayList<>();
+        images.forEach(image -> digests.add(image.getDigest()));
+        return digests;
+    }
+}
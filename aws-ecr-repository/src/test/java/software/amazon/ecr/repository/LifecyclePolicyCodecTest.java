@@ -0,0 +1,65 @@
+package software.amazon.ecr.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LifecyclePolicyCodecTest {
+    private static final String UNTAGGED_RULE = "{\"rulePriority\":1,\"description\":\"untagged\",\"selection\":{\"tagStatus\":\"untagged\",\"countType\":\"sinceImagePushed\",\"countUnit\":\"days\",\"countNumber\":14},\"action\":{\"type\":\"expire\"}}";
+    private static final String ANY_RULE = "{\"rulePriority\":2,\"selection\":{\"tagStatus\":\"any\",\"countType\":\"imageCountMoreThan\",\"countNumber\":100},\"action\":{\"type\":\"expire\"}}";
+
+    @Test
+    void canonicalize_IgnoresRuleOrderKeyOrderAndWhitespace() {
+        final LifecyclePolicyCodec codec = new LifecyclePolicyCodec();
+
+        final String canonical = codec.canonicalize("{\"rules\":[" + UNTAGGED_RULE + "," + ANY_RULE + "]}");
+        final String reordered = codec.canonicalize("{ \"rules\": [\n  " + ANY_RULE + ",\n"
+                + "  {\"action\":{\"type\":\"expire\"},\"selection\":{\"countNumber\":14,\"countUnit\":\"days\",\"countType\":\"sinceImagePushed\",\"tagStatus\":\"untagged\"},"
+                + "\"description\":\"untagged\",\"rulePriority\":1}\n] }");
+
+        assertThat(reordered).isEqualTo(canonical);
+        assertThat(canonical).startsWith("{\"rules\":[{\"action\":{\"type\":\"expire\"},\"description\":\"untagged\",\"rulePriority\":1,");
+    }
+
+    @Test
+    void canonicalize_RepeatedDocumentsAreNotParsedAgain() {
+        final LifecyclePolicyCodec codec = new LifecyclePolicyCodec();
+        final String policy = "{\"rules\":[" + ANY_RULE + "]}";
+
+        for (int i = 0; i < 10; i++) {
+            codec.canonicalize(policy);
+        }
+
+        assertThat(codec.misses()).isEqualTo(1);
+        assertThat(codec.hits()).isEqualTo(9);
+        assertThat(codec.size()).isEqualTo(1);
+    }
+
+    @Test
+    void canonicalize_LeavesRuleValuesToEcr() {
+        final LifecyclePolicyCodec codec = new LifecyclePolicyCodec();
+        final String archiveRule = "{\"rulePriority\":1,\"selection\":{\"tagStatus\":\"any\",\"countType\":\"sinceImagePulled\","
+                + "\"countUnit\":\"days\",\"countNumber\":90},\"action\":{\"type\":\"transition\",\"targetStorageClass\":\"archive\"}}";
+
+        assertThat(codec.canonicalize("{\"rules\":[" + archiveRule + "," + ANY_RULE + "]}")).contains("\"transition\"");
+    }
+
+    @Test
+    void canonicalize_RejectsWhatEcrWouldReject() {
+        final LifecyclePolicyCodec codec = new LifecyclePolicyCodec();
+
+        assertThatThrownBy(() -> codec.canonicalize("{\"rules\":[]}"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("between 100 and 30720 characters");
+        assertThatThrownBy(() -> codec.canonicalize("{\"rules\":[" + ANY_RULE + "," + UNTAGGED_RULE.replace("\"rulePriority\":1", "\"rulePriority\":2") + "]}"))
+                .hasMessageContaining("Duplicate rulePriority 2");
+        assertThatThrownBy(() -> codec.canonicalize("{\"rules\":[" + UNTAGGED_RULE.replace("\"countType\":\"sinceImagePushed\",", "") + "]}"))
+                .hasMessageContaining("tagStatus and a countType");
+        assertThatThrownBy(() -> codec.canonicalize("{\"rules\":[" + ANY_RULE.replace("\"countNumber\":100", "\"countNumber\":0") + "]}"))
+                .hasMessageContaining("positive countNumber");
+        assertThatThrownBy(() -> codec.canonicalize("{\"rules\":[" + ANY_RULE + "," + ANY_RULE + "," + ANY_RULE))
+                .hasMessageContaining("not valid JSON");
+        assertThat(codec.size()).isZero();
+    }
+}
@@ -1,5 +1,7 @@
 package software.amazon.ecr.repository;
 
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.services.ecr.EcrClient;
 import software.amazon.awssdk.services.ecr.model.ImageScanningConfiguration;
 import software.amazon.awssdk.services.ecr.model.ImageTagMutability;
@@ -17,16 +19,26 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesRequest;
 import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesResponse;
+import software.amazon.awssdk.services.ecr.model.GetLifecyclePolicyRequest;
 import software.amazon.awssdk.services.ecr.model.GetLifecyclePolicyResponse;
+import software.amazon.awssdk.services.ecr.model.GetRepositoryPolicyRequest;
 import software.amazon.awssdk.services.ecr.model.GetRepositoryPolicyResponse;
+import software.amazon.awssdk.services.ecr.model.InvalidParameterException;
+import software.amazon.awssdk.services.ecr.model.LifecyclePolicyNotFoundException;
+import software.amazon.awssdk.services.ecr.model.ListTagsForResourceRequest;
 import software.amazon.awssdk.services.ecr.model.ListTagsForResourceResponse;
 import software.amazon.awssdk.services.ecr.model.Repository;
+import software.amazon.awssdk.services.ecr.model.RepositoryNotFoundException;
 import software.amazon.awssdk.services.ecr.model.Tag;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
 
 @ExtendWith(MockitoExtension.class)
 class ListHandlerTest extends AbstractTestBase {
@@ -63,6 +75,10 @@ class ListHandlerTest extends AbstractTestBase {
                 .nextToken("newToken")
                 .build();
 
+        final DescribeRepositoriesResponse lastDescribeRepositoriesResponse = DescribeRepositoriesResponse.builder()
+                .repositories(Collections.singletonList(repository.toBuilder().repositoryName("repo2").build()))
+                .build();
+
         final GetLifecyclePolicyResponse getLifecyclePolicyResponse = GetLifecyclePolicyResponse.builder()
                 .repositoryName("repo")
                 .lifecyclePolicyText("policy")
@@ -80,6 +96,7 @@ class ListHandlerTest extends AbstractTestBase {
                 .build();
 
         doReturn(describeRepositoriesResponse,
+                lastDescribeRepositoriesResponse,
                 getRepositoryPolicyResponse,
                 getLifecyclePolicyResponse,
                 listTagsForResourceResponse)
@@ -109,9 +126,161 @@ class ListHandlerTest extends AbstractTestBase {
         assertThat(response.getCallbackContext()).isNull();
         assertThat(response.getCallbackDelaySeconds()).isZero();
         assertThat(response.getResourceModel()).isNull();
-        assertThat(response.getResourceModels()).containsExactly(expectedModel);
+        assertThat(response.getResourceModels()).containsExactly(expectedModel,
+                ResourceModel.builder().repositoryName("repo2").build());
         assertThat(response.getMessage()).isNull();
         assertThat(response.getErrorCode()).isNull();
-        assertThat(response.getNextToken()).isEqualTo("newToken");
+        assertThat(response.getNextToken()).isNull();
+    }
+
+    @Test
+    void handleRequest_ReturnsResumableCursorWhenResponseIsFull() {
+        final Repository repository = Repository.builder()
+                .repositoryName("repo")
+                .registryId("id")
+                .repositoryArn("arn")
+                .build();
+
+        doReturn(DescribeRepositoriesResponse.builder()
+                .repositories(Collections.singletonList(repository))
+                .nextToken("newToken")
+                .build())
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(argThat((DescribeRepositoriesRequest r) -> r.maxResults() == 1), any());
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder().build())
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                new ListHandler(false, false, 1).handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModels()).containsExactly(ResourceModel.builder().repositoryName("repo").build());
+
+        final ListCursor cursor = ListCursor.decode(response.getNextToken());
+        assertThat(cursor.getServiceToken()).isEqualTo("newToken");
+        assertThat(cursor.getLastRepositoryName()).isEqualTo("repo");
+    }
+
+    @Test
+    void handleRequest_ResumesAfterExpiredToken() {
+        final DescribeRepositoriesResponse fromStart = DescribeRepositoriesResponse.builder()
+                .repositories(Repository.builder().repositoryName("a").build(),
+                        Repository.builder().repositoryName("b").build(),
+                        Repository.builder().repositoryName("c").build())
+                .build();
+
+        doThrow(InvalidParameterException.builder().message("expired token").build())
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(argThat((DescribeRepositoriesRequest r) -> "expired".equals(r.nextToken())), any());
+        doReturn(fromStart)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(argThat((DescribeRepositoriesRequest r) -> r.nextToken() == null), any());
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder().build())
+                .nextToken(new ListCursor("expired", "b").encode())
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModels()).containsExactly(ResourceModel.builder().repositoryName("c").build());
+        assertThat(response.getNextToken()).isNull();
+    }
+
+    @Test
+    void handleRequest_HydratedModels() {
+        final Repository repository = Repository.builder()
+                .repositoryName("repo")
+                .registryId("id")
+                .repositoryArn("arn")
+                .repositoryUri("uri")
+                .imageScanningConfiguration(ImageScanningConfiguration.builder().scanOnPush(false).build())
+                .imageTagMutability(ImageTagMutability.IMMUTABLE)
+                .build();
+
+        doReturn(DescribeRepositoriesResponse.builder()
+                .repositories(Collections.singletonList(repository))
+                .build())
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+        doReturn(GetRepositoryPolicyResponse.builder().repositoryName("repo").policyText("{\"foo\": \"bar\"}").registryId("id").build())
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(GetRepositoryPolicyRequest.class), any());
+        doThrow(LifecyclePolicyNotFoundException.class)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(GetLifecyclePolicyRequest.class), any());
+        doReturn(ListTagsForResourceResponse.builder()
+                .tags(Collections.singletonList(Tag.builder().key("key").value("value").build()))
+                .build())
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(ListTagsForResourceRequest.class), any());
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder().build())
+                .build();
+
+        final Map<String, Object> policyObject = new HashMap<>();
+        policyObject.put("foo", "bar");
+
+        final ResourceModel expectedModel = ResourceModel.builder()
+                .repositoryName("repo")
+                .repositoryPolicyText(policyObject)
+                .tags(Collections.singleton(software.amazon.ecr.repository.Tag.builder().key("key").value("value").build()))
+                .arn("arn")
+                .repositoryUri("uri")
+                .imageTagMutability("IMMUTABLE")
+                .imageScanningConfiguration(software.amazon.ecr.repository.ImageScanningConfiguration.builder().scanOnPush(false).build())
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                new ListHandler(true).handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModels()).containsExactly(expectedModel);
+        assertThat(response.getNextToken()).isNull();
+    }
+
+    @Test
+    void handleRequest_HydratedModelsSkipsDeletedRepository() {
+        final Repository repository = Repository.builder()
+                .repositoryName("repo")
+                .registryId("id")
+                .repositoryArn("arn")
+                .imageScanningConfiguration(ImageScanningConfiguration.builder().scanOnPush(false).build())
+                .imageTagMutability(ImageTagMutability.IMMUTABLE)
+                .build();
+
+        final AwsServiceException notFound = RepositoryNotFoundException.builder()
+                .awsErrorDetails(AwsErrorDetails.builder().errorMessage("gone").errorCode("RepositoryNotFoundException").build())
+                .build();
+
+        doReturn(DescribeRepositoriesResponse.builder()
+                .repositories(Collections.singletonList(repository))
+                .build())
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+        doThrow(notFound)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(GetRepositoryPolicyRequest.class), any());
+        lenient().doThrow(notFound)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(GetLifecyclePolicyRequest.class), any());
+        lenient().doThrow(notFound)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(ListTagsForResourceRequest.class), any());
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder().build())
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                new ListHandler(true).handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModels()).isEmpty();
     }
 }
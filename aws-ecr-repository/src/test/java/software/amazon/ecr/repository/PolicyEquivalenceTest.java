@@ -0,0 +1,60 @@
+package software.amazon.ecr.repository;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PolicyEquivalenceTest {
+    private static final String POLICY = "{\"Version\":\"2012-10-17\",\"Statement\":[{\"Sid\":\"pull\",\"Effect\":\"Allow\","
+            + "\"Principal\":{\"AWS\":[\"arn:aws:iam::111111111111:root\",\"arn:aws:iam::222222222222:root\"]},"
+            + "\"Action\":[\"ecr:GetDownloadUrlForLayer\",\"ecr:BatchGetImage\"],"
+            + "\"Condition\":{\"StringEquals\":{\"aws:PrincipalOrgID\":\"o-abc\"}}},"
+            + "{\"Sid\":\"deny\",\"Effect\":\"Deny\",\"Principal\":\"*\",\"Action\":\"ecr:DeleteRepository\"}]}";
+
+    @Test
+    void equivalent_IgnoresOrderFormattingAndScalarLists() {
+        final PolicyEquivalence equivalence = new PolicyEquivalence();
+        final String rewritten = "{ \"Statement\": ["
+                + "{\"Action\":[\"ecr:DeleteRepository\"],\"Effect\":\"Deny\",\"Principal\":\"*\",\"Sid\":\"deny\"},\n"
+                + "{\"Condition\":{\"StringEquals\":{\"aws:PrincipalOrgID\":[\"o-abc\"]}},\"Sid\":\"pull\",\"Effect\":\"Allow\","
+                + "\"Action\":[\"ecr:BatchGetImage\",\"ecr:GetDownloadUrlForLayer\",\"ecr:BatchGetImage\"],"
+                + "\"Principal\":{\"AWS\":[\"arn:aws:iam::222222222222:root\",\"arn:aws:iam::111111111111:root\"]}}],"
+                + " \"Version\": \"2012-10-17\" }";
+
+        assertThat(equivalence.equivalent(POLICY, rewritten)).isTrue();
+        assertThat(equivalence.normalize(POLICY).getCanonicalText()).isEqualTo(equivalence.normalize(rewritten).getCanonicalText());
+    }
+
+    @Test
+    void equivalent_SeesRealChanges() {
+        final PolicyEquivalence equivalence = new PolicyEquivalence();
+
+        assertThat(equivalence.equivalent(POLICY, POLICY.replace("\"Deny\"", "\"Allow\""))).isFalse();
+        assertThat(equivalence.equivalent(POLICY, POLICY.replace("222222222222", "333333333333"))).isFalse();
+        assertThat(equivalence.equivalent(POLICY, POLICY.replace("\"o-abc\"", "[\"o-abc\",\"o-def\"]"))).isFalse();
+        assertThat(equivalence.equivalent(POLICY, null)).isFalse();
+    }
+
+    @Test
+    void equivalent_AcceptsParsedDocuments() {
+        final PolicyEquivalence equivalence = new PolicyEquivalence();
+        final Map<String, Object> parsed = equivalence.parse(POLICY);
+
+        assertThat(equivalence.equivalent(parsed, POLICY)).isTrue();
+    }
+
+    @Test
+    void parse_RepeatedTextIsNormalisedOnce() {
+        final PolicyEquivalence equivalence = new PolicyEquivalence();
+
+        final Map<String, Object> first = equivalence.parse(POLICY);
+        final Map<String, Object> second = equivalence.parse(POLICY);
+
+        assertThat(second).isSameAs(first);
+        assertThat(equivalence.misses()).isEqualTo(1);
+        assertThat(equivalence.hits()).isEqualTo(1);
+        assertThatThrownBy(() -> equivalence.parse("[]")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
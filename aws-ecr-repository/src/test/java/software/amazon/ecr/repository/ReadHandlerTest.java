@@ -17,12 +17,17 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+import software.amazon.cloudformation.exceptions.CfnGeneralServiceException;
 import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesRequest;
 import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesResponse;
 import software.amazon.awssdk.services.ecr.model.GetLifecyclePolicyRequest;
@@ -37,10 +42,15 @@ import software.amazon.awssdk.services.ecr.model.RepositoryNotFoundException;
 import software.amazon.awssdk.services.ecr.model.RepositoryPolicyNotFoundException;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class ReadHandlerTest extends AbstractTestBase {
@@ -56,6 +66,9 @@ class ReadHandlerTest extends AbstractTestBase {
 
     private ReadHandler handler;
 
+    private final AtomicLong clock = new AtomicLong();
+    private PermissionMemo permissionMemo;
+
     private final Repository repository = Repository.builder()
             .repositoryName("repo")
             .registryId("id")
@@ -88,7 +101,8 @@ class ReadHandlerTest extends AbstractTestBase {
 
     @BeforeEach
     public void setup() {
-        handler = new ReadHandler();
+        permissionMemo = new PermissionMemo(PermissionMemo.DEFAULT_TTL_MILLIS, clock::get);
+        handler = new ReadHandler(permissionMemo);
         ecr = mock(EcrClient.class);
         proxy = mock(AmazonWebServicesClientProxy.class);
         proxyEcrClient = MOCK_PROXY(proxy, ecr);
@@ -96,12 +110,7 @@ class ReadHandlerTest extends AbstractTestBase {
 
     @Test
     void handleRequest_SimpleSuccess() {
-        doReturn(describeRepositoriesResponse,
-                getRepositoryPolicyResponse,
-                getLifecyclePolicyResponse,
-                listTagsForResourceResponse)
-                .when(proxy)
-                .injectCredentialsAndInvokeV2(any(), any());
+        stubReadCalls(getRepositoryPolicyResponse);
 
         final ResourceModel model = ResourceModel.builder().build();
 
@@ -222,12 +231,7 @@ class ReadHandlerTest extends AbstractTestBase {
                 .registryId("id")
                 .build();
 
-        doReturn(describeRepositoriesResponse,
-                getRepositoryPolicyResponse,
-                getLifecyclePolicyResponse,
-                listTagsForResourceResponse)
-                .when(proxy)
-                .injectCredentialsAndInvokeV2(any(), any());
+        stubReadCalls(getRepositoryPolicyResponse);
 
         final ResourceModel model = ResourceModel.builder().build();
 
@@ -318,4 +322,124 @@ class ReadHandlerTest extends AbstractTestBase {
         assertThat(response.getErrorCode()).isNull();
         assertThat(response.getNextToken()).isNull();
     }
+
+    @Test
+    void handleRequest_AccessDeniedIsRememberedUntilItExpires() {
+        final EcrException exception = (EcrException) EcrException.builder()
+            .awsErrorDetails(AwsErrorDetails.builder().errorMessage("message").errorCode("AccessDeniedException").build())
+            .build();
+
+        doThrow(exception)
+            .when(proxy)
+            .injectCredentialsAndInvokeV2(any(GetRepositoryPolicyRequest.class), any());
+        doReturn(getLifecyclePolicyResponse)
+            .when(proxy)
+            .injectCredentialsAndInvokeV2(any(GetLifecyclePolicyRequest.class), any());
+        doReturn(listTagsForResourceResponse)
+            .when(proxy)
+            .injectCredentialsAndInvokeV2(any(ListTagsForResourceRequest.class), any());
+        doReturn(describeRepositoriesResponse)
+            .when(proxy)
+            .injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+            .desiredResourceState(ResourceModel.builder().build())
+            .awsAccountId("123456789012")
+            .stackId("stack")
+            .build();
+
+        handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+            handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel().getRepositoryPolicyText()).isNull();
+        assertThat(response.getResourceModel().getLifecyclePolicy()).isNotNull();
+        assertThat(permissionMemo.skippedCalls()).isEqualTo(1);
+        verify(proxy, times(1)).injectCredentialsAndInvokeV2(any(GetRepositoryPolicyRequest.class), any());
+        verify(proxy, times(2)).injectCredentialsAndInvokeV2(any(GetLifecyclePolicyRequest.class), any());
+
+        clock.addAndGet(PermissionMemo.DEFAULT_TTL_MILLIS);
+        handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        verify(proxy, times(2)).injectCredentialsAndInvokeV2(any(GetRepositoryPolicyRequest.class), any());
+        assertThat(permissionMemo.recordedDenials()).isEqualTo(2);
+    }
+
+    @Test
+    void handleRequest_SubResourcesReadConcurrently() {
+        // Each sub-resource read only returns once all three are in flight at the same time.
+        final CountDownLatch inFlight = new CountDownLatch(3);
+        final Answer<Object> awaitSiblings = invocation -> {
+            inFlight.countDown();
+            if (!inFlight.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("sub-resource reads were issued serially");
+            }
+            final Object request = invocation.getArgument(0);
+            if (request instanceof GetRepositoryPolicyRequest) return getRepositoryPolicyResponse;
+            if (request instanceof GetLifecyclePolicyRequest) return getLifecyclePolicyResponse;
+            return listTagsForResourceResponse;
+        };
+
+        doReturn(describeRepositoriesResponse)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+        doAnswer(awaitSiblings).when(proxy).injectCredentialsAndInvokeV2(any(GetRepositoryPolicyRequest.class), any());
+        doAnswer(awaitSiblings).when(proxy).injectCredentialsAndInvokeV2(any(GetLifecyclePolicyRequest.class), any());
+        doAnswer(awaitSiblings).when(proxy).injectCredentialsAndInvokeV2(any(ListTagsForResourceRequest.class), any());
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder().build())
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel().getLifecyclePolicy().getLifecyclePolicyText()).isEqualTo("policy");
+        assertThat(response.getResourceModel().getTags()).hasSize(1);
+    }
+
+    @Test
+    void handleRequest_SubResourceFailurePropagates() {
+        final EcrException exception = (EcrException) EcrException.builder()
+                .awsErrorDetails(AwsErrorDetails.builder().errorMessage("message").errorCode("ServerException").build())
+                .build();
+
+        doReturn(describeRepositoriesResponse)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+        doReturn(getRepositoryPolicyResponse)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(GetRepositoryPolicyRequest.class), any());
+        doThrow(exception)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(GetLifecyclePolicyRequest.class), any());
+        // The tags read may be cancelled before it starts once the lifecycle read has failed.
+        lenient().doReturn(listTagsForResourceResponse)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(ListTagsForResourceRequest.class), any());
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder().build())
+                .build();
+
+        assertThatThrownBy(() -> handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger))
+                .isInstanceOf(CfnGeneralServiceException.class);
+    }
+
+    private void stubReadCalls(final GetRepositoryPolicyResponse repositoryPolicyResponse) {
+        doReturn(describeRepositoriesResponse)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+        doReturn(repositoryPolicyResponse)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(GetRepositoryPolicyRequest.class), any());
+        doReturn(getLifecyclePolicyResponse)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(GetLifecyclePolicyRequest.class), any());
+        doReturn(listTagsForResourceResponse)
+                .when(proxy)
+                .injectCredentialsAndInvokeV2(any(ListTagsForResourceRequest.class), any());
+    }
 }
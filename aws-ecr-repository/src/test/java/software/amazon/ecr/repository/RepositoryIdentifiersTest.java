@@ -0,0 +1,38 @@
+package software.amazon.ecr.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RepositoryIdentifiersTest {
+
+    @Test
+    void derive_Commercial() {
+        final RepositoryIdentifiers identifiers = RepositoryIdentifiers.derive("aws", "us-east-1", "123456789012", null, "repo");
+
+        assertThat(identifiers.getArn()).isEqualTo("arn:aws:ecr:us-east-1:123456789012:repository/repo");
+        assertThat(identifiers.getRepositoryUri()).isEqualTo("123456789012.dkr.ecr.us-east-1.amazonaws.com/repo");
+    }
+
+    @Test
+    void derive_China() {
+        final RepositoryIdentifiers identifiers = RepositoryIdentifiers.derive("aws-cn", "cn-north-1", "123456789012", "123456789012", "team/repo");
+
+        assertThat(identifiers.getArn()).isEqualTo("arn:aws-cn:ecr:cn-north-1:123456789012:repository/team/repo");
+        assertThat(identifiers.getRepositoryUri()).isEqualTo("123456789012.dkr.ecr.cn-north-1.amazonaws.com.cn/team/repo");
+    }
+
+    @Test
+    void derive_IsoPartition() {
+        final RepositoryIdentifiers identifiers = RepositoryIdentifiers.derive("aws-iso-b", "us-isob-east-1", "123456789012", null, "repo");
+
+        assertThat(identifiers.getRepositoryUri()).isEqualTo("123456789012.dkr.ecr.us-isob-east-1.sc2s.sgov.gov/repo");
+    }
+
+    @Test
+    void derive_FallsBackForOtherRegistryOrUnknownPartition() {
+        assertThat(RepositoryIdentifiers.derive("aws", "us-east-1", "123456789012", "210987654321", "repo")).isNull();
+        assertThat(RepositoryIdentifiers.derive("aws-future", "xx-east-1", "123456789012", null, "repo")).isNull();
+        assertThat(RepositoryIdentifiers.derive(null, "us-east-1", "123456789012", null, "repo")).isNull();
+    }
+}
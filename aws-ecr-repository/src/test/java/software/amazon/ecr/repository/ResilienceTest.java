@@ -0,0 +1,161 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.CreateRepositoryRequest;
+import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesRequest;
+import software.amazon.awssdk.services.ecr.model.EcrException;
+import software.amazon.awssdk.services.ecr.model.LimitExceededException;
+import software.amazon.awssdk.services.ecr.model.ServerException;
+import software.amazon.cloudformation.exceptions.CfnThrottlingException;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResilienceTest {
+    private final List<Long> sleeps = new ArrayList<>();
+    private Resilience resilience;
+
+    @BeforeEach
+    void setup() {
+        // Waits nothing and always picks the longest delay, so the backoff bounds are visible.
+        resilience = new Resilience(sleeps::add, bound -> bound);
+    }
+
+    @Test
+    void classify_TellsFailuresApart() {
+        assertThat(Resilience.classify(error(400, "ThrottlingException"))).isEqualTo(Resilience.Failure.THROTTLING);
+        assertThat(Resilience.classify(LimitExceededException.builder().message("limit").build()))
+                .isEqualTo(Resilience.Failure.LIMIT_EXCEEDED);
+        assertThat(Resilience.classify(ServerException.builder().message("boom").build()))
+                .isEqualTo(Resilience.Failure.SERVER_ERROR);
+        assertThat(Resilience.classify(error(503, "ServiceUnavailable"))).isEqualTo(Resilience.Failure.SERVER_ERROR);
+        assertThat(Resilience.classify(error(409, "ConflictException"))).isEqualTo(Resilience.Failure.CONFLICT);
+        assertThat(Resilience.classify(error(403, "InvalidSignatureException"))).isEqualTo(Resilience.Failure.CLOCK_SKEW);
+        assertThat(Resilience.classify(error(400, "AccessDeniedException"))).isEqualTo(Resilience.Failure.OTHER);
+        assertThat(Resilience.toHandlerException(error(400, "ThrottlingException"))).isInstanceOf(CfnThrottlingException.class);
+    }
+
+    @Test
+    void call_RetriesThrottlingWithGrowingBackoff() {
+        final AtomicInteger calls = new AtomicInteger();
+
+        final String result = resilience.call("DescribeRepositories", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw error(400, "ThrottlingException");
+            }
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(sleeps).containsExactly(200L, 400L);
+        assertThat(resilience.retries()).isEqualTo(2);
+    }
+
+    @Test
+    void call_DoesNotRetryOtherFailures() {
+        final AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> resilience.call("CreateRepository", () -> {
+            calls.incrementAndGet();
+            throw error(400, "AccessDeniedException");
+        })).isInstanceOf(EcrException.class);
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(sleeps).isEmpty();
+    }
+
+    @Test
+    void call_RetriesBrokenConnections() {
+        final AtomicInteger calls = new AtomicInteger();
+
+        final String result = resilience.call("DescribeRepositories", () -> {
+            if (calls.incrementAndGet() < 2) {
+                throw SdkClientException.create("Unable to execute HTTP request", new IOException("Connection reset"));
+            }
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(resilience.retries()).isEqualTo(1);
+    }
+
+    @Test
+    void call_DoesNotRetryClientErrorsThatRecur() {
+        final AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> resilience.call("CreateRepository", () -> {
+            calls.incrementAndGet();
+            throw SdkClientException.create("Unable to load credentials");
+        })).isInstanceOf(SdkClientException.class);
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void call_StopsRetryingOnceTheBudgetIsSpent() {
+        final int retriesInBudget = Resilience.RETRY_BUDGET_TOKENS / Resilience.RETRY_COST;
+        final int failingCalls = retriesInBudget / (Resilience.MAX_ATTEMPTS - 1) + 2;
+        for (int i = 0; i < failingCalls; i++) {
+            assertThatThrownBy(() -> resilience.call("PutImage", () -> {
+                throw error(400, "ThrottlingException");
+            })).isInstanceOf(EcrException.class);
+        }
+
+        assertThat(resilience.retries()).isEqualTo(retriesInBudget);
+        // Other operations draw from budgets of their own.
+        assertThat(resilience.call("DescribeRepositories", () -> "ok")).isEqualTo("ok");
+    }
+
+    @Test
+    void wrap_RetriesEveryOperationOfTheClient() {
+        final FakeEcrClient ecr = new FakeEcrClient();
+        final EcrClient client = resilience.wrap(ecr);
+        client.createRepository(CreateRepositoryRequest.builder().repositoryName("repo").build());
+        ecr.throttleDescribes(2);
+
+        assertThat(client.describeRepositories(DescribeRepositoriesRequest.builder().build()).repositories()).hasSize(1);
+        assertThat(resilience.retries()).isEqualTo(2);
+        assertThat(client.serviceName()).isEqualTo(EcrClient.SERVICE_NAME);
+    }
+
+    @Test
+    void deferIfThrottled_CallsBackUntilTheLimit() {
+        final ResourceModel model = ResourceModel.builder().repositoryName("repo").build();
+        final CallbackContext context = new CallbackContext();
+        final ProgressEvent<ResourceModel, CallbackContext> throttled
+                = BaseHandlerStd.failed(HandlerErrorCode.Throttling, "Rate exceeded", model);
+
+        final ProgressEvent<ResourceModel, CallbackContext> first = resilience.deferIfThrottled(throttled, context, model);
+        assertThat(first.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(first.getCallbackDelaySeconds()).isEqualTo(2);
+        assertThat(first.getResourceModel()).isSameAs(model);
+
+        for (int i = 1; i < Resilience.MAX_THROTTLED_CALLBACKS; i++) {
+            assertThat(resilience.deferIfThrottled(throttled, context, model).getCallbackDelaySeconds())
+                    .isBetween(1, Resilience.MAX_CALLBACK_DELAY_SECONDS);
+        }
+        assertThat(resilience.deferIfThrottled(throttled, context, model)).isSameAs(throttled);
+
+        final ProgressEvent<ResourceModel, CallbackContext> other
+                = BaseHandlerStd.failed(HandlerErrorCode.GeneralServiceException, "boom", model);
+        assertThat(resilience.deferIfThrottled(other, new CallbackContext(), model)).isSameAs(other);
+    }
+
+    private static AwsServiceException error(final int status, final String code) {
+        return EcrException.builder()
+                .statusCode(status)
+                .message(code)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode(code).errorMessage(code).build())
+                .build();
+    }
+}
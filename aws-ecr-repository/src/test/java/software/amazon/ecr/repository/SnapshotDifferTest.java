@@ -0,0 +1,112 @@
+package software.amazon.ecr.repository;
+
+import software.amazon.awssdk.services.ecr.model.CreateRepositoryRequest;
+import software.amazon.awssdk.services.ecr.model.DeleteRepositoryRequest;
+import software.amazon.awssdk.services.ecr.model.ImageTagMutability;
+import software.amazon.awssdk.services.ecr.model.PutImageTagMutabilityRequest;
+import software.amazon.awssdk.services.ecr.model.PutLifecyclePolicyRequest;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnapshotDifferTest extends AbstractTestBase {
+    private FakeEcrClient ecr;
+    private SnapshotDiffer differ;
+
+    @BeforeEach
+    public void setup() {
+        ecr = new FakeEcrClient();
+        differ = new SnapshotDiffer(ecr, MOCK_CREDENTIALS, logger);
+        for (int i = 0; i < 120; i++) {
+            ecr.createRepository(CreateRepositoryRequest.builder().repositoryName(String.format("repo-%03d", i)).build());
+        }
+    }
+
+    @Test
+    void diffLive_FirstSnapshotAddsEveryRepository() {
+        final SnapshotDiffer.Result result = differ.diffLive(RegistrySnapshot.empty(), SnapshotDiffer.Depth.DESCRIBED);
+
+        assertThat(result.getChanges()).hasSize(120);
+        assertThat(result.getChanges()).allMatch(change -> change.getKind() == SnapshotDiffer.Kind.ADDED);
+        assertThat(result.getHydratedRepositories()).isEqualTo(120);
+        assertThat(result.getSnapshot().getEntries()).hasSize(120);
+    }
+
+    @Test
+    void diffLive_ReReadsOnlyRepositoriesWhoseFingerprintChanged() {
+        final RegistrySnapshot before = differ.diffLive(RegistrySnapshot.empty(), SnapshotDiffer.Depth.FULL).getSnapshot();
+        ecr.putImageTagMutability(PutImageTagMutabilityRequest.builder()
+                .repositoryName("repo-010").imageTagMutability(ImageTagMutability.IMMUTABLE).build());
+        ecr.deleteRepository(DeleteRepositoryRequest.builder().repositoryName("repo-011").build());
+        ecr.createRepository(CreateRepositoryRequest.builder().repositoryName("repo-new").build());
+
+        final SnapshotDiffer.Result result = differ.diffLive(before, SnapshotDiffer.Depth.DESCRIBED);
+
+        assertThat(result.getHydratedRepositories()).isEqualTo(2);
+        assertThat(result.getChanges()).extracting(Object::toString)
+                .containsExactly("repo-010 MODIFIED [ImageTagMutability]", "repo-011 REMOVED", "repo-new ADDED");
+    }
+
+    @Test
+    void diffLive_PolicyChangesNeedAFullRead() {
+        final RegistrySnapshot before = differ.diffLive(RegistrySnapshot.empty(), SnapshotDiffer.Depth.FULL).getSnapshot();
+        ecr.putLifecyclePolicy(PutLifecyclePolicyRequest.builder().repositoryName("repo-020").lifecyclePolicyText(LIFECYCLE_POLICY_TEXT).build());
+
+        assertThat(differ.diffLive(before, SnapshotDiffer.Depth.DESCRIBED).getChanges()).isEmpty();
+
+        final SnapshotDiffer.Result full = differ.diffLive(before, SnapshotDiffer.Depth.FULL);
+        assertThat(full.getHydratedRepositories()).isEqualTo(120);
+        assertThat(full.getChanges()).extracting(Object::toString).containsExactly("repo-020 MODIFIED [LifecyclePolicy]");
+    }
+
+    @Test
+    void write_RoundTripsThroughTheLineFormat() throws IOException {
+        final RegistrySnapshot snapshot = differ.diffLive(RegistrySnapshot.empty(), SnapshotDiffer.Depth.FULL).getSnapshot();
+        final StringWriter out = new StringWriter();
+
+        snapshot.write(out);
+        final RegistrySnapshot read = RegistrySnapshot.read(new BufferedReader(new StringReader(out.toString())));
+
+        assertThat(read.getEntries()).isEqualTo(snapshot.getEntries());
+        assertThat(SnapshotDiffer.diff(snapshot, read)).isEmpty();
+    }
+
+    @Test
+    void propertyHashes_IgnoreOrderAndFormatting() {
+        final Map<String, Object> statement = new HashMap<>();
+        statement.put("Effect", "Allow");
+        statement.put("Action", "ecr:*");
+        final Map<String, Object> policy = new HashMap<>();
+        policy.put("Version", "2012-10-17");
+        policy.put("Statement", Arrays.asList(statement));
+
+        final ResourceModel first = ResourceModel.builder()
+                .repositoryName("repo")
+                .repositoryPolicyText(policy)
+                .tags(new LinkedHashSet<>(Arrays.asList(tag("a", "1"), tag("b", "2"))))
+                .build();
+        final ResourceModel second = ResourceModel.builder()
+                .repositoryName("repo")
+                .repositoryPolicyText("{ \"Statement\": [ {\"Action\": \"ecr:*\", \"Effect\": \"Allow\"} ],\n \"Version\": \"2012-10-17\" }")
+                .tags(new LinkedHashSet<>(Arrays.asList(tag("b", "2"), tag("a", "1"))))
+                .build();
+
+        assertThat(RegistrySnapshot.propertyHashes(first)).isEqualTo(RegistrySnapshot.propertyHashes(second));
+        final List<String> hashed = Arrays.asList(RegistrySnapshot.propertyHashes(first).keySet().toArray(new String[0]));
+        assertThat(hashed).containsExactly("RepositoryPolicyText", "Tags");
+    }
+
+    private static Tag tag(final String key, final String value) {
+        return Tag.builder().key(key).value(value).build();
+    }
+}
@@ -0,0 +1,26 @@
+package software.amazon.ecr.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StabilizationTest {
+
+    @Test
+    void delaySeconds_DoublesFromTheBaseDelay() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(Stabilization.delaySeconds(1)).isBetween(1, 2);
+            assertThat(Stabilization.delaySeconds(2)).isBetween(2, 4);
+            assertThat(Stabilization.delaySeconds(3)).isBetween(4, 8);
+        }
+    }
+
+    @Test
+    void delaySeconds_IsCappedForLateAttempts() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(Stabilization.delaySeconds(Stabilization.MAX_ATTEMPTS))
+                    .isBetween(Stabilization.MAX_DELAY_SECONDS / 2, Stabilization.MAX_DELAY_SECONDS);
+            assertThat(Stabilization.delaySeconds(Integer.MAX_VALUE)).isLessThanOrEqualTo(Stabilization.MAX_DELAY_SECONDS);
+        }
+    }
+}
@@ -39,8 +39,10 @@ import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -55,12 +57,16 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class UpdateHandlerTest extends AbstractTestBase {
 
-    @Mock
     private AmazonWebServicesClientProxy proxy;
 
     @Mock
@@ -113,9 +119,28 @@ class UpdateHandlerTest extends AbstractTestBase {
             .repositoryName("repo")
             .build();
 
+    private static ResourceModel previousModelWithPolicies() {
+        final Map<String, Object> repositoryPolicy = new HashMap<>();
+        repositoryPolicy.put("Version", "2012-10-17");
+        repositoryPolicy.put("Statement", Collections.emptyList());
+
+        return ResourceModel.builder()
+                .repositoryName("repo")
+                .repositoryPolicyText(repositoryPolicy)
+                .lifecyclePolicy(LifecyclePolicy.builder()
+                        .lifecyclePolicyText("{\"rules\":[]}")
+                        .build())
+                .imageTagMutability("IMMUTABLE")
+                .imageScanningConfiguration(software.amazon.ecr.repository.ImageScanningConfiguration.builder()
+                        .scanOnPush(true)
+                        .build())
+                .build();
+    }
+
     @BeforeEach
     public void setup() {
         handler = new UpdateHandler();
+        proxy = spy(new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis()));
         proxyEcrClient = MOCK_PROXY(proxy, ecr);
     }
 
@@ -145,7 +170,7 @@ class UpdateHandlerTest extends AbstractTestBase {
         doReturn(putImageScanningConfigurationResponse).when(proxy).injectCredentialsAndInvokeV2(any(PutImageScanningConfigurationRequest.class), any());
 
         final LifecyclePolicy lifecyclePolicy = LifecyclePolicy.builder()
-                .lifecyclePolicyText("policy")
+                .lifecyclePolicyText(LIFECYCLE_POLICY_TEXT)
                 .registryId("id")
                 .build();
         final Map<String, Object> repositoryPolicy = new HashMap<>();
@@ -198,15 +223,16 @@ class UpdateHandlerTest extends AbstractTestBase {
         doReturn(deleteRepositoryPolicyResponse).when(proxy).injectCredentialsAndInvokeV2(any(DeleteRepositoryPolicyRequest.class), any());
         doReturn(deleteLifecyclePolicyResponse).when(proxy).injectCredentialsAndInvokeV2(any(DeleteLifecyclePolicyRequest.class), any());
         doReturn(describeRepositoriesResponse).when(proxy).injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
-        doReturn(listTagsForResourceResponse).when(proxy).injectCredentialsAndInvokeV2(any(ListTagsForResourceRequest.class), any());
+        doReturn(untagResourceResponse).when(proxy).injectCredentialsAndInvokeV2(any(UntagResourceRequest.class), any());
 
         final ResourceModel model = ResourceModel.builder()
                 .repositoryName("repo")
                 .build();
 
         final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
-                .previousResourceState(previousModel)
+                .previousResourceState(previousModelWithPolicies())
                 .desiredResourceState(model)
+                .previousResourceTags(Collections.singletonMap("key", "value"))
                 .build();
 
         final ProgressEvent<ResourceModel, CallbackContext> response
@@ -233,9 +259,6 @@ class UpdateHandlerTest extends AbstractTestBase {
         doThrow(LifecyclePolicyNotFoundException.class)
                 .when(proxy)
                 .injectCredentialsAndInvokeV2(any(GetLifecyclePolicyRequest.class), any());
-        doReturn(listTagsForResourceResponse)
-                .when(proxy)
-                .injectCredentialsAndInvokeV2(any(ListTagsForResourceRequest.class), any());
 
         final ResourceModel model = ResourceModel.builder()
                 .repositoryName("repo")
@@ -243,7 +266,7 @@ class UpdateHandlerTest extends AbstractTestBase {
 
         final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
                 .desiredResourceState(model)
-                .previousResourceState(previousModel)
+                .previousResourceState(previousModelWithPolicies())
                 .build();
 
         final ProgressEvent<ResourceModel, CallbackContext> response
@@ -259,6 +282,202 @@ class UpdateHandlerTest extends AbstractTestBase {
         assertThat(response.getErrorCode()).isNull();
     }
 
+    @Test
+    void handleRequest_UnchangedPropertiesAreNotApplied() {
+        doReturn(describeRepositoriesResponse).when(proxy).injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+
+        final Map<String, Object> reorderedPolicy = new LinkedHashMap<>();
+        reorderedPolicy.put("Statement", Collections.emptyList());
+        reorderedPolicy.put("Version", "2012-10-17");
+
+        final ResourceModel model = previousModelWithPolicies();
+        model.setRepositoryPolicyText(reorderedPolicy);
+        model.setLifecyclePolicy(LifecyclePolicy.builder()
+                .lifecyclePolicyText("{ \"rules\": [] }")
+                .build());
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .previousResourceState(previousModelWithPolicies())
+                .previousResourceTags(Collections.singletonMap("key", "value"))
+                .desiredResourceTags(Collections.singletonMap("key", "value"))
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel().getArn()).isEqualTo("arn");
+        verify(proxy, times(1)).injectCredentialsAndInvokeV2(any(), any());
+    }
+
+    @Test
+    void handleRequest_EquivalentPolicyIsNotRewritten() {
+        doReturn(describeRepositoriesResponse).when(proxy).injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+
+        final Map<String, Object> pull = new HashMap<>();
+        pull.put("Effect", "Allow");
+        pull.put("Principal", Collections.singletonMap("AWS", "arn:aws:iam::123456789012:root"));
+        pull.put("Action", "ecr:BatchGetImage");
+        final Map<String, Object> push = new HashMap<>();
+        push.put("Effect", "Allow");
+        push.put("Principal", "*");
+        push.put("Action", ImmutableList.of("ecr:PutImage", "ecr:InitiateLayerUpload"));
+        final Map<String, Object> repositoryPolicy = new HashMap<>();
+        repositoryPolicy.put("Version", "2012-10-17");
+        repositoryPolicy.put("Statement", ImmutableList.of(pull, push));
+
+        final ResourceModel previous = previousModelWithPolicies();
+        previous.setRepositoryPolicyText(repositoryPolicy);
+        final ResourceModel model = previousModelWithPolicies();
+        model.setRepositoryPolicyText("{\"Version\":\"2012-10-17\",\"Statement\":["
+                + "{\"Effect\":\"Allow\",\"Principal\":\"*\",\"Action\":[\"ecr:InitiateLayerUpload\",\"ecr:PutImage\"]},"
+                + "{\"Effect\":\"Allow\",\"Principal\":{\"AWS\":[\"arn:aws:iam::123456789012:root\"]},\"Action\":[\"ecr:BatchGetImage\"]}]}");
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .previousResourceState(previous)
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        verify(proxy, never()).injectCredentialsAndInvokeV2(any(SetRepositoryPolicyRequest.class), any());
+    }
+
+    @Test
+    void handleRequest_TagOnlyChange() {
+        doReturn(describeRepositoriesResponse).when(proxy).injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+        doReturn(listTagsForResourceResponse).when(proxy).injectCredentialsAndInvokeV2(any(ListTagsForResourceRequest.class), any());
+        doReturn(tagResourceResponse).when(proxy).injectCredentialsAndInvokeV2(any(TagResourceRequest.class), any());
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(previousModelWithPolicies())
+                .previousResourceState(previousModelWithPolicies())
+                .desiredResourceTags(Collections.singletonMap("key", "value"))
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        verify(proxy, never()).injectCredentialsAndInvokeV2(any(SetRepositoryPolicyRequest.class), any());
+        verify(proxy, never()).injectCredentialsAndInvokeV2(any(PutLifecyclePolicyRequest.class), any());
+        verify(proxy, never()).injectCredentialsAndInvokeV2(any(PutImageTagMutabilityRequest.class), any());
+        verify(proxy, never()).injectCredentialsAndInvokeV2(any(PutImageScanningConfigurationRequest.class), any());
+    }
+
+    @Test
+    void handleRequest_TagValueChangeIsSingleOverwrite() {
+        final Map<String, String> previousTags = new HashMap<>();
+        previousTags.put("key1", "val1");
+        previousTags.put("key2", "val2");
+        final Map<String, String> desiredTags = new HashMap<>();
+        desiredTags.put("key1", "val1");
+        desiredTags.put("key2", "val2updated");
+
+        doReturn(describeRepositoriesResponse).when(proxy).injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+        doReturn(tagResourceResponse).when(proxy).injectCredentialsAndInvokeV2(any(TagResourceRequest.class), any());
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(previousModelWithPolicies())
+                .previousResourceState(previousModelWithPolicies())
+                .previousResourceTags(previousTags)
+                .desiredResourceTags(desiredTags)
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        verify(proxy).injectCredentialsAndInvokeV2(
+                eq(Translator.tagResourceRequest(Collections.singletonList(
+                        software.amazon.awssdk.services.ecr.model.Tag.builder().key("key2").value("val2updated").build()), "arn")),
+                any());
+        verify(proxy, never()).injectCredentialsAndInvokeV2(any(ListTagsForResourceRequest.class), any());
+        verify(proxy, never()).injectCredentialsAndInvokeV2(any(UntagResourceRequest.class), any());
+    }
+
+    @Test
+    void handleRequest_LargeTagChangesAreSplit() {
+        final Map<String, String> desiredTags = new HashMap<>();
+        for (int i = 0; i < TagReconciler.MAX_TAGS_PER_CALL + 1; i++) {
+            desiredTags.put("key" + i, "val" + i);
+        }
+
+        doReturn(describeRepositoriesResponse).when(proxy).injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+        doReturn(tagResourceResponse).when(proxy).injectCredentialsAndInvokeV2(any(TagResourceRequest.class), any());
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(previousModelWithPolicies())
+                .previousResourceState(previousModelWithPolicies())
+                .previousResourceTags(Collections.singletonMap("aws:cloudformation:stack-name", "stack"))
+                .desiredResourceTags(desiredTags)
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        verify(proxy, times(2)).injectCredentialsAndInvokeV2(any(TagResourceRequest.class), any());
+        verify(proxy, never()).injectCredentialsAndInvokeV2(any(UntagResourceRequest.class), any());
+    }
+
+    @Test
+    void handleRequest_DerivesIdentifiersWithoutDescribe() {
+        doReturn(putImageTagMutabilityResponse).when(proxy).injectCredentialsAndInvokeV2(any(PutImageTagMutabilityRequest.class), any());
+
+        final ResourceModel model = previousModelWithPolicies();
+        model.setImageTagMutability("MUTABLE");
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .previousResourceState(previousModelWithPolicies())
+                .awsPartition("aws")
+                .region("us-west-2")
+                .awsAccountId("123456789012")
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel().getArn()).isEqualTo("arn:aws:ecr:us-west-2:123456789012:repository/repo");
+        assertThat(response.getResourceModel().getRepositoryUri()).isEqualTo("123456789012.dkr.ecr.us-west-2.amazonaws.com/repo");
+        verify(proxy, never()).injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+    }
+
+    @Test
+    void handleRequest_ResumesAtFirstUnfinishedStep() {
+        doReturn(tagResourceResponse).when(proxy).injectCredentialsAndInvokeV2(any(TagResourceRequest.class), any());
+
+        final ResourceModel model = previousModelWithPolicies();
+        model.setImageTagMutability("MUTABLE");
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .previousResourceState(previousModelWithPolicies())
+                .previousResourceTags(Collections.emptyMap())
+                .desiredResourceTags(Collections.singletonMap("key", "val"))
+                .build();
+
+        final CallbackContext context = new CallbackContext();
+        for (final String step : ImmutableList.of("RepositoryPolicy", "LifecyclePolicy", "ImageTagMutability", "ImageScanningConfiguration", "Identifiers")) {
+            context.markCompleted(step);
+        }
+        context.setRepositoryArn("arn");
+        context.setRepositoryUri("uri");
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = handler.handleRequest(proxy, request, context, proxyEcrClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel().getArn()).isEqualTo("arn");
+        verify(proxy, times(1)).injectCredentialsAndInvokeV2(any(), any());
+        verify(proxy).injectCredentialsAndInvokeV2(any(TagResourceRequest.class), any());
+    }
+
     @Test
     void handleRequest_RepoNotFound() {
         doThrow(RepositoryNotFoundException.class)
@@ -282,6 +501,36 @@ class UpdateHandlerTest extends AbstractTestBase {
         assertThat(response.getErrorCode()).isEqualTo(HandlerErrorCode.NotFound);
     }
 
+    @Test
+    void handleRequest_MissingPreviousStateAppliesEverySetting() {
+        doReturn(describeRepositoriesResponse).when(proxy).injectCredentialsAndInvokeV2(any(DescribeRepositoriesRequest.class), any());
+        doReturn(listTagsForResourceResponse).when(proxy).injectCredentialsAndInvokeV2(any(ListTagsForResourceRequest.class), any());
+        doReturn(deleteRepositoryPolicyResponse).when(proxy).injectCredentialsAndInvokeV2(any(DeleteRepositoryPolicyRequest.class), any());
+        doReturn(deleteLifecyclePolicyResponse).when(proxy).injectCredentialsAndInvokeV2(any(DeleteLifecyclePolicyRequest.class), any());
+        doReturn(untagResourceResponse).when(proxy).injectCredentialsAndInvokeV2(any(UntagResourceRequest.class), any());
+        doReturn(tagResourceResponse).when(proxy).injectCredentialsAndInvokeV2(any(TagResourceRequest.class), any());
+        doReturn(putImageTagMutabilityResponse).when(proxy).injectCredentialsAndInvokeV2(any(PutImageTagMutabilityRequest.class), any());
+
+        final ResourceModel model = ResourceModel.builder()
+                .repositoryName("repo")
+                .imageTagMutability("IMMUTABLE")
+                .encryptionConfiguration(software.amazon.ecr.repository.EncryptionConfiguration.builder()
+                        .encryptionType("KMS")
+                        .build())
+                .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler
+                .handleRequest(proxy, request, new CallbackContext(), proxyEcrClient, logger);
+
+        assertThat(response).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        verify(proxy).injectCredentialsAndInvokeV2(any(PutImageTagMutabilityRequest.class), any());
+    }
+
     @Test
     void handleRequest_ChangeEncryptionConfigurations() {
         final ResourceModel model = ResourceModel.builder()
@@ -0,0 +1,365 @@
+package software.amazon.ecr.repositorygroup;
+
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesResponse;
+import software.amazon.awssdk.services.ecr.model.Repository;
+import software.amazon.awssdk.services.ecr.model.RepositoryAlreadyExistsException;
+import software.amazon.awssdk.services.ecr.model.RepositoryNotFoundException;
+import software.amazon.cloudformation.exceptions.BaseHandlerException;
+import software.amazon.cloudformation.exceptions.CfnAlreadyExistsException;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
+import software.amazon.cloudformation.proxy.Logger;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import software.amazon.ecr.repository.ApiCallMetrics;
+import software.amazon.ecr.repository.ClientBuilder;
+import software.amazon.ecr.repository.ConcurrencyLimiter;
+import software.amazon.ecr.repository.Resilience;
+import software.amazon.ecr.repository.TimeBudget;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static software.amazon.ecr.repository.Translator.createRepositoryRequest;
+import static software.amazon.ecr.repository.Translator.deleteRepositoryRequest;
+import static software.amazon.ecr.repository.Translator.describeRepositoriesRequest;
+import static software.amazon.ecr.repository.Translator.listTagsForResourceRequest;
+import static software.amazon.ecr.repository.Translator.putLifecyclePolicyRequest;
+import static software.amazon.ecr.repository.Translator.setRepositoryPolicyRequest;
+
+public abstract class BaseHandlerStd extends BaseHandler<CallbackContext> {
+  static {
+    // Handlers are constructed while the container initialises, ahead of its first request.
+    ClientBuilder.primeIfEnabled();
+  }
+
+  static final int CHECKPOINT_CALLBACK_DELAY_SECONDS = 1;
+  static final String DISCOVER_MEMBERS = "DiscoverMembers";
+  // DescribeRepositories returns at most this many repositories per page.
+  static final int MAX_REPOSITORIES_PER_PAGE = 1000;
+
+  private final Supplier<TimeBudget> budgets;
+  private final int memberConcurrency;
+
+  protected BaseHandlerStd() {
+    this(TimeBudget::start, MemberBatches.DEFAULT_CONCURRENCY);
+  }
+
+  BaseHandlerStd(final Supplier<TimeBudget> budgets, final int memberConcurrency) {
+    this.budgets = budgets;
+    this.memberConcurrency = memberConcurrency;
+  }
+
+  /**
+   * Starts the time budget of one invocation.
+   */
+  protected TimeBudget startBudget() {
+    return budgets.get();
+  }
+
+  @Override
+  public final ProgressEvent<ResourceModel, CallbackContext> handleRequest(
+    final AmazonWebServicesClientProxy proxy,
+    final ResourceHandlerRequest<ResourceModel> request,
+    final CallbackContext callbackContext,
+    final Logger logger) {
+    final CallbackContext context = callbackContext != null ? callbackContext : new CallbackContext();
+    final ApiCallMetrics metrics = new ApiCallMetrics(ResourceModel.TYPE_NAME, action());
+    final ProgressEvent<ResourceModel, CallbackContext> event;
+    try {
+      event = handleRequest(
+        proxy,
+        request,
+        context,
+        proxy.newProxy(() -> metrics.instrument(ClientBuilder.getClient())),
+        logger
+      );
+    } finally {
+      // Published however the handler ends, so invocations that throw are measured too.
+      metrics.flush(logger);
+      logger.log(ClientBuilder.describeCache());
+      ConcurrencyLimiter.shared().metricLines(ResourceModel.TYPE_NAME, System.currentTimeMillis()).forEach(logger::log);
+    }
+    if (!defersThrottling()) {
+      return event;
+    }
+    return Resilience.shared().deferIfThrottled(event, context, request.getDesiredResourceState());
+  }
+
+  protected abstract ProgressEvent<ResourceModel, CallbackContext> handleRequest(
+    final AmazonWebServicesClientProxy proxy,
+    final ResourceHandlerRequest<ResourceModel> request,
+    final CallbackContext callbackContext,
+    final ProxyClient<EcrClient> proxyClient,
+    final Logger logger);
+
+  /**
+   * Whether the handler turns a throttled invocation into a callback. Read and List have to answer
+   * within the invocation, so they fail instead.
+   */
+  boolean defersThrottling() {
+    return true;
+  }
+
+  /**
+   * The handler's action as metrics name it, such as Create for the CreateHandler.
+   */
+  String action() {
+    return getClass().getSimpleName().replace("Handler", "");
+  }
+
+  /**
+   * Runs a journaled phase that applies the action to every member. A phase a previous invocation
+   * finished is skipped; one the budget cuts short returns IN_PROGRESS and resumes at the first
+   * member it had not reached.
+   */
+  ProgressEvent<ResourceModel, CallbackContext> phase(
+    final String name,
+    final ProgressEvent<ResourceModel, CallbackContext> progress,
+    final TimeBudget budget,
+    final Logger logger,
+    final List<String> members,
+    final Consumer<String> action) {
+    if (!progress.isInProgress() || progress.getCallbackDelaySeconds() > 0) {
+      return progress;
+    }
+    final CallbackContext context = progress.getCallbackContext();
+    if (context.hasCompleted(name)) {
+      return progress;
+    }
+    final boolean finished;
+    try {
+      finished = MemberBatches.run(members, context, budget, memberConcurrency, action);
+    } catch (final RuntimeException e) {
+      return handleError(e, progress.getResourceModel());
+    }
+    if (!finished) {
+      logger.log(String.format("%s [%s] %s checkpointed at member %d of %d",
+        ResourceModel.TYPE_NAME, progress.getResourceModel().getGroupName(), name, context.getNextMemberIndex(), members.size()));
+      return ProgressEvent.defaultInProgressHandler(context, CHECKPOINT_CALLBACK_DELAY_SECONDS, progress.getResourceModel());
+    }
+    logger.log(String.format("%s [%s] %s done for %d members",
+      ResourceModel.TYPE_NAME, progress.getResourceModel().getGroupName(), name, members.size()));
+    context.markCompleted(name);
+    return progress;
+  }
+
+  /**
+   * Finds the group's members, the repositories in its namespace that carry its marker tag, and adds
+   * them to the context's discovered members. Repositories created in the namespace by anyone else
+   * are left out. The registry is listed a page at a time, and the tags of a page's namespaced
+   * repositories are read in parallel batches. The page token and the position within the page are
+   * kept in the context, so a walk the budget cuts short resumes where it stopped.
+   *
+   * @return true once the whole registry has been walked, false if the budget ran out first
+   */
+  boolean discoverMembers(
+    final AmazonWebServicesClientProxy proxy,
+    final ProxyClient<EcrClient> proxyClient,
+    final String groupName,
+    final CallbackContext context,
+    final TimeBudget budget) {
+    if (context.hasCompleted(DISCOVER_MEMBERS)) {
+      return true;
+    }
+    do {
+      if (budget.remainingMillis() < MemberBatches.BATCH_RESERVE_MILLIS) {
+        return false;
+      }
+      final DescribeRepositoriesResponse page = proxy.injectCredentialsAndInvokeV2(
+        describeRepositoriesRequest(context.getDiscoveryToken(), MAX_REPOSITORIES_PER_PAGE),
+        proxyClient.client()::describeRepositories);
+      if (!findMarked(proxy, proxyClient, groupName, namespaced(groupName, page.repositories()), context, budget)) {
+        return false;
+      }
+      context.setDiscoveryToken(page.nextToken());
+      context.setNextMemberIndex(0);
+    } while (context.getDiscoveryToken() != null);
+    context.markCompleted(DISCOVER_MEMBERS);
+    return true;
+  }
+
+  /**
+   * Reads the tags of the given repositories, from the context's position on, and adds the ones
+   * carrying the group's marker to the context's discovered members. Each read takes a permit from
+   * the shared concurrency limit like any other call.
+   *
+   * @param repositories the candidates keyed by their name relative to the group
+   * @return true once every candidate has been read, false if the budget ran out first
+   */
+  boolean findMarked(
+    final AmazonWebServicesClientProxy proxy,
+    final ProxyClient<EcrClient> proxyClient,
+    final String groupName,
+    final SortedMap<String, Repository> repositories,
+    final CallbackContext context,
+    final TimeBudget budget) {
+    final Set<String> discovered = context.getDiscoveredMembers();
+    return MemberBatches.run(new ArrayList<>(repositories.keySet()), context, budget, memberConcurrency, member -> {
+      if (hasMarker(proxy, proxyClient, groupName, repositories.get(member).repositoryArn())) {
+        synchronized (discovered) {
+          discovered.add(member);
+        }
+      }
+    });
+  }
+
+  /**
+   * Whether the repository carries the marker tag that the group's Create and Update put on its members.
+   */
+  static boolean hasMarker(
+    final AmazonWebServicesClientProxy proxy,
+    final ProxyClient<EcrClient> proxyClient,
+    final String groupName,
+    final String repositoryArn) {
+    final Map<String, String> tags = Translator.tagMap(proxy.injectCredentialsAndInvokeV2(
+      listTagsForResourceRequest(repositoryArn),
+      proxyClient.client()::listTagsForResource).tags());
+    return groupName.equals(tags.get(Translator.GROUP_TAG_KEY));
+  }
+
+  /**
+   * Lists every repository in the group's namespace, keyed by its name relative to the group.
+   */
+  static SortedMap<String, Repository> listNamespace(
+    final AmazonWebServicesClientProxy proxy,
+    final ProxyClient<EcrClient> proxyClient,
+    final String groupName) {
+    final SortedMap<String, Repository> members = new TreeMap<>();
+    String nextToken = null;
+    do {
+      final DescribeRepositoriesResponse page = proxy.injectCredentialsAndInvokeV2(
+        describeRepositoriesRequest(nextToken, MAX_REPOSITORIES_PER_PAGE),
+        proxyClient.client()::describeRepositories);
+      members.putAll(namespaced(groupName, page.repositories()));
+      nextToken = page.nextToken();
+    } while (nextToken != null);
+    return members;
+  }
+
+  private static SortedMap<String, Repository> namespaced(final String groupName, final List<Repository> repositories) {
+    final SortedMap<String, Repository> members = new TreeMap<>();
+    for (final Repository repository : repositories) {
+      final String member = Translator.relativeName(groupName, repository.repositoryName());
+      if (member != null) {
+        members.put(member, repository);
+      }
+    }
+    return members;
+  }
+
+  /**
+   * Creates one member with the group's settings. A member that already exists is taken over only if
+   * it carries this group's marker tag, which is the case when an earlier attempt created it but did
+   * not get to record its progress.
+   */
+  static void createMember(
+    final AmazonWebServicesClientProxy proxy,
+    final ProxyClient<EcrClient> proxyClient,
+    final ResourceModel group,
+    final String member,
+    final Map<String, String> groupTags) {
+    final software.amazon.ecr.repository.ResourceModel model = Translator.memberModel(group, member);
+    try {
+      proxy.injectCredentialsAndInvokeV2(
+        createRepositoryRequest(model, Translator.memberTags(group.getGroupName(), groupTags)),
+        proxyClient.client()::createRepository);
+    } catch (final RepositoryAlreadyExistsException e) {
+      final Repository existing = proxy.injectCredentialsAndInvokeV2(
+        describeRepositoriesRequest(model),
+        proxyClient.client()::describeRepositories).repositories().get(0);
+      if (!hasMarker(proxy, proxyClient, group.getGroupName(), existing.repositoryArn())) {
+        throw new CfnAlreadyExistsException("AWS::ECR::Repository", model.getRepositoryName());
+      }
+    }
+    if (group.getLifecyclePolicy() != null) {
+      proxy.injectCredentialsAndInvokeV2(putLifecyclePolicyRequest(model),
+        proxyClient.client()::putLifecyclePolicy);
+    }
+    if (group.getRepositoryPolicyText() != null) {
+      proxy.injectCredentialsAndInvokeV2(setRepositoryPolicyRequest(model),
+        proxyClient.client()::setRepositoryPolicy);
+    }
+  }
+
+  /**
+   * Deletes one member; a member that is already gone counts as deleted.
+   */
+  static void deleteMember(
+    final AmazonWebServicesClientProxy proxy,
+    final ProxyClient<EcrClient> proxyClient,
+    final ResourceModel group,
+    final String member) {
+    try {
+      proxy.injectCredentialsAndInvokeV2(
+        deleteRepositoryRequest(Translator.memberModel(group, member)),
+        proxyClient.client()::deleteRepository);
+    } catch (final RepositoryNotFoundException e) {
+      // deleted by an earlier attempt
+    }
+  }
+
+  static List<String> sorted(final Iterable<String> members) {
+    final List<String> sorted = new ArrayList<>();
+    if (members != null) {
+      members.forEach(sorted::add);
+    }
+    sorted.sort(null);
+    return sorted;
+  }
+
+  /**
+   * Ends the handler once every phase has run. A checkpoint taken along the way is returned as is.
+   */
+  static ProgressEvent<ResourceModel, CallbackContext> success(
+    final ProgressEvent<ResourceModel, CallbackContext> progress,
+    final ResourceModel model) {
+    if (!progress.isInProgress() || progress.getCallbackDelaySeconds() > 0) {
+      return progress;
+    }
+    return ProgressEvent.<ResourceModel, CallbackContext>builder()
+      .resourceModel(model)
+      .status(OperationStatus.SUCCESS)
+      .build();
+  }
+
+  /**
+   * Maps a failed call to the event the handler returns, using the error codes CloudFormation
+   * expects for a missing or already existing resource and the class of any other service error.
+   */
+  static ProgressEvent<ResourceModel, CallbackContext> handleError(final Exception e, final ResourceModel model) {
+    final HandlerErrorCode errorCode;
+    if (e instanceof RepositoryNotFoundException) {
+      errorCode = HandlerErrorCode.NotFound;
+    } else if (e instanceof RepositoryAlreadyExistsException) {
+      errorCode = HandlerErrorCode.AlreadyExists;
+    } else if (e instanceof BaseHandlerException) {
+      errorCode = ((BaseHandlerException) e).getErrorCode();
+    } else if (e instanceof AwsServiceException) {
+      errorCode = Resilience.classify((AwsServiceException) e).getErrorCode();
+    } else {
+      errorCode = HandlerErrorCode.InternalFailure;
+    }
+    return failed(errorCode, e.getMessage(), model);
+  }
+
+  static ProgressEvent<ResourceModel, CallbackContext> failed(final HandlerErrorCode errorCode,
+                                                               final String message,
+                                                               final ResourceModel model) {
+    return ProgressEvent.<ResourceModel, CallbackContext>builder()
+      .resourceModel(model)
+      .status(OperationStatus.FAILED)
+      .errorCode(errorCode)
+      .message(message)
+      .build();
+  }
+}
@@ -0,0 +1,34 @@
+package software.amazon.ecr.repositorygroup;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import software.amazon.cloudformation.proxy.StdCallbackContext;
+import software.amazon.ecr.repository.Resilience;
+
+/**
+ * Carries a handler's progress between invocations: the phases already finished and, within the
+ * phase in progress, the index of the first member not yet handled. Members are always walked in
+ * sorted order, so the index means the same thing in every invocation. While members are being
+ * discovered, it holds the token of the registry page being read and the members found so far. It
+ * also counts the callbacks taken to wait out throttling.
+ */
+@lombok.Getter
+@lombok.Setter
+@lombok.ToString
+@lombok.EqualsAndHashCode(callSuper = true)
+public class CallbackContext extends StdCallbackContext implements Resilience.ThrottledCallbacks {
+    private Set<String> completedPhases = new LinkedHashSet<>();
+    private int nextMemberIndex;
+    private String discoveryToken;
+    private Set<String> discoveredMembers = new LinkedHashSet<>();
+    private int throttledCallbacks;
+
+    boolean hasCompleted(final String phase) {
+        return completedPhases.contains(phase);
+    }
+
+    void markCompleted(final String phase) {
+        completedPhases.add(phase);
+        nextMemberIndex = 0;
+    }
+}
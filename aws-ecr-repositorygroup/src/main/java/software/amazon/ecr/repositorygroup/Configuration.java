@@ -0,0 +1,29 @@
+package software.amazon.ecr.repositorygroup;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+class Configuration extends BaseConfiguration {
+
+    public Configuration() {
+        super("aws-ecr-repositorygroup.json");
+    }
+
+    public JSONObject resourceSchemaJSONObject() {
+        return new JSONObject(new JSONTokener(this.getClass().getClassLoader().getResourceAsStream(schemaFilename)));
+    }
+
+    /**
+     * Providers should implement this method if their resource has a 'Tags' property to define resource-level tags
+     * @return
+     */
+    public Map<String, String> resourceDefinedTags(final ResourceModel resourceModel) {
+        if (resourceModel.getTags() == null) {
+            return null;
+        } else {
+            return resourceModel.getTags().stream().collect(Collectors.toMap(Tag::getKey, Tag::getValue, (value1, value2) -> value2));
+        }
+    }
+}
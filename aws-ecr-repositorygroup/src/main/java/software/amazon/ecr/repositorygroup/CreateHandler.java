@@ -0,0 +1,67 @@
+package software.amazon.ecr.repositorygroup;
+
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.cloudformation.exceptions.CfnAlreadyExistsException;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Logger;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import software.amazon.ecr.repository.TimeBudget;
+import java.util.List;
+import java.util.function.Supplier;
+
+public class CreateHandler extends BaseHandlerStd {
+    private static final String CHECK_NAMESPACE = "CheckNamespace";
+
+    public CreateHandler() {
+        super();
+    }
+
+    CreateHandler(final Supplier<TimeBudget> budgets, final int memberConcurrency) {
+        super(budgets, memberConcurrency);
+    }
+
+    protected ProgressEvent<ResourceModel, CallbackContext> handleRequest(
+        final AmazonWebServicesClientProxy proxy,
+        final ResourceHandlerRequest<ResourceModel> request,
+        final CallbackContext callbackContext,
+        final ProxyClient<EcrClient> proxyClient,
+        final Logger logger) {
+
+        final TimeBudget budget = startBudget();
+        final ResourceModel model = request.getDesiredResourceState();
+        final List<String> members = sorted(model.getRepositoryNames());
+
+        return ProgressEvent.progress(model, callbackContext)
+                .then(progress -> checkNamespace(proxy, proxyClient, progress))
+                .then(progress -> phase("CreateMembers", progress, budget, logger, members, member ->
+                        createMember(proxy, proxyClient, model, member, request.getDesiredResourceTags())))
+                .then(progress -> success(progress, model));
+    }
+
+    /**
+     * A group owns its namespace, so it is only created where no repository exists under it yet.
+     */
+    private ProgressEvent<ResourceModel, CallbackContext> checkNamespace(
+            final AmazonWebServicesClientProxy proxy,
+            final ProxyClient<EcrClient> proxyClient,
+            final ProgressEvent<ResourceModel, CallbackContext> progress) {
+
+        final CallbackContext context = progress.getCallbackContext();
+        if (context.hasCompleted(CHECK_NAMESPACE)) {
+            return progress;
+        }
+        final ResourceModel model = progress.getResourceModel();
+        try {
+            if (!listNamespace(proxy, proxyClient, model.getGroupName()).isEmpty()) {
+                return handleError(new CfnAlreadyExistsException(ResourceModel.TYPE_NAME, model.getGroupName()), model);
+            }
+        } catch (final AwsServiceException e) {
+            return handleError(e, model);
+        }
+        context.markCompleted(CHECK_NAMESPACE);
+        return progress;
+    }
+}
@@ -0,0 +1,76 @@
+package software.amazon.ecr.repositorygroup;
+
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.cloudformation.exceptions.CfnNotFoundException;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Logger;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import software.amazon.ecr.repository.TimeBudget;
+import java.util.function.Supplier;
+
+/**
+ * Deletes the group's members, the repositories in its namespace that carry its marker tag. Members
+ * are discovered first and kept in the callback context. Discovery and the deletes both checkpoint,
+ * so a group of thousands of members is deleted across as many invocations as it needs.
+ */
+public class DeleteHandler extends BaseHandlerStd {
+
+    public DeleteHandler() {
+        super();
+    }
+
+    DeleteHandler(final Supplier<TimeBudget> budgets, final int memberConcurrency) {
+        super(budgets, memberConcurrency);
+    }
+
+    protected ProgressEvent<ResourceModel, CallbackContext> handleRequest(
+        final AmazonWebServicesClientProxy proxy,
+        final ResourceHandlerRequest<ResourceModel> request,
+        final CallbackContext callbackContext,
+        final ProxyClient<EcrClient> proxyClient,
+        final Logger logger) {
+
+        final TimeBudget budget = startBudget();
+        final ResourceModel model = request.getDesiredResourceState();
+
+        return ProgressEvent.progress(model, callbackContext)
+                .then(progress -> discover(proxy, proxyClient, progress, budget, logger))
+                .then(progress -> phase("DeleteMembers", progress, budget, logger,
+                        sorted(callbackContext.getDiscoveredMembers()), member ->
+                                deleteMember(proxy, proxyClient, model, member)))
+                .then(progress -> success(progress, null));
+    }
+
+    /**
+     * Discovers the members, checkpointing when the budget runs out. A group without members is not
+     * found; once discovered, the members stay in the context, so the walk over them can tell a group
+     * an earlier invocation emptied from a missing one.
+     */
+    private ProgressEvent<ResourceModel, CallbackContext> discover(
+            final AmazonWebServicesClientProxy proxy,
+            final ProxyClient<EcrClient> proxyClient,
+            final ProgressEvent<ResourceModel, CallbackContext> progress,
+            final TimeBudget budget,
+            final Logger logger) {
+
+        final ResourceModel model = progress.getResourceModel();
+        final CallbackContext context = progress.getCallbackContext();
+        final boolean finished;
+        try {
+            finished = discoverMembers(proxy, proxyClient, model.getGroupName(), context, budget);
+        } catch (final RuntimeException e) {
+            return handleError(e, model);
+        }
+        if (!finished) {
+            logger.log(String.format("%s [%s] %s checkpointed with %d members found",
+                    ResourceModel.TYPE_NAME, model.getGroupName(), DISCOVER_MEMBERS, context.getDiscoveredMembers().size()));
+            return ProgressEvent.defaultInProgressHandler(context, CHECKPOINT_CALLBACK_DELAY_SECONDS, model);
+        }
+        if (context.getDiscoveredMembers().isEmpty()) {
+            return handleError(new CfnNotFoundException(ResourceModel.TYPE_NAME, model.getGroupName()), model);
+        }
+        return progress;
+    }
+}
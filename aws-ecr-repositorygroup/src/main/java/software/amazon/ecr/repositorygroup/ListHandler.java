@@ -0,0 +1,77 @@
+package software.amazon.ecr.repositorygroup;
+
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesResponse;
+import software.amazon.awssdk.services.ecr.model.Repository;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Logger;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static software.amazon.ecr.repository.Translator.describeRepositoriesRequest;
+import static software.amazon.ecr.repository.Translator.listTagsForResourceRequest;
+
+/**
+ * Finds groups through the marker tag their members carry. Repositories are visited in name order
+ * and only one member per group has its tags read: once a group is known, the rest of its namespace
+ * is skipped.
+ */
+public class ListHandler extends BaseHandlerStd {
+
+    protected ProgressEvent<ResourceModel, CallbackContext> handleRequest(
+        final AmazonWebServicesClientProxy proxy,
+        final ResourceHandlerRequest<ResourceModel> request,
+        final CallbackContext callbackContext,
+        final ProxyClient<EcrClient> proxyClient,
+        final Logger logger) {
+
+        final List<Repository> repositories = new ArrayList<>();
+        String nextToken = null;
+        do {
+            final DescribeRepositoriesResponse page = proxy.injectCredentialsAndInvokeV2(
+                    describeRepositoriesRequest(nextToken, MAX_REPOSITORIES_PER_PAGE),
+                    proxyClient.client()::describeRepositories);
+            for (final Repository repository : page.repositories()) {
+                if (repository.repositoryName().indexOf('/') > 0) {
+                    repositories.add(repository);
+                }
+            }
+            nextToken = page.nextToken();
+        } while (nextToken != null);
+        // Sorted, a group's members are adjacent, so comparing against the last group found is enough.
+        repositories.sort((a, b) -> a.repositoryName().compareTo(b.repositoryName()));
+
+        final List<String> groups = new ArrayList<>();
+        for (final Repository repository : repositories) {
+            if (!groups.isEmpty() && Translator.relativeName(groups.get(groups.size() - 1), repository.repositoryName()) != null) {
+                continue;
+            }
+            final String groupName = Translator.tagMap(proxy.injectCredentialsAndInvokeV2(
+                    listTagsForResourceRequest(repository.repositoryArn()),
+                    proxyClient.client()::listTagsForResource).tags()).get(Translator.GROUP_TAG_KEY);
+            if (groupName != null && Translator.relativeName(groupName, repository.repositoryName()) != null
+                    && !groups.contains(groupName)) {
+                groups.add(groupName);
+            }
+        }
+        logger.log(String.format("%s listed %d groups from %d namespaced repositories",
+                ResourceModel.TYPE_NAME, groups.size(), repositories.size()));
+
+        return ProgressEvent.<ResourceModel, CallbackContext>builder()
+                .resourceModels(groups.stream()
+                        .map(groupName -> ResourceModel.builder().groupName(groupName).build())
+                        .collect(Collectors.toList()))
+                .status(OperationStatus.SUCCESS)
+                .build();
+    }
+
+    @Override
+    boolean defersThrottling() {
+        return false;
+    }
+}
@@ -0,0 +1,90 @@
+package software.amazon.ecr.repositorygroup;
+
+import software.amazon.cloudformation.exceptions.CfnInternalFailureException;
+import software.amazon.ecr.repository.TimeBudget;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Applies one action to many members, a batch at a time with the members of a batch in parallel.
+ * The position is written to the callback context after every batch, and no batch is started
+ * without enough budget left to finish it, so a phase over thousands of members runs across as many
+ * invocations as it needs.
+ */
+final class MemberBatches {
+    static final int DEFAULT_CONCURRENCY = 10;
+    // Time a batch is assumed to need; a member is a few sequential calls.
+    static final long BATCH_RESERVE_MILLIS = 15_000L;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    // Lives for the lifetime of the container so warm invocations reuse its threads.
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "ecr-member-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private MemberBatches() {
+    }
+
+    /**
+     * @param members the phase's members, in sorted order
+     * @return true once every member has been handled, false if the budget ran out first
+     * @throws RuntimeException the first failure of a batch, once the whole batch has finished; the
+     *         batch is not checkpointed, so it is retried in full
+     */
+    static boolean run(final List<String> members,
+                       final CallbackContext context,
+                       final TimeBudget budget,
+                       final int concurrency,
+                       final Consumer<String> action) {
+        while (context.getNextMemberIndex() < members.size()) {
+            if (budget.remainingMillis() < BATCH_RESERVE_MILLIS) {
+                return false;
+            }
+            final int from = context.getNextMemberIndex();
+            final List<String> batch = members.subList(from, Math.min(members.size(), from + concurrency));
+            final List<CompletableFuture<Void>> calls = new ArrayList<>();
+            for (final String member : batch) {
+                calls.add(CompletableFuture.runAsync(() -> action.accept(member), EXECUTOR));
+            }
+
+            RuntimeException failure = null;
+            for (final CompletableFuture<Void> call : calls) {
+                try {
+                    call.join();
+                } catch (final CompletionException e) {
+                    final RuntimeException cause = unwrap(e);
+                    if (failure == null) {
+                        failure = cause;
+                    } else {
+                        failure.addSuppressed(cause);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            context.setNextMemberIndex(from + batch.size());
+        }
+        return true;
+    }
+
+    private static RuntimeException unwrap(final CompletionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new CfnInternalFailureException(cause);
+    }
+}
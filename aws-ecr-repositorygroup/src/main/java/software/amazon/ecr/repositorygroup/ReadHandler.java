@@ -0,0 +1,117 @@
+package software.amazon.ecr.repositorygroup;
+
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.GetLifecyclePolicyResponse;
+import software.amazon.awssdk.services.ecr.model.LifecyclePolicyNotFoundException;
+import software.amazon.awssdk.services.ecr.model.Repository;
+import software.amazon.awssdk.services.ecr.model.RepositoryPolicyNotFoundException;
+import software.amazon.cloudformation.exceptions.CfnNotFoundException;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
+import software.amazon.cloudformation.proxy.Logger;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import software.amazon.ecr.repository.TimeBudget;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeSet;
+
+import static software.amazon.ecr.repository.Translator.getLifecyclePolicyRequest;
+import static software.amazon.ecr.repository.Translator.getRepositoryPolicyRequest;
+import static software.amazon.ecr.repository.Translator.listTagsForResourceRequest;
+
+/**
+ * Reads the group from its members. When the model names the members, as it does for a stack's
+ * resource, the namespace listing is narrowed to them without reading any member's tags; the marker
+ * is checked on the one member the settings are read from. Given only the group name, the members
+ * are found by their marker tags, read in parallel within the invocation's budget.
+ */
+public class ReadHandler extends BaseHandlerStd {
+
+    protected ProgressEvent<ResourceModel, CallbackContext> handleRequest(
+        final AmazonWebServicesClientProxy proxy,
+        final ResourceHandlerRequest<ResourceModel> request,
+        final CallbackContext callbackContext,
+        final ProxyClient<EcrClient> proxyClient,
+        final Logger logger) {
+
+        final TimeBudget budget = startBudget();
+        final ResourceModel model = request.getDesiredResourceState();
+        final String groupName = model.getGroupName();
+        try {
+            final SortedMap<String, Repository> members = listNamespace(proxy, proxyClient, groupName);
+            if (model.getRepositoryNames() != null && !model.getRepositoryNames().isEmpty()) {
+                members.keySet().retainAll(model.getRepositoryNames());
+            } else {
+                final CallbackContext discovery = new CallbackContext();
+                if (!findMarked(proxy, proxyClient, groupName, members, discovery, budget)) {
+                    return failed(HandlerErrorCode.GeneralServiceException, String.format(
+                            "The members of %s could not all be found within the time budget", groupName), model);
+                }
+                members.keySet().retainAll(discovery.getDiscoveredMembers());
+            }
+            final ResourceModel resourceModel = members.isEmpty() ? null : readSharedSettings(proxy, proxyClient, groupName, members);
+            if (resourceModel == null) {
+                return handleError(new CfnNotFoundException(ResourceModel.TYPE_NAME, groupName), model);
+            }
+            logger.log(String.format("%s [%s] Read Successful, %d members", ResourceModel.TYPE_NAME, groupName, members.size()));
+            return ProgressEvent.<ResourceModel, CallbackContext>builder()
+                    .resourceModel(resourceModel)
+                    .status(OperationStatus.SUCCESS)
+                    .build();
+        } catch (final AwsServiceException e) {
+            return handleError(e, model);
+        }
+    }
+
+    /**
+     * Members share every setting, so the settings are read from the first member only; a member
+     * changed outside the group shows up as drift of that member, not of the group.
+     *
+     * @return the group, or null if the first member does not carry the group's marker
+     */
+    private static ResourceModel readSharedSettings(final AmazonWebServicesClientProxy proxy,
+                                                    final ProxyClient<EcrClient> proxyClient,
+                                                    final String groupName,
+                                                    final SortedMap<String, Repository> members) {
+        final Repository sample = members.get(members.firstKey());
+        final Map<String, String> tags = Translator.tagMap(proxy.injectCredentialsAndInvokeV2(
+                listTagsForResourceRequest(sample.repositoryArn()),
+                proxyClient.client()::listTagsForResource).tags());
+        if (!groupName.equals(tags.get(Translator.GROUP_TAG_KEY))) {
+            return null;
+        }
+
+        String repositoryPolicyText = null;
+        try {
+            repositoryPolicyText = proxy.injectCredentialsAndInvokeV2(
+                    getRepositoryPolicyRequest(sample.repositoryName(), sample.registryId()),
+                    proxyClient.client()::getRepositoryPolicy).policyText();
+        } catch (final RepositoryPolicyNotFoundException e) {
+            // RepositoryPolicyText is not required so it might not exist
+        }
+
+        String lifecyclePolicyText = null;
+        String lifecycleRegistryId = null;
+        try {
+            final GetLifecyclePolicyResponse lifecyclePolicy = proxy.injectCredentialsAndInvokeV2(
+                    getLifecyclePolicyRequest(sample.repositoryName(), sample.registryId()),
+                    proxyClient.client()::getLifecyclePolicy);
+            lifecyclePolicyText = lifecyclePolicy.lifecyclePolicyText();
+            lifecycleRegistryId = lifecyclePolicy.registryId();
+        } catch (final LifecyclePolicyNotFoundException e) {
+            // LifecyclePolicy is not required so it might not exist
+        }
+
+        return Translator.toResourceModel(groupName, new TreeSet<>(members.keySet()), sample,
+                repositoryPolicyText, lifecyclePolicyText, lifecycleRegistryId, tags);
+    }
+
+    @Override
+    boolean defersThrottling() {
+        return false;
+    }
+}
@@ -0,0 +1,127 @@
+package software.amazon.ecr.repositorygroup;
+
+import software.amazon.awssdk.services.ecr.model.Repository;
+import software.amazon.cloudformation.exceptions.CfnInternalFailureException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static software.amazon.ecr.repository.Translator.MAPPER;
+
+/**
+ * Turns the group into the repository models of its members. Requests for a member are built by the
+ * AWS::ECR::Repository resource's {@link software.amazon.ecr.repository.Translator} from that model,
+ * so a member is created and configured exactly as a standalone repository would be.
+ */
+public class Translator {
+    // Marks a repository as created by a group; a retried create only adopts repositories carrying it.
+    static final String GROUP_TAG_KEY = "cloudformation:ecr-repositorygroup:group";
+
+    static String memberName(final String groupName, final String member) {
+        return groupName + "/" + member;
+    }
+
+    /**
+     * @return the name relative to the group, or null if the repository is outside the group's namespace
+     */
+    static String relativeName(final String groupName, final String repositoryName) {
+        final String prefix = groupName + "/";
+        return repositoryName.startsWith(prefix) ? repositoryName.substring(prefix.length()) : null;
+    }
+
+    static software.amazon.ecr.repository.ResourceModel memberModel(final ResourceModel group, final String member) {
+        final software.amazon.ecr.repository.ResourceModel.ResourceModelBuilder model = software.amazon.ecr.repository.ResourceModel.builder()
+                .repositoryName(memberName(group.getGroupName(), member))
+                .repositoryPolicyText(group.getRepositoryPolicyText())
+                .imageTagMutability(group.getImageTagMutability())
+                .emptyOnDelete(group.getEmptyOnDelete());
+        if (group.getLifecyclePolicy() != null) {
+            model.lifecyclePolicy(software.amazon.ecr.repository.LifecyclePolicy.builder()
+                    .lifecyclePolicyText(group.getLifecyclePolicy().getLifecyclePolicyText())
+                    .registryId(group.getLifecyclePolicy().getRegistryId())
+                    .build());
+        }
+        if (group.getImageScanningConfiguration() != null) {
+            model.imageScanningConfiguration(software.amazon.ecr.repository.ImageScanningConfiguration.builder()
+                    .scanOnPush(group.getImageScanningConfiguration().getScanOnPush())
+                    .build());
+        }
+        if (group.getEncryptionConfiguration() != null) {
+            model.encryptionConfiguration(software.amazon.ecr.repository.EncryptionConfiguration.builder()
+                    .encryptionType(group.getEncryptionConfiguration().getEncryptionType())
+                    .kmsKey(group.getEncryptionConfiguration().getKmsKey())
+                    .build());
+        }
+        return model.build();
+    }
+
+    /**
+     * The tags every member carries: the group's tags plus the marker naming the group.
+     */
+    static Map<String, String> memberTags(final String groupName, final Map<String, String> groupTags) {
+        final Map<String, String> tags = groupTags == null ? new HashMap<>() : new HashMap<>(groupTags);
+        tags.put(GROUP_TAG_KEY, groupName);
+        return tags;
+    }
+
+    static Map<String, String> tagMap(final List<software.amazon.awssdk.services.ecr.model.Tag> tags) {
+        final Map<String, String> map = new HashMap<>();
+        tags.forEach(tag -> map.put(tag.key(), tag.value()));
+        return map;
+    }
+
+    /**
+     * Builds the group model from its members and the settings read from one of them; members share
+     * every setting, so any one stands for all.
+     */
+    static ResourceModel toResourceModel(final String groupName,
+                                         final Set<String> members,
+                                         final Repository sample,
+                                         final String repositoryPolicyText,
+                                         final String lifecyclePolicyText,
+                                         final String lifecycleRegistryId,
+                                         final Map<String, String> tags) {
+        EncryptionConfiguration encryptionConfiguration = null;
+        if (sample.encryptionConfiguration() != null) {
+            encryptionConfiguration = EncryptionConfiguration.builder()
+                    .encryptionType(sample.encryptionConfiguration().encryptionTypeAsString())
+                    .kmsKey(sample.encryptionConfiguration().kmsKey())
+                    .build();
+        }
+        final Set<Tag> groupTags = tags.entrySet().stream()
+                .filter(entry -> !GROUP_TAG_KEY.equals(entry.getKey()))
+                .map(entry -> Tag.builder().key(entry.getKey()).value(entry.getValue()).build())
+                .collect(Collectors.toSet());
+
+        return ResourceModel.builder()
+                .groupName(groupName)
+                .repositoryNames(members)
+                .repositoryPolicyText(deserializePolicyText(repositoryPolicyText))
+                .lifecyclePolicy(lifecyclePolicyText == null ? null : LifecyclePolicy.builder()
+                        .lifecyclePolicyText(lifecyclePolicyText)
+                        .registryId(lifecycleRegistryId)
+                        .build())
+                .imageTagMutability(sample.imageTagMutabilityAsString())
+                .imageScanningConfiguration(sample.imageScanningConfiguration() == null ? null : ImageScanningConfiguration.builder()
+                        .scanOnPush(sample.imageScanningConfiguration().scanOnPush())
+                        .build())
+                .encryptionConfiguration(encryptionConfiguration)
+                .tags(groupTags)
+                .build();
+    }
+
+    private static Map<String, Object> deserializePolicyText(final String policyText) {
+        if (policyText == null) {
+            return null;
+        }
+        try {
+            return MAPPER.readValue(policyText, new TypeReference<HashMap<String, Object>>() {});
+        } catch (final IOException e) {
+            throw new CfnInternalFailureException(e);
+        }
+    }
+}
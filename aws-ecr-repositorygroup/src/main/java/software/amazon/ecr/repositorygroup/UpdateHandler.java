@@ -0,0 +1,200 @@
+package software.amazon.ecr.repositorygroup;
+
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.LifecyclePolicyNotFoundException;
+import software.amazon.awssdk.services.ecr.model.RepositoryPolicyNotFoundException;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
+import software.amazon.cloudformation.proxy.Logger;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import software.amazon.ecr.repository.RepositoryIdentifiers;
+import software.amazon.ecr.repository.TimeBudget;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static software.amazon.ecr.repository.Translator.deleteLifecyclePolicyRequest;
+import static software.amazon.ecr.repository.Translator.deleteRepositoryPolicyRequest;
+import static software.amazon.ecr.repository.Translator.describeRepositoriesRequest;
+import static software.amazon.ecr.repository.Translator.putImageScanningConfigurationRequest;
+import static software.amazon.ecr.repository.Translator.putImageTagMutabilityRequest;
+import static software.amazon.ecr.repository.Translator.putLifecyclePolicyRequest;
+import static software.amazon.ecr.repository.Translator.setRepositoryPolicyRequest;
+import static software.amazon.ecr.repository.Translator.tagResourceRequest;
+import static software.amazon.ecr.repository.Translator.translateTagsToSdk;
+import static software.amazon.ecr.repository.Translator.untagResourceRequest;
+
+/**
+ * Removes members no longer listed, creates new ones, then brings the members that stay to the
+ * group's new settings. Only the settings that changed are written, so a change that only adds
+ * members makes no calls against the existing ones. Without a previous state, every listed member is
+ * treated as new: the create adopts the members already carrying the group's marker.
+ */
+public class UpdateHandler extends BaseHandlerStd {
+
+    public UpdateHandler() {
+        super();
+    }
+
+    UpdateHandler(final Supplier<TimeBudget> budgets, final int memberConcurrency) {
+        super(budgets, memberConcurrency);
+    }
+
+    protected ProgressEvent<ResourceModel, CallbackContext> handleRequest(
+        final AmazonWebServicesClientProxy proxy,
+        final ResourceHandlerRequest<ResourceModel> request,
+        final CallbackContext callbackContext,
+        final ProxyClient<EcrClient> proxyClient,
+        final Logger logger) {
+
+        final TimeBudget budget = startBudget();
+        final ResourceModel model = request.getDesiredResourceState();
+        final ResourceModel previousModel = request.getPreviousResourceState() == null
+                ? ResourceModel.builder().encryptionConfiguration(model.getEncryptionConfiguration()).build()
+                : request.getPreviousResourceState();
+        if (!Objects.equals(model.getEncryptionConfiguration(), previousModel.getEncryptionConfiguration())) {
+            return failed(HandlerErrorCode.NotUpdatable,
+                    "The encryption settings cannot be changed after the repositories are created.", model);
+        }
+
+        final List<String> desired = sorted(model.getRepositoryNames());
+        final List<String> previous = sorted(previousModel.getRepositoryNames());
+        final List<String> removed = previous.stream().filter(member -> !desired.contains(member)).collect(Collectors.toList());
+        final List<String> added = desired.stream().filter(member -> !previous.contains(member)).collect(Collectors.toList());
+        final List<String> retained = new ArrayList<>(desired);
+        retained.retainAll(previous);
+
+        final Map<String, String> previousTags = orEmpty(request.getPreviousResourceTags());
+        final Map<String, String> desiredTags = orEmpty(request.getDesiredResourceTags());
+        final boolean settingsChanged = !sameSettings(previousModel, model) || !previousTags.equals(desiredTags);
+        logger.log(String.format("%s [%s] Update plan: %d removed, %d added, %d retained%s", ResourceModel.TYPE_NAME,
+                model.getGroupName(), removed.size(), added.size(), retained.size(), settingsChanged ? " with new settings" : ""));
+
+        return ProgressEvent.progress(model, callbackContext)
+                .then(progress -> phase("DeleteRemovedMembers", progress, budget, logger, removed, member ->
+                        deleteMember(proxy, proxyClient, previousModel, member)))
+                .then(progress -> phase("CreateAddedMembers", progress, budget, logger, added, member ->
+                        createMember(proxy, proxyClient, model, member, desiredTags)))
+                .then(progress -> phase("UpdateRetainedMembers", progress, budget, logger,
+                        settingsChanged ? retained : Collections.emptyList(), member ->
+                                updateMember(proxy, proxyClient, request, previousModel, model, member, previousTags, desiredTags)))
+                .then(progress -> success(progress, model));
+    }
+
+    private static void updateMember(final AmazonWebServicesClientProxy proxy,
+                                     final ProxyClient<EcrClient> proxyClient,
+                                     final ResourceHandlerRequest<ResourceModel> request,
+                                     final ResourceModel previousGroup,
+                                     final ResourceModel group,
+                                     final String member,
+                                     final Map<String, String> previousTags,
+                                     final Map<String, String> desiredTags) {
+        final software.amazon.ecr.repository.ResourceModel model = Translator.memberModel(group, member);
+
+        if (!Objects.equals(previousGroup.getRepositoryPolicyText(), group.getRepositoryPolicyText())) {
+            if (group.getRepositoryPolicyText() != null) {
+                proxy.injectCredentialsAndInvokeV2(setRepositoryPolicyRequest(model),
+                        proxyClient.client()::setRepositoryPolicy);
+            } else {
+                try {
+                    proxy.injectCredentialsAndInvokeV2(deleteRepositoryPolicyRequest(model),
+                            proxyClient.client()::deleteRepositoryPolicy);
+                } catch (final RepositoryPolicyNotFoundException e) {
+                    // there's no policy to delete
+                }
+            }
+        }
+
+        if (!Objects.equals(previousGroup.getLifecyclePolicy(), group.getLifecyclePolicy())) {
+            if (group.getLifecyclePolicy() != null) {
+                proxy.injectCredentialsAndInvokeV2(putLifecyclePolicyRequest(model),
+                        proxyClient.client()::putLifecyclePolicy);
+            } else {
+                try {
+                    proxy.injectCredentialsAndInvokeV2(deleteLifecyclePolicyRequest(model),
+                            proxyClient.client()::deleteLifecyclePolicy);
+                } catch (final LifecyclePolicyNotFoundException e) {
+                    // there's no policy to delete
+                }
+            }
+        }
+
+        if (group.getImageTagMutability() != null
+                && !group.getImageTagMutability().equals(previousGroup.getImageTagMutability())) {
+            proxy.injectCredentialsAndInvokeV2(putImageTagMutabilityRequest(model, null),
+                    proxyClient.client()::putImageTagMutability);
+        }
+
+        if (group.getImageScanningConfiguration() != null
+                && !group.getImageScanningConfiguration().equals(previousGroup.getImageScanningConfiguration())) {
+            proxy.injectCredentialsAndInvokeV2(putImageScanningConfigurationRequest(model, null),
+                    proxyClient.client()::putImageScanningConfiguration);
+        }
+
+        if (!previousTags.equals(desiredTags)) {
+            updateTags(proxy, proxyClient, memberArn(proxy, proxyClient, request, model.getRepositoryName()), previousTags, desiredTags);
+        }
+    }
+
+    private static void updateTags(final AmazonWebServicesClientProxy proxy,
+                                   final ProxyClient<EcrClient> proxyClient,
+                                   final String arn,
+                                   final Map<String, String> previousTags,
+                                   final Map<String, String> desiredTags) {
+        final List<String> keysToRemove = previousTags.keySet().stream()
+                .filter(key -> !desiredTags.containsKey(key))
+                .collect(Collectors.toList());
+        final Map<String, String> tagsToApply = desiredTags.entrySet().stream()
+                .filter(entry -> !entry.getValue().equals(previousTags.get(entry.getKey())))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+
+        if (!keysToRemove.isEmpty()) {
+            proxy.injectCredentialsAndInvokeV2(untagResourceRequest(keysToRemove, arn),
+                    proxyClient.client()::untagResource);
+        }
+        if (!tagsToApply.isEmpty()) {
+            proxy.injectCredentialsAndInvokeV2(
+                    tagResourceRequest(
+                            translateTagsToSdk(tagsToApply), arn),
+                    proxyClient.client()::tagResource);
+        }
+    }
+
+    /**
+     * Tag calls address the repository by ARN. Members live in the caller's registry, so the ARN is
+     * derived from the request; only when that is not possible is it read back from the service.
+     */
+    private static String memberArn(final AmazonWebServicesClientProxy proxy,
+                                    final ProxyClient<EcrClient> proxyClient,
+                                    final ResourceHandlerRequest<ResourceModel> request,
+                                    final String repositoryName) {
+        final RepositoryIdentifiers identifiers = RepositoryIdentifiers.derive(
+                request.getAwsPartition(), request.getRegion(), request.getAwsAccountId(), null, repositoryName);
+        if (identifiers != null) {
+            return identifiers.getArn();
+        }
+        return proxy.injectCredentialsAndInvokeV2(
+                describeRepositoriesRequest(
+                        software.amazon.ecr.repository.ResourceModel.builder().repositoryName(repositoryName).build()),
+                proxyClient.client()::describeRepositories).repositories().get(0).repositoryArn();
+    }
+
+    private static boolean sameSettings(final ResourceModel previous, final ResourceModel desired) {
+        return Objects.equals(previous.getRepositoryPolicyText(), desired.getRepositoryPolicyText())
+                && Objects.equals(previous.getLifecyclePolicy(), desired.getLifecyclePolicy())
+                && (desired.getImageTagMutability() == null || desired.getImageTagMutability().equals(previous.getImageTagMutability()))
+                && (desired.getImageScanningConfiguration() == null
+                        || desired.getImageScanningConfiguration().equals(previous.getImageScanningConfiguration()));
+    }
+
+    private static Map<String, String> orEmpty(final Map<String, String> tags) {
+        return tags == null ? new HashMap<>() : tags;
+    }
+}
@@ -0,0 +1,152 @@
+package software.amazon.ecr.repositorygroup;
+
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.CreateRepositoryRequest;
+import software.amazon.awssdk.services.ecr.model.ImageTagMutability;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import software.amazon.ecr.repository.FakeEcrClient;
+import software.amazon.ecr.repository.TimeBudget;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CreateHandlerTest extends AbstractTestBase {
+
+    private static final String LIFECYCLE_POLICY_TEXT = "{\"rules\":[{\"rulePriority\":1,\"description\":\"expire untagged\","
+            + "\"selection\":{\"tagStatus\":\"untagged\",\"countType\":\"imageCountMoreThan\",\"countNumber\":5},"
+            + "\"action\":{\"type\":\"expire\"}}]}";
+
+    private FakeEcrClient ecr;
+    private AmazonWebServicesClientProxy proxy;
+    private ProxyClient<EcrClient> proxyClient;
+    private ResourceModel model;
+    private ResourceHandlerRequest<ResourceModel> request;
+
+    @BeforeEach
+    public void setup() {
+        ecr = new FakeEcrClient();
+        proxy = new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis());
+        proxyClient = MOCK_PROXY(proxy, ecr);
+
+        final Map<String, Object> policy = new HashMap<>();
+        policy.put("Version", "2012-10-17");
+        policy.put("Statement", Collections.emptyList());
+        model = ResourceModel.builder()
+                .groupName("team")
+                .repositoryNames(new HashSet<>(Arrays.asList("api", "web", "worker")))
+                .repositoryPolicyText(policy)
+                .lifecyclePolicy(LifecyclePolicy.builder().lifecyclePolicyText(LIFECYCLE_POLICY_TEXT).build())
+                .imageTagMutability("IMMUTABLE")
+                .build();
+        request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .desiredResourceTags(Collections.singletonMap("owner", "team"))
+                .build();
+    }
+
+    @Test
+    void handleRequest_CreatesEveryMemberWithTheGroupSettings() {
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = new CreateHandler().handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel()).isEqualTo(model);
+        assertThat(ecr.repositoryCount()).isEqualTo(3);
+        for (final String member : Arrays.asList("team/api", "team/web", "team/worker")) {
+            assertThat(ecr.repository(member).imageTagMutability()).isEqualTo(ImageTagMutability.IMMUTABLE);
+            assertThat(ecr.repositoryPolicy(member)).contains("2012-10-17");
+            assertThat(ecr.lifecyclePolicy(member)).isEqualTo(LIFECYCLE_POLICY_TEXT);
+            assertThat(ecr.tags(member))
+                    .containsEntry("owner", "team")
+                    .containsEntry(Translator.GROUP_TAG_KEY, "team");
+        }
+    }
+
+    @Test
+    void handleRequest_ExhaustedBudgetCheckpointsAndResumes() {
+        final CreateHandler exhausted = new CreateHandler(() -> TimeBudget.ofMillis(0), MemberBatches.DEFAULT_CONCURRENCY);
+
+        final ProgressEvent<ResourceModel, CallbackContext> first
+                = exhausted.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(first.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(first.getCallbackDelaySeconds()).isEqualTo(BaseHandlerStd.CHECKPOINT_CALLBACK_DELAY_SECONDS);
+        assertThat(first.getCallbackContext().hasCompleted("CheckNamespace")).isTrue();
+        assertThat(ecr.repositoryCount()).isZero();
+
+        final ProgressEvent<ResourceModel, CallbackContext> second
+                = new CreateHandler().handleRequest(proxy, request, first.getCallbackContext(), proxyClient, logger);
+
+        assertThat(second.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(ecr.repositoryCount()).isEqualTo(3);
+    }
+
+    @Test
+    void handleRequest_ResumesAtTheCheckpointedMember() {
+        final CallbackContext context = new CallbackContext();
+        context.markCompleted("CheckNamespace");
+        context.setNextMemberIndex(2);
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = new CreateHandler(TimeBudget::start, 1).handleRequest(proxy, request, context, proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(ecr.repositoryCount()).isEqualTo(1);
+        assertThat(ecr.repository("team/worker")).isNotNull();
+    }
+
+    @Test
+    void handleRequest_OccupiedNamespace() {
+        ecr.createRepository(CreateRepositoryRequest.builder().repositoryName("team/legacy").build());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = new CreateHandler().handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(response.getErrorCode()).isEqualTo(HandlerErrorCode.AlreadyExists);
+        assertThat(ecr.repositoryCount()).isEqualTo(1);
+    }
+
+    @Test
+    void handleRequest_RetryAdoptsMembersOfTheSameGroup() {
+        ecr.createRepository(CreateRepositoryRequest.builder()
+                .repositoryName("team/api")
+                .tags(software.amazon.ecr.repository.Translator.translateTagsToSdk(Translator.memberTags("team", null)))
+                .build());
+        final CallbackContext context = new CallbackContext();
+        context.markCompleted("CheckNamespace");
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = new CreateHandler().handleRequest(proxy, request, context, proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(ecr.repositoryCount()).isEqualTo(3);
+        assertThat(ecr.lifecyclePolicy("team/api")).isEqualTo(LIFECYCLE_POLICY_TEXT);
+    }
+
+    @Test
+    void handleRequest_RetryRefusesForeignRepository() {
+        ecr.createRepository(CreateRepositoryRequest.builder().repositoryName("team/api").build());
+        final CallbackContext context = new CallbackContext();
+        context.markCompleted("CheckNamespace");
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = new CreateHandler().handleRequest(proxy, request, context, proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(response.getErrorCode()).isEqualTo(HandlerErrorCode.AlreadyExists);
+        assertThat(ecr.lifecyclePolicy("team/api")).isNull();
+    }
+}
@@ -0,0 +1,122 @@
+package software.amazon.ecr.repositorygroup;
+
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.CreateRepositoryRequest;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import software.amazon.ecr.repository.FakeEcrClient;
+import software.amazon.ecr.repository.TimeBudget;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeleteHandlerTest extends AbstractTestBase {
+
+    private FakeEcrClient ecr;
+    private AmazonWebServicesClientProxy proxy;
+    private ProxyClient<EcrClient> proxyClient;
+    private ResourceHandlerRequest<ResourceModel> request;
+
+    @BeforeEach
+    public void setup() {
+        ecr = new FakeEcrClient();
+        proxy = new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis());
+        proxyClient = MOCK_PROXY(proxy, ecr);
+        request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder().groupName("team").build())
+                .build();
+    }
+
+    @Test
+    void handleRequest_DeletesEveryMember() {
+        for (final String member : new String[] {"api", "web", "tools/lint"}) {
+            createMember(member);
+        }
+        ecr.createRepository(CreateRepositoryRequest.builder().repositoryName("teams/other").build());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = new DeleteHandler().handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel()).isNull();
+        assertThat(ecr.repositoryCount()).isEqualTo(1);
+        assertThat(ecr.repository("teams/other")).isNotNull();
+    }
+
+    @Test
+    void handleRequest_LeavesUntaggedRepositoriesInTheNamespace() {
+        createMember("api");
+        ecr.createRepository(CreateRepositoryRequest.builder().repositoryName("team/foreign").build());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = new DeleteHandler().handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(ecr.repository("team/api")).isNull();
+        assertThat(ecr.repository("team/foreign")).isNotNull();
+    }
+
+    @Test
+    void handleRequest_UntaggedRepositoriesAloneAreNoGroup() {
+        ecr.createRepository(CreateRepositoryRequest.builder().repositoryName("team/foreign").build());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = new DeleteHandler().handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getErrorCode()).isEqualTo(HandlerErrorCode.NotFound);
+        assertThat(ecr.repository("team/foreign")).isNotNull();
+    }
+
+    @Test
+    void handleRequest_ResumesDiscoveryAfterCheckpoint() {
+        createMember("api");
+        createMember("web");
+        final ProgressEvent<ResourceModel, CallbackContext> first = new DeleteHandler(() -> TimeBudget.ofMillis(0), 1)
+                .handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+        assertThat(first.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(first.getCallbackDelaySeconds()).isEqualTo(BaseHandlerStd.CHECKPOINT_CALLBACK_DELAY_SECONDS);
+        assertThat(first.getCallbackContext().hasCompleted(BaseHandlerStd.DISCOVER_MEMBERS)).isFalse();
+        assertThat(ecr.repositoryCount()).isEqualTo(2);
+
+        final ProgressEvent<ResourceModel, CallbackContext> second
+                = new DeleteHandler().handleRequest(proxy, request, first.getCallbackContext(), proxyClient, logger);
+
+        assertThat(second.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(ecr.repositoryCount()).isZero();
+    }
+
+    @Test
+    void handleRequest_ResumedDeleteOfAnEmptiedGroupSucceeds() {
+        final CallbackContext context = new CallbackContext();
+        context.getDiscoveredMembers().add("api");
+        context.markCompleted(BaseHandlerStd.DISCOVER_MEMBERS);
+
+        // team/api was deleted by the service or an earlier attempt before the handler was called back.
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = new DeleteHandler().handleRequest(proxy, request, context, proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+    }
+
+    @Test
+    void handleRequest_GroupNotFound() {
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = new DeleteHandler().handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(response.getErrorCode()).isEqualTo(HandlerErrorCode.NotFound);
+    }
+
+    private void createMember(final String member) {
+        ecr.createRepository(CreateRepositoryRequest.builder()
+                .repositoryName(Translator.memberName("team", member))
+                .tags(software.amazon.ecr.repository.Translator.translateTagsToSdk(Translator.memberTags("team", null)))
+                .build());
+    }
+}
@@ -0,0 +1,59 @@
+package software.amazon.ecr.repositorygroup;
+
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.CreateRepositoryRequest;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import software.amazon.ecr.repository.FakeEcrClient;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ListHandlerTest extends AbstractTestBase {
+
+    private FakeEcrClient ecr;
+    private AmazonWebServicesClientProxy proxy;
+    private ProxyClient<EcrClient> proxyClient;
+
+    @BeforeEach
+    public void setup() {
+        ecr = new FakeEcrClient();
+        proxy = new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis());
+        proxyClient = MOCK_PROXY(proxy, ecr);
+    }
+
+    @Test
+    void handleRequest_ListsGroupsByTheirMarkerTag() {
+        createGroup("team", "api", "web");
+        createGroup("org/team", "api");
+        ecr.createRepository(CreateRepositoryRequest.builder().repositoryName("loose").build());
+        ecr.createRepository(CreateRepositoryRequest.builder().repositoryName("other/repo").build());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = new ListHandler().handleRequest(proxy,
+                ResourceHandlerRequest.<ResourceModel>builder().build(), new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModels().stream().map(ResourceModel::getGroupName).collect(Collectors.toList()))
+                .containsExactly("org/team", "team");
+    }
+
+    private void createGroup(final String groupName, final String... members) {
+        final ProgressEvent<ResourceModel, CallbackContext> created = new CreateHandler().handleRequest(proxy,
+                ResourceHandlerRequest.<ResourceModel>builder()
+                        .desiredResourceState(ResourceModel.builder()
+                                .groupName(groupName)
+                                .repositoryNames(new HashSet<>(Arrays.asList(members)))
+                                .build())
+                        .build(),
+                new CallbackContext(), proxyClient, logger);
+        assertThat(created.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+    }
+}
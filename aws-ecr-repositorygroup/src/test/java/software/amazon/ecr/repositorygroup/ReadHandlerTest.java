@@ -0,0 +1,120 @@
+package software.amazon.ecr.repositorygroup;
+
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.CreateRepositoryRequest;
+import software.amazon.awssdk.services.ecr.model.ListTagsForResourceRequest;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import software.amazon.ecr.repository.FakeEcrClient;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ReadHandlerTest extends AbstractTestBase {
+
+    private FakeEcrClient ecr;
+    private AmazonWebServicesClientProxy proxy;
+    private ProxyClient<EcrClient> proxyClient;
+    private ResourceHandlerRequest<ResourceModel> request;
+
+    @BeforeEach
+    public void setup() {
+        ecr = new FakeEcrClient();
+        proxy = new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis());
+        proxyClient = MOCK_PROXY(proxy, ecr);
+        request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder().groupName("team").build())
+                .build();
+    }
+
+    @Test
+    void handleRequest_ReadsMembersAndSharedSettings() {
+        final ResourceModel created = ResourceModel.builder()
+                .groupName("team")
+                .repositoryNames(new HashSet<>(Arrays.asList("api", "tools/lint")))
+                .imageTagMutability("IMMUTABLE")
+                .imageScanningConfiguration(ImageScanningConfiguration.builder().scanOnPush(true).build())
+                .build();
+        new CreateHandler().handleRequest(proxy,
+                ResourceHandlerRequest.<ResourceModel>builder()
+                        .desiredResourceState(created)
+                        .desiredResourceTags(Collections.singletonMap("owner", "team"))
+                        .build(),
+                new CallbackContext(), proxyClient, logger);
+        ecr.createRepository(CreateRepositoryRequest.builder().repositoryName("teams/other").build());
+        ecr.createRepository(CreateRepositoryRequest.builder().repositoryName("team/foreign").build());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = new ReadHandler().handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        final ResourceModel model = response.getResourceModel();
+        assertThat(model.getRepositoryNames()).containsExactlyInAnyOrder("api", "tools/lint");
+        assertThat(model.getImageTagMutability()).isEqualTo("IMMUTABLE");
+        assertThat(model.getImageScanningConfiguration().getScanOnPush()).isTrue();
+        assertThat(model.getRepositoryPolicyText()).isNull();
+        assertThat(model.getLifecyclePolicy()).isNull();
+        assertThat(model.getTags()).containsExactly(Tag.builder().key("owner").value("team").build());
+    }
+
+    @Test
+    void handleRequest_NarrowsTheNamespaceToTheModelsMembers() {
+        final ResourceModel created = ResourceModel.builder()
+                .groupName("team")
+                .repositoryNames(new HashSet<>(Arrays.asList("api", "web")))
+                .build();
+        new CreateHandler().handleRequest(proxy,
+                ResourceHandlerRequest.<ResourceModel>builder().desiredResourceState(created).build(),
+                new CallbackContext(), proxyClient, logger);
+        ecr.createRepository(CreateRepositoryRequest.builder().repositoryName("team/foreign").build());
+        final FakeEcrClient counted = spy(ecr);
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = new ReadHandler().handleRequest(proxy,
+                ResourceHandlerRequest.<ResourceModel>builder().desiredResourceState(created).build(),
+                new CallbackContext(), MOCK_PROXY(proxy, counted), logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel().getRepositoryNames()).containsExactlyInAnyOrder("api", "web");
+        // Only the member the settings are read from has its tags read.
+        verify(counted, times(1)).listTagsForResource(any(ListTagsForResourceRequest.class));
+    }
+
+    @Test
+    void handleRequest_NamedRepositoryWithoutTheMarkerIsNoGroup() {
+        ecr.createRepository(CreateRepositoryRequest.builder().repositoryName("team/foreign").build());
+        final ResourceModel model = ResourceModel.builder()
+                .groupName("team")
+                .repositoryNames(Collections.singleton("foreign"))
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = new ReadHandler().handleRequest(proxy,
+                ResourceHandlerRequest.<ResourceModel>builder().desiredResourceState(model).build(),
+                new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getErrorCode()).isEqualTo(HandlerErrorCode.NotFound);
+    }
+
+    @Test
+    void handleRequest_GroupNotFound() {
+        ecr.createRepository(CreateRepositoryRequest.builder().repositoryName("team").build());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response
+                = new ReadHandler().handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(response.getErrorCode()).isEqualTo(HandlerErrorCode.NotFound);
+    }
+}
@@ -0,0 +1,151 @@
+package software.amazon.ecr.repositorygroup;
+
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecr.model.DescribeRepositoriesRequest;
+import software.amazon.awssdk.services.ecr.model.ImageTagMutability;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import software.amazon.ecr.repository.FakeEcrClient;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+class UpdateHandlerTest extends AbstractTestBase {
+
+    private FakeEcrClient ecr;
+    private AmazonWebServicesClientProxy proxy;
+    private ProxyClient<EcrClient> proxyClient;
+    private ResourceModel previousModel;
+
+    @BeforeEach
+    public void setup() {
+        ecr = new FakeEcrClient();
+        proxy = new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis());
+        proxyClient = MOCK_PROXY(proxy, ecr);
+
+        previousModel = previous().build();
+        final ProgressEvent<ResourceModel, CallbackContext> created = new CreateHandler().handleRequest(proxy,
+                ResourceHandlerRequest.<ResourceModel>builder()
+                        .desiredResourceState(previousModel)
+                        .desiredResourceTags(Collections.singletonMap("owner", "team"))
+                        .build(),
+                new CallbackContext(), proxyClient, logger);
+        assertThat(created.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+    }
+
+    @Test
+    void handleRequest_ReplacesMembersAndUpdatesTheOnesThatStay() {
+        final ResourceModel model = ResourceModel.builder()
+                .groupName("team")
+                .repositoryNames(new HashSet<>(Arrays.asList("api", "worker")))
+                .imageTagMutability("IMMUTABLE")
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = new UpdateHandler().handleRequest(proxy,
+                request(model, Collections.singletonMap("owner", "platform")), new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel()).isEqualTo(model);
+        assertThat(ecr.repository("team/web")).isNull();
+        assertThat(ecr.repository("team/worker").imageTagMutability()).isEqualTo(ImageTagMutability.IMMUTABLE);
+        assertThat(ecr.repository("team/api").imageTagMutability()).isEqualTo(ImageTagMutability.IMMUTABLE);
+        assertThat(ecr.tags("team/api"))
+                .containsEntry("owner", "platform")
+                .containsEntry(Translator.GROUP_TAG_KEY, "team");
+    }
+
+    @Test
+    void handleRequest_MembershipChangeLeavesRetainedMembersAlone() {
+        final ResourceModel model = previous()
+                .repositoryNames(new HashSet<>(Arrays.asList("api", "web", "worker")))
+                .build();
+        ecr.putImageTagMutability(software.amazon.awssdk.services.ecr.model.PutImageTagMutabilityRequest.builder()
+                .repositoryName("team/api").imageTagMutability(ImageTagMutability.IMMUTABLE).build());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = new UpdateHandler().handleRequest(proxy,
+                request(model, Collections.singletonMap("owner", "team")), new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(ecr.repositoryCount()).isEqualTo(3);
+        // Drift on a retained member is only corrected when the group's settings change.
+        assertThat(ecr.repository("team/api").imageTagMutability()).isEqualTo(ImageTagMutability.IMMUTABLE);
+    }
+
+    @Test
+    void handleRequest_TagChangeDerivesTheMemberArns() {
+        final FakeEcrClient counted = spy(ecr);
+        final ResourceHandlerRequest<ResourceModel> request = request(previousModel, Collections.singletonMap("owner", "platform"));
+        request.setAwsPartition("aws");
+        request.setRegion(FakeEcrClient.REGION);
+        request.setAwsAccountId(FakeEcrClient.ACCOUNT_ID);
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = new UpdateHandler().handleRequest(proxy,
+                request, new CallbackContext(), MOCK_PROXY(proxy, counted), logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(ecr.tags("team/api")).containsEntry("owner", "platform");
+        assertThat(ecr.tags("team/web")).containsEntry("owner", "platform");
+        verify(counted, never()).describeRepositories(any(DescribeRepositoriesRequest.class));
+    }
+
+    @Test
+    void handleRequest_MissingPreviousStateAdoptsTheMembers() {
+        final ResourceModel model = previous()
+                .repositoryNames(new HashSet<>(Arrays.asList("api", "web", "worker")))
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = new UpdateHandler().handleRequest(proxy,
+                ResourceHandlerRequest.<ResourceModel>builder()
+                        .desiredResourceState(model)
+                        .desiredResourceTags(Collections.singletonMap("owner", "team"))
+                        .build(),
+                new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(ecr.repositoryCount()).isEqualTo(3);
+        assertThat(ecr.tags("team/worker")).containsEntry(Translator.GROUP_TAG_KEY, "team");
+    }
+
+    @Test
+    void handleRequest_EncryptionChangeIsRejected() {
+        final ResourceModel model = previous()
+                .encryptionConfiguration(EncryptionConfiguration.builder().encryptionType("KMS").build())
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = new UpdateHandler().handleRequest(proxy,
+                request(model, Collections.singletonMap("owner", "team")), new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(response.getErrorCode()).isEqualTo(HandlerErrorCode.NotUpdatable);
+    }
+
+    private static ResourceModel.ResourceModelBuilder previous() {
+        return ResourceModel.builder()
+                .groupName("team")
+                .repositoryNames(new HashSet<>(Arrays.asList("api", "web")))
+                .imageTagMutability("MUTABLE");
+    }
+
+    private ResourceHandlerRequest<ResourceModel> request(final ResourceModel model, final Map<String, String> tags) {
+        return ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .previousResourceState(previousModel)
+                .desiredResourceTags(tags)
+                .previousResourceTags(Collections.singletonMap("owner", "team"))
+                .build();
+    }
+}